@@ -0,0 +1,49 @@
+/*
+ * MethodReaderBenchmark.java
+ *
+ * This source code is subject to terms and conditions of the Apache License, Version 2.0.
+ * A copy of the license can be found in the License.html file at the root of this distribution.
+ * By using this source code in any fashion, you are agreeing to be bound by the terms of the
+ * Apache License, Version 2.0.
+ *
+ * You must not remove this notice, or any other, from this software.
+ */
+
+package com.strobel.assembler.metadata;
+
+import com.strobel.decompiler.benchmarks.Corpus;
+import com.strobel.decompiler.benchmarks.CorpusBenchmark;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Measures loading method bodies through {@link MethodReader#readBody()}, along the same deferred
+ * path the decompiler takes: re-reading the declaring class file and its constant pool, then
+ * decoding the instructions, exception handlers, and variables.
+ * <p>
+ * This benchmark lives in the metadata package so it can discard each method's cached body.
+ */
+public class MethodReaderBenchmark extends CorpusBenchmark {
+    private List<MethodDefinition> _methods;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        final Corpus corpus = loadCorpus();
+        final MetadataSystem metadataSystem = new MetadataSystem(corpus.createTypeLoader());
+
+        _methods = Corpus.methodsWithBodies(corpus.resolveTypes(metadataSystem));
+    }
+
+    @Benchmark
+    public void readBody(final Blackhole blackhole) {
+        for (final MethodDefinition method : _methods) {
+            method.setBody(null);
+            blackhole.consume(method.getBody());
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * AstOptimizerBenchmark.java
+ *
+ * This source code is subject to terms and conditions of the Apache License, Version 2.0.
+ * A copy of the license can be found in the License.html file at the root of this distribution.
+ * By using this source code in any fashion, you are agreeing to be bound by the terms of the
+ * Apache License, Version 2.0.
+ *
+ * You must not remove this notice, or any other, from this software.
+ */
+
+package com.strobel.decompiler.benchmarks;
+
+import com.strobel.assembler.metadata.MetadataSystem;
+import com.strobel.assembler.metadata.MethodBody;
+import com.strobel.assembler.metadata.MethodDefinition;
+import com.strobel.decompiler.DecompilerContext;
+import com.strobel.decompiler.DecompilerSettings;
+import com.strobel.decompiler.ast.AstOptimizationStep;
+import com.strobel.decompiler.ast.AstOptimizer;
+import com.strobel.decompiler.ast.Block;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures building the bytecode AST for each method body with
+ * {@link com.strobel.decompiler.ast.AstBuilder}, alone and followed by {@link AstOptimizer#optimize}.
+ * Method bodies are read once up front, so reading them is not measured here.
+ */
+public class AstOptimizerBenchmark extends CorpusBenchmark {
+    private DecompilerSettings _settings;
+    private List<MethodDefinition> _methods;
+    private List<MethodBody> _bodies;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        final Corpus corpus = loadCorpus();
+        final MetadataSystem metadataSystem = new MetadataSystem(corpus.createTypeLoader());
+
+        _settings = createSettings();
+        _methods = new ArrayList<>();
+        _bodies = new ArrayList<>();
+
+        //
+        // Only keep methods which decompile cleanly, and hold on to their bodies, which are
+        // otherwise only softly cached.
+        //
+
+        for (final MethodAst ast : buildAsts(_settings, Corpus.methodsWithBodies(corpus.resolveTypes(metadataSystem)), AstOptimizationStep.None)) {
+            _methods.add(ast.method);
+            _bodies.add(ast.method.getBody());
+        }
+    }
+
+    @Benchmark
+    public void build(final Blackhole blackhole) {
+        for (final MethodDefinition method : _methods) {
+            blackhole.consume(buildAst(method, createContext(_settings, method)));
+        }
+    }
+
+    @Benchmark
+    public void buildAndOptimize(final Blackhole blackhole) {
+        for (final MethodDefinition method : _methods) {
+            final DecompilerContext context = createContext(_settings, method);
+            final Block block = buildAst(method, context);
+
+            AstOptimizer.optimize(context, block);
+            blackhole.consume(block);
+        }
+    }
+}
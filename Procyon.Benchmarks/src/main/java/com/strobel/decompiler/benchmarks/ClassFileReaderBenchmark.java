@@ -0,0 +1,68 @@
+/*
+ * ClassFileReaderBenchmark.java
+ *
+ * This source code is subject to terms and conditions of the Apache License, Version 2.0.
+ * A copy of the license can be found in the License.html file at the root of this distribution.
+ * By using this source code in any fashion, you are agreeing to be bound by the terms of the
+ * Apache License, Version 2.0.
+ *
+ * You must not remove this notice, or any other, from this software.
+ */
+
+package com.strobel.decompiler.benchmarks;
+
+import com.strobel.assembler.metadata.Buffer;
+import com.strobel.assembler.metadata.ClassFileReader;
+import com.strobel.assembler.metadata.MetadataSystem;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures {@link ClassFileReader#readClass}: parsing the constant pool, members, and attributes of
+ * each class file.  Referenced library types are resolved against a warm {@link MetadataSystem}.
+ */
+public class ClassFileReaderBenchmark extends CorpusBenchmark {
+    private List<byte[]> _classes;
+    private MetadataSystem _metadataSystem;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        final Corpus corpus = loadCorpus();
+
+        _classes = new ArrayList<>(corpus.getClasses().values());
+        _metadataSystem = new MetadataSystem(corpus.createTypeLoader());
+
+        corpus.resolveTypes(_metadataSystem);
+    }
+
+    @Benchmark
+    public void readClass(final Blackhole blackhole) {
+        for (final byte[] data : _classes) {
+            blackhole.consume(ClassFileReader.readClass(_metadataSystem, new Buffer(data)));
+        }
+    }
+
+    @Benchmark
+    public void readClassWithCode(final Blackhole blackhole) {
+        final int options = ClassFileReader.OPTIONS_DEFAULT | ClassFileReader.OPTION_PROCESS_CODE;
+
+        for (final byte[] data : _classes) {
+            blackhole.consume(ClassFileReader.readClass(options, _metadataSystem, new Buffer(data)));
+        }
+    }
+
+    @Benchmark
+    public void readClassLazily(final Blackhole blackhole) {
+        final int options = ClassFileReader.OPTIONS_DEFAULT | ClassFileReader.OPTION_LAZY_MEMBERS;
+
+        for (final byte[] data : _classes) {
+            blackhole.consume(ClassFileReader.readClass(options, _metadataSystem, new Buffer(data)));
+        }
+    }
+}
@@ -0,0 +1,249 @@
+/*
+ * Corpus.java
+ *
+ * This source code is subject to terms and conditions of the Apache License, Version 2.0.
+ * A copy of the license can be found in the License.html file at the root of this distribution.
+ * By using this source code in any fashion, you are agreeing to be bound by the terms of the
+ * Apache License, Version 2.0.
+ *
+ * You must not remove this notice, or any other, from this software.
+ */
+
+package com.strobel.decompiler.benchmarks;
+
+import com.strobel.assembler.metadata.Buffer;
+import com.strobel.assembler.metadata.ClasspathTypeLoader;
+import com.strobel.assembler.metadata.CompositeTypeLoader;
+import com.strobel.assembler.metadata.DeobfuscationUtilities;
+import com.strobel.assembler.metadata.ITypeLoader;
+import com.strobel.assembler.metadata.MetadataSystem;
+import com.strobel.assembler.metadata.MethodDefinition;
+import com.strobel.assembler.metadata.TypeDefinition;
+import com.strobel.assembler.metadata.TypeReference;
+import com.strobel.core.StringUtilities;
+import com.strobel.core.VerifyArgument;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * A set of class files to benchmark against, keyed by internal name.
+ * <p>
+ * The {@link #RESOURCES} corpus holds the class files used by the decompiler tests, which the build
+ * copies into the {@code corpus} resource directory.  The {@link #STRESS} corpus is generated and
+ * compiled at run time (see {@link StressCorpus}), and exercises the shapes which have caused
+ * performance problems before: very long expressions, deep nesting, large switches, nested
+ * exception handlers, many lambdas, and many locals.
+ */
+public final class Corpus {
+    public final static String RESOURCES = "resources";
+    public final static String STRESS = "stress";
+
+    private final static String RESOURCE_DIRECTORY = "corpus";
+
+    private final String _name;
+    private final Map<String, byte[]> _classes;
+
+    private Corpus(final String name, final Map<String, byte[]> classes) {
+        _name = name;
+        _classes = Collections.unmodifiableMap(classes);
+    }
+
+    public static Corpus load(final String name) throws IOException {
+        VerifyArgument.notNull(name, "name");
+
+        switch (name) {
+            case RESOURCES:
+                return new Corpus(name, loadResources());
+            case STRESS:
+                return new Corpus(name, StressCorpus.compile());
+            default:
+                throw new IllegalArgumentException("Unknown corpus: " + name);
+        }
+    }
+
+    public final String getName() {
+        return _name;
+    }
+
+    /**
+     * Gets the class files in this corpus, keyed by internal name, in name order.
+     */
+    public final Map<String, byte[]> getClasses() {
+        return _classes;
+    }
+
+    /**
+     * Creates a type loader which finds the corpus types first, then falls back to the class path
+     * for library types.
+     */
+    public final ITypeLoader createTypeLoader() {
+        return new CompositeTypeLoader(
+            new ITypeLoader() {
+                @Override
+                public boolean tryLoadType(final String internalName, final Buffer buffer) {
+                    final byte[] data = _classes.get(internalName);
+
+                    if (data == null) {
+                        return false;
+                    }
+
+                    buffer.reset(data.length);
+                    buffer.putByteArray(data, 0, data.length);
+                    buffer.position(0);
+                    return true;
+                }
+            },
+            new ClasspathTypeLoader()
+        );
+    }
+
+    /**
+     * Resolves every type in the corpus against {@code metadataSystem}, the same way the decompiler
+     * does before decompiling a type.
+     */
+    public final List<TypeDefinition> resolveTypes(final MetadataSystem metadataSystem) {
+        final List<TypeDefinition> types = new ArrayList<>();
+
+        for (final String internalName : _classes.keySet()) {
+            final TypeReference type = metadataSystem.lookupType(internalName);
+            final TypeDefinition resolvedType = type != null ? type.resolve() : null;
+
+            if (resolvedType != null) {
+                DeobfuscationUtilities.processType(resolvedType);
+                types.add(resolvedType);
+            }
+        }
+
+        return types;
+    }
+
+    /**
+     * Gets the types which the decompiler would write out as compilation units, i.e., those which
+     * are not nested, anonymous, or synthetic.
+     */
+    public static List<TypeDefinition> topLevelTypes(final List<TypeDefinition> types) {
+        final List<TypeDefinition> topLevelTypes = new ArrayList<>();
+
+        for (final TypeDefinition type : types) {
+            if (!type.isNested() && !type.isAnonymous() && !type.isSynthetic()) {
+                topLevelTypes.add(type);
+            }
+        }
+
+        return topLevelTypes;
+    }
+
+    /**
+     * Gets every method with a body declared in {@code types}.
+     */
+    public static List<MethodDefinition> methodsWithBodies(final List<TypeDefinition> types) {
+        final List<MethodDefinition> methods = new ArrayList<>();
+
+        for (final TypeDefinition type : types) {
+            for (final MethodDefinition method : type.getDeclaredMethods()) {
+                if (method.getBody() != null) {
+                    methods.add(method);
+                }
+            }
+        }
+
+        return methods;
+    }
+
+    @Override
+    public String toString() {
+        return _name + " (" + _classes.size() + " classes)";
+    }
+
+    // <editor-fold defaultstate="collapsed" desc="Resource Corpus">
+
+    private static Map<String, byte[]> loadResources() throws IOException {
+        final Map<String, byte[]> classes = new TreeMap<>();
+        final File location;
+
+        try {
+            location = new File(Corpus.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        }
+        catch (final URISyntaxException e) {
+            throw new IOException(e);
+        }
+
+        if (location.isDirectory()) {
+            loadResources(new File(location, RESOURCE_DIRECTORY), StringUtilities.EMPTY, classes);
+        }
+        else {
+            try (final JarFile jar = new JarFile(location)) {
+                final Enumeration<JarEntry> entries = jar.entries();
+                final String prefix = RESOURCE_DIRECTORY + "/";
+
+                while (entries.hasMoreElements()) {
+                    final JarEntry entry = entries.nextElement();
+                    final String name = entry.getName();
+
+                    if (name.startsWith(prefix) && name.endsWith(".class")) {
+                        try (final InputStream in = jar.getInputStream(entry)) {
+                            classes.put(internalNameOf(name.substring(prefix.length())), readFully(in));
+                        }
+                    }
+                }
+            }
+        }
+
+        if (classes.isEmpty()) {
+            throw new IOException("No class files found in the '" + RESOURCE_DIRECTORY + "' resource directory.");
+        }
+
+        return classes;
+    }
+
+    private static void loadResources(final File directory, final String path, final Map<String, byte[]> classes) throws IOException {
+        final File[] files = directory.listFiles();
+
+        if (files == null) {
+            return;
+        }
+
+        for (final File file : files) {
+            final String name = path + file.getName();
+
+            if (file.isDirectory()) {
+                loadResources(file, name + "/", classes);
+            }
+            else if (name.endsWith(".class")) {
+                try (final InputStream in = new FileInputStream(file)) {
+                    classes.put(internalNameOf(name), readFully(in));
+                }
+            }
+        }
+    }
+
+    private static String internalNameOf(final String path) {
+        return StringUtilities.removeRight(path, ".class");
+    }
+
+    private static byte[] readFully(final InputStream in) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[8192];
+
+        for (int n = in.read(buffer); n >= 0; n = in.read(buffer)) {
+            out.write(buffer, 0, n);
+        }
+
+        return out.toByteArray();
+    }
+
+    // </editor-fold>
+}
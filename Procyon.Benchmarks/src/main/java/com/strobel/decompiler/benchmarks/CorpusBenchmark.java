@@ -0,0 +1,112 @@
+/*
+ * CorpusBenchmark.java
+ *
+ * This source code is subject to terms and conditions of the Apache License, Version 2.0.
+ * A copy of the license can be found in the License.html file at the root of this distribution.
+ * By using this source code in any fashion, you are agreeing to be bound by the terms of the
+ * Apache License, Version 2.0.
+ *
+ * You must not remove this notice, or any other, from this software.
+ */
+
+package com.strobel.decompiler.benchmarks;
+
+import com.strobel.assembler.metadata.MethodDefinition;
+import com.strobel.decompiler.DecompilerContext;
+import com.strobel.decompiler.DecompilerSettings;
+import com.strobel.decompiler.ast.AstBuilder;
+import com.strobel.decompiler.ast.AstOptimizationStep;
+import com.strobel.decompiler.ast.AstOptimizer;
+import com.strobel.decompiler.ast.Block;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Base class for benchmarks which run one phase of the pipeline over a whole {@link Corpus}.  Each
+ * benchmark invocation processes every class (or method) in the corpus once, so scores are the
+ * time to run the phase over the corpus.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+public abstract class CorpusBenchmark {
+    @Param({ Corpus.RESOURCES, Corpus.STRESS })
+    public String corpus;
+
+    protected final Corpus loadCorpus() throws IOException {
+        return Corpus.load(corpus);
+    }
+
+    protected static DecompilerSettings createSettings() {
+        return DecompilerSettings.javaDefaults();
+    }
+
+    protected static DecompilerContext createContext(final DecompilerSettings settings, final MethodDefinition method) {
+        final DecompilerContext context = new DecompilerContext();
+
+        context.setSettings(settings);
+        context.setCurrentType(method.getDeclaringType());
+        context.setCurrentMethod(method);
+
+        return context;
+    }
+
+    protected static Block buildAst(final MethodDefinition method, final DecompilerContext context) {
+        final Block block = new Block();
+        block.getBody().addAll(AstBuilder.build(method.getBody(), true, context));
+        return block;
+    }
+
+    /**
+     * Builds and optimizes the bytecode AST for each method, stopping before {@code abortBeforeStep}.
+     * Methods which fail to decompile are left out, so one bad method does not fail the benchmark.
+     */
+    protected static List<MethodAst> buildAsts(
+        final DecompilerSettings settings,
+        final List<MethodDefinition> methods,
+        final AstOptimizationStep abortBeforeStep) {
+
+        final List<MethodAst> asts = new ArrayList<>(methods.size());
+
+        for (final MethodDefinition method : methods) {
+            try {
+                final DecompilerContext context = createContext(settings, method);
+                final Block block = buildAst(method, context);
+
+                AstOptimizer.optimize(context, block, abortBeforeStep);
+                asts.add(new MethodAst(method, context, block));
+            }
+            catch (final Throwable ignored) {
+            }
+        }
+
+        return asts;
+    }
+
+    protected final static class MethodAst {
+        final MethodDefinition method;
+        final DecompilerContext context;
+        final Block block;
+
+        MethodAst(final MethodDefinition method, final DecompilerContext context, final Block block) {
+            this.method = method;
+            this.context = context;
+            this.block = block;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * JavaOutputBenchmark.java
+ *
+ * This source code is subject to terms and conditions of the Apache License, Version 2.0.
+ * A copy of the license can be found in the License.html file at the root of this distribution.
+ * By using this source code in any fashion, you are agreeing to be bound by the terms of the
+ * Apache License, Version 2.0.
+ *
+ * You must not remove this notice, or any other, from this software.
+ */
+
+package com.strobel.decompiler.benchmarks;
+
+import com.strobel.assembler.metadata.MetadataSystem;
+import com.strobel.assembler.metadata.TypeDefinition;
+import com.strobel.decompiler.DecompilerSettings;
+import com.strobel.decompiler.PlainTextOutput;
+import com.strobel.decompiler.languages.java.JavaOutputVisitor;
+import com.strobel.decompiler.languages.java.ast.AstBuilder;
+import com.strobel.decompiler.languages.java.ast.CompilationUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures writing out fully transformed compilation units with {@link JavaOutputVisitor}.
+ */
+public class JavaOutputBenchmark extends CorpusBenchmark {
+    private DecompilerSettings _settings;
+    private List<CompilationUnit> _compilationUnits;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        final Corpus corpus = loadCorpus();
+        final MetadataSystem metadataSystem = new MetadataSystem(corpus.createTypeLoader());
+
+        _settings = createSettings();
+        _compilationUnits = new ArrayList<>();
+
+        for (final TypeDefinition type : Corpus.topLevelTypes(corpus.resolveTypes(metadataSystem))) {
+            final AstBuilder builder = TransformationPipelineBenchmark.createAstBuilder(_settings, type);
+
+            builder.runTransformations();
+            _compilationUnits.add(builder.getCompilationUnit());
+        }
+    }
+
+    @Benchmark
+    public void write(final Blackhole blackhole) {
+        for (final CompilationUnit compilationUnit : _compilationUnits) {
+            final PlainTextOutput output = new PlainTextOutput();
+
+            compilationUnit.acceptVisitor(new JavaOutputVisitor(output, _settings), null);
+            blackhole.consume(output.toString());
+        }
+    }
+}
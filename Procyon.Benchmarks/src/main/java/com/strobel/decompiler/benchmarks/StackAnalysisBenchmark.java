@@ -0,0 +1,83 @@
+/*
+ * StackAnalysisBenchmark.java
+ *
+ * This source code is subject to terms and conditions of the Apache License, Version 2.0.
+ * A copy of the license can be found in the License.html file at the root of this distribution.
+ * By using this source code in any fashion, you are agreeing to be bound by the terms of the
+ * Apache License, Version 2.0.
+ *
+ * You must not remove this notice, or any other, from this software.
+ */
+
+package com.strobel.decompiler.benchmarks;
+
+import com.strobel.assembler.metadata.MetadataSystem;
+import com.strobel.assembler.metadata.MethodBody;
+import com.strobel.assembler.metadata.MethodDefinition;
+import com.strobel.decompiler.DecompilerSettings;
+import com.strobel.decompiler.ast.AstOptimizationStep;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Measures building the bytecode AST for only the largest methods in the corpus, where the stack
+ * analysis dominates: it tracks a frame of {@code maxLocals} variables at every instruction.  Run with
+ * {@code -prof gc} to see how much each build allocates.
+ */
+public class StackAnalysisBenchmark extends CorpusBenchmark {
+    private final static int METHOD_COUNT = 10;
+
+    private DecompilerSettings _settings;
+    private List<MethodDefinition> _methods;
+    private List<MethodBody> _bodies;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        final Corpus corpus = loadCorpus();
+        final MetadataSystem metadataSystem = new MetadataSystem(corpus.createTypeLoader());
+
+        _settings = createSettings();
+        _methods = new ArrayList<>();
+        _bodies = new ArrayList<>();
+
+        for (final MethodAst ast : buildAsts(_settings, Corpus.methodsWithBodies(corpus.resolveTypes(metadataSystem)), AstOptimizationStep.None)) {
+            _methods.add(ast.method);
+        }
+
+        Collections.sort(
+            _methods,
+            new Comparator<MethodDefinition>() {
+                @Override
+                public int compare(final MethodDefinition m1, final MethodDefinition m2) {
+                    return Long.compare(frameCells(m2), frameCells(m1));
+                }
+            }
+        );
+
+        _methods = new ArrayList<>(_methods.subList(0, Math.min(METHOD_COUNT, _methods.size())));
+
+        for (final MethodDefinition method : _methods) {
+            _bodies.add(method.getBody());
+        }
+    }
+
+    @Benchmark
+    public void build(final Blackhole blackhole) {
+        for (final MethodDefinition method : _methods) {
+            blackhole.consume(buildAst(method, createContext(_settings, method)));
+        }
+    }
+
+    private static long frameCells(final MethodDefinition method) {
+        final MethodBody body = method.getBody();
+        return (long) body.getInstructions().size() * Math.max(body.getMaxLocals(), 1);
+    }
+}
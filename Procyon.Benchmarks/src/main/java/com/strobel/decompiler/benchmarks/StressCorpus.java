@@ -0,0 +1,535 @@
+/*
+ * StressCorpus.java
+ *
+ * This source code is subject to terms and conditions of the Apache License, Version 2.0.
+ * A copy of the license can be found in the License.html file at the root of this distribution.
+ * By using this source code in any fashion, you are agreeing to be bound by the terms of the
+ * Apache License, Version 2.0.
+ *
+ * You must not remove this notice, or any other, from this software.
+ */
+
+package com.strobel.decompiler.benchmarks;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Generates and compiles the stress corpus.  Each class targets a shape which is expensive for a
+ * particular part of the pipeline, and the sizes are chosen so a single method still decompiles in
+ * well under a second once warmed up; raise {@link #SCALE} to find where things fall over.
+ */
+final class StressCorpus {
+    private final static String PACKAGE = "stress";
+    private final static int SCALE = 1;
+
+    private StressCorpus() {
+    }
+
+    static Map<String, byte[]> compile() throws IOException {
+        final Map<String, String> sources = new TreeMap<>();
+
+        sources.put("LongExpressions", longExpressions(200 * SCALE));
+        sources.put("NestedControlFlow", nestedControlFlow(8 * SCALE));
+        sources.put("Color", colorEnum(32 * SCALE));
+        sources.put("Switches", switches(256 * SCALE, 64 * SCALE, 32 * SCALE));
+        sources.put("Exceptions", exceptions(6 * SCALE));
+        sources.put("Lambdas", lambdas(50 * SCALE));
+        sources.put("ManyLocals", manyLocals(200 * SCALE));
+        sources.put("StateMachine", stateMachine(256 * SCALE, 64 * SCALE));
+        sources.put("Loops", loops(48 * SCALE, 4));
+        sources.put("Casts", casts(24 * SCALE, 16));
+
+        return compile(sources);
+    }
+
+    // <editor-fold defaultstate="collapsed" desc="Generators">
+
+    private static String longExpressions(final int terms) {
+        final StringBuilder sb = header("LongExpressions");
+
+        sb.append("    private static long f(final int i) { return i; }\n\n");
+
+        sb.append("    public static long sum() {\n        return ");
+        for (int i = 0; i < terms; i++) {
+            sb.append(i == 0 ? "" : " +\n               ").append("f(").append(i).append(")");
+        }
+        sb.append(";\n    }\n\n");
+
+        sb.append("    public static double mixed(final int a, final long b, final float c, final double d) {\n        return ");
+        for (int i = 0; i < terms / 4; i++) {
+            if (i != 0) {
+                sb.append(i % 3 == 0 ? " -\n               " : " +\n               ");
+            }
+            switch (i % 4) {
+                case 0: sb.append("a * b"); break;
+                case 1: sb.append("(float) (c / (").append(i).append(" + a))"); break;
+                case 2: sb.append("((long) d << (a & ").append(i % 31).append("))"); break;
+                default: sb.append("(a > ").append(i).append(" ? c : d)"); break;
+            }
+        }
+        sb.append(";\n    }\n\n");
+
+        sb.append("    public static boolean conditions(final int a, final int b, final int c) {\n        return ");
+        for (int i = 0; i < terms / 10; i++) {
+            sb.append(i == 0 ? "" : " &&\n               ")
+              .append("(a > ").append(i).append(" && b < ").append(i)
+              .append(" || c == ").append(i).append(" || !(a == b))");
+        }
+        sb.append(";\n    }\n");
+
+        return footer(sb);
+    }
+
+    private static String nestedControlFlow(final int depth) {
+        final StringBuilder sb = header("NestedControlFlow");
+
+        sb.append("    public static int nested(final int n) {\n");
+        sb.append("        int total = 0;\n");
+
+        for (int i = 0; i < depth; i++) {
+            final String indent = indent(i + 2);
+            final String v = "i" + i;
+
+            switch (i % 3) {
+                case 0:
+                    sb.append(indent).append("l").append(i).append(":\n");
+                    sb.append(indent).append("for (int ").append(v).append(" = 0; ").append(v).append(" < n; ").append(v).append("++) {\n");
+                    break;
+                case 1:
+                    sb.append(indent).append("int ").append(v).append(" = n;\n");
+                    sb.append(indent).append("l").append(i).append(":\n");
+                    sb.append(indent).append("while (").append(v).append("-- > 0) {\n");
+                    break;
+                default:
+                    sb.append(indent).append("int ").append(v).append(" = 0;\n");
+                    sb.append(indent).append("l").append(i).append(":\n");
+                    sb.append(indent).append("do {\n");
+                    break;
+            }
+
+            final String body = indent(i + 3);
+
+            sb.append(body).append("if ((").append(v).append(" & ").append(i + 1).append(") == 0) {\n");
+            sb.append(body).append("    continue").append(i % 3 == 2 ? "" : " l" + i).append(";\n");
+            sb.append(body).append("}\n");
+            sb.append(body).append("if (total > ").append(1000 * (i + 1)).append(") {\n");
+            sb.append(body).append("    break l").append(i / 2).append(";\n");
+            sb.append(body).append("}\n");
+            sb.append(body).append("total += ").append(v).append(" * ").append(i + 1).append(";\n");
+        }
+
+        for (int i = depth - 1; i >= 0; i--) {
+            final String indent = indent(i + 2);
+
+            if (i % 3 == 2) {
+                sb.append(indent).append("} while (++i").append(i).append(" < n);\n");
+            }
+            else {
+                sb.append(indent).append("}\n");
+            }
+        }
+
+        sb.append("        return total;\n");
+        sb.append("    }\n");
+
+        return footer(sb);
+    }
+
+    private static String colorEnum(final int constants) {
+        final StringBuilder sb = new StringBuilder();
+
+        sb.append("package ").append(PACKAGE).append(";\n\n");
+        sb.append("public enum Color {\n");
+
+        for (int i = 0; i < constants; i++) {
+            sb.append("    C").append(i).append(i == constants - 1 ? ";\n" : ",\n");
+        }
+
+        return footer(sb);
+    }
+
+    private static String switches(final int intCases, final int stringCases, final int enumCases) {
+        final StringBuilder sb = header("Switches");
+
+        sb.append("    public static int intSwitch(final int value) {\n");
+        sb.append("        switch (value) {\n");
+        for (int i = 0; i < intCases; i++) {
+            sb.append("            case ").append(i * 3).append(":\n");
+            if (i % 4 != 3) {
+                sb.append("                return ").append(i).append(" * value;\n");
+            }
+        }
+        sb.append("            default:\n                return -1;\n        }\n    }\n\n");
+
+        sb.append("    public static int stringSwitch(final String value) {\n");
+        sb.append("        int result = 0;\n");
+        sb.append("        switch (value) {\n");
+        for (int i = 0; i < stringCases; i++) {
+            sb.append("            case \"s").append(i).append("\":\n");
+            sb.append("                result += ").append(i).append(";\n");
+            if (i % 2 == 0) {
+                sb.append("                break;\n");
+            }
+        }
+        sb.append("        }\n        return result;\n    }\n\n");
+
+        sb.append("    public static String enumSwitch(final Color color) {\n");
+        sb.append("        switch (color) {\n");
+        for (int i = 0; i < enumCases; i++) {
+            sb.append("            case C").append(i).append(":\n");
+            sb.append("                return \"c").append(i).append("\";\n");
+        }
+        sb.append("            default:\n                throw new IllegalArgumentException();\n        }\n    }\n");
+
+        return footer(sb);
+    }
+
+    private static String exceptions(final int depth) {
+        final StringBuilder sb = header("Exceptions");
+
+        sb.append("    private final Object lock = new Object();\n\n");
+        sb.append("    private static int work(final int i) throws java.io.IOException {\n");
+        sb.append("        if (i < 0) throw new java.io.IOException();\n");
+        sb.append("        return i;\n");
+        sb.append("    }\n\n");
+
+        sb.append("    public int nestedHandlers(final int n) {\n");
+        sb.append("        int result = 0;\n");
+        for (int i = 0; i < depth; i++) {
+            final String indent = indent(i + 2);
+            sb.append(indent).append(i % 2 == 0 ? "try {\n" : "synchronized (lock) { try {\n");
+            sb.append(indent).append("    result += work(n - ").append(i).append(");\n");
+        }
+        for (int i = depth - 1; i >= 0; i--) {
+            final String indent = indent(i + 2);
+            sb.append(indent).append("}\n");
+            sb.append(indent).append("catch (final java.io.IOException | IllegalStateException e").append(i).append(") {\n");
+            sb.append(indent).append("    result -= ").append(i).append(";\n");
+            sb.append(indent).append("}\n");
+            sb.append(indent).append("finally {\n");
+            sb.append(indent).append("    result ^= ").append(i + 1).append(";\n");
+            sb.append(indent).append(i % 2 == 0 ? "}\n" : "} }\n");
+        }
+        sb.append("        return result;\n");
+        sb.append("    }\n\n");
+
+        sb.append("    public int resources(final String path) throws java.io.IOException {\n");
+        sb.append("        int total = 0;\n");
+        for (int i = 0; i < depth; i++) {
+            final String indent = indent(i + 2);
+            sb.append(indent).append("try (final java.io.Reader r").append(i)
+              .append(" = new java.io.StringReader(path + ").append(i).append(")) {\n");
+            sb.append(indent).append("    total += r").append(i).append(".read();\n");
+        }
+        for (int i = depth - 1; i >= 0; i--) {
+            sb.append(indent(i + 2)).append("}\n");
+        }
+        sb.append("        return total;\n");
+        sb.append("    }\n");
+
+        return footer(sb);
+    }
+
+    private static String lambdas(final int count) {
+        final StringBuilder sb = header("Lambdas");
+
+        sb.append("    public static java.util.List<Object> create(final int captured, final String name) {\n");
+        sb.append("        final java.util.List<Object> result = new java.util.ArrayList<>();\n");
+        for (int i = 0; i < count; i++) {
+            switch (i % 5) {
+                case 0:
+                    sb.append("        result.add((java.util.function.IntUnaryOperator) x -> x + captured * ").append(i).append(");\n");
+                    break;
+                case 1:
+                    sb.append("        result.add((java.util.function.Function<String, Integer>) String::length);\n");
+                    break;
+                case 2:
+                    sb.append("        result.add((java.util.function.Supplier<String>) () -> name + ").append(i).append(");\n");
+                    break;
+                case 3:
+                    sb.append("        result.add((java.util.function.BiFunction<Integer, Integer, Integer>) (a, b) -> {\n");
+                    sb.append("            if (a > b) { return a - b + ").append(i).append("; }\n");
+                    sb.append("            final java.util.function.IntUnaryOperator inner = c -> c * a;\n");
+                    sb.append("            return inner.applyAsInt(b);\n");
+                    sb.append("        });\n");
+                    break;
+                default:
+                    sb.append("        result.add((java.util.function.Predicate<String>) s -> s.startsWith(name) || s.length() == ").append(i).append(");\n");
+                    break;
+            }
+        }
+        sb.append("        return result;\n");
+        sb.append("    }\n");
+
+        return footer(sb);
+    }
+
+    private static String manyLocals(final int count) {
+        final StringBuilder sb = header("ManyLocals");
+
+        sb.append("    public static long locals(final int a, final long b) {\n");
+        for (int i = 0; i < count; i++) {
+            sb.append("        ").append(i % 2 == 0 ? "int" : "long").append(" v").append(i).append(" = ");
+            sb.append(i == 0 ? "a" : "(" + (i % 2 == 0 ? "int" : "long") + ") (v" + (i - 1) + " + " + (i % 3 == 0 ? "b" : "a") + ")");
+            sb.append(";\n");
+            if (i > 1 && i % 7 == 0) {
+                sb.append("        if (v").append(i).append(" > v").append(i - 2).append(") {\n");
+                sb.append("            v").append(i).append(" = v").append(i).append(" - v").append(i - 2).append(";\n");
+                sb.append("        }\n");
+            }
+        }
+        sb.append("        return ");
+        for (int i = 0; i < count; i += 10) {
+            sb.append(i == 0 ? "" : " + ").append("v").append(i);
+        }
+        sb.append(";\n");
+        sb.append("    }\n");
+
+        return footer(sb);
+    }
+
+    private static String stateMachine(final int states, final int locals) {
+        final StringBuilder sb = header("StateMachine");
+
+        sb.append("    public static long run(final int[] input) {\n");
+        for (int i = 0; i < locals; i++) {
+            sb.append("        long v").append(i).append(" = ").append(i).append("L;\n");
+        }
+        sb.append("        int state = 0;\n");
+        sb.append("        for (int i = 0; i < input.length; i++) {\n");
+        sb.append("            switch (state) {\n");
+        for (int i = 0; i < states; i++) {
+            sb.append("                case ").append(i).append(":\n");
+            sb.append("                    v").append(i % locals).append(" += input[i] ^ ").append(i).append(";\n");
+            sb.append("                    state = input[i] > ").append(i).append(" ? ").append((i + 1) % states).append(" : 0;\n");
+            sb.append("                    break;\n");
+        }
+        sb.append("                default:\n");
+        sb.append("                    return -1L;\n");
+        sb.append("            }\n");
+        sb.append("        }\n");
+        sb.append("        return ");
+        for (int i = 0; i < locals; i++) {
+            sb.append(i == 0 ? "" : " + ").append("v").append(i);
+        }
+        sb.append(";\n");
+        sb.append("    }\n");
+
+        return footer(sb);
+    }
+
+    private static String loops(final int groups, final int depth) {
+        final StringBuilder sb = header("Loops");
+
+        sb.append("    public static long run(final int[][][][] arrays, final java.util.List<java.util.List<java.util.List<java.util.List<String>>>> lists) {\n");
+        sb.append("        long total = 0L;\n");
+        for (int g = 0; g < groups; g++) {
+            final boolean useArrays = g % 2 == 0;
+            String source = useArrays ? "arrays" : "lists";
+
+            for (int d = 0; d < depth; d++) {
+                final String indent = indent(d + 2);
+                final String v = "e" + g + "_" + d;
+                final String type = useArrays ? "int" + repeat("[]", depth - d - 1) : (d == depth - 1 ? "String" : "java.util.List" + repeat("<java.util.List", depth - d - 2) + "<String>" + repeat(">", depth - d - 2));
+
+                sb.append(indent).append("for (final ").append(type).append(" ").append(v).append(" : ").append(source).append(") {\n");
+                sb.append(indent).append("    int n").append(g).append("_").append(d).append(" = 0;\n");
+                source = v;
+            }
+
+            final String indent = indent(depth + 2);
+            final String last = "e" + g + "_" + (depth - 1);
+
+            sb.append(indent).append("if (").append(useArrays ? last + " == " + g : last + ".length() == " + g).append(") {\n");
+            sb.append(indent).append("    continue;\n");
+            sb.append(indent).append("}\n");
+            sb.append(indent).append("total += ").append(useArrays ? last : last + ".hashCode()").append(" * ").append(g + 1).append(";\n");
+
+            for (int d = depth - 1; d >= 0; d--) {
+                final String counter = "n" + g + "_" + d;
+                sb.append(indent(d + 3)).append(counter).append("++;\n");
+                sb.append(indent(d + 3)).append("total ^= ").append(counter).append(";\n");
+                sb.append(indent(d + 2)).append("}\n");
+            }
+        }
+        sb.append("        return total;\n");
+        sb.append("    }\n");
+
+        return footer(sb);
+    }
+
+    private static String casts(final int statements, final int terms) {
+        final StringBuilder sb = header("Casts");
+
+        sb.append("    public static long widen(final int[] i, final short[] s, final byte[] b, final char[] c) {\n");
+        sb.append("        long total = 0L;\n");
+        for (int n = 0; n < statements; n++) {
+            sb.append("        total ").append(n % 2 == 0 ? "+=" : "^=").append(" ");
+            for (int t = 0; t < terms; t++) {
+                final int k = (n + t) % 8;
+                if (t != 0) {
+                    sb.append(t % 5 == 0 ? " -\n                 " : " +\n                 ");
+                }
+                switch (t % 4) {
+                    case 0: sb.append("(long) i[").append(k).append("] * (long) s[").append(k).append("]"); break;
+                    case 1: sb.append("(long) (b[").append(k).append("] & 0xFF)"); break;
+                    case 2: sb.append("(long) (int) c[").append(k).append("]"); break;
+                    default: sb.append("(long) (short) (i[").append(k).append("] >> ").append((n + t) % 16).append(")"); break;
+                }
+            }
+            sb.append(";\n");
+        }
+        sb.append("        return total;\n");
+        sb.append("    }\n\n");
+
+        sb.append("    public static int narrow(final double d, final float f, final long l) {\n");
+        sb.append("        int total = 0;\n");
+        for (int n = 0; n < statements; n++) {
+            sb.append("        total ^= ");
+            for (int t = 0; t < terms / 2; t++) {
+                if (t != 0) {
+                    sb.append(" ^\n                 ");
+                }
+                switch (t % 3) {
+                    case 0: sb.append("(int) (d * ").append(n + t).append(")"); break;
+                    case 1: sb.append("(int) (byte) (f + (float) ").append(n + t).append(")"); break;
+                    default: sb.append("(int) (char) (l >>> ").append((n + t) % 32).append(")"); break;
+                }
+            }
+            sb.append(";\n");
+        }
+        sb.append("        return total;\n");
+        sb.append("    }\n");
+
+        return footer(sb);
+    }
+
+    private static StringBuilder header(final String className) {
+        return new StringBuilder()
+            .append("package ").append(PACKAGE).append(";\n\n")
+            .append("public class ").append(className).append(" {\n");
+    }
+
+    private static String footer(final StringBuilder sb) {
+        return sb.append("}\n").toString();
+    }
+
+    private static String repeat(final String s, final int count) {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            sb.append(s);
+        }
+        return sb.toString();
+    }
+
+    private static String indent(final int level) {
+        final char[] chars = new char[level * 4];
+        Arrays.fill(chars, ' ');
+        return new String(chars);
+    }
+
+    // </editor-fold>
+
+    // <editor-fold defaultstate="collapsed" desc="In-Memory Compilation">
+
+    private static Map<String, byte[]> compile(final Map<String, String> sources) throws IOException {
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+
+        if (compiler == null) {
+            throw new IllegalStateException("The stress corpus is compiled at run time; run the benchmarks on a JDK, not a JRE.");
+        }
+
+        final Map<String, ByteArrayOutputStream> outputs = new TreeMap<>();
+        final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        final List<JavaFileObject> compilationUnits = new ArrayList<>();
+
+        for (final Map.Entry<String, String> source : sources.entrySet()) {
+            final String content = source.getValue();
+
+            compilationUnits.add(
+                new SimpleJavaFileObject(URI.create("string:///" + PACKAGE + "/" + source.getKey() + ".java"), JavaFileObject.Kind.SOURCE) {
+                    @Override
+                    public CharSequence getCharContent(final boolean ignoreEncodingErrors) {
+                        return content;
+                    }
+                }
+            );
+        }
+
+        try (final StandardJavaFileManager standardFileManager = compiler.getStandardFileManager(diagnostics, null, Charset.forName("UTF-8"))) {
+            final JavaFileManager fileManager = new ForwardingJavaFileManager<StandardJavaFileManager>(standardFileManager) {
+                @Override
+                public JavaFileObject getJavaFileForOutput(
+                    final Location location,
+                    final String className,
+                    final JavaFileObject.Kind kind,
+                    final FileObject sibling) {
+
+                    final String internalName = className.replace('.', '/');
+                    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+                    outputs.put(internalName, out);
+
+                    return new SimpleJavaFileObject(URI.create("memory:///" + internalName + kind.extension), kind) {
+                        @Override
+                        public OutputStream openOutputStream() {
+                            return out;
+                        }
+                    };
+                }
+            };
+
+            //
+            // Target Java 8 so the corpus stays the same whichever JDK runs the benchmarks.
+            //
+
+            final Boolean success = compiler.getTask(
+                null,
+                fileManager,
+                diagnostics,
+                Arrays.asList("-g", "-source", "8", "-target", "8", "-Xlint:-options"),
+                null,
+                compilationUnits
+            ).call();
+
+            if (!Boolean.TRUE.equals(success)) {
+                final StringBuilder message = new StringBuilder("Could not compile the stress corpus:");
+
+                for (final Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+                    message.append('\n').append(diagnostic);
+                }
+
+                throw new IllegalStateException(message.toString());
+            }
+        }
+
+        final Map<String, byte[]> classes = new TreeMap<>();
+
+        for (final Map.Entry<String, ByteArrayOutputStream> output : outputs.entrySet()) {
+            classes.put(output.getKey(), output.getValue().toByteArray());
+        }
+
+        return classes;
+    }
+
+    // </editor-fold>
+}
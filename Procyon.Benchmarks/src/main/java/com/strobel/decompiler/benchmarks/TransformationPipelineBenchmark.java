@@ -0,0 +1,76 @@
+/*
+ * TransformationPipelineBenchmark.java
+ *
+ * This source code is subject to terms and conditions of the Apache License, Version 2.0.
+ * A copy of the license can be found in the License.html file at the root of this distribution.
+ * By using this source code in any fashion, you are agreeing to be bound by the terms of the
+ * Apache License, Version 2.0.
+ *
+ * You must not remove this notice, or any other, from this software.
+ */
+
+package com.strobel.decompiler.benchmarks;
+
+import com.strobel.assembler.metadata.MetadataSystem;
+import com.strobel.assembler.metadata.TypeDefinition;
+import com.strobel.decompiler.DecompilerContext;
+import com.strobel.decompiler.DecompilerSettings;
+import com.strobel.decompiler.languages.java.ast.AstBuilder;
+import com.strobel.decompiler.languages.java.ast.transforms.TransformationPipeline;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures the Java AST {@link TransformationPipeline} over each top-level type.  The transforms
+ * rewrite the AST in place, so untransformed ASTs are built (unmeasured) before every invocation.
+ */
+public class TransformationPipelineBenchmark extends CorpusBenchmark {
+    private DecompilerSettings _settings;
+    private List<TypeDefinition> _types;
+    private List<AstBuilder> _builders;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        final Corpus corpus = loadCorpus();
+        final MetadataSystem metadataSystem = new MetadataSystem(corpus.createTypeLoader());
+
+        _settings = createSettings();
+        _types = Corpus.topLevelTypes(corpus.resolveTypes(metadataSystem));
+    }
+
+    @Setup(Level.Invocation)
+    public void prepareAsts() {
+        _builders = new ArrayList<>(_types.size());
+
+        for (final TypeDefinition type : _types) {
+            _builders.add(createAstBuilder(_settings, type));
+        }
+    }
+
+    @Benchmark
+    public void runTransformations(final Blackhole blackhole) {
+        for (final AstBuilder builder : _builders) {
+            builder.runTransformations();
+            blackhole.consume(builder.getCompilationUnit());
+        }
+    }
+
+    static AstBuilder createAstBuilder(final DecompilerSettings settings, final TypeDefinition type) {
+        final DecompilerContext context = new DecompilerContext();
+
+        context.setSettings(settings);
+        context.setCurrentType(type);
+
+        final AstBuilder builder = new AstBuilder(context);
+
+        builder.addType(type);
+
+        return builder;
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * TypeAnalysisBenchmark.java
+ *
+ * This source code is subject to terms and conditions of the Apache License, Version 2.0.
+ * A copy of the license can be found in the License.html file at the root of this distribution.
+ * By using this source code in any fashion, you are agreeing to be bound by the terms of the
+ * Apache License, Version 2.0.
+ *
+ * You must not remove this notice, or any other, from this software.
+ */
+
+package com.strobel.decompiler.benchmarks;
+
+import com.strobel.assembler.metadata.MetadataSystem;
+import com.strobel.assembler.metadata.MethodBody;
+import com.strobel.assembler.metadata.MethodDefinition;
+import com.strobel.decompiler.DecompilerSettings;
+import com.strobel.decompiler.ast.AstOptimizationStep;
+import com.strobel.decompiler.ast.TypeAnalysis;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures {@link TypeAnalysis#run} on each method body, as the optimizer first runs it: after the
+ * bytecode AST has been built and optimized up to {@link AstOptimizationStep#TypeInference}.  Type
+ * analysis rewrites the AST, so fresh ASTs are prepared (unmeasured) before every invocation.
+ */
+public class TypeAnalysisBenchmark extends CorpusBenchmark {
+    private DecompilerSettings _settings;
+    private List<MethodDefinition> _methods;
+    private List<MethodBody> _bodies;
+    private List<MethodAst> _asts;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        final Corpus corpus = loadCorpus();
+        final MetadataSystem metadataSystem = new MetadataSystem(corpus.createTypeLoader());
+
+        _settings = createSettings();
+        _methods = new ArrayList<>();
+        _bodies = new ArrayList<>();
+
+        for (final MethodAst ast : buildAsts(_settings, Corpus.methodsWithBodies(corpus.resolveTypes(metadataSystem)), AstOptimizationStep.None)) {
+            _methods.add(ast.method);
+            _bodies.add(ast.method.getBody());
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void prepareAsts() {
+        _asts = buildAsts(_settings, _methods, AstOptimizationStep.TypeInference);
+    }
+
+    @Benchmark
+    public void run(final Blackhole blackhole) {
+        for (final MethodAst ast : _asts) {
+            TypeAnalysis.run(ast.context, ast.block);
+            blackhole.consume(ast.block);
+        }
+    }
+}
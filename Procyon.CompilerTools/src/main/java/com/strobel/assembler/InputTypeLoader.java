@@ -16,8 +16,8 @@
 
 package com.strobel.assembler;
 
-import com.strobel.assembler.ir.ConstantPool;
 import com.strobel.assembler.metadata.Buffer;
+import com.strobel.assembler.metadata.ClassFileReader;
 import com.strobel.assembler.metadata.ClasspathTypeLoader;
 import com.strobel.assembler.metadata.ITypeLoader;
 import com.strobel.core.StringComparison;
@@ -190,23 +190,7 @@ public class InputTypeLoader implements ITypeLoader {
         }
 
         try (final FileInputStream in = new FileInputStream(file)) {
-            int remainingBytes = in.available();
-
-            buffer.position(0);
-            buffer.reset(remainingBytes);
-
-            while (remainingBytes > 0) {
-                final int bytesRead = in.read(buffer.array(), buffer.position(), remainingBytes);
-
-                if (bytesRead < 0) {
-                    break;
-                }
-
-                remainingBytes -= bytesRead;
-                buffer.advance(bytesRead);
-            }
-
-            buffer.position(0);
+            buffer.readFrom(in, (int) Math.min(file.length(), Integer.MAX_VALUE));
             return true;
         }
         catch (IOException e) {
@@ -221,7 +205,7 @@ public class InputTypeLoader implements ITypeLoader {
             return false;
         }
 
-        final String actualName = getInternalNameFromClassFile(buffer);
+        final String actualName = ClassFileReader.readInternalName(buffer);
 
         final String name = trustName ? (internalName != null ? internalName : actualName)
                                       : actualName;
@@ -315,25 +299,4 @@ public class InputTypeLoader implements ITypeLoader {
         catch (IOException ignored) {
         }
     }
-
-    private static String getInternalNameFromClassFile(final Buffer b) {
-        final long magic = b.readInt() & 0xFFFFFFFFL;
-
-        if (magic != 0xCAFEBABEL) {
-            return null;
-        }
-
-        b.readUnsignedShort(); // minor version
-        b.readUnsignedShort(); // major version
-
-        final ConstantPool constantPool = ConstantPool.read(b);
-
-        b.readUnsignedShort(); // access flags
-
-        final ConstantPool.TypeInfoEntry thisClass = constantPool.getEntry(b.readUnsignedShort());
-
-        b.position(0);
-
-        return thisClass.getName();
-    }
 }
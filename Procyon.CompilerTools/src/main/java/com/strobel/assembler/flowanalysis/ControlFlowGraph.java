@@ -21,8 +21,6 @@ import com.strobel.core.BooleanBox;
 import com.strobel.core.ExceptionUtilities;
 import com.strobel.core.VerifyArgument;
 import com.strobel.decompiler.PlainTextOutput;
-import com.strobel.functions.Block;
-import com.strobel.functions.Function;
 
 import java.io.File;
 import java.io.FileWriter;
@@ -31,12 +29,13 @@ import java.io.OutputStreamWriter;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.concurrent.CancellationException;
 import java.util.regex.Pattern;
 
 public final class ControlFlowGraph {
     private final List<ControlFlowNode> _nodes;
 
+    private DominatorTree _dominatorTree;
+
     public final ControlFlowNode getEntryPoint() {
         return _nodes.get(0);
     }
@@ -73,106 +72,15 @@ public final class ControlFlowGraph {
     }
 
     public final void computeDominance(final BooleanBox cancelled) {
-        final ControlFlowNode entryPoint = getEntryPoint();
-
-        entryPoint.setImmediateDominator(entryPoint);
-
-        final BooleanBox changed = new BooleanBox(true);
-
-        while (changed.get()) {
-            changed.set(false);
-            resetVisited();
-
-            if (cancelled.get()) {
-                throw new CancellationException();
-            }
-
-            entryPoint.traversePreOrder(
-                new Function<ControlFlowNode, Iterable<ControlFlowNode>>() {
-                    @Override
-                    public final Iterable<ControlFlowNode> apply(final ControlFlowNode input) {
-                        return input.getSuccessors();
-                    }
-                },
-                new Block<ControlFlowNode>() {
-                    @Override
-                    public final void accept(final ControlFlowNode b) {
-                        if (b == entryPoint) {
-                            return;
-                        }
-
-                        ControlFlowNode newImmediateDominator = null;
-
-                        for (final ControlFlowNode p : b.getPredecessors()) {
-                            if (p.isVisited() && p != b) {
-                                newImmediateDominator = p;
-                                break;
-                            }
-                        }
-
-                        if (newImmediateDominator == null) {
-                            throw new IllegalStateException("Could not compute new immediate dominator!");
-                        }
-
-                        for (final ControlFlowNode p : b.getPredecessors()) {
-                            if (p != b && p.getImmediateDominator() != null) {
-                                newImmediateDominator = findCommonDominator(p, newImmediateDominator);
-                            }
-                        }
-
-                        if (b.getImmediateDominator() != newImmediateDominator) {
-                            b.setImmediateDominator(newImmediateDominator);
-                            changed.set(true);
-                        }
-                    }
-                }
-            );
-        }
-
-        entryPoint.setImmediateDominator(null);
-
-        for (final ControlFlowNode node : _nodes) {
-            final ControlFlowNode immediateDominator = node.getImmediateDominator();
-
-            if (immediateDominator != null) {
-                immediateDominator.getDominatorTreeChildren().add(node);
-            }
-        }
+        _dominatorTree = new DominatorTree(this, VerifyArgument.notNull(cancelled, "cancelled"));
     }
 
     public final void computeDominanceFrontier() {
-        resetVisited();
-
-        getEntryPoint().traversePostOrder(
-            new Function<ControlFlowNode, Iterable<ControlFlowNode>>() {
-                @Override
-                public final Iterable<ControlFlowNode> apply(final ControlFlowNode input) {
-                    return input.getDominatorTreeChildren();
-                }
-            },
-            new Block<ControlFlowNode>() {
-                @Override
-                public void accept(final ControlFlowNode n) {
-                    final Set<ControlFlowNode> dominanceFrontier = n.getDominanceFrontier();
-
-                    dominanceFrontier.clear();
-
-                    for (final ControlFlowNode s : n.getSuccessors()) {
-                        if (s.getImmediateDominator() != n) {
-                            dominanceFrontier.add(s);
-                        }
-                    }
-
-                    for (final ControlFlowNode child : n.getDominatorTreeChildren()) {
-                        for (final ControlFlowNode p : child.getDominanceFrontier()) {
-                            if (p.getImmediateDominator() != n) {
-                                dominanceFrontier.add(p);
-                            }
-                        }
-                    }
-                }
-            }
-        );
+        if (_dominatorTree == null) {
+            throw new IllegalStateException("Dominance must be computed before the dominance frontier.");
+        }
+
+        _dominatorTree.computeDominanceFrontiers();
     }
 
     public static ControlFlowNode findCommonDominator(final ControlFlowNode a, final ControlFlowNode b) {
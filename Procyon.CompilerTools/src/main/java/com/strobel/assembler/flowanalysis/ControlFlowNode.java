@@ -31,8 +31,8 @@ import com.strobel.functions.Function;
 import com.strobel.util.ContractUtils;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
-import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Set;
@@ -43,13 +43,15 @@ public final class ControlFlowNode implements Comparable<ControlFlowNode> {
     private final ControlFlowNodeType _nodeType;
     private final ControlFlowNode _endFinallyNode;
     private final List<ControlFlowNode> _dominatorTreeChildren = new Collection<>();
-    private final Set<ControlFlowNode> _dominanceFrontier = new LinkedHashSet<>();
     private final List<ControlFlowEdge> _incoming = new Collection<>();
     private final List<ControlFlowEdge> _outgoing = new Collection<>();
 
     private boolean _visited;
     private ControlFlowNode _copyFrom;
     private ControlFlowNode _immediateDominator;
+    private DominatorTree _dominatorTree;
+    private int _dominatorIndex = -1;
+    private Set<ControlFlowNode> _dominanceFrontier = Collections.emptySet();
     private Instruction _start;
     private Instruction _end;
     private ExceptionHandler _exceptionHandler;
@@ -112,6 +114,23 @@ public final class ControlFlowNode implements Comparable<ControlFlowNode> {
         return _dominanceFrontier;
     }
 
+    final DominatorTree getDominatorTree() {
+        return _dominatorTree;
+    }
+
+    final int getDominatorIndex() {
+        return _dominatorIndex;
+    }
+
+    final void setDominatorTree(final DominatorTree dominatorTree, final int dominatorIndex) {
+        _dominatorTree = dominatorTree;
+        _dominatorIndex = dominatorIndex;
+    }
+
+    final void setDominanceFrontier(final Set<ControlFlowNode> dominanceFrontier) {
+        _dominanceFrontier = dominanceFrontier;
+    }
+
     public final List<ControlFlowEdge> getIncoming() {
         return _incoming;
     }
@@ -272,6 +291,12 @@ public final class ControlFlowNode implements Comparable<ControlFlowNode> {
     }
 
     public final boolean dominates(final ControlFlowNode node) {
+        final DominatorTree dominatorTree = _dominatorTree;
+
+        if (dominatorTree != null && node != null && node._dominatorTree == dominatorTree) {
+            return dominatorTree.dominates(_dominatorIndex, node._dominatorIndex);
+        }
+
         ControlFlowNode current = node;
 
         while (current != null) {
@@ -0,0 +1,406 @@
+/*
+ * DominatorTree.java
+ *
+ * This source code is subject to terms and conditions of the Apache License, Version 2.0.
+ * A copy of the license can be found in the License.html file at the root of this distribution.
+ * By using this source code in any fashion, you are agreeing to be bound by the terms of the
+ * Apache License, Version 2.0.
+ *
+ * You must not remove this notice, or any other, from this software.
+ */
+
+package com.strobel.assembler.flowanalysis;
+
+import com.strobel.annotations.NotNull;
+import com.strobel.core.BooleanBox;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CancellationException;
+
+/**
+ * The dominator tree of the nodes reachable from a {@link ControlFlowGraph}'s entry point, computed
+ * with the Semi-NCA algorithm.  Reachable nodes are numbered in depth-first order, and everything is
+ * kept in {@code int} arrays indexed by that number; the dominance properties of {@link ControlFlowNode}
+ * are views over this tree.  Dominance queries are an O(1) check of the nodes' preorder intervals.
+ */
+final class DominatorTree {
+    private final ControlFlowNode[] _nodes;
+    private final int[] _immediateDominators;
+    private final int[] _preorderIndexes;
+    private final int[] _subtreeSizes;
+
+    DominatorTree(final ControlFlowGraph graph, final BooleanBox cancelled) {
+        final List<ControlFlowNode> graphNodes = graph.getNodes();
+
+        for (final ControlFlowNode node : graphNodes) {
+            node.setDominatorTree(null, -1);
+            node.setDominanceFrontier(Collections.<ControlFlowNode>emptySet());
+        }
+
+        //
+        // Step 1: Number the reachable nodes in depth-first order.  Nodes which are not part of the graph's
+        //         node list (e.g., end finally nodes) are numbered too if they are reachable.
+        //
+
+        ControlFlowNode[] nodes = new ControlFlowNode[Math.max(graphNodes.size(), 1)];
+        int[] parents = new int[nodes.length];
+        int[] stack = new int[nodes.length];
+        int[] nextEdges = new int[nodes.length];
+
+        final ControlFlowNode entryPoint = graph.getEntryPoint();
+
+        entryPoint.setDominatorTree(this, 0);
+        nodes[0] = entryPoint;
+        parents[0] = -1;
+        stack[0] = 0;
+        nextEdges[0] = 0;
+
+        int count = 1;
+        int top = 1;
+
+        while (top > 0) {
+            final int v = stack[top - 1];
+            final int e = nextEdges[top - 1];
+            final List<ControlFlowEdge> outgoing = nodes[v].getOutgoing();
+
+            if (e >= outgoing.size()) {
+                --top;
+                continue;
+            }
+
+            nextEdges[top - 1] = e + 1;
+
+            final ControlFlowNode target = outgoing.get(e).getTarget();
+
+            if (target.getDominatorTree() == this) {
+                continue;
+            }
+
+            if (count == nodes.length) {
+                final int newLength = count * 2;
+
+                nodes = Arrays.copyOf(nodes, newLength);
+                parents = Arrays.copyOf(parents, newLength);
+                stack = Arrays.copyOf(stack, newLength);
+                nextEdges = Arrays.copyOf(nextEdges, newLength);
+            }
+
+            target.setDominatorTree(this, count);
+            nodes[count] = target;
+            parents[count] = v;
+            stack[top] = count;
+            nextEdges[top] = 0;
+
+            ++count;
+            ++top;
+        }
+
+        checkCancelled(cancelled);
+
+        //
+        // Step 2: Compute semidominators in reverse depth-first order, linking each node to its parent
+        //         once it has been processed.
+        //
+
+        final int[] semidominators = new int[count];
+        final int[] labels = new int[count];
+        final int[] ancestors = new int[count];
+
+        for (int i = 0; i < count; i++) {
+            semidominators[i] = i;
+            labels[i] = i;
+            ancestors[i] = -1;
+        }
+
+        for (int w = count - 1; w > 0; w--) {
+            final List<ControlFlowEdge> incoming = nodes[w].getIncoming();
+
+            for (int i = 0, n = incoming.size(); i < n; i++) {
+                final ControlFlowNode source = incoming.get(i).getSource();
+
+                if (source.getDominatorTree() != this) {
+                    continue;
+                }
+
+                final int u = eval(source.getDominatorIndex(), ancestors, labels, semidominators, stack);
+
+                if (semidominators[u] < semidominators[w]) {
+                    semidominators[w] = semidominators[u];
+                }
+            }
+
+            ancestors[w] = parents[w];
+        }
+
+        checkCancelled(cancelled);
+
+        //
+        // Step 3: Each node's immediate dominator is the nearest common ancestor of its parent and its
+        //         semidominator; walking up from the parent in depth-first order finds it.
+        //
+
+        final int[] immediateDominators = new int[count];
+
+        immediateDominators[0] = -1;
+
+        for (int w = 1; w < count; w++) {
+            int d = parents[w];
+
+            while (d > semidominators[w]) {
+                d = immediateDominators[d];
+            }
+
+            immediateDominators[w] = d;
+        }
+
+        //
+        // Step 4: Number the dominator tree in preorder so that each subtree is a contiguous interval.
+        //
+
+        final int[] firstChildren = new int[count];
+        final int[] nextSiblings = new int[count];
+
+        Arrays.fill(firstChildren, -1);
+
+        for (int w = count - 1; w > 0; w--) {
+            final int d = immediateDominators[w];
+
+            nextSiblings[w] = firstChildren[d];
+            firstChildren[d] = w;
+        }
+
+        final int[] preorder = new int[count];
+        final int[] preorderIndexes = new int[count];
+        final int[] subtreeSizes = new int[count];
+
+        int index = 0;
+
+        top = 0;
+        stack[top++] = 0;
+
+        while (top > 0) {
+            final int v = stack[--top];
+
+            preorderIndexes[v] = index;
+            preorder[index++] = v;
+
+            for (int c = firstChildren[v]; c >= 0; c = nextSiblings[c]) {
+                stack[top++] = c;
+            }
+        }
+
+        Arrays.fill(subtreeSizes, 1);
+
+        for (int i = count - 1; i > 0; i--) {
+            final int v = preorder[i];
+            subtreeSizes[immediateDominators[v]] += subtreeSizes[v];
+        }
+
+        _nodes = Arrays.copyOf(nodes, count);
+        _immediateDominators = immediateDominators;
+        _preorderIndexes = preorderIndexes;
+        _subtreeSizes = subtreeSizes;
+
+        //
+        // Step 5: Publish the results to the nodes.  Only nodes in the graph's node list are added to
+        //         their dominators' child lists.
+        //
+
+        for (final ControlFlowNode node : graphNodes) {
+            node.setImmediateDominator(null);
+            node.getDominatorTreeChildren().clear();
+        }
+
+        for (int w = 0; w < count; w++) {
+            final ControlFlowNode node = _nodes[w];
+
+            node.getDominatorTreeChildren().clear();
+            node.setImmediateDominator(w == 0 ? null : _nodes[immediateDominators[w]]);
+        }
+
+        for (final ControlFlowNode node : graphNodes) {
+            final ControlFlowNode immediateDominator = node.getImmediateDominator();
+
+            if (immediateDominator != null) {
+                immediateDominator.getDominatorTreeChildren().add(node);
+            }
+        }
+    }
+
+    final boolean dominates(final int dominator, final int node) {
+        final int start = _preorderIndexes[dominator];
+        final int index = _preorderIndexes[node];
+
+        return index >= start && index < start + _subtreeSizes[dominator];
+    }
+
+    final void computeDominanceFrontiers() {
+        //
+        // Walk the dominator tree's child lists in post order, so every node's frontier is built from
+        // its successors and its children's (already computed) frontiers.
+        //
+
+        final int count = _nodes.length;
+        final int[][] frontiers = new int[count][];
+        final int[] stack = new int[count];
+        final int[] nextChildren = new int[count];
+        final int[] members = new int[count];
+        final BitSet marked = new BitSet(count);
+
+        int top = 0;
+
+        stack[top] = 0;
+        nextChildren[top++] = 0;
+
+        while (top > 0) {
+            final int v = stack[top - 1];
+            final int c = nextChildren[top - 1];
+            final List<ControlFlowNode> children = _nodes[v].getDominatorTreeChildren();
+
+            if (c < children.size()) {
+                nextChildren[top - 1] = c + 1;
+                stack[top] = children.get(c).getDominatorIndex();
+                nextChildren[top++] = 0;
+                continue;
+            }
+
+            --top;
+
+            int size = 0;
+
+            final List<ControlFlowEdge> outgoing = _nodes[v].getOutgoing();
+
+            for (int i = 0, n = outgoing.size(); i < n; i++) {
+                final int s = outgoing.get(i).getTarget().getDominatorIndex();
+
+                if (_immediateDominators[s] != v && !marked.get(s)) {
+                    marked.set(s);
+                    members[size++] = s;
+                }
+            }
+
+            for (int i = 0, n = children.size(); i < n; i++) {
+                for (final int p : frontiers[children.get(i).getDominatorIndex()]) {
+                    if (_immediateDominators[p] != v && !marked.get(p)) {
+                        marked.set(p);
+                        members[size++] = p;
+                    }
+                }
+            }
+
+            final int[] frontier = Arrays.copyOf(members, size);
+
+            Arrays.sort(frontier);
+
+            for (final int p : frontier) {
+                marked.clear(p);
+            }
+
+            frontiers[v] = frontier;
+
+            _nodes[v].setDominanceFrontier(
+                size == 0 ? Collections.<ControlFlowNode>emptySet()
+                          : new DominanceFrontier(frontier)
+            );
+        }
+    }
+
+    private static int eval(
+        final int v,
+        final int[] ancestors,
+        final int[] labels,
+        final int[] semidominators,
+        final int[] path) {
+
+        if (ancestors[v] < 0) {
+            return v;
+        }
+
+        //
+        // Compress the path from v up to (but not including) the root of its tree in the forest, so each
+        // node on it ends up labeled with the node of minimum semidominator above it.
+        //
+
+        int depth = 0;
+
+        for (int u = v; ancestors[ancestors[u]] >= 0; u = ancestors[u]) {
+            path[depth++] = u;
+        }
+
+        while (depth > 0) {
+            final int u = path[--depth];
+            final int a = ancestors[u];
+
+            if (semidominators[labels[a]] < semidominators[labels[u]]) {
+                labels[u] = labels[a];
+            }
+
+            ancestors[u] = ancestors[a];
+        }
+
+        return labels[v];
+    }
+
+    private static void checkCancelled(final BooleanBox cancelled) {
+        if (cancelled.get()) {
+            throw new CancellationException();
+        }
+    }
+
+    private final class DominanceFrontier extends AbstractSet<ControlFlowNode> {
+        private final int[] _members;
+
+        DominanceFrontier(final int[] members) {
+            _members = members;
+        }
+
+        @Override
+        public boolean contains(final Object o) {
+            if (!(o instanceof ControlFlowNode)) {
+                return false;
+            }
+
+            final ControlFlowNode node = (ControlFlowNode) o;
+
+            return node.getDominatorTree() == DominatorTree.this &&
+                   Arrays.binarySearch(_members, node.getDominatorIndex()) >= 0;
+        }
+
+        @NotNull
+        @Override
+        public Iterator<ControlFlowNode> iterator() {
+            return new Iterator<ControlFlowNode>() {
+                private int _position;
+
+                @Override
+                public boolean hasNext() {
+                    return _position < _members.length;
+                }
+
+                @Override
+                public ControlFlowNode next() {
+                    if (_position >= _members.length) {
+                        throw new NoSuchElementException();
+                    }
+                    return _nodes[_members[_position++]];
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return _members.length;
+        }
+    }
+}
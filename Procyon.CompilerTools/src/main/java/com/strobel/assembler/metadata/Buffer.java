@@ -19,6 +19,8 @@ package com.strobel.assembler.metadata;
 import com.strobel.core.VerifyArgument;
 import com.strobel.util.EmptyArrayCache;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.nio.BufferUnderflowException;
 import java.util.Arrays;
 
@@ -382,6 +384,48 @@ public class Buffer {
         return this;
     }
 
+    /**
+     * Replaces the contents of this buffer with the remaining bytes in {@code stream}, reading directly
+     * into the backing array.  The size hint is only used to size the buffer up front; the buffer grows
+     * if the stream turns out to be longer, and is trimmed if it is shorter.
+     *
+     * @param stream
+     *     The stream to read.
+     * @param sizeHint
+     *     The expected number of bytes, or a negative value if unknown.
+     *
+     * @return This buffer, positioned at the beginning of the data read.
+     */
+    public Buffer readFrom(final InputStream stream, final int sizeHint) throws IOException {
+        VerifyArgument.notNull(stream, "stream");
+
+        reset(sizeHint >= 0 ? sizeHint : DEFAULT_SIZE);
+
+        while (true) {
+            if (_position == _data.length) {
+                final int nextByte = stream.read();
+
+                if (nextByte < 0) {
+                    break;
+                }
+
+                _data = Arrays.copyOf(_data, Math.max(2 * _data.length, DEFAULT_SIZE));
+                _data[_position++] = (byte) nextByte;
+            }
+
+            final int bytesRead = stream.read(_data, _position, _data.length - _position);
+
+            if (bytesRead < 0) {
+                break;
+            }
+
+            _position += bytesRead;
+        }
+
+        flip();
+        return this;
+    }
+
     protected void verifyReadableBytes(final int size) {
         if (VerifyArgument.isNonNegative(size, "size") > 0 && _position + size > _length) {
             throw new BufferUnderflowException();
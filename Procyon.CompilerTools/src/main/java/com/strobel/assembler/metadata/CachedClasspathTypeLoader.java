@@ -0,0 +1,704 @@
+/*
+ * CachedClasspathTypeLoader.java
+ *
+ * This source code is subject to terms and conditions of the Apache License, Version 2.0.
+ * A copy of the license can be found in the License.html file at the root of this distribution.
+ * By using this source code in any fashion, you are agreeing to be bound by the terms of the
+ * Apache License, Version 2.0.
+ *
+ * You must not remove this notice, or any other, from this software.
+ */
+
+package com.strobel.assembler.metadata;
+
+import com.strobel.core.StringUtilities;
+import com.strobel.core.VerifyArgument;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarOutputStream;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * A type loader over a class path which keeps a persistent, uncompressed copy of the class files
+ * in every archive on that path in a cache directory.  When created for the current runtime, it
+ * also caches the platform classes of a JDK 9+ runtime image, one copy per module.  Archives and
+ * modules are only opened (and, on first use, copied) when a lookup reaches them, and cached copies
+ * are memory mapped, so warming up a {@link MetadataSystem} against the JDK no longer inflates
+ * every core type on every run.
+ * <p>
+ * Each copy is keyed by a digest of its source's contents: an archive's central directory, which
+ * records the name, size, and checksum of every entry, or the release information and image file
+ * of a runtime.  Computing a key reads only that much of the source, so checking a cached copy is
+ * cheap.  A changed source gets a new copy, and the copies it replaces are deleted from the cache
+ * directory.
+ * <p>
+ * Only the fetching and inflating of class files is cached; types are still parsed by the
+ * {@link MetadataSystem} on every run.  Class files are cached verbatim because method bodies are
+ * loaded lazily by reading back from the original class file offsets, and because parameter names
+ * of library methods are read from their bodies' local variable tables.
+ */
+public class CachedClasspathTypeLoader implements ITypeLoader {
+    private final static Logger LOG = Logger.getLogger(CachedClasspathTypeLoader.class.getSimpleName());
+
+    private final static int CACHE_FORMAT_VERSION = 3;
+
+    private final static int END_RECORD_SIGNATURE = 0x06054B50;
+    private final static int END_RECORD_SIZE = 22;
+    private final static int MAX_COMMENT_SIZE = 0xFFFF;
+    private final static Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final File _cacheDirectory;
+    private final List<ClasspathEntry> _entries;
+
+    /**
+     * Creates a loader over the current runtime: the platform classes (from the runtime image on
+     * JDK 9 and later, or the boot class path on earlier JDKs), followed by the application class
+     * path.
+     */
+    public CachedClasspathTypeLoader(final File cacheDirectory) {
+        this(
+            cacheDirectory,
+            StringUtilities.join(
+                File.pathSeparator,
+                System.getProperty("sun.boot.class.path", StringUtilities.EMPTY),
+                System.getProperty("java.class.path", StringUtilities.EMPTY)
+            )
+        );
+
+        final FileSystem runtimeImage = tryGetRuntimeImage();
+
+        if (runtimeImage != null) {
+            _entries.add(0, new RuntimeImageEntry(runtimeImage));
+        }
+    }
+
+    public CachedClasspathTypeLoader(final File cacheDirectory, final String classPath) {
+        _cacheDirectory = VerifyArgument.notNull(cacheDirectory, "cacheDirectory");
+        _entries = new ArrayList<>();
+
+        VerifyArgument.notNull(classPath, "classPath");
+
+        for (final String path : classPath.split(File.pathSeparator)) {
+            if (StringUtilities.isNullOrWhitespace(path)) {
+                continue;
+            }
+
+            final File file = new File(path);
+
+            if (file.isDirectory()) {
+                _entries.add(new DirectoryEntry(file));
+            }
+            else if (file.isFile()) {
+                _entries.add(new ArchiveEntry(file));
+            }
+        }
+    }
+
+    public final File getCacheDirectory() {
+        return _cacheDirectory;
+    }
+
+    @Override
+    public boolean tryLoadType(final String internalName, final Buffer buffer) {
+        if (LOG.isLoggable(Level.FINE)) {
+            LOG.fine("Attempting to load type: " + internalName + "...");
+        }
+
+        for (final ClasspathEntry entry : _entries) {
+            if (entry.tryLoadType(internalName, buffer)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static FileSystem tryGetRuntimeImage() {
+        try {
+            return FileSystems.getFileSystem(URI.create("jrt:/"));
+        }
+        catch (final RuntimeException e) {
+            //
+            // No 'jrt' file system provider; this is a JDK 8 (or earlier) runtime.
+            //
+            return null;
+        }
+    }
+
+    // <editor-fold defaultstate="collapsed" desc="Class Path Entries">
+
+    private abstract static class ClasspathEntry {
+        abstract boolean tryLoadType(final String internalName, final Buffer buffer);
+    }
+
+    private final static class DirectoryEntry extends ClasspathEntry {
+        private final File _directory;
+
+        DirectoryEntry(final File directory) {
+            _directory = directory;
+        }
+
+        @Override
+        boolean tryLoadType(final String internalName, final Buffer buffer) {
+            final File file = new File(_directory, internalName + ".class");
+
+            if (!file.isFile()) {
+                return false;
+            }
+
+            try (final InputStream in = new FileInputStream(file)) {
+                buffer.readFrom(in, (int) Math.min(file.length(), Integer.MAX_VALUE));
+                return true;
+            }
+            catch (final IOException e) {
+                return false;
+            }
+        }
+    }
+
+    private abstract static class CachedEntry extends ClasspathEntry {
+        private volatile ITypeLoader _typeLoader;
+        private boolean _failed;
+
+        @Override
+        final boolean tryLoadType(final String internalName, final Buffer buffer) {
+            final ITypeLoader typeLoader = getTypeLoader();
+            return typeLoader != null && typeLoader.tryLoadType(internalName, buffer);
+        }
+
+        abstract String getDescription();
+
+        abstract File getOrCreateCachedArchive() throws IOException;
+
+        abstract ITypeLoader createUncachedTypeLoader() throws IOException;
+
+        private ITypeLoader getTypeLoader() {
+            ITypeLoader typeLoader = _typeLoader;
+
+            if (typeLoader != null) {
+                return typeLoader;
+            }
+
+            synchronized (this) {
+                if (_typeLoader != null || _failed) {
+                    return _typeLoader;
+                }
+
+                try {
+                    _typeLoader = typeLoader = new MappedJarTypeLoader(getOrCreateCachedArchive());
+                }
+                catch (final IOException e) {
+                    LOG.log(Level.WARNING, "Could not cache " + getDescription() + ".", e);
+
+                    try {
+                        _typeLoader = typeLoader = createUncachedTypeLoader();
+                    }
+                    catch (final IOException e2) {
+                        LOG.log(Level.WARNING, "Could not open " + getDescription() + ".", e2);
+                        _failed = true;
+                    }
+                }
+
+                return typeLoader;
+            }
+        }
+    }
+
+    private final class ArchiveEntry extends CachedEntry {
+        private final File _archive;
+
+        ArchiveEntry(final File archive) {
+            _archive = archive;
+        }
+
+        @Override
+        String getDescription() {
+            return "class path archive " + _archive.getPath();
+        }
+
+        @Override
+        File getOrCreateCachedArchive() throws IOException {
+            final File canonicalArchive = _archive.getCanonicalFile();
+
+            return CachedClasspathTypeLoader.this.getOrCreateCachedArchive(
+                canonicalArchive.getName() + "-" + digest(canonicalArchive.getPath()).substring(0, 16),
+                getContentKey(canonicalArchive),
+                new ClassFileSource() {
+                    @Override
+                    public void copyTo(final ClassFileSink sink) throws IOException {
+                        try (final ZipFile zipFile = new ZipFile(canonicalArchive)) {
+                            copyClassFiles(zipFile, sink);
+                        }
+                    }
+                }
+            );
+        }
+
+        @Override
+        ITypeLoader createUncachedTypeLoader() throws IOException {
+            return new MappedJarTypeLoader(_archive);
+        }
+
+        private String getContentKey(final File archive) throws IOException {
+            final byte[] centralDirectory = readCentralDirectory(archive);
+
+            if (centralDirectory != null) {
+                final MessageDigest digest = createDigest();
+                digest.update(centralDirectory);
+                return toHexString(digest.digest());
+            }
+
+            //
+            // Not an archive we can read the directory of directly (e.g., a ZIP64 archive); fall
+            // back to digesting its entries one at a time.
+            //
+
+            try (final ZipFile zipFile = new ZipFile(archive)) {
+                return getContentKey(zipFile);
+            }
+        }
+
+        /**
+         * Reads the raw central directory of an archive, or returns {@code null} if it cannot be
+         * located from the end of central directory record alone.
+         */
+        private byte[] readCentralDirectory(final File archive) throws IOException {
+            try (final RandomAccessFile file = new RandomAccessFile(archive, "r")) {
+                final long length = file.length();
+                final byte[] tail = new byte[(int) Math.min(length, END_RECORD_SIZE + MAX_COMMENT_SIZE)];
+
+                file.seek(length - tail.length);
+                file.readFully(tail);
+
+                for (int i = tail.length - END_RECORD_SIZE; i >= 0; i--) {
+                    if (readInt(tail, i) != END_RECORD_SIGNATURE) {
+                        continue;
+                    }
+
+                    final long directorySize = readInt(tail, i + 12) & 0xFFFFFFFFL;
+                    final long directoryOffset = readInt(tail, i + 16) & 0xFFFFFFFFL;
+                    final long endRecordOffset = length - tail.length + i;
+
+                    if (directoryOffset + directorySize != endRecordOffset || directorySize > Integer.MAX_VALUE) {
+                        return null;
+                    }
+
+                    final byte[] directory = new byte[(int) directorySize];
+
+                    file.seek(directoryOffset);
+                    file.readFully(directory);
+
+                    return directory;
+                }
+
+                return null;
+            }
+        }
+
+        private String getContentKey(final ZipFile zipFile) throws IOException {
+            final MessageDigest digest = createDigest();
+            final Enumeration<? extends ZipEntry> entries = zipFile.entries();
+
+            while (entries.hasMoreElements()) {
+                final ZipEntry entry = entries.nextElement();
+
+                if (isClassFile(entry)) {
+                    digest.update(
+                        (entry.getName() + "|" + entry.getSize() + "|" + entry.getCrc() + "\n").getBytes(UTF_8)
+                    );
+                }
+            }
+
+            return toHexString(digest.digest());
+        }
+
+        private void copyClassFiles(final ZipFile zipFile, final ClassFileSink sink) throws IOException {
+            final Buffer buffer = new Buffer();
+            final Enumeration<? extends ZipEntry> entries = zipFile.entries();
+
+            while (entries.hasMoreElements()) {
+                final ZipEntry entry = entries.nextElement();
+
+                if (!isClassFile(entry)) {
+                    continue;
+                }
+
+                try (final InputStream in = zipFile.getInputStream(entry)) {
+                    buffer.readFrom(in, (int) entry.getSize());
+                }
+
+                sink.write(entry.getName(), buffer);
+            }
+        }
+
+        private boolean isClassFile(final ZipEntry entry) {
+            return !entry.isDirectory() && entry.getName().endsWith(".class");
+        }
+    }
+
+    /**
+     * The platform classes of a JDK 9+ runtime image, read through the {@code jrt} file system.
+     * Each module is cached separately, when a lookup first reaches one of its packages.
+     */
+    private final class RuntimeImageEntry extends ClasspathEntry {
+        private final FileSystem _fileSystem;
+        private volatile Map<String, ModuleEntry> _packages;
+        private String _runtimeKey;
+
+        RuntimeImageEntry(final FileSystem fileSystem) {
+            _fileSystem = fileSystem;
+        }
+
+        @Override
+        boolean tryLoadType(final String internalName, final Buffer buffer) {
+            final int packageEnd = internalName.lastIndexOf('/');
+
+            if (packageEnd < 0) {
+                return false;
+            }
+
+            final ModuleEntry module = getPackages().get(internalName.substring(0, packageEnd));
+
+            return module != null && module.tryLoadType(internalName, buffer);
+        }
+
+        private Map<String, ModuleEntry> getPackages() {
+            Map<String, ModuleEntry> packages = _packages;
+
+            if (packages != null) {
+                return packages;
+            }
+
+            synchronized (this) {
+                if (_packages != null) {
+                    return _packages;
+                }
+
+                //
+                // The image lists the module holding each package under /packages/<package>/<module>.
+                //
+
+                final Map<String, ModuleEntry> modules = new HashMap<>();
+
+                packages = new HashMap<>();
+
+                try (final DirectoryStream<Path> packageDirectories = Files.newDirectoryStream(_fileSystem.getPath("/packages"))) {
+                    for (final Path packageDirectory : packageDirectories) {
+                        final String packageName = packageDirectory.getFileName().toString().replace('.', '/');
+
+                        try (final DirectoryStream<Path> moduleLinks = Files.newDirectoryStream(packageDirectory)) {
+                            for (final Path moduleLink : moduleLinks) {
+                                final String moduleName = moduleLink.getFileName().toString();
+
+                                ModuleEntry module = modules.get(moduleName);
+
+                                if (module == null) {
+                                    modules.put(moduleName, module = new ModuleEntry(this, moduleName));
+                                }
+
+                                if (!packages.containsKey(packageName)) {
+                                    packages.put(packageName, module);
+                                }
+                            }
+                        }
+                    }
+                }
+                catch (final IOException e) {
+                    LOG.log(Level.WARNING, "Could not read the packages of the runtime image.", e);
+                    packages = Collections.emptyMap();
+                }
+
+                return _packages = packages;
+            }
+        }
+
+        synchronized String getRuntimeKey() throws IOException {
+            if (_runtimeKey != null) {
+                return _runtimeKey;
+            }
+
+            //
+            // A runtime image never changes in place, but a JDK may be upgraded in the same directory.
+            // The release file identifies the build; the image's size and time stamp catch the rest.
+            //
+
+            final File javaHome = new File(System.getProperty("java.home")).getCanonicalFile();
+            final File release = new File(javaHome, "release");
+            final File image = new File(javaHome, "lib" + File.separator + "modules");
+            final MessageDigest digest = createDigest();
+
+            if (release.isFile()) {
+                digest.update(Files.readAllBytes(release.toPath()));
+            }
+
+            digest.update(("|" + image.length() + "|" + image.lastModified()).getBytes(UTF_8));
+
+            return _runtimeKey = toHexString(digest.digest());
+        }
+
+        String getLocationKey() throws IOException {
+            return digest(new File(System.getProperty("java.home")).getCanonicalPath()).substring(0, 16);
+        }
+    }
+
+    private final class ModuleEntry extends CachedEntry {
+        private final RuntimeImageEntry _image;
+        private final String _moduleName;
+
+        ModuleEntry(final RuntimeImageEntry image, final String moduleName) {
+            _image = image;
+            _moduleName = moduleName;
+        }
+
+        @Override
+        String getDescription() {
+            return "runtime module " + _moduleName;
+        }
+
+        @Override
+        File getOrCreateCachedArchive() throws IOException {
+            return CachedClasspathTypeLoader.this.getOrCreateCachedArchive(
+                "jrt-" + _moduleName + "-" + _image.getLocationKey(),
+                _image.getRuntimeKey(),
+                new ClassFileSource() {
+                    @Override
+                    public void copyTo(final ClassFileSink sink) throws IOException {
+                        copyClassFiles(sink);
+                    }
+                }
+            );
+        }
+
+        @Override
+        ITypeLoader createUncachedTypeLoader() {
+            return new ITypeLoader() {
+                @Override
+                public boolean tryLoadType(final String internalName, final Buffer buffer) {
+                    final Path path = getModuleRoot().resolve(internalName + ".class");
+
+                    if (!Files.isRegularFile(path)) {
+                        return false;
+                    }
+
+                    try (final InputStream in = Files.newInputStream(path)) {
+                        buffer.readFrom(in, -1);
+                        return true;
+                    }
+                    catch (final IOException e) {
+                        return false;
+                    }
+                }
+            };
+        }
+
+        private Path getModuleRoot() {
+            return _image._fileSystem.getPath("/modules", _moduleName);
+        }
+
+        private void copyClassFiles(final ClassFileSink sink) throws IOException {
+            final Path moduleRoot = getModuleRoot();
+            final Buffer buffer = new Buffer();
+
+            Files.walkFileTree(
+                moduleRoot,
+                new SimpleFileVisitor<Path>() {
+                    @Override
+                    public FileVisitResult visitFile(final Path file, final BasicFileAttributes attributes) throws IOException {
+                        final String name = moduleRoot.relativize(file).toString();
+
+                        if (name.endsWith(".class")) {
+                            try (final InputStream in = Files.newInputStream(file)) {
+                                buffer.readFrom(in, (int) attributes.size());
+                            }
+
+                            sink.write(name, buffer);
+                        }
+
+                        return FileVisitResult.CONTINUE;
+                    }
+                }
+            );
+        }
+    }
+
+    // </editor-fold>
+
+    // <editor-fold defaultstate="collapsed" desc="Cache Management">
+
+    private interface ClassFileSource {
+        void copyTo(final ClassFileSink sink) throws IOException;
+    }
+
+    private final static class ClassFileSink {
+        private final JarOutputStream _out;
+        private final CRC32 _crc = new CRC32();
+
+        ClassFileSink(final JarOutputStream out) {
+            _out = out;
+        }
+
+        void write(final String name, final Buffer buffer) throws IOException {
+            _crc.reset();
+            _crc.update(buffer.array(), 0, buffer.size());
+
+            final ZipEntry cachedEntry = new ZipEntry(name);
+
+            cachedEntry.setMethod(ZipEntry.STORED);
+            cachedEntry.setSize(buffer.size());
+            cachedEntry.setCompressedSize(buffer.size());
+            cachedEntry.setCrc(_crc.getValue());
+
+            _out.putNextEntry(cachedEntry);
+            _out.write(buffer.array(), 0, buffer.size());
+            _out.closeEntry();
+        }
+    }
+
+    /**
+     * Gets the cached copy of a source, creating it if necessary.  Copies are named
+     * {@code <prefix>-<contentKey>.jar}, where the prefix identifies the source; any copy with the
+     * same prefix but a different key is stale, and is deleted.
+     */
+    private File getOrCreateCachedArchive(
+        final String prefix,
+        final String contentKey,
+        final ClassFileSource source) throws IOException {
+
+        final File cachedArchive = new File(_cacheDirectory, prefix + "-" + contentKey + ".jar");
+
+        if (cachedArchive.isFile()) {
+            deleteStaleArchives(prefix, cachedArchive);
+            return cachedArchive;
+        }
+
+        if (!_cacheDirectory.isDirectory() && !_cacheDirectory.mkdirs() && !_cacheDirectory.isDirectory()) {
+            throw new IOException("Could not create cache directory: " + _cacheDirectory.getPath());
+        }
+
+        if (LOG.isLoggable(Level.FINE)) {
+            LOG.fine("Caching " + prefix + " in " + cachedArchive.getPath() + "...");
+        }
+
+        //
+        // Write to a temporary file and move it into place, so concurrent processes sharing the
+        // cache directory never map a partially written archive.
+        //
+
+        final File temporaryArchive = File.createTempFile(cachedArchive.getName(), ".tmp", _cacheDirectory);
+
+        try {
+            try (final JarOutputStream out = new JarOutputStream(new FileOutputStream(temporaryArchive))) {
+                source.copyTo(new ClassFileSink(out));
+            }
+
+            try {
+                Files.move(temporaryArchive.toPath(), cachedArchive.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            }
+            catch (final IOException e) {
+                if (!cachedArchive.isFile()) {
+                    throw e;
+                }
+            }
+        }
+        finally {
+            Files.deleteIfExists(temporaryArchive.toPath());
+        }
+
+        deleteStaleArchives(prefix, cachedArchive);
+
+        return cachedArchive;
+    }
+
+    private void deleteStaleArchives(final String prefix, final File currentArchive) {
+        final File[] files = _cacheDirectory.listFiles();
+
+        if (files == null) {
+            return;
+        }
+
+        final String stalePrefix = prefix + "-";
+
+        for (final File file : files) {
+            final String name = file.getName();
+
+            if (name.startsWith(stalePrefix) &&
+                name.endsWith(".jar") &&
+                name.indexOf('-', stalePrefix.length()) < 0 &&
+                !file.equals(currentArchive)) {
+
+                //
+                // Another process may still have the stale copy mapped, in which case some platforms
+                // refuse to delete it; it will be deleted on a later run.
+                //
+
+                if (file.delete() && LOG.isLoggable(Level.FINE)) {
+                    LOG.fine("Deleted stale cached archive " + file.getPath() + ".");
+                }
+            }
+        }
+    }
+
+    private static MessageDigest createDigest() throws IOException {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            digest.update(String.valueOf(CACHE_FORMAT_VERSION).getBytes(UTF_8));
+            return digest;
+        }
+        catch (final NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static String digest(final String value) throws IOException {
+        final MessageDigest digest = createDigest();
+        return toHexString(digest.digest(value.getBytes(UTF_8)));
+    }
+
+    private static int readInt(final byte[] data, final int offset) {
+        return (data[offset] & 0xFF) |
+               (data[offset + 1] & 0xFF) << 8 |
+               (data[offset + 2] & 0xFF) << 16 |
+               (data[offset + 3] & 0xFF) << 24;
+    }
+
+    private static String toHexString(final byte[] hash) {
+        final StringBuilder sb = new StringBuilder(hash.length * 2);
+
+        for (final byte b : hash) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16))
+              .append(Character.forDigit(b & 0xF, 16));
+        }
+
+        return sb.toString();
+    }
+
+    // </editor-fold>
+}
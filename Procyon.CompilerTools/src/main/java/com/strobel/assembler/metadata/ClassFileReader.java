@@ -41,9 +41,16 @@ public final class ClassFileReader extends MetadataReader {
     public final static int OPTION_PROCESS_ANNOTATIONS = 1 << 0;
     public final static int OPTION_PROCESS_CODE = 1 << 1;
 
+    /**
+     * Defers reading fields, methods, and nested types until they are first requested from the
+     * resulting {@link TypeDefinition}.  Only the class header, constant pool, supertypes, and
+     * class-level attributes are processed up front.
+     */
+    public final static int OPTION_LAZY_MEMBERS = 1 << 2;
+
     public final static int OPTIONS_DEFAULT = OPTION_PROCESS_ANNOTATIONS;
 
-    final static long MAGIC = 0xCAFEBABEL;
+    public final static long MAGIC = 0xCAFEBABEL;
 
     private final int _options;
     private final IMetadataResolver _resolver;
@@ -61,6 +68,8 @@ public final class ClassFileReader extends MetadataReader {
     private final ResolverFrame _resolverFrame;
     private final Scope _scope;
 
+    private MethodReference _declaringMethod;
+
     private ClassFileReader(
         final int options,
         final IMetadataResolver resolver,
@@ -130,6 +139,10 @@ public final class ClassFileReader extends MetadataReader {
         return (_options & OPTION_PROCESS_CODE) == OPTION_PROCESS_CODE;
     }
 
+    protected boolean shouldDeferMembers() {
+        return (_options & OPTION_LAZY_MEMBERS) == OPTION_LAZY_MEMBERS;
+    }
+
     @Override
     protected IMetadataScope getScope() {
         return _scope;
@@ -377,6 +390,87 @@ public final class ClassFileReader extends MetadataReader {
         ).readClass();
     }
 
+    /**
+     * Reads the internal name of the class in a class file without parsing its constant pool.
+     * Pool entries are skipped by tag and size, and only the {@code this_class} name is decoded,
+     * so this is much cheaper than {@link ConstantPool#read(Buffer)} when the name is all that
+     * is needed.  The buffer position is restored afterward.
+     *
+     * @param b
+     *     A buffer positioned at the start of a class file.
+     *
+     * @return The internal name of the class, or {@code null} if the buffer does not contain a
+     *         class file.
+     */
+    public static String readInternalName(final Buffer b) {
+        final int start = b.position();
+
+        try {
+            final long magic = b.readInt() & 0xFFFFFFFFL;
+
+            if (magic != MAGIC) {
+                return null;
+            }
+
+            b.readUnsignedShort(); // minor version
+            b.readUnsignedShort(); // major version
+
+            final int poolSize = b.readUnsignedShort();
+            final int[] entryOffsets = new int[poolSize];
+
+            for (int i = 1; i < poolSize; i++) {
+                final int tag = b.readUnsignedByte();
+
+                entryOffsets[i] = b.position();
+
+                switch (tag) {
+                    case 1:  // Utf8
+                        b.advance(b.readUnsignedShort());
+                        break;
+                    case 7:  // Class
+                    case 8:  // String
+                    case 16: // MethodType
+                    case 19: // Module
+                    case 20: // Package
+                        b.advance(2);
+                        break;
+                    case 15: // MethodHandle
+                        b.advance(3);
+                        break;
+                    case 3:  // Integer
+                    case 4:  // Float
+                    case 9:  // Fieldref
+                    case 10: // Methodref
+                    case 11: // InterfaceMethodref
+                    case 12: // NameAndType
+                    case 17: // Dynamic
+                    case 18: // InvokeDynamic
+                        b.advance(4);
+                        break;
+                    case 5:  // Long
+                    case 6:  // Double
+                        b.advance(8);
+                        i++;
+                        break;
+                    default:
+                        throw new IllegalStateException("Invalid constant pool tag: " + tag);
+                }
+            }
+
+            b.readUnsignedShort(); // access flags
+
+            final int thisClassIndex = b.readUnsignedShort();
+
+            b.position(entryOffsets[thisClassIndex]);
+            b.position(entryOffsets[b.readUnsignedShort()]);
+
+            return b.readUtf8();
+        }
+        finally {
+            b.position(start);
+        }
+    }
+
     // <editor-fold defaultstate="collapsed" desc="ClassReader Implementation">
 
     final TypeDefinition readClass() {
@@ -407,11 +501,7 @@ public final class ClassFileReader extends MetadataReader {
                             if (resolvedMethod != null) {
                                 method = resolvedMethod;
 
-                                final AnonymousLocalTypeCollection enclosedTypes = resolvedMethod.getDeclaredTypesInternal();
-
-                                if (!enclosedTypes.contains(_typeDefinition)) {
-                                    enclosedTypes.add(_typeDefinition);
-                                }
+                                resolvedMethod.tryAddDeclaredType(_typeDefinition);
                             }
 
                             _typeDefinition.setDeclaringMethod(method);
@@ -427,6 +517,8 @@ public final class ClassFileReader extends MetadataReader {
                     throw ExceptionUtilities.asRuntimeException(e);
                 }
 
+                _declaringMethod = declaringMethod;
+
                 if (declaringMethod != null) {
                     _parser.popGenericContext();
                     _parser.pushGenericContext(declaringMethod);
@@ -436,12 +528,15 @@ public final class ClassFileReader extends MetadataReader {
                 try {
                     populateDeclaringType();
                     populateBaseTypes();
+                    populateStrictFlag();
                     visitAttributes();
-                    visitFields();
-                    defineMethods();
-                    populateNamedInnerTypes();
-                    populateAnonymousInnerTypes();
-                    checkEnclosingMethodAttributes();
+
+                    if (shouldDeferMembers()) {
+                        _typeDefinition.setMemberReader(this);
+                    }
+                    else {
+                        defineMembers();
+                    }
                 }
                 finally {
                     if (declaringMethod != null) {
@@ -460,6 +555,44 @@ public final class ClassFileReader extends MetadataReader {
         }
     }
 
+    /**
+     * Reads the members of a type that was read with {@link #OPTION_LAZY_MEMBERS}, restoring the
+     * generic context and resolver frame that were in effect when the class header was read.
+     */
+    final void readMembers() {
+        if (_declaringMethod != null) {
+            _parser.pushGenericContext(_declaringMethod);
+        }
+
+        _parser.pushGenericContext(_typeDefinition);
+
+        try {
+            _resolver.pushFrame(_resolverFrame);
+
+            try {
+                defineMembers();
+            }
+            finally {
+                _resolver.popFrame();
+            }
+        }
+        finally {
+            _parser.popGenericContext();
+
+            if (_declaringMethod != null) {
+                _parser.popGenericContext();
+            }
+        }
+    }
+
+    private void defineMembers() {
+        visitFields();
+        defineMethods();
+        populateNamedInnerTypes();
+        populateAnonymousInnerTypes();
+        checkEnclosingMethodAttributes();
+    }
+
     private void checkEnclosingMethodAttributes() {
         final InnerClassesAttribute innerClasses = SourceAttribute.find(AttributeNames.InnerClasses, _attributes);
 
@@ -507,11 +640,7 @@ public final class ClassFileReader extends MetadataReader {
                     if (resolvedMethod != null) {
                         method = resolvedMethod;
 
-                        final AnonymousLocalTypeCollection enclosedTypes = resolvedMethod.getDeclaredTypesInternal();
-
-                        if (!enclosedTypes.contains(_typeDefinition)) {
-                            enclosedTypes.add(_typeDefinition);
-                        }
+                        resolvedMethod.tryAddDeclaredType(_typeDefinition);
                     }
 
                     resolvedInnerType.setDeclaringMethod(method);
@@ -625,12 +754,7 @@ public final class ClassFileReader extends MetadataReader {
                 if (resolvedOuterType != null) {
                     if (_typeDefinition.getDeclaringType() == null) {
                         _typeDefinition.setDeclaringType(resolvedOuterType);
-
-                        final Collection<TypeDefinition> declaredTypes = resolvedOuterType.getDeclaredTypesInternal();
-
-                        if (!declaredTypes.contains(_typeDefinition)) {
-                            declaredTypes.add(_typeDefinition);
-                        }
+                        resolvedOuterType.tryAddDeclaredType(_typeDefinition);
                     }
                 }
                 else if (_typeDefinition.getDeclaringType() == null) {
@@ -672,6 +796,15 @@ public final class ClassFileReader extends MetadataReader {
         _typeDefinition.setBaseType(baseType);
     }
 
+    private void populateStrictFlag() {
+        for (final MethodInfo method : _methods) {
+            if ("<init>".equals(method.name) && Flags.testAny(method.accessFlags, Flags.STRICTFP)) {
+                _typeDefinition.setFlags(_typeDefinition.getFlags() | Flags.STRICTFP);
+                return;
+            }
+        }
+    }
+
     private void populateNamedInnerTypes() {
         final InnerClassesAttribute innerClasses = SourceAttribute.find(AttributeNames.InnerClasses, _attributes);
 
@@ -679,8 +812,6 @@ public final class ClassFileReader extends MetadataReader {
             return;
         }
 
-        final Collection<TypeDefinition> declaredTypes = _typeDefinition.getDeclaredTypesInternal();
-
         for (final InnerClassEntry entry : innerClasses.getEntries()) {
             final String outerClassName = entry.getOuterClassName();
 
@@ -699,9 +830,8 @@ public final class ClassFileReader extends MetadataReader {
 
             if (resolvedInnerType != null &&
                 Comparer.equals(_internalName, outerClassName) &&
-                !declaredTypes.contains(resolvedInnerType)) {
+                _typeDefinition.tryAddDeclaredType(resolvedInnerType)) {
 
-                declaredTypes.add(resolvedInnerType);
                 resolvedInnerType.setFlags(resolvedInnerType.getFlags() | entry.getAccessFlags());
             }
         }
@@ -714,8 +844,6 @@ public final class ClassFileReader extends MetadataReader {
             return;
         }
 
-        final Collection<TypeDefinition> declaredTypes = _typeDefinition.getDeclaredTypesInternal();
-
         for (final InnerClassEntry entry : innerClasses.getEntries()) {
             final String simpleName = entry.getShortName();
 
@@ -734,10 +862,9 @@ public final class ClassFileReader extends MetadataReader {
             final TypeDefinition resolvedInnerType = innerType.resolve();
 
             if (resolvedInnerType instanceof TypeDefinition &&
-                Comparer.equals(_internalName, outerClassName) &&
-                !declaredTypes.contains(resolvedInnerType)) {
+                Comparer.equals(_internalName, outerClassName)) {
 
-                declaredTypes.add(resolvedInnerType);
+                _typeDefinition.tryAddDeclaredType(resolvedInnerType);
             }
         }
 
@@ -764,10 +891,9 @@ public final class ClassFileReader extends MetadataReader {
             final TypeDefinition resolvedInnerType = innerType.resolve();
 
             if (resolvedInnerType != null &&
-                Comparer.equals(_internalName, outerClassName) &&
-                !declaredTypes.contains(resolvedInnerType)) {
+                Comparer.equals(_internalName, outerClassName)) {
 
-                declaredTypes.add(resolvedInnerType);
+                _typeDefinition.tryAddDeclaredType(resolvedInnerType);
             }
         }
     }
@@ -1001,10 +1127,6 @@ public final class ClassFileReader extends MetadataReader {
                         if (Flags.testAny(_typeDefinition.getFlags(), Flags.ANONYMOUS)) {
                             methodDefinition.setFlags(methodDefinition.getFlags() | Flags.ANONCONSTR | Flags.SYNTHETIC);
                         }
-
-                        if (Flags.testAny(method.accessFlags, Flags.STRICTFP)) {
-                            _typeDefinition.setFlags(_typeDefinition.getFlags() | Flags.STRICTFP);
-                        }
                     }
 
                     readMethodBody(method, methodDefinition);
@@ -57,16 +57,7 @@ public final class ClasspathTypeLoader implements ITypeLoader {
         }
 
         try (final InputStream stream = _loader.getResourceAsStream(path)) {
-            final byte[] temp = new byte[4096];
-
-            int bytesRead;
-
-            while ((bytesRead = stream.read(temp, 0, temp.length)) > 0) {
-                buffer.ensureWriteableBytes(bytesRead);
-                buffer.putByteArray(temp, 0, bytesRead);
-            }
-
-            buffer.flip();
+            buffer.readFrom(stream, -1);
 
             if (LOG.isLoggable(Level.FINE)) {
                 LOG.fine("Type loaded from " + resource + ".");
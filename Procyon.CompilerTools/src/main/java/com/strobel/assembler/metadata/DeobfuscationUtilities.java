@@ -83,7 +83,7 @@ public class DeobfuscationUtilities {
                     type.isEquivalentTo(instantiatedTypeResolved.getBaseType())) {
 
                     instantiatedTypeResolved.setDeclaringType(type);
-                    type.getDeclaredTypesInternal().add(instantiatedTypeResolved);
+                    type.tryAddDeclaredType(instantiatedTypeResolved);
 
                     instantiatedTypeResolved.setFlags(instantiatedTypeResolved.getFlags() | Flags.ANONYMOUS);
                 }
@@ -16,7 +16,6 @@
 
 package com.strobel.assembler.metadata;
 
-import com.strobel.assembler.ir.ConstantPool;
 import com.strobel.core.ExceptionUtilities;
 import com.strobel.core.VerifyArgument;
 
@@ -56,26 +55,11 @@ public class JarTypeLoader implements ITypeLoader {
                        !mappedName.equals(internalName) && tryLoadType(mappedName, buffer);
             }
 
-            final InputStream inputStream = _jarFile.getInputStream(entry);
-
-            int remainingBytes = inputStream.available();
-
-            buffer.reset(remainingBytes);
-
-            while (remainingBytes > 0) {
-                final int bytesRead = inputStream.read(buffer.array(), buffer.position(), remainingBytes);
-
-                if (bytesRead < 0) {
-                    break;
-                }
-
-                buffer.position(buffer.position() + bytesRead);
-                remainingBytes -= bytesRead;
+            try (final InputStream inputStream = _jarFile.getInputStream(entry)) {
+                buffer.readFrom(inputStream, (int) entry.getSize());
             }
 
-            buffer.position(0);
-
-            final String actualName = getInternalNameFromClassFile(buffer);
+            final String actualName = ClassFileReader.readInternalName(buffer);
 
             if (actualName != null && !actualName.equals(internalName)) {
                 _knownMappings.put(actualName, internalName);
@@ -91,25 +75,4 @@ public class JarTypeLoader implements ITypeLoader {
             throw ExceptionUtilities.asRuntimeException(e);
         }
     }
-
-    private static String getInternalNameFromClassFile(final Buffer b) {
-        final long magic = b.readInt() & 0xFFFFFFFFL;
-
-        if (magic != 0xCAFEBABEL) {
-            return null;
-        }
-
-        b.readUnsignedShort(); // minor version
-        b.readUnsignedShort(); // major version
-
-        final ConstantPool constantPool = ConstantPool.read(b);
-
-        b.readUnsignedShort(); // access flags
-
-        final ConstantPool.TypeInfoEntry thisClass = constantPool.getEntry(b.readUnsignedShort());
-
-        b.position(0);
-
-        return thisClass.getName();
-    }
 }
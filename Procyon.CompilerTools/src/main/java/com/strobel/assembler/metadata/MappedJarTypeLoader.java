@@ -0,0 +1,381 @@
+/*
+ * MappedJarTypeLoader.java
+ *
+ * This source code is subject to terms and conditions of the Apache License, Version 2.0.
+ * A copy of the license can be found in the License.html file at the root of this distribution.
+ * By using this source code in any fashion, you are agreeing to be bound by the terms of the
+ * Apache License, Version 2.0.
+ *
+ * You must not remove this notice, or any other, from this software.
+ */
+
+package com.strobel.assembler.metadata;
+
+import com.strobel.core.ExceptionUtilities;
+import com.strobel.core.VerifyArgument;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * A type loader that memory maps a JAR (or ZIP) file and indexes its central directory up front.
+ * Stored entries are copied straight out of the mapped file, and deflated entries are inflated
+ * directly into the destination {@link Buffer}, which is sized from the central directory rather
+ * than from {@link java.io.InputStream#available()}.  Unlike {@link JarTypeLoader}, a single
+ * instance may be shared by several threads.
+ * <p>
+ * The file is only held open while it is being mapped.  Closing the loader releases the mapping
+ * and the index, after which it loads nothing.
+ */
+public class MappedJarTypeLoader implements ITypeLoader, Closeable {
+    private final static Logger LOG = Logger.getLogger(MappedJarTypeLoader.class.getSimpleName());
+
+    private final static int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    private final static int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+    private final static int END_HEADER_SIGNATURE = 0x06054b50;
+    private final static int ZIP64_END_HEADER_SIGNATURE = 0x06064b50;
+    private final static int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+
+    private final static int LOCAL_HEADER_SIZE = 30;
+    private final static int CENTRAL_HEADER_SIZE = 46;
+    private final static int END_HEADER_SIZE = 22;
+    private final static int ZIP64_LOCATOR_SIZE = 20;
+    private final static int MAX_COMMENT_SIZE = 0xFFFF;
+
+    private final static int METHOD_STORED = 0;
+    private final static int METHOD_DEFLATED = 8;
+    private final static int FLAG_ENCRYPTED = 0x1;
+
+    private final static Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final static ThreadLocal<Inflater> INFLATERS = new ThreadLocal<Inflater>() {
+        @Override
+        protected Inflater initialValue() {
+            return new Inflater(true);
+        }
+    };
+
+    private final static ThreadLocal<byte[][]> SCRATCH_BUFFERS = new ThreadLocal<byte[][]>() {
+        @Override
+        protected byte[][] initialValue() {
+            return new byte[1][];
+        }
+    };
+
+    private final File _file;
+    private volatile ByteBuffer _data;
+    private volatile Map<String, Entry> _entries;
+    private final Map<String, String> _knownMappings;
+
+    public MappedJarTypeLoader(final File file) throws IOException {
+        _file = VerifyArgument.notNull(file, "file");
+
+        try (final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+             final FileChannel channel = randomAccessFile.getChannel()) {
+
+            final long length = channel.size();
+
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException("File is too large to be mapped: " + file.getPath());
+            }
+
+            final MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+
+            _data = mapped;
+        }
+
+        _entries = readCentralDirectory();
+        _knownMappings = new ConcurrentHashMap<>();
+    }
+
+    public final File getFile() {
+        return _file;
+    }
+
+    @Override
+    public void close() {
+        //
+        // A mapping cannot be unmapped safely while other threads may still be reading it, so just
+        // let go of it; it is unmapped once it is collected.
+        //
+        _entries = null;
+        _data = null;
+        _knownMappings.clear();
+    }
+
+    @Override
+    public boolean tryLoadType(final String internalName, final Buffer buffer) {
+        if (LOG.isLoggable(Level.FINE)) {
+            LOG.fine("Attempting to load type: " + internalName + "...");
+        }
+
+        final Map<String, Entry> entries = _entries;
+        final ByteBuffer data = _data;
+
+        if (entries == null || data == null) {
+            return false;
+        }
+
+        final Entry entry = entries.get(internalName);
+
+        if (entry == null) {
+            final String mappedName = _knownMappings.get(internalName);
+
+            return mappedName != null &&
+                   !mappedName.equals(internalName) && tryLoadType(mappedName, buffer);
+        }
+
+        if (!readEntry(data, entry, buffer)) {
+            return false;
+        }
+
+        final String actualName = ClassFileReader.readInternalName(buffer);
+
+        if (actualName != null && !actualName.equals(internalName)) {
+            _knownMappings.put(actualName, internalName);
+        }
+
+        if (LOG.isLoggable(Level.FINE)) {
+            LOG.fine("Type loaded from " + _file.getPath() + "!" + internalName + ".class.");
+        }
+
+        return true;
+    }
+
+    private boolean readEntry(final ByteBuffer mappedData, final Entry entry, final Buffer buffer) {
+        final ByteBuffer data = mappedData.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+
+        if (data.getInt(entry.headerOffset) != LOCAL_HEADER_SIGNATURE) {
+            throw new IllegalStateException("Invalid local file header for entry in " + _file.getPath() + ".");
+        }
+
+        final int dataOffset = entry.headerOffset +
+                               LOCAL_HEADER_SIZE +
+                               (data.getShort(entry.headerOffset + 26) & 0xFFFF) +
+                               (data.getShort(entry.headerOffset + 28) & 0xFFFF);
+
+        buffer.reset(entry.size);
+        data.position(dataOffset);
+
+        switch (entry.method) {
+            case METHOD_STORED: {
+                data.get(buffer.array(), 0, entry.size);
+                return true;
+            }
+
+            case METHOD_DEFLATED: {
+                //
+                // Inflater only accepts byte arrays as input on Java 8, so the compressed bytes go
+                // through a per-thread scratch array; the output goes straight into the buffer.  A
+                // trailing dummy byte is required when inflating with 'nowrap'.
+                //
+
+                final byte[][] scratchHolder = SCRATCH_BUFFERS.get();
+
+                byte[] scratch = scratchHolder[0];
+
+                if (scratch == null || scratch.length < entry.compressedSize + 1) {
+                    scratchHolder[0] = scratch = new byte[Math.max(entry.compressedSize + 1, 8192)];
+                }
+
+                data.get(scratch, 0, entry.compressedSize);
+                scratch[entry.compressedSize] = 0;
+
+                final Inflater inflater = INFLATERS.get();
+
+                inflater.reset();
+                inflater.setInput(scratch, 0, entry.compressedSize + 1);
+
+                try {
+                    int offset = 0;
+
+                    while (offset < entry.size) {
+                        final int bytesInflated = inflater.inflate(buffer.array(), offset, entry.size - offset);
+
+                        if (bytesInflated == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                            break;
+                        }
+
+                        offset += bytesInflated;
+                    }
+
+                    if (offset != entry.size) {
+                        throw new IllegalStateException("Truncated entry in " + _file.getPath() + ".");
+                    }
+                }
+                catch (final DataFormatException e) {
+                    throw ExceptionUtilities.asRuntimeException(e);
+                }
+
+                return true;
+            }
+
+            default: {
+                if (LOG.isLoggable(Level.FINE)) {
+                    LOG.fine("Unsupported compression method " + entry.method + " in " + _file.getPath() + ".");
+                }
+                buffer.reset(0);
+                return false;
+            }
+        }
+    }
+
+    // <editor-fold defaultstate="collapsed" desc="Central Directory">
+
+    private Map<String, Entry> readCentralDirectory() throws IOException {
+        final ByteBuffer data = _data.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        final int endHeaderOffset = findEndHeader(data);
+
+        long entryCount = data.getShort(endHeaderOffset + 10) & 0xFFFF;
+        long directoryOffset = data.getInt(endHeaderOffset + 16) & 0xFFFFFFFFL;
+
+        final int locatorOffset = endHeaderOffset - ZIP64_LOCATOR_SIZE;
+
+        if (locatorOffset >= 0 && data.getInt(locatorOffset) == ZIP64_LOCATOR_SIGNATURE) {
+            final long zip64EndHeaderOffset = data.getLong(locatorOffset + 8);
+
+            if (zip64EndHeaderOffset < 0 ||
+                zip64EndHeaderOffset > data.limit() - 56 ||
+                data.getInt((int) zip64EndHeaderOffset) != ZIP64_END_HEADER_SIGNATURE) {
+
+                throw new IOException("Invalid ZIP64 end of central directory record in " + _file.getPath() + ".");
+            }
+
+            entryCount = data.getLong((int) zip64EndHeaderOffset + 32);
+            directoryOffset = data.getLong((int) zip64EndHeaderOffset + 48);
+        }
+
+        if (directoryOffset < 0 || directoryOffset > data.limit()) {
+            throw new IOException("Invalid central directory offset in " + _file.getPath() + ".");
+        }
+
+        final Map<String, Entry> entries = new HashMap<>();
+
+        int position = (int) directoryOffset;
+
+        for (long i = 0; i < entryCount; i++) {
+            if (position + CENTRAL_HEADER_SIZE > data.limit() ||
+                data.getInt(position) != CENTRAL_HEADER_SIGNATURE) {
+
+                throw new IOException("Invalid central directory header in " + _file.getPath() + ".");
+            }
+
+            final int flags = data.getShort(position + 8) & 0xFFFF;
+            final int method = data.getShort(position + 10) & 0xFFFF;
+            final int nameLength = data.getShort(position + 28) & 0xFFFF;
+            final int extraLength = data.getShort(position + 30) & 0xFFFF;
+            final int commentLength = data.getShort(position + 32) & 0xFFFF;
+
+            long compressedSize = data.getInt(position + 20) & 0xFFFFFFFFL;
+            long size = data.getInt(position + 24) & 0xFFFFFFFFL;
+            long headerOffset = data.getInt(position + 42) & 0xFFFFFFFFL;
+
+            final String name = readName(data, position + CENTRAL_HEADER_SIZE, nameLength);
+
+            if (name.endsWith(".class") && (flags & FLAG_ENCRYPTED) == 0) {
+                if (size == 0xFFFFFFFFL || compressedSize == 0xFFFFFFFFL || headerOffset == 0xFFFFFFFFL) {
+                    //
+                    // Read the real values from the ZIP64 extended information extra field.
+                    //
+
+                    int extra = position + CENTRAL_HEADER_SIZE + nameLength;
+                    final int extraEnd = extra + extraLength;
+
+                    while (extra + 4 <= extraEnd) {
+                        final int id = data.getShort(extra) & 0xFFFF;
+                        final int length = data.getShort(extra + 2) & 0xFFFF;
+
+                        if (id == 0x0001) {
+                            int field = extra + 4;
+
+                            if (size == 0xFFFFFFFFL) {
+                                size = data.getLong(field);
+                                field += 8;
+                            }
+
+                            if (compressedSize == 0xFFFFFFFFL) {
+                                compressedSize = data.getLong(field);
+                                field += 8;
+                            }
+
+                            if (headerOffset == 0xFFFFFFFFL) {
+                                headerOffset = data.getLong(field);
+                            }
+
+                            break;
+                        }
+
+                        extra += 4 + length;
+                    }
+                }
+
+                if (size > Integer.MAX_VALUE || compressedSize > Integer.MAX_VALUE || headerOffset > data.limit()) {
+                    throw new IOException("Invalid entry '" + name + "' in " + _file.getPath() + ".");
+                }
+
+                final String internalName = name.substring(0, name.length() - ".class".length());
+
+                entries.put(internalName, new Entry((int) headerOffset, (int) compressedSize, (int) size, method));
+            }
+
+            position += CENTRAL_HEADER_SIZE + nameLength + extraLength + commentLength;
+        }
+
+        return entries;
+    }
+
+    private int findEndHeader(final ByteBuffer data) throws IOException {
+        final int limit = data.limit();
+        final int minimumOffset = Math.max(0, limit - END_HEADER_SIZE - MAX_COMMENT_SIZE);
+
+        for (int offset = limit - END_HEADER_SIZE; offset >= minimumOffset; offset--) {
+            if (data.getInt(offset) == END_HEADER_SIGNATURE) {
+                return offset;
+            }
+        }
+
+        throw new IOException("Not a valid JAR or ZIP file: " + _file.getPath());
+    }
+
+    private static String readName(final ByteBuffer data, final int offset, final int length) {
+        final byte[] bytes = new byte[length];
+
+        for (int i = 0; i < length; i++) {
+            bytes[i] = data.get(offset + i);
+        }
+
+        return new String(bytes, UTF_8);
+    }
+
+    private final static class Entry {
+        final int headerOffset;
+        final int compressedSize;
+        final int size;
+        final int method;
+
+        Entry(final int headerOffset, final int compressedSize, final int size, final int method) {
+            this.headerOffset = headerOffset;
+            this.compressedSize = compressedSize;
+            this.size = size;
+            this.method = method;
+        }
+    }
+
+    // </editor-fold>
+}
@@ -28,6 +28,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Stack;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * @author Mike Strobel
@@ -118,17 +119,33 @@ public final class MetadataParser {
     public TypeReference parseTypeDescriptor(final String descriptor) {
         VerifyArgument.notNull(descriptor, "descriptor");
 
-        if (descriptor.startsWith("[")) {
-            return parseTypeSignature(descriptor);
+        TypeSignature typeSignature = TYPE_DESCRIPTORS.get(descriptor);
+
+        if (typeSignature == null) {
+            typeSignature = _signatureParser.parseTypeSignature(
+                descriptor.startsWith("[") ? descriptor : "L" + descriptor + ";"
+            );
+
+            TYPE_DESCRIPTORS.put(descriptor, typeSignature);
         }
 
-        return parseTypeSignature("L" + descriptor + ";");
+        return reifyTypeSignature(typeSignature);
     }
 
     public TypeReference parseTypeSignature(final String signature) {
         VerifyArgument.notNull(signature, "signature");
 
-        final TypeSignature typeSignature = _signatureParser.parseTypeSignature(signature);
+        TypeSignature typeSignature = TYPE_SIGNATURES.get(signature);
+
+        if (typeSignature == null) {
+            typeSignature = _signatureParser.parseTypeSignature(signature);
+            TYPE_SIGNATURES.put(signature, typeSignature);
+        }
+
+        return reifyTypeSignature(typeSignature);
+    }
+
+    private TypeReference reifyTypeSignature(final TypeSignature typeSignature) {
         final Reifier reifier = Reifier.make(_factory);
 
         typeSignature.accept(reifier);
@@ -231,7 +248,13 @@ public final class MetadataParser {
     public IMethodSignature parseMethodSignature(final String signature) {
         VerifyArgument.notNull(signature, "signature");
 
-        final MethodTypeSignature methodTypeSignature = _signatureParser.parseMethodSignature(signature);
+        MethodTypeSignature methodTypeSignature = METHOD_SIGNATURES.get(signature);
+
+        if (methodTypeSignature == null) {
+            methodTypeSignature = _signatureParser.parseMethodSignature(signature);
+            METHOD_SIGNATURES.put(signature, methodTypeSignature);
+        }
+
         final Reifier reifier = Reifier.make(_factory);
 
         final TypeReference returnType;
@@ -339,7 +362,13 @@ public final class MetadataParser {
     public IClassSignature parseClassSignature(final String signature) {
         VerifyArgument.notNull(signature, "signature");
 
-        final ClassSignature classSignature = _signatureParser.parseClassSignature(signature);
+        ClassSignature classSignature = CLASS_SIGNATURES.get(signature);
+
+        if (classSignature == null) {
+            classSignature = _signatureParser.parseClassSignature(signature);
+            CLASS_SIGNATURES.put(signature, classSignature);
+        }
+
         final Reifier reifier = Reifier.make(_factory);
 
         final TypeReference baseType;
@@ -479,6 +508,61 @@ public final class MetadataParser {
 
     // </editor-fold>
 
+    // <editor-fold defaultstate="collapsed" desc="Signature Cache">
+
+    //
+    // Parsed signature trees are immutable and independent of the resolver and generic context, so
+    // every parser shares them; only reification (which binds type variables and resolves types) is
+    // repeated per parser.  Type signatures and class signatures are kept apart because the same
+    // string may be valid as both.
+    //
+
+    private final static int SIGNATURE_CACHE_SIZE = 16384;
+
+    private final static SignatureCache<TypeSignature> TYPE_DESCRIPTORS = new SignatureCache<>();
+    private final static SignatureCache<TypeSignature> TYPE_SIGNATURES = new SignatureCache<>();
+    private final static SignatureCache<MethodTypeSignature> METHOD_SIGNATURES = new SignatureCache<>();
+    private final static SignatureCache<ClassSignature> CLASS_SIGNATURES = new SignatureCache<>();
+
+    /**
+     * A bounded, lock-free, direct-mapped cache: each signature may only occupy the slot selected by
+     * its hash, and a new entry simply evicts whatever was there before.
+     */
+    private final static class SignatureCache<T> {
+        private final AtomicReferenceArray<Entry<T>> _entries = new AtomicReferenceArray<>(SIGNATURE_CACHE_SIZE);
+
+        T get(final String signature) {
+            final Entry<T> entry = _entries.get(slot(signature));
+
+            if (entry != null && entry.signature.equals(signature)) {
+                return entry.value;
+            }
+
+            return null;
+        }
+
+        void put(final String signature, final T value) {
+            _entries.lazySet(slot(signature), new Entry<>(signature, value));
+        }
+
+        private static int slot(final String signature) {
+            final int hash = signature.hashCode();
+            return (hash ^ (hash >>> 16)) & (SIGNATURE_CACHE_SIZE - 1);
+        }
+
+        private final static class Entry<T> {
+            final String signature;
+            final T value;
+
+            Entry(final String signature, final T value) {
+                this.signature = signature;
+                this.value = value;
+            }
+        }
+    }
+
+    // </editor-fold>
+
     // <editor-fold defaultstate="collapsed" desc="UnresolvedMethod Class">
 
     private final class UnresolvedMethod extends MethodReference {
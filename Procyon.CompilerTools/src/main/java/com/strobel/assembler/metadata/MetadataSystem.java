@@ -17,6 +17,7 @@
 package com.strobel.assembler.metadata;
 
 import com.strobel.compilerservices.RuntimeHelpers;
+import com.strobel.core.ExceptionUtilities;
 import com.strobel.core.Fences;
 import com.strobel.core.VerifyArgument;
 
@@ -28,10 +29,12 @@ import java.util.concurrent.ConcurrentHashMap;
 public class MetadataSystem extends MetadataResolver {
     private static MetadataSystem _instance;
 
-    private final ConcurrentHashMap<String, TypeDefinition> _types;
+    private final TypeDefinitionCache _typeCache;
+    private final ConcurrentHashMap<String, PendingLoad> _pendingLoads;
     private final ITypeLoader _typeLoader;
 
     private boolean _isEagerMethodLoadingEnabled;
+    private boolean _isLazyMemberLoadingEnabled = true;
 
     public static MetadataSystem instance() {
         if (_instance == null) {
@@ -58,8 +61,13 @@ public class MetadataSystem extends MetadataResolver {
 //    }
 
     public MetadataSystem(final ITypeLoader typeLoader) {
+        this(typeLoader, TypeDefinitionCache.createUnboundedCache());
+    }
+
+    public MetadataSystem(final ITypeLoader typeLoader, final TypeDefinitionCache typeCache) {
         _typeLoader = VerifyArgument.notNull(typeLoader, "typeLoader");
-        _types = new ConcurrentHashMap<>();
+        _typeCache = VerifyArgument.notNull(typeCache, "typeCache");
+        _pendingLoads = new ConcurrentHashMap<>();
     }
 
     public final boolean isEagerMethodLoadingEnabled() {
@@ -70,9 +78,22 @@ public class MetadataSystem extends MetadataResolver {
         _isEagerMethodLoadingEnabled = value;
     }
 
+    /**
+     * Returns whether the fields, methods, and nested types of loaded types are read only when
+     * first requested.  Most types are loaded merely to check a supertype or look up a single
+     * member, so this is enabled by default.
+     */
+    public final boolean isLazyMemberLoadingEnabled() {
+        return _isLazyMemberLoadingEnabled;
+    }
+
+    public final void setLazyMemberLoadingEnabled(final boolean value) {
+        _isLazyMemberLoadingEnabled = value;
+    }
+
     public void addTypeDefinition(final TypeDefinition type) {
         VerifyArgument.notNull(type, "type");
-        _types.putIfAbsent(type.getInternalName(), type);
+        _typeCache.cache(type.getInternalName(), type);
     }
 
     @Override
@@ -114,7 +135,52 @@ public class MetadataSystem extends MetadataResolver {
             }
         }
 
-        TypeDefinition cachedDefinition = _types.get(descriptor);
+        final TypeDefinition cachedDefinition = _typeCache.get(descriptor);
+
+        if (cachedDefinition != null) {
+            return cachedDefinition;
+        }
+
+        //
+        // Make sure each type is only loaded once, even if several threads ask for it at the same
+        // time: the first thread to register a pending load does the work, and the others wait
+        // for its result.
+        //
+
+        final PendingLoad load = new PendingLoad();
+        final PendingLoad existingLoad = _pendingLoads.putIfAbsent(descriptor, load);
+
+        if (existingLoad != null) {
+            if (existingLoad.await(true)) {
+                return existingLoad.getResult();
+            }
+
+            //
+            // Waiting would deadlock (the owning thread is, directly or indirectly, waiting on
+            // us, or we are the owner and have come back around through a nested type), or our
+            // wait was abandoned to break such a cycle between other threads.  Load our own copy;
+            // whichever definition gets cached first wins.
+            //
+
+            return loadType(descriptor);
+        }
+
+        try {
+            final TypeDefinition typeDefinition = loadType(descriptor);
+            load.complete(typeDefinition, null);
+            return typeDefinition;
+        }
+        catch (final Throwable t) {
+            load.complete(null, t);
+            throw ExceptionUtilities.asRuntimeException(t);
+        }
+        finally {
+            _pendingLoads.remove(descriptor, load);
+        }
+    }
+
+    private TypeDefinition loadType(final String descriptor) {
+        final TypeDefinition cachedDefinition = _typeCache.get(descriptor);
 
         if (cachedDefinition != null) {
             return cachedDefinition;
@@ -126,21 +192,21 @@ public class MetadataSystem extends MetadataResolver {
             return null;
         }
 
-        final TypeDefinition typeDefinition = ClassFileReader.readClass(
-            _isEagerMethodLoadingEnabled ? ClassFileReader.OPTIONS_DEFAULT | ClassFileReader.OPTION_PROCESS_CODE
-                                         : ClassFileReader.OPTIONS_DEFAULT,
-            this,
-            buffer
-        );
+        int options = ClassFileReader.OPTIONS_DEFAULT;
 
-        cachedDefinition = _types.putIfAbsent(descriptor, typeDefinition);
-        typeDefinition.setTypeLoader(_typeLoader);
+        if (_isEagerMethodLoadingEnabled) {
+            options |= ClassFileReader.OPTION_PROCESS_CODE;
+        }
 
-        if (cachedDefinition != null) {
-            return cachedDefinition;
+        if (_isLazyMemberLoadingEnabled) {
+            options |= ClassFileReader.OPTION_LAZY_MEMBERS;
         }
 
-        return typeDefinition;
+        final TypeDefinition typeDefinition = ClassFileReader.readClass(options, this, buffer);
+
+        typeDefinition.setTypeLoader(_typeLoader);
+
+        return _typeCache.cache(descriptor, typeDefinition);
     }
 
     // <editor-fold defaultstate="collapsed" desc="Primitive Lookup">
@@ -64,7 +64,7 @@ public class MethodDefinition extends MethodReference implements IMemberDefiniti
         _sourceAttributes = new Collection<>();
         _genericParametersView = Collections.unmodifiableList(_genericParameters);
         _parametersView = Collections.unmodifiableList(_parameters);
-        _declaredTypesView = Collections.unmodifiableList(_declaredTypes);
+        _declaredTypesView = new SynchronizedListView<>(_declaredTypes);
         _thrownTypesView = Collections.unmodifiableList(_thrownTypes);
         _customAnnotationsView = Collections.unmodifiableList(_customAnnotations);
         _sourceAttributesView = Collections.unmodifiableList(_sourceAttributes);
@@ -111,6 +111,22 @@ public class MethodDefinition extends MethodReference implements IMemberDefiniti
         return _declaredTypes;
     }
 
+    /**
+     * Adds a local or anonymous type unless it is already present, returning whether it was added.
+     * Such types register themselves with their enclosing method as they are read, possibly on
+     * several threads at once, so additions go through here, holding the same lock as readers of
+     * {@link #getDeclaredTypes()}.
+     */
+    final boolean tryAddDeclaredType(final TypeDefinition type) {
+        synchronized (_declaredTypes) {
+            if (_declaredTypes.contains(type)) {
+                return false;
+            }
+            _declaredTypes.add(type);
+            return true;
+        }
+    }
+
     @Override
     public final List<GenericParameter> getGenericParameters() {
         return _genericParametersView;
@@ -655,7 +671,19 @@ public class MethodDefinition extends MethodReference implements IMemberDefiniti
 
     // <editor-fold defaultstate="collapsed" desc="Deferred Method Body Loading">
 
-    private MethodBody tryLoadBody() {
+    private synchronized MethodBody tryLoadBody() {
+        //
+        // Method bodies may be decompiled concurrently (see DecompilerSettings.getMethodBodyExecutor()),
+        // and loading temporarily swaps out the Code attribute, so only one thread may load at a time.
+        // Another thread may have finished loading while we waited for the lock.
+        //
+        final SoftReference<MethodBody> cachedBody = _body;
+        final MethodBody existingBody = cachedBody != null ? cachedBody.get() : null;
+
+        if (existingBody != null) {
+            return existingBody;
+        }
+
         if (Flags.testAny(_flags, Flags.LOAD_BODY_FAILED)) {
             return null;
         }
@@ -0,0 +1,166 @@
+/*
+ * PendingLoad.java
+ *
+ * This source code is subject to terms and conditions of the Apache License, Version 2.0.
+ * A copy of the license can be found in the License.html file at the root of this distribution.
+ * By using this source code in any fashion, you are agreeing to be bound by the terms of the
+ * Apache License, Version 2.0.
+ *
+ * You must not remove this notice, or any other, from this software.
+ */
+
+package com.strobel.assembler.metadata;
+
+import com.strobel.core.ExceptionUtilities;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Metadata loading work owned by one thread, which other threads may wait on: either a type being
+ * read by a {@link MetadataSystem}, or the deferred members of a {@link TypeDefinition}.
+ * <p>
+ * Loading one type routinely resolves others, so two threads can each own work the other needs.
+ * Every wait is recorded in a single graph shared by all metadata systems, and a wait which would
+ * close a cycle is refused or broken; see {@link #await(boolean)}.
+ */
+final class PendingLoad {
+    private final static Object LOCK = new Object();
+    private final static Map<Thread, PendingLoad> BLOCKED_THREADS = new HashMap<>();
+    private final static Set<Thread> WAITERS_WITH_FALLBACK = new HashSet<>();
+    private final static Set<Thread> ABANDONED_WAITS = new HashSet<>();
+
+    final Thread owner;
+
+    private boolean _isDone;
+    private TypeDefinition _result;
+    private Throwable _error;
+
+    /**
+     * Creates a load owned by the current thread.
+     */
+    PendingLoad() {
+        this.owner = Thread.currentThread();
+    }
+
+    void complete(final TypeDefinition result, final Throwable error) {
+        synchronized (LOCK) {
+            _result = result;
+            _error = error;
+            _isDone = true;
+            LOCK.notifyAll();
+        }
+    }
+
+    /**
+     * Returns the result of a completed load, rethrowing the error it failed with, if any.
+     */
+    TypeDefinition getResult() {
+        synchronized (LOCK) {
+            if (_error != null) {
+                throw ExceptionUtilities.asRuntimeException(_error);
+            }
+            return _result;
+        }
+    }
+
+    /**
+     * Waits for this load to complete, returning {@code true} once it has.  Returns {@code false}
+     * without waiting if the current thread owns the load.
+     * <p>
+     * If {@code hasFallback} is {@code true}, the caller can do without the result (for instance,
+     * by loading its own copy of a type), so a wait which would deadlock is refused, and the wait
+     * may later be abandoned to break a cycle formed by other threads; either way, this method
+     * returns {@code false}.  Otherwise, a wait which would deadlock abandons the wait of another
+     * thread in the cycle which has a fallback.  If there is no such thread, the cycle cannot be
+     * broken, and an {@link IllegalStateException} is thrown.
+     */
+    boolean await(final boolean hasFallback) {
+        final Thread currentThread = Thread.currentThread();
+
+        synchronized (LOCK) {
+            if (_isDone) {
+                return true;
+            }
+
+            if (owner == currentThread) {
+                return false;
+            }
+
+            if (wouldDeadlock(currentThread)) {
+                if (hasFallback) {
+                    return false;
+                }
+                breakCycle(currentThread);
+            }
+
+            BLOCKED_THREADS.put(currentThread, this);
+
+            if (hasFallback) {
+                WAITERS_WITH_FALLBACK.add(currentThread);
+            }
+
+            boolean interrupted = false;
+
+            try {
+                while (!_isDone) {
+                    if (ABANDONED_WAITS.contains(currentThread)) {
+                        return false;
+                    }
+
+                    try {
+                        LOCK.wait();
+                    }
+                    catch (final InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+
+                return true;
+            }
+            finally {
+                BLOCKED_THREADS.remove(currentThread);
+                WAITERS_WITH_FALLBACK.remove(currentThread);
+                ABANDONED_WAITS.remove(currentThread);
+
+                if (interrupted) {
+                    currentThread.interrupt();
+                }
+            }
+        }
+    }
+
+    private boolean wouldDeadlock(final Thread currentThread) {
+        for (PendingLoad p = this; p != null; p = BLOCKED_THREADS.get(p.owner)) {
+            if (p.owner == currentThread) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void breakCycle(final Thread currentThread) {
+        for (PendingLoad p = this; p.owner != currentThread; p = BLOCKED_THREADS.get(p.owner)) {
+            final Thread waiter = p.owner;
+
+            if (WAITERS_WITH_FALLBACK.contains(waiter)) {
+                //
+                // Take the abandoned wait out of the graph now rather than when the waiter wakes,
+                // so that nobody walks the cycle it closed in the meantime.
+                //
+                BLOCKED_THREADS.remove(waiter);
+                WAITERS_WITH_FALLBACK.remove(waiter);
+                ABANDONED_WAITS.add(waiter);
+                LOCK.notifyAll();
+                return;
+            }
+        }
+
+        throw new IllegalStateException(
+            "Circular dependency between metadata loads on threads '" + currentThread.getName() +
+            "' and '" + owner.getName() + "'."
+        );
+    }
+}
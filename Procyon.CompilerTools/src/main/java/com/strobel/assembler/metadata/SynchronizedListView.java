@@ -0,0 +1,43 @@
+/*
+ * SynchronizedListView.java
+ *
+ * This source code is subject to terms and conditions of the Apache License, Version 2.0.
+ * A copy of the license can be found in the License.html file at the root of this distribution.
+ * By using this source code in any fashion, you are agreeing to be bound by the terms of the
+ * Apache License, Version 2.0.
+ *
+ * You must not remove this notice, or any other, from this software.
+ */
+
+package com.strobel.assembler.metadata;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * A read-only view of a list which is still being added to, possibly from other threads.  Each read
+ * holds the monitor of the backing list, which writers must also hold.  Iterating the view while
+ * elements are being appended sees them as they arrive, but never fails.
+ */
+final class SynchronizedListView<E> extends AbstractList<E> implements RandomAccess {
+    private final List<E> _list;
+
+    SynchronizedListView(final List<E> list) {
+        _list = list;
+    }
+
+    @Override
+    public E get(final int index) {
+        synchronized (_list) {
+            return _list.get(index);
+        }
+    }
+
+    @Override
+    public int size() {
+        synchronized (_list) {
+            return _list.size();
+        }
+    }
+}
@@ -21,6 +21,7 @@ import com.strobel.assembler.ir.ConstantPool;
 import com.strobel.assembler.ir.attributes.SourceAttribute;
 import com.strobel.assembler.metadata.annotations.CustomAnnotation;
 import com.strobel.core.ArrayUtilities;
+import com.strobel.core.ExceptionUtilities;
 import com.strobel.core.StringUtilities;
 import com.strobel.core.VerifyArgument;
 
@@ -58,6 +59,8 @@ public class TypeDefinition extends TypeReference implements IMemberDefinition {
     private MethodReference _declaringMethod;
     private ConstantPool _constantPool;
     private ITypeLoader _typeLoader;
+    private volatile ClassFileReader _memberReader;
+    private PendingLoad _memberLoad;
 
     public TypeDefinition() {
         _genericParameters = new GenericParameterCollection(this);
@@ -68,7 +71,7 @@ public class TypeDefinition extends TypeReference implements IMemberDefinition {
         _customAnnotations = new Collection<>();
         _sourceAttributes = new Collection<>();
         _genericParametersView = Collections.unmodifiableList(_genericParameters);
-        _declaredTypesView = Collections.unmodifiableList(_declaredTypes);
+        _declaredTypesView = new SynchronizedListView<>(_declaredTypes);
         _declaredFieldsView = Collections.unmodifiableList(_declaredFields);
         _declaredMethodsView = Collections.unmodifiableList(_declaredMethods);
         _explicitInterfacesView = Collections.unmodifiableList(_explicitInterfaces);
@@ -287,11 +290,29 @@ public class TypeDefinition extends TypeReference implements IMemberDefinition {
         return _declaredTypes;
     }
 
+    /**
+     * Adds a nested type unless it is already present, returning whether it was added.  Nested
+     * types register themselves with their declaring type as they are read, possibly on another
+     * thread while this type's members are being read, so additions go through here, holding the
+     * same lock as readers of {@link #getDeclaredTypes()}.
+     */
+    final boolean tryAddDeclaredType(final TypeDefinition type) {
+        synchronized (_declaredTypes) {
+            if (_declaredTypes.contains(type)) {
+                return false;
+            }
+            _declaredTypes.add(type);
+            return true;
+        }
+    }
+
     protected final Collection<FieldDefinition> getDeclaredFieldsInternal() {
+        ensureMembersLoaded();
         return _declaredFields;
     }
 
     protected final Collection<MethodDefinition> getDeclaredMethodsInternal() {
+        ensureMembersLoaded();
         return _declaredMethods;
     }
 
@@ -417,19 +438,108 @@ public class TypeDefinition extends TypeReference implements IMemberDefinition {
     // <editor-fold defaultstate="collapsed" desc="Members">
 
     public final List<FieldDefinition> getDeclaredFields() {
+        ensureMembersLoaded();
         return _declaredFieldsView;
     }
 
     public final List<MethodDefinition> getDeclaredMethods() {
+        ensureMembersLoaded();
         return _declaredMethodsView;
     }
 
     public final List<TypeDefinition> getDeclaredTypes() {
+        ensureMembersLoaded();
         return _declaredTypesView;
     }
 
     // </editor-fold>
 
+    // <editor-fold defaultstate="collapsed" desc="Deferred Member Loading">
+
+    final void setMemberReader(final ClassFileReader memberReader) {
+        _memberReader = memberReader;
+    }
+
+    /**
+     * Returns this type's nested types for a lookup which can fall back to resolving the nested
+     * type by name.  If another thread is reading this type's members and waiting for it would
+     * deadlock, returns the nested types registered so far, which may be incomplete.
+     */
+    final List<TypeDefinition> getDeclaredTypesForLookup() {
+        if (_memberReader != null) {
+            loadMembers(true);
+        }
+        return _declaredTypesView;
+    }
+
+    private void ensureMembersLoaded() {
+        if (_memberReader != null) {
+            loadMembers(false);
+        }
+    }
+
+    private void loadMembers(final boolean hasFallback) {
+        //
+        // Reading members may resolve nested types, which look back at this type, possibly from
+        // other threads that are themselves being waited on.  Rather than hold our monitor while
+        // reading, the reading thread registers a pending load which other threads wait on; if a
+        // wait would deadlock, a waiter in the cycle with a fallback gives up instead (see
+        // PendingLoad.await()).  Only reentrant requests from the reading thread itself, and
+        // callers with a fallback, see the members read so far.
+        //
+        final ClassFileReader memberReader;
+        final PendingLoad load;
+
+        synchronized (this) {
+            if (_memberReader == null) {
+                return;
+            }
+
+            if (_memberLoad != null) {
+                load = _memberLoad;
+                memberReader = null;
+            }
+            else {
+                load = _memberLoad = new PendingLoad();
+                memberReader = _memberReader;
+            }
+        }
+
+        if (memberReader == null) {
+            if (load.await(hasFallback)) {
+                load.getResult();
+            }
+            return;
+        }
+
+        try {
+            memberReader.readMembers();
+        }
+        catch (final Throwable t) {
+            //
+            // Leave the reader in place so the next request starts over, rather than leaving this
+            // type with a partial set of members for good.
+            //
+            synchronized (this) {
+                _declaredFields.clear();
+                _declaredMethods.clear();
+                _memberLoad = null;
+            }
+
+            load.complete(null, t);
+            throw ExceptionUtilities.asRuntimeException(t);
+        }
+
+        synchronized (this) {
+            _memberReader = null;
+            _memberLoad = null;
+        }
+
+        load.complete(null, null);
+    }
+
+    // </editor-fold>
+
     // <editor-fold defaultstate="collapsed" desc="Name and Signature Formatting">
 
     @Override
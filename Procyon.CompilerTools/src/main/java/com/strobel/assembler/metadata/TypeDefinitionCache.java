@@ -0,0 +1,280 @@
+/*
+ * TypeDefinitionCache.java
+ *
+ * This source code is subject to terms and conditions of the Apache License, Version 2.0.
+ * A copy of the license can be found in the License.html file at the root of this distribution.
+ * By using this source code in any fashion, you are agreeing to be bound by the terms of the
+ * Apache License, Version 2.0.
+ *
+ * You must not remove this notice, or any other, from this software.
+ */
+
+package com.strobel.assembler.metadata;
+
+import com.strobel.core.VerifyArgument;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds the type definitions loaded by a {@link MetadataSystem}, keyed by internal name.  The cache
+ * decides how long definitions are retained, which bounds the memory used by a long-lived metadata
+ * system.  Pinned types are always held strongly, regardless of the eviction policy.
+ */
+public abstract class TypeDefinitionCache {
+    private final Set<String> _pinnedDescriptors;
+    private final ConcurrentHashMap<String, TypeDefinition> _pinnedTypes;
+
+    protected TypeDefinitionCache() {
+        _pinnedDescriptors = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+        _pinnedTypes = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Marks the given types as pinned.  Once loaded, pinned types are never evicted.
+     *
+     * @param descriptors
+     *     The internal names of the types to pin, e.g., {@code java/lang/Object}.
+     *
+     * @return This cache.
+     */
+    public final TypeDefinitionCache pin(final String... descriptors) {
+        VerifyArgument.noNullElements(descriptors, "descriptors");
+        Collections.addAll(_pinnedDescriptors, descriptors);
+        return this;
+    }
+
+    public final boolean isPinned(final String descriptor) {
+        return _pinnedDescriptors.contains(descriptor);
+    }
+
+    /**
+     * Gets the type definition cached for the given descriptor.
+     *
+     * @param descriptor
+     *     The internal name of the desired type.
+     *
+     * @return The cached definition, or {@code null} if the type has not been loaded or has been evicted.
+     */
+    public final TypeDefinition get(final String descriptor) {
+        if (_pinnedDescriptors.contains(descriptor)) {
+            return _pinnedTypes.get(descriptor);
+        }
+        return getCore(descriptor);
+    }
+
+    /**
+     * Places a type definition in the cache only if no definition exists for the same descriptor.
+     *
+     * @param descriptor
+     *     The internal name of the type.
+     * @param type
+     *     The type definition to insert into the cache.
+     *
+     * @return The cached definition associated with the given descriptor, which will be the provided
+     *         definition if no existing definition was found.
+     */
+    public final TypeDefinition cache(final String descriptor, final TypeDefinition type) {
+        VerifyArgument.notNull(descriptor, "descriptor");
+        VerifyArgument.notNull(type, "type");
+
+        if (_pinnedDescriptors.contains(descriptor)) {
+            final TypeDefinition cachedType = _pinnedTypes.putIfAbsent(descriptor, type);
+            return cachedType != null ? cachedType : type;
+        }
+
+        return cacheCore(descriptor, type);
+    }
+
+    protected abstract TypeDefinition getCore(final String descriptor);
+
+    protected abstract TypeDefinition cacheCore(final String descriptor, final TypeDefinition type);
+
+    /**
+     * Creates a cache that never evicts anything.  This is the default for a {@link MetadataSystem}.
+     */
+    public static TypeDefinitionCache createUnboundedCache() {
+        return new UnboundedTypeDefinitionCache();
+    }
+
+    /**
+     * Creates a cache that holds at most {@code maxSize} unpinned types strongly, evicting the least
+     * recently used type when full.  An evicted definition is only dropped once nothing else refers
+     * to it; until then, requesting it again returns the same instance, so evictions never break
+     * identity comparisons between definitions.
+     *
+     * @param maxSize
+     *     The maximum number of unpinned types to retain.
+     */
+    public static TypeDefinitionCache createLeastRecentlyUsedCache(final int maxSize) {
+        return new LeastRecentlyUsedTypeDefinitionCache(VerifyArgument.isPositive(maxSize, "maxSize"));
+    }
+
+    /**
+     * Creates a cache that holds unpinned types through soft references, so they are only dropped
+     * when the garbage collector needs the memory.  A definition that is still reachable from
+     * elsewhere (e.g., from the type being decompiled) is never dropped, so it keeps its identity.
+     */
+    public static TypeDefinitionCache createSoftReferenceCache() {
+        return new SoftReferenceTypeDefinitionCache();
+    }
+}
+
+final class UnboundedTypeDefinitionCache extends TypeDefinitionCache {
+    private final ConcurrentHashMap<String, TypeDefinition> _types = new ConcurrentHashMap<>();
+
+    @Override
+    protected TypeDefinition getCore(final String descriptor) {
+        return _types.get(descriptor);
+    }
+
+    @Override
+    protected TypeDefinition cacheCore(final String descriptor, final TypeDefinition type) {
+        final TypeDefinition cachedType = _types.putIfAbsent(descriptor, type);
+        return cachedType != null ? cachedType : type;
+    }
+}
+
+final class LeastRecentlyUsedTypeDefinitionCache extends TypeDefinitionCache {
+    private final Map<String, TypeDefinition> _types;
+    private final Map<String, WeakTypeEntry> _evictedTypes = new HashMap<>();
+    private final ReferenceQueue<TypeDefinition> _queue = new ReferenceQueue<>();
+
+    LeastRecentlyUsedTypeDefinitionCache(final int maxSize) {
+        _types = new LinkedHashMap<String, TypeDefinition>(16, 0.75f, true) {
+            private static final long serialVersionUID = 5092716305329421382L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, TypeDefinition> eldest) {
+                if (size() <= maxSize) {
+                    return false;
+                }
+
+                //
+                // Keep a weak reference to the evicted type so it can be found again for as long as
+                // anything else still refers to it.
+                //
+                _evictedTypes.put(eldest.getKey(), new WeakTypeEntry(eldest.getKey(), eldest.getValue(), _queue));
+                return true;
+            }
+        };
+    }
+
+    @Override
+    protected TypeDefinition getCore(final String descriptor) {
+        synchronized (_types) {
+            final TypeDefinition cachedType = _types.get(descriptor);
+            return cachedType != null ? cachedType : restoreEvictedType(descriptor);
+        }
+    }
+
+    @Override
+    protected TypeDefinition cacheCore(final String descriptor, final TypeDefinition type) {
+        synchronized (_types) {
+            TypeDefinition cachedType = _types.get(descriptor);
+
+            if (cachedType == null) {
+                cachedType = restoreEvictedType(descriptor);
+            }
+
+            if (cachedType != null) {
+                return cachedType;
+            }
+
+            _types.put(descriptor, type);
+            return type;
+        }
+    }
+
+    private TypeDefinition restoreEvictedType(final String descriptor) {
+        removeClearedEntries();
+
+        final WeakTypeEntry entry = _evictedTypes.remove(descriptor);
+        final TypeDefinition type = entry != null ? entry.get() : null;
+
+        if (type != null) {
+            _types.put(descriptor, type);
+        }
+
+        return type;
+    }
+
+    private void removeClearedEntries() {
+        WeakTypeEntry entry;
+
+        while ((entry = (WeakTypeEntry) _queue.poll()) != null) {
+            if (_evictedTypes.get(entry.descriptor) == entry) {
+                _evictedTypes.remove(entry.descriptor);
+            }
+        }
+    }
+
+    private final static class WeakTypeEntry extends WeakReference<TypeDefinition> {
+        final String descriptor;
+
+        WeakTypeEntry(final String descriptor, final TypeDefinition type, final ReferenceQueue<TypeDefinition> queue) {
+            super(type, queue);
+            this.descriptor = descriptor;
+        }
+    }
+}
+
+final class SoftReferenceTypeDefinitionCache extends TypeDefinitionCache {
+    private final ConcurrentHashMap<String, SoftTypeEntry> _types = new ConcurrentHashMap<>();
+    private final ReferenceQueue<TypeDefinition> _queue = new ReferenceQueue<>();
+
+    @Override
+    protected TypeDefinition getCore(final String descriptor) {
+        final SoftTypeEntry entry = _types.get(descriptor);
+        return entry != null ? entry.get() : null;
+    }
+
+    @Override
+    protected TypeDefinition cacheCore(final String descriptor, final TypeDefinition type) {
+        removeClearedEntries();
+
+        final SoftTypeEntry newEntry = new SoftTypeEntry(descriptor, type, _queue);
+
+        while (true) {
+            final SoftTypeEntry entry = _types.putIfAbsent(descriptor, newEntry);
+
+            if (entry == null) {
+                return type;
+            }
+
+            final TypeDefinition cachedType = entry.get();
+
+            if (cachedType != null) {
+                return cachedType;
+            }
+
+            if (_types.replace(descriptor, entry, newEntry)) {
+                return type;
+            }
+        }
+    }
+
+    private void removeClearedEntries() {
+        SoftTypeEntry entry;
+
+        while ((entry = (SoftTypeEntry) _queue.poll()) != null) {
+            _types.remove(entry.descriptor, entry);
+        }
+    }
+
+    private final static class SoftTypeEntry extends SoftReference<TypeDefinition> {
+        final String descriptor;
+
+        SoftTypeEntry(final String descriptor, final TypeDefinition type, final ReferenceQueue<TypeDefinition> queue) {
+            super(type, queue);
+            this.descriptor = descriptor;
+        }
+    }
+}
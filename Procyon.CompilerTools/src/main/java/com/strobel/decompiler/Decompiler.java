@@ -32,6 +32,7 @@ public final class Decompiler {
 
         final ITypeLoader typeLoader = settings.getTypeLoader() != null ? settings.getTypeLoader() : new InputTypeLoader();
         final MetadataSystem metadataSystem = new MetadataSystem(typeLoader);
+        final PhaseTimer timer = PhaseTimer.start(settings);
 
         final TypeReference type;
 
@@ -56,6 +57,10 @@ public final class Decompiler {
             return;
         }
 
+        if (timer != null) {
+            timer.stop(DecompilerPhase.ClassLoading, null, resolvedType, null);
+        }
+
         DeobfuscationUtilities.processType(resolvedType);
 
         final DecompilationOptions options = new DecompilationOptions();
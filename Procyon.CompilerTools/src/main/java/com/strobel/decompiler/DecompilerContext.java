@@ -22,6 +22,7 @@ import com.strobel.assembler.metadata.MethodDefinition;
 import com.strobel.assembler.metadata.TypeDefinition;
 import com.strobel.componentmodel.UserDataStoreBase;
 import com.strobel.core.BooleanBox;
+import com.strobel.decompiler.ast.MethodBudget;
 
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -34,6 +35,7 @@ public final class DecompilerContext extends UserDataStoreBase {
     private BooleanBox _isCanceled;
     private TypeDefinition _currentType;
     private MethodDefinition _currentMethod;
+    private MethodBudget _currentMethodBudget;
 
     public DecompilerContext() {
     }
@@ -74,6 +76,14 @@ public final class DecompilerContext extends UserDataStoreBase {
         _currentMethod = currentMethod;
     }
 
+    public MethodBudget getCurrentMethodBudget() {
+        return _currentMethodBudget;
+    }
+
+    public void setCurrentMethodBudget(final MethodBudget currentMethodBudget) {
+        _currentMethodBudget = currentMethodBudget;
+    }
+
     public List<String> getReservedVariableNames() {
         return _reservedVariableNames;
     }
@@ -0,0 +1,47 @@
+/*
+ * DecompilerPhase.java
+ *
+ * This source code is subject to terms and conditions of the Apache License, Version 2.0.
+ * A copy of the license can be found in the License.html file at the root of this distribution.
+ * By using this source code in any fashion, you are agreeing to be bound by the terms of the
+ * Apache License, Version 2.0.
+ *
+ * You must not remove this notice, or any other, from this software.
+ */
+
+package com.strobel.decompiler;
+
+/**
+ * The phases of the decompiler pipeline reported to an {@link IDecompilerMetricsListener}.
+ */
+public enum DecompilerPhase {
+    /**
+     * Loading and reading a type or method body that was requested for decompilation.
+     */
+    ClassLoading,
+
+    /**
+     * Building the bytecode AST for a method body.
+     */
+    AstBuilding,
+
+    /**
+     * A single {@link com.strobel.decompiler.ast.AstOptimizationStep} on a method body.
+     */
+    AstOptimization,
+
+    /**
+     * Type inference on a method body (the type inference optimization steps).
+     */
+    TypeAnalysis,
+
+    /**
+     * A single Java AST transform, run over a whole compilation unit.
+     */
+    AstTransform,
+
+    /**
+     * Writing out the decompiled source.
+     */
+    Output
+}
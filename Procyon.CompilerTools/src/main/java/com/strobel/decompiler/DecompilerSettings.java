@@ -22,6 +22,8 @@ import com.strobel.decompiler.languages.Language;
 import com.strobel.decompiler.languages.Languages;
 import com.strobel.decompiler.languages.java.JavaFormattingOptions;
 
+import java.util.concurrent.Executor;
+
 public class DecompilerSettings {
     private ITypeLoader _typeLoader;
     private boolean _includeLineNumbersInBytecode = true;
@@ -46,6 +48,10 @@ public class DecompilerSettings {
     private boolean _showDebugLineNumbers;
     private boolean _simplifyMemberReferences;
     private boolean _removeAspectJ;
+    private long _methodTimeout;
+    private int _methodNodeLimit;
+    private IDecompilerMetricsListener _metricsListener;
+    private Executor _methodBodyExecutor;
 
     public DecompilerSettings() {
     }
@@ -222,6 +228,59 @@ public class DecompilerSettings {
         _forceFullyQualifiedReferences = forceFullyQualifiedReferences;
     }
 
+    /**
+     * Gets the time budget, in milliseconds, for decompiling a single method body.  A method which
+     * exceeds its budget is emitted as bytecode in a comment instead.  Zero means no limit.
+     */
+    public final long getMethodTimeout() {
+        return _methodTimeout;
+    }
+
+    public final void setMethodTimeout(final long methodTimeout) {
+        _methodTimeout = methodTimeout;
+    }
+
+    /**
+     * Gets the maximum number of bytecode AST nodes a single method body may grow to while it is
+     * being optimized.  A method which exceeds this limit is emitted as bytecode in a comment
+     * instead.  Zero means no limit.
+     */
+    public final int getMethodNodeLimit() {
+        return _methodNodeLimit;
+    }
+
+    public final void setMethodNodeLimit(final int methodNodeLimit) {
+        _methodNodeLimit = methodNodeLimit;
+    }
+
+    /**
+     * Gets the listener which receives per-phase timings as types are decompiled, or {@code null}
+     * if none are collected.
+     */
+    public final IDecompilerMetricsListener getMetricsListener() {
+        return _metricsListener;
+    }
+
+    public final void setMetricsListener(final IDecompilerMetricsListener metricsListener) {
+        _metricsListener = metricsListener;
+    }
+
+    /**
+     * Gets the executor used to decompile the method bodies of a type concurrently, or {@code null}
+     * if they are decompiled one at a time.  Only the bytecode phases (building, optimizing, and type
+     * analysis) run on the executor; the results are converted to Java in declaration order on the
+     * calling thread, so the output is the same either way.  A method whose body has not been started
+     * by the time it is needed is run on the calling thread, so any executor may be used, even one
+     * whose threads are themselves decompiling.
+     */
+    public final Executor getMethodBodyExecutor() {
+        return _methodBodyExecutor;
+    }
+
+    public final void setMethodBodyExecutor(final Executor methodBodyExecutor) {
+        _methodBodyExecutor = methodBodyExecutor;
+    }
+
     public static DecompilerSettings javaDefaults() {
         final DecompilerSettings settings = new DecompilerSettings();
         settings.setJavaFormattingOptions(JavaFormattingOptions.createDefault());
@@ -0,0 +1,305 @@
+/*
+ * DecompilerStatistics.java
+ *
+ * This source code is subject to terms and conditions of the Apache License, Version 2.0.
+ * A copy of the license can be found in the License.html file at the root of this distribution.
+ * By using this source code in any fashion, you are agreeing to be bound by the terms of the
+ * Apache License, Version 2.0.
+ *
+ * You must not remove this notice, or any other, from this software.
+ */
+
+package com.strobel.decompiler;
+
+import com.strobel.assembler.metadata.MethodReference;
+import com.strobel.assembler.metadata.TypeReference;
+import com.strobel.core.VerifyArgument;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A metrics listener which aggregates timings per phase and step, and keeps track of the slowest
+ * methods and types.  Safe to share between threads decompiling in parallel.
+ */
+public final class DecompilerStatistics implements IDecompilerMetricsListener {
+    private final static int DEFAULT_TOP_COUNT = 10;
+
+    private final int _topCount;
+    private final ConcurrentHashMap<String, PhaseStatistics> _phases;
+    private final ConcurrentHashMap<String, Long> _methodTimes;
+    private final ConcurrentHashMap<String, Long> _typeTimes;
+
+    public DecompilerStatistics() {
+        this(DEFAULT_TOP_COUNT);
+    }
+
+    public DecompilerStatistics(final int topCount) {
+        _topCount = VerifyArgument.isPositive(topCount, "topCount");
+        _phases = new ConcurrentHashMap<>();
+        _methodTimes = new ConcurrentHashMap<>();
+        _typeTimes = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    public void phaseCompleted(
+        final DecompilerPhase phase,
+        final String step,
+        final TypeReference type,
+        final MethodReference method,
+        final long elapsedNanos,
+        final long allocatedBytes) {
+
+        final String key = step != null ? phase + "/" + step : phase.toString();
+
+        PhaseStatistics statistics = _phases.get(key);
+
+        if (statistics == null) {
+            final PhaseStatistics newStatistics = new PhaseStatistics(phase, step);
+
+            statistics = _phases.putIfAbsent(key, newStatistics);
+
+            if (statistics == null) {
+                statistics = newStatistics;
+            }
+        }
+
+        statistics.add(elapsedNanos, allocatedBytes);
+
+        //
+        // Transforms may decompile method bodies (e.g., lambdas) which report their own phases,
+        // so leave transforms out of the per-method and per-type totals to avoid counting twice.
+        //
+
+        if (phase == DecompilerPhase.AstTransform) {
+            return;
+        }
+
+        if (method != null) {
+            addTime(_methodTimes, method.getFullName() + method.getSignature(), elapsedNanos);
+        }
+
+        if (type != null) {
+            addTime(_typeTimes, type.getInternalName(), elapsedNanos);
+        }
+    }
+
+    /**
+     * Gets the statistics for every phase and step reported so far, ordered by phase, then step.
+     */
+    public List<PhaseStatistics> getPhaseStatistics() {
+        final List<PhaseStatistics> statistics = new ArrayList<>(_phases.values());
+
+        Collections.sort(
+            statistics,
+            new Comparator<PhaseStatistics>() {
+                @Override
+                public int compare(final PhaseStatistics o1, final PhaseStatistics o2) {
+                    final int phaseOrder = o1.getPhase().compareTo(o2.getPhase());
+
+                    if (phaseOrder != 0) {
+                        return phaseOrder;
+                    }
+
+                    if (o1.getStep() == null) {
+                        return o2.getStep() == null ? 0 : -1;
+                    }
+
+                    return o2.getStep() == null ? 1 : o1.getStep().compareTo(o2.getStep());
+                }
+            }
+        );
+
+        return statistics;
+    }
+
+    /**
+     * Gets the slowest methods, slowest first, mapped to their total time in nanoseconds.
+     */
+    public Map<String, Long> getSlowestMethods() {
+        return top(_methodTimes, _topCount);
+    }
+
+    /**
+     * Gets the slowest types, slowest first, mapped to their total time in nanoseconds.
+     */
+    public Map<String, Long> getSlowestTypes() {
+        return top(_typeTimes, _topCount);
+    }
+
+    public void printReport(final PrintStream out) {
+        VerifyArgument.notNull(out, "out");
+
+        out.println("Decompiler statistics:");
+        out.printf("  %-60s %10s %12s %12s %14s\n", "Phase", "Count", "Total (ms)", "Max (ms)", "Allocated (KB)");
+
+        final List<PhaseStatistics> phaseStatistics = getPhaseStatistics();
+
+        for (final DecompilerPhase phase : DecompilerPhase.values()) {
+            long totalNanos = 0L;
+            long allocatedBytes = 0L;
+            boolean hasSteps = false;
+            boolean found = false;
+
+            for (final PhaseStatistics statistics : phaseStatistics) {
+                if (statistics.getPhase() == phase) {
+                    found = true;
+                    hasSteps |= statistics.getStep() != null;
+                    totalNanos += statistics.getTotalNanos();
+                    allocatedBytes = allocatedBytes < 0 || statistics.getAllocatedBytes() < 0 ? -1L
+                                                                                               : allocatedBytes + statistics.getAllocatedBytes();
+                }
+            }
+
+            if (!found) {
+                continue;
+            }
+
+            out.printf("  %-60s %10s %12.1f %12s %14s\n", phase, "", totalNanos / 1e6, "", formatKilobytes(allocatedBytes));
+
+            if (!hasSteps) {
+                continue;
+            }
+
+            for (final PhaseStatistics statistics : phaseStatistics) {
+                if (statistics.getPhase() != phase) {
+                    continue;
+                }
+
+                out.printf(
+                    "    %-58s %10d %12.1f %12.1f %14s\n",
+                    statistics.getStep() != null ? statistics.getStep() : "(other)",
+                    statistics.getCount(),
+                    statistics.getTotalNanos() / 1e6,
+                    statistics.getMaxNanos() / 1e6,
+                    formatKilobytes(statistics.getAllocatedBytes())
+                );
+            }
+        }
+
+        printTop(out, "Slowest methods:", getSlowestMethods());
+        printTop(out, "Slowest types:", getSlowestTypes());
+    }
+
+    private static String formatKilobytes(final long bytes) {
+        return bytes >= 0 ? String.valueOf(bytes / 1024) : "n/a";
+    }
+
+    private static void printTop(final PrintStream out, final String title, final Map<String, Long> times) {
+        if (times.isEmpty()) {
+            return;
+        }
+
+        out.println();
+        out.println(title);
+
+        for (final Map.Entry<String, Long> entry : times.entrySet()) {
+            out.printf("  %10.1f ms  %s\n", entry.getValue() / 1e6, entry.getKey());
+        }
+    }
+
+    private static void addTime(final ConcurrentHashMap<String, Long> times, final String key, final long elapsedNanos) {
+        while (true) {
+            final Long oldValue = times.putIfAbsent(key, elapsedNanos);
+
+            if (oldValue == null || times.replace(key, oldValue, oldValue + elapsedNanos)) {
+                return;
+            }
+        }
+    }
+
+    private static Map<String, Long> top(final Map<String, Long> times, final int count) {
+        final Comparator<Map.Entry<String, Long>> comparator = new Comparator<Map.Entry<String, Long>>() {
+            @Override
+            public int compare(final Map.Entry<String, Long> o1, final Map.Entry<String, Long> o2) {
+                final int order = Long.compare(o1.getValue(), o2.getValue());
+                return order != 0 ? order : o2.getKey().compareTo(o1.getKey());
+            }
+        };
+
+        final PriorityQueue<Map.Entry<String, Long>> queue = new PriorityQueue<>(count + 1, comparator);
+
+        for (final Map.Entry<String, Long> entry : new TreeMap<>(times).entrySet()) {
+            queue.add(entry);
+
+            if (queue.size() > count) {
+                queue.poll();
+            }
+        }
+
+        final List<Map.Entry<String, Long>> entries = new ArrayList<>(queue);
+
+        Collections.sort(entries, Collections.reverseOrder(comparator));
+
+        final Map<String, Long> result = new LinkedHashMap<>();
+
+        for (final Map.Entry<String, Long> entry : entries) {
+            result.put(entry.getKey(), entry.getValue());
+        }
+
+        return result;
+    }
+
+    public final static class PhaseStatistics {
+        private final DecompilerPhase _phase;
+        private final String _step;
+
+        private long _count;
+        private long _totalNanos;
+        private long _maxNanos;
+        private long _allocatedBytes;
+
+        PhaseStatistics(final DecompilerPhase phase, final String step) {
+            _phase = phase;
+            _step = step;
+        }
+
+        synchronized void add(final long elapsedNanos, final long allocatedBytes) {
+            _count++;
+            _totalNanos += elapsedNanos;
+            _maxNanos = Math.max(_maxNanos, elapsedNanos);
+
+            if (allocatedBytes < 0 || _allocatedBytes < 0) {
+                _allocatedBytes = -1;
+            }
+            else {
+                _allocatedBytes += allocatedBytes;
+            }
+        }
+
+        public DecompilerPhase getPhase() {
+            return _phase;
+        }
+
+        public String getStep() {
+            return _step;
+        }
+
+        public synchronized long getCount() {
+            return _count;
+        }
+
+        public synchronized long getTotalNanos() {
+            return _totalNanos;
+        }
+
+        public synchronized long getMaxNanos() {
+            return _maxNanos;
+        }
+
+        /**
+         * Gets the total bytes allocated during this phase, or {@code -1} if it could not be measured.
+         */
+        public synchronized long getAllocatedBytes() {
+            return _allocatedBytes;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * IDecompilerMetricsListener.java
+ *
+ * This source code is subject to terms and conditions of the Apache License, Version 2.0.
+ * A copy of the license can be found in the License.html file at the root of this distribution.
+ * By using this source code in any fashion, you are agreeing to be bound by the terms of the
+ * Apache License, Version 2.0.
+ *
+ * You must not remove this notice, or any other, from this software.
+ */
+
+package com.strobel.decompiler;
+
+import com.strobel.assembler.metadata.MethodReference;
+import com.strobel.assembler.metadata.TypeReference;
+
+/**
+ * Receives timings for each phase of the decompiler pipeline.  Set a listener with
+ * {@link DecompilerSettings#setMetricsListener(IDecompilerMetricsListener)}.  Listeners may be
+ * called from several threads at once if the same settings are used to decompile in parallel.
+ */
+public interface IDecompilerMetricsListener {
+    /**
+     * Called when a phase (or a single step of a phase) completes.  Timings are inclusive: a phase
+     * which triggers another, e.g., a transform which decompiles a lambda body, includes the time
+     * reported for the nested phase.
+     *
+     * @param phase
+     *     The phase which completed.
+     * @param step
+     *     The optimization step or transform which completed, or {@code null} if the phase has no steps.
+     * @param type
+     *     The type being decompiled, if known.
+     * @param method
+     *     The method being decompiled, or {@code null} for type-level phases.
+     * @param elapsedNanos
+     *     The wall-clock time spent in the phase.
+     * @param allocatedBytes
+     *     The number of bytes allocated by the current thread during the phase, or {@code -1} if the
+     *     JVM cannot measure thread allocation.
+     */
+    void phaseCompleted(
+        final DecompilerPhase phase,
+        final String step,
+        final TypeReference type,
+        final MethodReference method,
+        final long elapsedNanos,
+        final long allocatedBytes);
+}
@@ -0,0 +1,24 @@
+/*
+ * MethodBudgetExceededException.java
+ *
+ * This source code is subject to terms and conditions of the Apache License, Version 2.0.
+ * A copy of the license can be found in the License.html file at the root of this distribution.
+ * By using this source code in any fashion, you are agreeing to be bound by the terms of the
+ * Apache License, Version 2.0.
+ *
+ * You must not remove this notice, or any other, from this software.
+ */
+
+package com.strobel.decompiler;
+
+/**
+ * Thrown when a method body exceeds the time or size budget given by {@link DecompilerSettings#getMethodTimeout()}
+ * or {@link DecompilerSettings#getMethodNodeLimit()}.  The method is then emitted as bytecode instead.
+ */
+public class MethodBudgetExceededException extends IllegalStateException {
+    private static final long serialVersionUID = -2319046151877466302L;
+
+    public MethodBudgetExceededException(final String message) {
+        super(message);
+    }
+}
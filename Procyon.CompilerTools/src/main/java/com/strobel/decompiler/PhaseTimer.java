@@ -0,0 +1,139 @@
+/*
+ * PhaseTimer.java
+ *
+ * This source code is subject to terms and conditions of the Apache License, Version 2.0.
+ * A copy of the license can be found in the License.html file at the root of this distribution.
+ * By using this source code in any fashion, you are agreeing to be bound by the terms of the
+ * Apache License, Version 2.0.
+ *
+ * You must not remove this notice, or any other, from this software.
+ */
+
+package com.strobel.decompiler;
+
+import com.strobel.assembler.metadata.MethodReference;
+import com.strobel.assembler.metadata.TypeReference;
+import com.strobel.core.VerifyArgument;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures phases of the decompiler pipeline and reports them to the settings' metrics listener.
+ * Timers are cheap, but not free, so instrumented code should only create one when a listener is
+ * present; {@link #start(DecompilerSettings)} returns {@code null} otherwise.
+ */
+public final class PhaseTimer {
+    private final IDecompilerMetricsListener _listener;
+
+    private long _startTime;
+    private long _startAllocatedBytes;
+    private DecompilerPhase _pendingPhase;
+    private String _pendingStep;
+
+    private PhaseTimer(final IDecompilerMetricsListener listener) {
+        _listener = listener;
+        restart();
+    }
+
+    /**
+     * Starts a timer if {@code settings} has a metrics listener.
+     *
+     * @return A running timer, or {@code null} if there is nobody to report to.
+     */
+    public static PhaseTimer start(final DecompilerSettings settings) {
+        final IDecompilerMetricsListener listener = settings != null ? settings.getMetricsListener() : null;
+        return listener != null ? new PhaseTimer(listener) : null;
+    }
+
+    public static PhaseTimer start(final DecompilerContext context) {
+        return start(VerifyArgument.notNull(context, "context").getSettings());
+    }
+
+    /**
+     * Reports the time since the timer was started (or last stopped), then restarts it.
+     */
+    public void stop(final DecompilerPhase phase, final String step, final TypeReference type, final MethodReference method) {
+        VerifyArgument.notNull(phase, "phase");
+
+        final long elapsed = System.nanoTime() - _startTime;
+        final long allocatedBytes = _startAllocatedBytes >= 0 ? AllocationCounter.currentThreadAllocatedBytes() - _startAllocatedBytes
+                                                              : -1L;
+
+        _listener.phaseCompleted(phase, step, type, method, elapsed, allocatedBytes);
+
+        restart();
+    }
+
+    public void stop(final DecompilerPhase phase, final String step, final DecompilerContext context) {
+        stop(phase, step, context.getCurrentType(), context.getCurrentMethod());
+    }
+
+    /**
+     * Restarts the timer without reporting anything, e.g., when a step is skipped.  Any step begun
+     * by {@link #next} is dropped.
+     */
+    public void reset() {
+        _pendingPhase = null;
+        _pendingStep = null;
+        restart();
+    }
+
+    /**
+     * Reports the step begun by the previous call (if any), then begins timing a new step.  This
+     * suits code which runs a sequence of steps and only knows when the next one starts.
+     */
+    public void next(final DecompilerPhase phase, final String step, final DecompilerContext context) {
+        finish(context);
+
+        _pendingPhase = phase;
+        _pendingStep = step;
+    }
+
+    /**
+     * Reports the step begun by the last call to {@link #next}, if any.
+     */
+    public void finish(final DecompilerContext context) {
+        if (_pendingPhase != null) {
+            final DecompilerPhase phase = _pendingPhase;
+            _pendingPhase = null;
+            stop(phase, _pendingStep, context);
+        }
+        else {
+            restart();
+        }
+    }
+
+    private void restart() {
+        _startAllocatedBytes = AllocationCounter.currentThreadAllocatedBytes();
+        _startTime = System.nanoTime();
+    }
+
+    private final static class AllocationCounter {
+        private final static com.sun.management.ThreadMXBean THREAD_BEAN;
+
+        static {
+            com.sun.management.ThreadMXBean threadBean = null;
+
+            try {
+                final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+
+                if (bean instanceof com.sun.management.ThreadMXBean &&
+                    ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+
+                    threadBean = (com.sun.management.ThreadMXBean) bean;
+                    threadBean.setThreadAllocatedMemoryEnabled(true);
+                }
+            }
+            catch (final Throwable ignored) {
+                threadBean = null;
+            }
+
+            THREAD_BEAN = threadBean;
+        }
+
+        static long currentThreadAllocatedBytes() {
+            return THREAD_BEAN != null ? THREAD_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId())
+                                       : -1L;
+        }
+    }
+}
@@ -1982,7 +1982,8 @@ public final class AstBuilder {
             handlerStarts.add(handlerStart);
 
             handlerStart.stackBefore = EMPTY_STACK;
-            handlerStart.variablesBefore = VariableSlot.cloneVariableState(unknownVariables);
+            handlerStart.variablesBefore = unknownVariables;
+            handlerStart.variablesShared = true;
 
             final ByteCode loadException = new ByteCode();
             final TypeReference catchType;
@@ -2013,6 +2014,7 @@ public final class AstBuilder {
 
         body.get(0).stackBefore = EMPTY_STACK;
         body.get(0).variablesBefore = unknownVariables;
+        body.get(0).variablesShared = true;
 
         agenda.addFirst(body.get(0));
 
@@ -2032,13 +2034,16 @@ public final class AstBuilder {
             final StackSlot[] newStack = createModifiedStack(byteCode, stackMapper);
 
             //
-            // Calculate new variable state.
+            // Calculate new variable state.  Most instructions leave the variables alone, so the state is
+            // only copied when something changes; otherwise it is shared with the successors.
             //
 
-            final VariableSlot[] newVariableState = VariableSlot.cloneVariableState(byteCode.variablesBefore);
+            final VariableSlot[] variablesBefore = byteCode.variablesBefore;
             final Map<Instruction, TypeReference> initializations = stackMapper.getInitializations();
 
-            for (int i = 0; i < newVariableState.length; i++) {
+            VariableSlot[] newVariableState = variablesBefore;
+
+            for (int i = 0; i < newVariableState.length && !initializations.isEmpty(); i++) {
                 final VariableSlot slot = newVariableState[i];
 
                 if (slot.isUninitialized()) {
@@ -2049,6 +2054,10 @@ public final class AstBuilder {
                         final TypeReference initializedType = initializations.get(instruction);
 
                         if (initializedType != null) {
+                            if (newVariableState == variablesBefore) {
+                                newVariableState = VariableSlot.cloneVariableState(variablesBefore);
+                            }
+
                             newVariableState[i] = new VariableSlot(
                                 FrameValue.makeReference(initializedType),
                                 slot.definitions
@@ -2061,6 +2070,10 @@ public final class AstBuilder {
             if (byteCode.isVariableDefinition()) {
                 final int slot = ((VariableReference) byteCode.operand).getSlot();
 
+                if (newVariableState == variablesBefore) {
+                    newVariableState = VariableSlot.cloneVariableState(variablesBefore);
+                }
+
                 newVariableState[slot] = new VariableSlot(
                     stackMapper.getLocalValue(slot),
                     new ByteCode[] { byteCode }
@@ -2074,6 +2087,10 @@ public final class AstBuilder {
                 }
             }
 
+            if (newVariableState == variablesBefore) {
+                byteCode.variablesShared = true;
+            }
+
             //
             // Find all successors.
             //
@@ -2166,10 +2183,12 @@ public final class AstBuilder {
 //                    }
 //                    else {
                     //
-                    // Do not share data for several bytecodes.
+                    // Do not share stacks for several bytecodes.  Variable states may be shared, and are
+                    // copied before being modified.
                     //
                     branchTarget.stackBefore = StackSlot.modifyStack(effectiveStack, 0, null);
-                    branchTarget.variablesBefore = VariableSlot.cloneVariableState(newVariableState);
+                    branchTarget.variablesBefore = newVariableState;
+                    branchTarget.variablesShared = true;
 //                    }
 
                     agenda.push(branchTarget);
@@ -2248,11 +2267,31 @@ public final class AstBuilder {
                         final ByteCode[] newDefinitions = ArrayUtilities.union(oldSlot.definitions, newSlot.definitions);
 
                         if (!Comparer.equals(oldLocal, newLocal) || newDefinitions.length > oldDefinitions.length) {
-                            branchTarget.variablesBefore[i] = new VariableSlot(newLocal, newDefinitions);
+                            if (branchTarget.variablesShared) {
+                                branchTarget.variablesBefore = VariableSlot.cloneVariableState(branchTarget.variablesBefore);
+                                branchTarget.variablesShared = false;
+                            }
+
+                            final boolean sameAsNewSlot = Comparer.equals(newLocal, newSlot.value) &&
+                                                          Arrays.equals(newDefinitions, newSlot.definitions);
+
+                            branchTarget.variablesBefore[i] = sameAsNewSlot ? newSlot
+                                                                            : new VariableSlot(newLocal, newDefinitions);
                             modified = true;
                         }
                     }
 
+                    //
+                    // Often the merge leaves the target with exactly our new state (e.g., on the second pass
+                    // through a loop body); if so, share it rather than keep a copy.
+                    //
+                    if (modified && !branchTarget.variablesShared &&
+                        VariableSlot.isSameState(branchTarget.variablesBefore, newVariableState)) {
+
+                        branchTarget.variablesBefore = newVariableState;
+                        branchTarget.variablesShared = true;
+                    }
+
                     if (modified) {
                         agenda.addLast(branchTarget);
                     }
@@ -3919,6 +3958,20 @@ public final class AstBuilder {
             return state.clone();
         }
 
+        public static boolean isSameState(final VariableSlot[] state1, final VariableSlot[] state2) {
+            if (state1.length != state2.length) {
+                return false;
+            }
+
+            for (int i = 0; i < state1.length; i++) {
+                if (state1[i] != state2[i]) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
         public static VariableSlot[] makeUnknownState(final int variableCount) {
             final VariableSlot[] unknownVariableState = new VariableSlot[variableCount];
 
@@ -3960,6 +4013,7 @@ public final class AstBuilder {
         FrameValue type;
         StackSlot[] stackBefore;
         VariableSlot[] variablesBefore;
+        boolean variablesShared; // 'variablesBefore' may be shared with other bytecodes; copy before modifying.
         List<Variable> storeTo;
 
         public final String name() {
@@ -19,7 +19,9 @@ package com.strobel.decompiler.ast;
 import com.strobel.assembler.metadata.*;
 import com.strobel.core.*;
 import com.strobel.decompiler.DecompilerContext;
+import com.strobel.decompiler.DecompilerPhase;
 import com.strobel.decompiler.DecompilerSettings;
+import com.strobel.decompiler.PhaseTimer;
 import com.strobel.functions.Function;
 import com.strobel.functions.Supplier;
 import com.strobel.functions.Suppliers;
@@ -48,7 +50,9 @@ public final class AstOptimizer {
 
         LOG.fine("Beginning bytecode AST optimization...");
 
-        if (!shouldPerformStep(abortBeforeStep, AstOptimizationStep.RemoveRedundantCode)) {
+        final PhaseTimer timer = PhaseTimer.start(context);
+
+        if (!shouldPerformStep(context, method, timer, abortBeforeStep, AstOptimizationStep.RemoveRedundantCode)) {
             return;
         }
 
@@ -56,53 +60,56 @@ public final class AstOptimizer {
 
         removeRedundantCode(method, context.getSettings());
 
-        if (!shouldPerformStep(abortBeforeStep, AstOptimizationStep.ReduceBranchInstructionSet)) {
+        if (!shouldPerformStep(context, method, timer, abortBeforeStep, AstOptimizationStep.ReduceBranchInstructionSet)) {
             return;
         }
 
         introducePreIncrementOptimization(context, method);
 
         for (final Block block : method.getSelfAndChildrenRecursive(Block.class)) {
+            MethodBudget.checkTime(context);
             reduceBranchInstructionSet(block);
         }
 
-        if (!shouldPerformStep(abortBeforeStep, AstOptimizationStep.InlineVariables)) {
+        if (!shouldPerformStep(context, method, timer, abortBeforeStep, AstOptimizationStep.InlineVariables)) {
             return;
         }
 
         final Inlining inliningPhase1 = new Inlining(context, method);
 
         while (inliningPhase1.inlineAllVariables()) {
+            MethodBudget.checkTime(context);
             inliningPhase1.analyzeMethod();
         }
 
-        if (!shouldPerformStep(abortBeforeStep, AstOptimizationStep.CopyPropagation)) {
+        if (!shouldPerformStep(context, method, timer, abortBeforeStep, AstOptimizationStep.CopyPropagation)) {
             return;
         }
 
         inliningPhase1.copyPropagation();
 
-        if (!shouldPerformStep(abortBeforeStep, AstOptimizationStep.RewriteFinallyBlocks)) {
+        if (!shouldPerformStep(context, method, timer, abortBeforeStep, AstOptimizationStep.RewriteFinallyBlocks)) {
             return;
         }
 
         rewriteFinallyBlocks(method);
 
-        if (!shouldPerformStep(abortBeforeStep, AstOptimizationStep.SplitToMovableBlocks)) {
+        if (!shouldPerformStep(context, method, timer, abortBeforeStep, AstOptimizationStep.SplitToMovableBlocks)) {
             return;
         }
 
         for (final Block block : method.getSelfAndChildrenRecursive(Block.class)) {
+            MethodBudget.checkTime(context);
             optimizer.splitToMovableBlocks(block);
         }
 
-        if (!shouldPerformStep(abortBeforeStep, AstOptimizationStep.RemoveUnreachableBlocks)) {
+        if (!shouldPerformStep(context, method, timer, abortBeforeStep, AstOptimizationStep.RemoveUnreachableBlocks)) {
             return;
         }
 
         removeUnreachableBlocks(method);
 
-        if (!shouldPerformStep(abortBeforeStep, AstOptimizationStep.TypeInference)) {
+        if (!shouldPerformStep(context, method, timer, abortBeforeStep, AstOptimizationStep.TypeInference)) {
             return;
         }
 
@@ -127,35 +134,35 @@ public final class AstOptimizer {
 
                 modified = false;
 
-                if (!shouldPerformStep(abortBeforeStep, AstOptimizationStep.RemoveInnerClassInitSecurityChecks)) {
+                if (!shouldPerformStep(context, method, timer, abortBeforeStep, AstOptimizationStep.RemoveInnerClassInitSecurityChecks)) {
                     done = true;
                     break;
                 }
 
                 modified |= runOptimization(block, new RemoveInnerClassInitSecurityChecksOptimization(context, method));
 
-                if (!shouldPerformStep(abortBeforeStep, AstOptimizationStep.PreProcessShortCircuitAssignments)) {
+                if (!shouldPerformStep(context, method, timer, abortBeforeStep, AstOptimizationStep.PreProcessShortCircuitAssignments)) {
                     done = true;
                     break;
                 }
 
                 modified |= runOptimization(block, new PreProcessShortCircuitAssignmentsOptimization(context, method));
 
-                if (!shouldPerformStep(abortBeforeStep, AstOptimizationStep.SimplifyShortCircuit)) {
+                if (!shouldPerformStep(context, method, timer, abortBeforeStep, AstOptimizationStep.SimplifyShortCircuit)) {
                     done = true;
                     break;
                 }
 
                 modified |= runOptimization(block, new SimplifyShortCircuitOptimization(context, method));
 
-                if (!shouldPerformStep(abortBeforeStep, AstOptimizationStep.JoinBranchConditions)) {
+                if (!shouldPerformStep(context, method, timer, abortBeforeStep, AstOptimizationStep.JoinBranchConditions)) {
                     done = true;
                     break;
                 }
 
                 modified |= runOptimization(block, new JoinBranchConditionsOptimization(context, method));
 
-                if (!shouldPerformStep(abortBeforeStep, AstOptimizationStep.SimplifyTernaryOperator)) {
+                if (!shouldPerformStep(context, method, timer, abortBeforeStep, AstOptimizationStep.SimplifyTernaryOperator)) {
                     done = true;
                     break;
                 }
@@ -163,28 +170,28 @@ public final class AstOptimizer {
                 modified |= runOptimization(block, new SimplifyTernaryOperatorOptimization(context, method));
                 modified |= runOptimization(block, new SimplifyTernaryOperatorRoundTwoOptimization(context, method));
 
-                if (!shouldPerformStep(abortBeforeStep, AstOptimizationStep.JoinBasicBlocks)) {
+                if (!shouldPerformStep(context, method, timer, abortBeforeStep, AstOptimizationStep.JoinBasicBlocks)) {
                     done = true;
                     break;
                 }
 
                 modified |= runOptimization(block, new JoinBasicBlocksOptimization(context, method));
 
-                if (!shouldPerformStep(abortBeforeStep, AstOptimizationStep.SimplifyLogicalNot)) {
+                if (!shouldPerformStep(context, method, timer, abortBeforeStep, AstOptimizationStep.SimplifyLogicalNot)) {
                     done = true;
                     break;
                 }
 
                 modified |= runOptimization(block, new SimplifyLogicalNotOptimization(context, method));
 
-                if (!shouldPerformStep(abortBeforeStep, AstOptimizationStep.TransformObjectInitializers)) {
+                if (!shouldPerformStep(context, method, timer, abortBeforeStep, AstOptimizationStep.TransformObjectInitializers)) {
                     done = true;
                     break;
                 }
 
                 modified |= runOptimization(block, new TransformObjectInitializersOptimization(context, method));
 
-                if (!shouldPerformStep(abortBeforeStep, AstOptimizationStep.TransformArrayInitializers)) {
+                if (!shouldPerformStep(context, method, timer, abortBeforeStep, AstOptimizationStep.TransformArrayInitializers)) {
                     done = true;
                     break;
                 }
@@ -192,34 +199,34 @@ public final class AstOptimizer {
                 modified |= new Inlining(context, method, true).inlineAllInBlock(block);
                 modified |= runOptimization(block, new TransformArrayInitializersOptimization(context, method));
 
-                if (!shouldPerformStep(abortBeforeStep, AstOptimizationStep.IntroducePostIncrement)) {
+                if (!shouldPerformStep(context, method, timer, abortBeforeStep, AstOptimizationStep.IntroducePostIncrement)) {
                     done = true;
                     break;
                 }
 
                 modified |= runOptimization(block, new IntroducePostIncrementOptimization(context, method));
 
-                if (!shouldPerformStep(abortBeforeStep, AstOptimizationStep.InlineConditionalAssignments)) {
+                if (!shouldPerformStep(context, method, timer, abortBeforeStep, AstOptimizationStep.InlineConditionalAssignments)) {
                     done = true;
                     break;
                 }
 
                 modified |= runOptimization(block, new InlineConditionalAssignmentsOptimization(context, method));
 
-                if (!shouldPerformStep(abortBeforeStep, AstOptimizationStep.MakeAssignmentExpressions)) {
+                if (!shouldPerformStep(context, method, timer, abortBeforeStep, AstOptimizationStep.MakeAssignmentExpressions)) {
                     done = true;
                     break;
                 }
 
                 modified |= runOptimization(block, new MakeAssignmentExpressionsOptimization(context, method));
 
-                if (!shouldPerformStep(abortBeforeStep, AstOptimizationStep.InlineLambdas)) {
+                if (!shouldPerformStep(context, method, timer, abortBeforeStep, AstOptimizationStep.InlineLambdas)) {
                     return;
                 }
 
                 modified |= runOptimization(block, new InlineLambdasOptimization(context, method));
 
-                if (!shouldPerformStep(abortBeforeStep, AstOptimizationStep.InlineVariables2)) {
+                if (!shouldPerformStep(context, method, timer, abortBeforeStep, AstOptimizationStep.InlineVariables2)) {
                     done = true;
                     break;
                 }
@@ -227,7 +234,7 @@ public final class AstOptimizer {
                 modified |= new Inlining(context, method, true).inlineAllInBlock(block);
                 new Inlining(context, method).copyPropagation();
 
-                if (!shouldPerformStep(abortBeforeStep, AstOptimizationStep.MergeDisparateObjectInitializations)) {
+                if (!shouldPerformStep(context, method, timer, abortBeforeStep, AstOptimizationStep.MergeDisparateObjectInitializations)) {
                     done = true;
                     break;
                 }
@@ -241,59 +248,61 @@ public final class AstOptimizer {
             return;
         }
 
-        if (!shouldPerformStep(abortBeforeStep, AstOptimizationStep.FindLoops)) {
+        if (!shouldPerformStep(context, method, timer, abortBeforeStep, AstOptimizationStep.FindLoops)) {
             return;
         }
 
         for (final Block block : method.getSelfAndChildrenRecursive(Block.class)) {
+            MethodBudget.checkTime(context);
             new LoopsAndConditions(context).findLoops(block);
         }
 
-        if (!shouldPerformStep(abortBeforeStep, AstOptimizationStep.FindConditions)) {
+        if (!shouldPerformStep(context, method, timer, abortBeforeStep, AstOptimizationStep.FindConditions)) {
             return;
         }
 
         for (final Block block : method.getSelfAndChildrenRecursive(Block.class)) {
+            MethodBudget.checkTime(context);
             new LoopsAndConditions(context).findConditions(block);
         }
 
-        if (!shouldPerformStep(abortBeforeStep, AstOptimizationStep.FlattenNestedMovableBlocks)) {
+        if (!shouldPerformStep(context, method, timer, abortBeforeStep, AstOptimizationStep.FlattenNestedMovableBlocks)) {
             return;
         }
 
         flattenBasicBlocks(method);
 
-        if (!shouldPerformStep(abortBeforeStep, AstOptimizationStep.RemoveRedundantCode2)) {
+        if (!shouldPerformStep(context, method, timer, abortBeforeStep, AstOptimizationStep.RemoveRedundantCode2)) {
             return;
         }
 
         removeRedundantCode(method, context.getSettings());
 
-        if (!shouldPerformStep(abortBeforeStep, AstOptimizationStep.GotoRemoval)) {
+        if (!shouldPerformStep(context, method, timer, abortBeforeStep, AstOptimizationStep.GotoRemoval)) {
             return;
         }
 
-        new GotoRemoval().removeGotos(method);
+        new GotoRemoval(context.getCurrentMethodBudget()).removeGotos(method);
 
-        if (!shouldPerformStep(abortBeforeStep, AstOptimizationStep.DuplicateReturns)) {
+        if (!shouldPerformStep(context, method, timer, abortBeforeStep, AstOptimizationStep.DuplicateReturns)) {
             return;
         }
 
         duplicateReturnStatements(method);
 
-        if (!shouldPerformStep(abortBeforeStep, AstOptimizationStep.ReduceIfNesting)) {
+        if (!shouldPerformStep(context, method, timer, abortBeforeStep, AstOptimizationStep.ReduceIfNesting)) {
             return;
         }
 
         reduceIfNesting(method);
 
-        if (!shouldPerformStep(abortBeforeStep, AstOptimizationStep.GotoRemoval2)) {
+        if (!shouldPerformStep(context, method, timer, abortBeforeStep, AstOptimizationStep.GotoRemoval2)) {
             return;
         }
 
-        new GotoRemoval().removeGotos(method);
+        new GotoRemoval(context.getCurrentMethodBudget()).removeGotos(method);
 
-        if (!shouldPerformStep(abortBeforeStep, AstOptimizationStep.ReduceComparisonInstructionSet)) {
+        if (!shouldPerformStep(context, method, timer, abortBeforeStep, AstOptimizationStep.ReduceComparisonInstructionSet)) {
             return;
         }
 
@@ -301,13 +310,13 @@ public final class AstOptimizer {
             reduceComparisonInstructionSet(e);
         }
 
-        if (!shouldPerformStep(abortBeforeStep, AstOptimizationStep.RecombineVariables)) {
+        if (!shouldPerformStep(context, method, timer, abortBeforeStep, AstOptimizationStep.RecombineVariables)) {
             return;
         }
 
         recombineVariables(method);
 
-        if (!shouldPerformStep(abortBeforeStep, AstOptimizationStep.RemoveRedundantCode3)) {
+        if (!shouldPerformStep(context, method, timer, abortBeforeStep, AstOptimizationStep.RemoveRedundantCode3)) {
             return;
         }
 
@@ -317,7 +326,7 @@ public final class AstOptimizer {
             GotoRemoval.OPTION_REMOVE_REDUNDANT_RETURNS
         );
 
-        if (!shouldPerformStep(abortBeforeStep, AstOptimizationStep.CleanUpTryBlocks)) {
+        if (!shouldPerformStep(context, method, timer, abortBeforeStep, AstOptimizationStep.CleanUpTryBlocks)) {
             return;
         }
 
@@ -328,7 +337,7 @@ public final class AstOptimizer {
         // introduction of ternary operators may open up additional inlining possibilities.
         //
 
-        if (!shouldPerformStep(abortBeforeStep, AstOptimizationStep.InlineVariables3)) {
+        if (!shouldPerformStep(context, method, timer, abortBeforeStep, AstOptimizationStep.InlineVariables3)) {
             return;
         }
 
@@ -336,21 +345,56 @@ public final class AstOptimizer {
 
         inliningPhase3.inlineAllVariables();
 
-        if (!shouldPerformStep(abortBeforeStep, AstOptimizationStep.TypeInference2)) {
+        if (!shouldPerformStep(context, method, timer, abortBeforeStep, AstOptimizationStep.TypeInference2)) {
             return;
         }
 
         TypeAnalysis.reset(context, method);
         TypeAnalysis.run(context, method);
 
+        if (timer != null) {
+            timer.finish(context);
+        }
+
         LOG.fine("Finished bytecode AST optimization.");
     }
 
-    private static boolean shouldPerformStep(final AstOptimizationStep abortBeforeStep, final AstOptimizationStep nextStep) {
+    private static boolean shouldPerformStep(
+        final DecompilerContext context,
+        final Block method,
+        final PhaseTimer timer,
+        final AstOptimizationStep abortBeforeStep,
+        final AstOptimizationStep nextStep) {
+
         if (abortBeforeStep == nextStep) {
+            if (timer != null) {
+                timer.finish(context);
+            }
             return false;
         }
 
+        if (timer != null) {
+            final boolean isTypeInference = nextStep == AstOptimizationStep.TypeInference ||
+                                            nextStep == AstOptimizationStep.TypeInference2;
+
+            timer.next(
+                isTypeInference ? DecompilerPhase.TypeAnalysis : DecompilerPhase.AstOptimization,
+                nextStep.name(),
+                context
+            );
+        }
+
+        final MethodBudget budget = context.getCurrentMethodBudget();
+
+        if (budget != null) {
+            if (nextStep.isBlockLevelOptimization()) {
+                budget.checkTime(nextStep);
+            }
+            else {
+                budget.check(method, nextStep);
+            }
+        }
+
         if (nextStep.isBlockLevelOptimization()) {
             if (LOG.isLoggable(Level.FINER)) {
                 LOG.finer("Performing block-level optimization: " + nextStep + ".");
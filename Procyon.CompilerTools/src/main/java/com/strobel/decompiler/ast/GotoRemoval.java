@@ -39,13 +39,23 @@ final class GotoRemoval {
     final Map<Node, Node> nextSibling = new IdentityHashMap<>();
 
     final int options;
+    final MethodBudget budget;
 
     GotoRemoval() {
         this(0);
     }
 
+    GotoRemoval(final MethodBudget budget) {
+        this(0, budget);
+    }
+
     GotoRemoval(final int options) {
+        this(options, null);
+    }
+
+    private GotoRemoval(final int options, final MethodBudget budget) {
         this.options = options;
+        this.budget = budget;
     }
 
     public final void removeGotos(final Block method) {
@@ -61,6 +71,10 @@ final class GotoRemoval {
         do {
             modified = false;
 
+            if (budget != null) {
+                budget.checkTime();
+            }
+
             for (final Expression e : method.getSelfAndChildrenRecursive(Expression.class)) {
                 if (e.getCode() == AstCode.Goto) {
                     modified |= trySimplifyGoto(e);
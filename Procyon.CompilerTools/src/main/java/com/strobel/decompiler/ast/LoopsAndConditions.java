@@ -253,6 +253,8 @@ final class LoopsAndConditions {
         agenda.addLast(entryPoint);
 
         while (!agenda.isEmpty()) {
+            MethodBudget.checkTime(context);
+
             final ControlFlowNode node = agenda.pollFirst();
 
             //
@@ -700,6 +702,8 @@ final class LoopsAndConditions {
         agenda.push(entryNode);
 
         while (!agenda.isEmpty()) {
+            MethodBudget.checkTime(context);
+
             final ControlFlowNode node = agenda.pop();
 
             if (node == null) {
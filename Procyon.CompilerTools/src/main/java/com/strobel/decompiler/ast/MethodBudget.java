@@ -0,0 +1,129 @@
+/*
+ * MethodBudget.java
+ *
+ * This source code is subject to terms and conditions of the Apache License, Version 2.0.
+ * A copy of the license can be found in the License.html file at the root of this distribution.
+ * By using this source code in any fashion, you are agreeing to be bound by the terms of the
+ * Apache License, Version 2.0.
+ *
+ * You must not remove this notice, or any other, from this software.
+ */
+
+package com.strobel.decompiler.ast;
+
+import com.strobel.core.VerifyArgument;
+import com.strobel.decompiler.DecompilerContext;
+import com.strobel.decompiler.DecompilerSettings;
+import com.strobel.decompiler.MethodBudgetExceededException;
+
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.String.format;
+
+/**
+ * Tracks the time and size budget of a single method body while it is being decompiled.  The
+ * budget is checked cooperatively, between optimization steps and within their longer loops, so a
+ * pathological method fails fast instead of pinning a thread.
+ */
+public final class MethodBudget {
+    private final long _startTime;
+    private final long _timeout;
+    private final int _nodeLimit;
+
+    private AstOptimizationStep _currentStep;
+
+    private MethodBudget(final long timeout, final int nodeLimit) {
+        _startTime = System.nanoTime();
+        _timeout = TimeUnit.MILLISECONDS.toNanos(timeout);
+        _nodeLimit = nodeLimit;
+    }
+
+    /**
+     * Starts a budget for a method body using the limits in {@code settings}.
+     *
+     * @return The new budget, or {@code null} if no limits are configured.
+     */
+    public static MethodBudget start(final DecompilerSettings settings) {
+        VerifyArgument.notNull(settings, "settings");
+
+        final long timeout = settings.getMethodTimeout();
+        final int nodeLimit = settings.getMethodNodeLimit();
+
+        if (timeout <= 0 && nodeLimit <= 0) {
+            return null;
+        }
+
+        return new MethodBudget(timeout, nodeLimit);
+    }
+
+    /**
+     * Checks the time budget of the method being decompiled in {@code context}, if it has one.  Long
+     * loops within an optimization step call this once per iteration.
+     */
+    public static void checkTime(final DecompilerContext context) {
+        final MethodBudget budget = context.getCurrentMethodBudget();
+
+        if (budget != null) {
+            budget.checkTime();
+        }
+    }
+
+    /**
+     * Checks the time budget from within the current optimization step.
+     */
+    public void checkTime() {
+        if (isOverTime()) {
+            throw new MethodBudgetExceededException(
+                format(
+                    "Method exceeded its time budget of %d ms during optimization step %s.",
+                    TimeUnit.NANOSECONDS.toMillis(_timeout),
+                    _currentStep
+                )
+            );
+        }
+    }
+
+    /**
+     * Checks the time budget.  This is cheap enough to call before every optimization step.
+     */
+    public void checkTime(final AstOptimizationStep nextStep) {
+        _currentStep = nextStep;
+
+        if (isOverTime()) {
+            throw new MethodBudgetExceededException(
+                format(
+                    "Method exceeded its time budget of %d ms before optimization step %s.",
+                    TimeUnit.NANOSECONDS.toMillis(_timeout),
+                    nextStep
+                )
+            );
+        }
+    }
+
+    private boolean isOverTime() {
+        return _timeout > 0 && System.nanoTime() - _startTime > _timeout;
+    }
+
+    /**
+     * Checks both the time and size budgets.  Counting nodes walks the whole method, so this is
+     * only done between method-level optimization steps.
+     */
+    public void check(final Block method, final AstOptimizationStep nextStep) {
+        checkTime(nextStep);
+
+        if (_nodeLimit > 0) {
+            final int nodeCount = method.getSelfAndChildrenRecursive(Node.class).size();
+
+            if (nodeCount > _nodeLimit) {
+                throw new MethodBudgetExceededException(
+                    format(
+                        "Method exceeded its size budget of %d nodes (%d nodes) before optimization step %s.",
+                        _nodeLimit,
+                        nodeCount,
+                        nextStep
+                    )
+                );
+            }
+        }
+    }
+}
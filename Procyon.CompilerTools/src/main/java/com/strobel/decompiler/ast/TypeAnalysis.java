@@ -357,6 +357,8 @@ public final class TypeAnalysis {
         while (numberOfExpressionsAlreadyInferred < _allExpressions.size()) {
             final int oldCount = numberOfExpressionsAlreadyInferred;
 
+            MethodBudget.checkTime(_context);
+
             for (final ExpressionToInfer e : _allExpressions) {
                 if (!e.done &&
                     trueForAll(e.dependencies, dependentVariableTypesKnown) &&
@@ -20,8 +20,10 @@ import com.strobel.assembler.metadata.TypeDefinition;
 import com.strobel.core.Predicate;
 import com.strobel.decompiler.DecompilationOptions;
 import com.strobel.decompiler.DecompilerContext;
+import com.strobel.decompiler.DecompilerPhase;
 import com.strobel.decompiler.DecompilerSettings;
 import com.strobel.decompiler.ITextOutput;
+import com.strobel.decompiler.PhaseTimer;
 import com.strobel.decompiler.languages.Language;
 import com.strobel.decompiler.languages.LineNumberPosition;
 import com.strobel.decompiler.languages.TypeDecompilationResults;
@@ -57,8 +59,13 @@ public class JavaLanguage extends Language {
     @Override
     public TypeDecompilationResults decompileType(final TypeDefinition type, final ITextOutput output, final DecompilationOptions options) {
         final AstBuilder astBuilder = buildAst(type, options);
+        final PhaseTimer timer = PhaseTimer.start(options.getSettings());
         final List<LineNumberPosition> lineNumberPositions = astBuilder.generateCode(output);
 
+        if (timer != null) {
+            timer.stop(DecompilerPhase.Output, null, type, null);
+        }
+
         return new TypeDecompilationResults(lineNumberPositions);
     }
 
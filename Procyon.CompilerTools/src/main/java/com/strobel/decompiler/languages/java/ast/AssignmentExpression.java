@@ -61,6 +61,7 @@ public class AssignmentExpression extends Expression {
     public final void setOperator(final AssignmentOperatorType operator) {
         verifyNotFrozen();
         _operator = operator;
+        invalidateCaches();
     }
 
     public final JavaTokenNode getOperatorToken() {
@@ -23,6 +23,7 @@ import com.strobel.assembler.ir.attributes.SourceAttribute;
 import com.strobel.assembler.metadata.*;
 import com.strobel.assembler.metadata.annotations.*;
 import com.strobel.core.ArrayUtilities;
+import com.strobel.core.BooleanBox;
 import com.strobel.core.Closeables;
 import com.strobel.core.MutableInteger;
 import com.strobel.core.Predicate;
@@ -32,6 +33,8 @@ import com.strobel.core.VerifyArgument;
 import com.strobel.decompiler.DecompilerContext;
 import com.strobel.decompiler.DecompilerSettings;
 import com.strobel.decompiler.ITextOutput;
+import com.strobel.decompiler.ast.Block;
+import com.strobel.decompiler.ast.MethodBudget;
 import com.strobel.decompiler.ast.TypeAnalysis;
 import com.strobel.decompiler.languages.LineNumberPosition;
 import com.strobel.decompiler.languages.java.JavaOutputVisitor;
@@ -44,12 +47,17 @@ import javax.lang.model.element.Modifier;
 import java.lang.ref.Reference;
 import java.lang.ref.SoftReference;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 
 public final class AstBuilder {
     private final DecompilerContext _context;
     private final CompilationUnit _compileUnit = new CompilationUnit();
     private final Map<String, Reference<TypeDeclaration>> _typeDeclarations = new LinkedHashMap<>();
     private final Map<String, String> _unqualifiedTypeNames = new LinkedHashMap<>();
+    private final Map<MethodDefinition, FutureTask<Block>> _pendingMethodBodies = new IdentityHashMap<>();
     private final TextNode _packagePlaceholder;
 
     private boolean _decompileMethodBodies = true;
@@ -541,6 +549,17 @@ public final class AstBuilder {
     }
 
     private void addTypeMembers(final TypeDeclaration astType, final TypeDefinition type) {
+        final List<MethodDefinition> scheduledMethods = scheduleMethodBodies(type);
+
+        try {
+            addTypeMembersCore(astType, type);
+        }
+        finally {
+            cancelPendingMethodBodies(scheduledMethods);
+        }
+    }
+
+    private void addTypeMembersCore(final TypeDeclaration astType, final TypeDefinition type) {
         for (final FieldDefinition field : type.getDeclaredFields()) {
             astType.addChild(createField(field), Roles.TYPE_MEMBER);
         }
@@ -678,7 +697,7 @@ public final class AstBuilder {
             }
         }
 
-        if (!method.getDeclaringType().isInterface() || method.isTypeInitializer() || method.isDefault()) {
+        if (hasBody(method)) {
             astMethod.setBody(createMethodBody(method, astMethod.getParameters()));
         }
 
@@ -781,6 +800,102 @@ public final class AstBuilder {
         }
     }
 
+    /**
+     * Returns whether {@link #createMethod(MethodDefinition)} (or {@code createConstructor()}) builds a
+     * body for {@code method}.
+     */
+    private static boolean hasBody(final MethodDefinition method) {
+        return method.isConstructor() ||
+               !method.getDeclaringType().isInterface() ||
+               method.isTypeInitializer() ||
+               method.isDefault();
+    }
+
+    private List<MethodDefinition> scheduleMethodBodies(final TypeDefinition type) {
+        final DecompilerSettings settings = _context.getSettings();
+        final Executor executor = settings.getMethodBodyExecutor();
+
+        if (executor == null || !_decompileMethodBodies) {
+            return Collections.emptyList();
+        }
+
+        final List<MethodDefinition> methods = new ArrayList<>();
+
+        for (final MethodDefinition method : type.getDeclaredMethods()) {
+            if (method.isAbstract() || Flags.testAny(method.getFlags(), Flags.NATIVE)) {
+                continue;
+            }
+
+            if (hasBody(method)) {
+                methods.add(method);
+            }
+        }
+
+        if (methods.size() < 2) {
+            return Collections.emptyList();
+        }
+
+        //
+        // Only the bytecode half of each body is built on the executor, each with a context of its own.
+        // Converting to Java touches this builder's import and type name state, so that still happens
+        // on this thread, in declaration order, when each member is created.  The contexts share this
+        // one's cancellation flag, so canceling the decompilation reaches them too, and start out with
+        // copies of its per-type state.  This context's user data stays behind: it holds this builder.
+        //
+        final BooleanBox canceled = _context.getCanceled();
+        final List<String> reservedVariableNames = new ArrayList<>(_context.getReservedVariableNames());
+        final List<IMemberDefinition> forcedVisibleMembers = new ArrayList<>(_context.getForcedVisibleMembers());
+
+        for (final MethodDefinition method : methods) {
+            final FutureTask<Block> task = new FutureTask<>(
+                new Callable<Block>() {
+                    @Override
+                    public Block call() {
+                        final DecompilerContext context = new DecompilerContext(settings);
+
+                        context.setCanceled(canceled);
+                        context.setCurrentType(type);
+                        context.setCurrentMethod(method);
+                        context.setCurrentMethodBudget(MethodBudget.start(settings));
+                        context.getReservedVariableNames().addAll(reservedVariableNames);
+                        context.getForcedVisibleMembers().addAll(forcedVisibleMembers);
+
+                        return AstMethodBodyBuilder.createOptimizedBody(method, context);
+                    }
+                }
+            );
+
+            _pendingMethodBodies.put(method, task);
+
+            try {
+                executor.execute(task);
+            }
+            catch (final RejectedExecutionException ignored) {
+                // The body will be built on this thread when it is needed.
+            }
+        }
+
+        return methods;
+    }
+
+    final FutureTask<Block> takePendingMethodBody(final MethodDefinition method) {
+        return _pendingMethodBodies.remove(method);
+    }
+
+    private void cancelPendingMethodBodies(final List<MethodDefinition> methods) {
+        //
+        // Bodies nobody took (e.g., because building the type failed part way through) shouldn't keep
+        // a worker busy, or stay in the map for the life of this builder.
+        //
+        for (final MethodDefinition method : methods) {
+            final FutureTask<Block> task = _pendingMethodBodies.remove(method);
+
+            if (task != null) {
+                task.cancel(false);
+            }
+        }
+    }
+
     private BlockStatement createMethodBody(
         final MethodDefinition method,
         final Iterable<ParameterDeclaration> parameters) {
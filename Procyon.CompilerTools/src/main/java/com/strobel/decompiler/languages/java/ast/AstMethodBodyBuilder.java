@@ -27,6 +27,9 @@ import com.strobel.core.VerifyArgument;
 import com.strobel.decompiler.DecompilationOptions;
 import com.strobel.decompiler.DecompilerContext;
 import com.strobel.decompiler.DecompilerHelpers;
+import com.strobel.decompiler.DecompilerPhase;
+import com.strobel.decompiler.MethodBudgetExceededException;
+import com.strobel.decompiler.PhaseTimer;
 import com.strobel.decompiler.PlainTextOutput;
 import com.strobel.decompiler.ast.*;
 import com.strobel.decompiler.ast.Label;
@@ -46,6 +49,8 @@ import java.util.Comparator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
 import static com.strobel.core.CollectionUtilities.*;
 
@@ -92,17 +97,93 @@ public class AstMethodBodyBuilder {
                method.getDeclaringType().getDeclaringMethod() == oldCurrentMethod;
 */
 
+        final MethodBudget oldCurrentMethodBudget = context.getCurrentMethodBudget();
+
         context.setCurrentMethod(method);
+        context.setCurrentMethodBudget(MethodBudget.start(context.getSettings()));
 
         try {
+            final FutureTask<Block> pendingBody = astBuilder.takePendingMethodBody(method);
+            final Block optimizedBody = pendingBody != null ? awaitOptimizedBody(pendingBody)
+                                                            : createOptimizedBody(method, context);
+
             final AstMethodBodyBuilder builder = new AstMethodBodyBuilder(astBuilder, method, context);
-            return builder.createMethodBody(parameters);
+            return builder.createMethodBody(optimizedBody, parameters);
         }
         catch (Throwable t) {
             return createErrorBlock(astBuilder, context, method, t);
         }
         finally {
             context.setCurrentMethod(oldCurrentMethod);
+            context.setCurrentMethodBudget(oldCurrentMethodBudget);
+        }
+    }
+
+    /**
+     * Builds and optimizes the bytecode AST for a method body, returning {@code null} if the method has
+     * no body.  This half of the work touches nothing but the method and the given context, so it may be
+     * run on another thread with a context of its own; see {@link com.strobel.decompiler.DecompilerSettings#getMethodBodyExecutor()}.
+     */
+    static Block createOptimizedBody(final MethodDefinition method, final DecompilerContext context) {
+        final PhaseTimer timer = PhaseTimer.start(context);
+        final MethodBody body = method.getBody();
+
+        if (body == null) {
+            return null;
+        }
+
+        if (timer != null) {
+            timer.stop(DecompilerPhase.ClassLoading, "MethodBody", context);
+        }
+
+        final Block block = new Block();
+
+        block.getBody().addAll(
+            com.strobel.decompiler.ast.AstBuilder.build(body, true, context)
+        );
+
+        if (timer != null) {
+            timer.stop(DecompilerPhase.AstBuilding, null, context);
+        }
+
+        AstOptimizer.optimize(context, block);
+
+        return block;
+    }
+
+    private static Block awaitOptimizedBody(final FutureTask<Block> pendingBody) {
+        //
+        // If no worker has picked the task up yet, run it here rather than wait for one.  This keeps
+        // the calling thread busy, and it cannot deadlock when the executor's threads are all waiting
+        // on bodies of their own.  Running a task that has already started or finished is a no-op.
+        //
+        pendingBody.run();
+
+        boolean interrupted = false;
+
+        try {
+            while (true) {
+                try {
+                    return pendingBody.get();
+                }
+                catch (final InterruptedException ignored) {
+                    interrupted = true;
+                }
+            }
+        }
+        catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+
+            throw ExceptionUtilities.asRuntimeException(cause);
+        }
+        finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
         }
     }
 
@@ -122,8 +203,15 @@ public class AstMethodBodyBuilder {
             '\n'
         );
 
+        final boolean budgetExceeded = t instanceof MethodBudgetExceededException;
+
         block.addChild(new Comment(" ", CommentType.SingleLine), Roles.COMMENT);
         block.addChild(new Comment(" This method could not be decompiled.", CommentType.SingleLine), Roles.COMMENT);
+
+        if (budgetExceeded) {
+            block.addChild(new Comment(" " + t.getMessage(), CommentType.SingleLine), Roles.COMMENT);
+        }
+
         block.addChild(new Comment(" ", CommentType.SingleLine), Roles.COMMENT);
 
         try {
@@ -157,7 +245,7 @@ public class AstMethodBodyBuilder {
             block.addChild(new Comment(" ", CommentType.SingleLine), Roles.COMMENT);
         }
 
-        if (context.getSettings().getIncludeErrorDiagnostics()) {
+        if (context.getSettings().getIncludeErrorDiagnostics() && !budgetExceeded) {
             block.addChild(new Comment(" The error that occurred was:", CommentType.SingleLine), Roles.COMMENT);
             block.addChild(new Comment(" ", CommentType.SingleLine), Roles.COMMENT);
 
@@ -198,21 +286,11 @@ public class AstMethodBodyBuilder {
     }
 
     @SuppressWarnings("ConstantConditions")
-    private BlockStatement createMethodBody(final Iterable<ParameterDeclaration> parameters) {
-        final MethodBody body = _method.getBody();
-
-        if (body == null) {
+    private BlockStatement createMethodBody(final Block method, final Iterable<ParameterDeclaration> parameters) {
+        if (method == null) {
             return null;
         }
 
-        final Block method = new Block();
-
-        method.getBody().addAll(
-            com.strobel.decompiler.ast.AstBuilder.build(body, true, _context)
-        );
-
-        AstOptimizer.optimize(_context, method);
-
         final Set<ParameterDefinition> unmatchedParameters = new LinkedHashSet<>(_method.getParameters());
         final Set<Variable> methodParameters = new LinkedHashSet<>();
         final Set<Variable> localVariables = new LinkedHashSet<>();
@@ -38,6 +38,7 @@ import com.strobel.decompiler.patterns.NamedNode;
 import com.strobel.decompiler.patterns.OptionalNode;
 import com.strobel.decompiler.patterns.Pattern;
 import com.strobel.decompiler.patterns.Role;
+import com.strobel.decompiler.semantics.ResolveResult;
 import com.strobel.decompiler.utilities.TreeTraversal;
 import com.strobel.functions.Function;
 import com.strobel.util.ContractUtils;
@@ -107,6 +108,10 @@ public abstract class AstNode extends Freezable implements INode, UserDataStore,
             clone._previousSibling = null;
             clone._nextSibling = null;
             clone.flags &= ~FROZEN_BIT;
+            clone._resolveCacheOwner = null;
+            clone._resolveCacheResult = null;
+            clone._symbolTable = null;
+            clone._owningIndex = null;
 
             for (final Key<?> key : Keys.ALL_KEYS) {
                 copyKey(this, clone, key);
@@ -131,6 +136,8 @@ public abstract class AstNode extends Freezable implements INode, UserDataStore,
         for (final Key<?> key : Keys.ALL_KEYS) {
             copyKey(source, this, key);
         }
+
+        invalidateCaches();
     }
 
     private static <T> void copyKey(final AstNode source, final AstNode target, final Key<T> key) {
@@ -433,6 +440,8 @@ public abstract class AstNode extends Freezable implements INode, UserDataStore,
         }
 
         addChildUnsafe(child, role);
+        onAttached(child);
+        invalidateCaches();
     }
 
     final void addChildUnsafe(final AstNode child, final Role<?> role) {
@@ -485,6 +494,8 @@ public abstract class AstNode extends Freezable implements INode, UserDataStore,
         }
 
         insertChildBeforeUnsafe(nextSibling, child, role);
+        onAttached(child);
+        invalidateCaches();
     }
 
     @SafeVarargs
@@ -528,7 +539,12 @@ public abstract class AstNode extends Freezable implements INode, UserDataStore,
         }
 
         verifyNotFrozen();
+        onDetaching(this);
+        invalidateCaches();
+        removeUnsafe();
+    }
 
+    private void removeUnsafe() {
         if (_previousSibling != null) {
             assert _previousSibling._nextSibling == this;
             _previousSibling._nextSibling = _nextSibling;
@@ -596,6 +612,9 @@ public abstract class AstNode extends Freezable implements INode, UserDataStore,
             throw new IllegalArgumentException("Node belongs to another tree.");
         }
 
+        onDetaching(this);
+        invalidateCaches();
+
         newNode._parent = _parent;
         newNode.setRoleUnsafe(role);
         newNode._previousSibling = _previousSibling;
@@ -624,6 +643,39 @@ public abstract class AstNode extends Freezable implements INode, UserDataStore,
             _previousSibling = null;
             _nextSibling = null;
         }
+
+        onAttached(newNode);
+    }
+
+    //
+    // Keep the compilation unit's node index (if any) current as subtrees move in and out of the tree.
+    // Every node counted by an index refers to it, so only trees with an index enabled pay for it.
+    //
+
+    private AstNodeIndex _owningIndex;
+
+    final AstNodeIndex getOwningIndex() {
+        return _owningIndex;
+    }
+
+    final void setOwningIndex(final AstNodeIndex index) {
+        _owningIndex = index;
+    }
+
+    private static void onAttached(final AstNode node) {
+        final AstNodeIndex index = node._parent._owningIndex;
+
+        if (index != null) {
+            index.add(node);
+        }
+    }
+
+    private static void onDetaching(final AstNode node) {
+        final AstNodeIndex index = node._owningIndex;
+
+        if (index != null) {
+            index.remove(node);
+        }
     }
 
     public final <T extends AstNode> T replaceWith(final Function<? super AstNode, ? extends T> replaceFunction) {
@@ -639,8 +691,15 @@ public abstract class AstNode extends Freezable implements INode, UserDataStore,
         final AstNode oldParent = _parent;
         final AstNode oldSuccessor = _nextSibling;
         final Role oldRole = this.getRole();
+        final AstNodeIndex index = _owningIndex;
 
-        remove();
+        //
+        // The replacement usually contains this node, so leave it counted in the index while it's
+        // detached; only the nodes the replace function adds around it need counting.
+        //
+        verifyNotFrozen();
+        invalidateCaches();
+        removeUnsafe();
 
         final T replacement = replaceFunction.apply(this);
 
@@ -669,6 +728,25 @@ public abstract class AstNode extends Freezable implements INode, UserDataStore,
             else {
                 oldParent.addChildUnsafe(replacement, oldRole);
             }
+
+            onAttached(replacement);
+            oldParent.invalidateCaches();
+        }
+
+        if (index != null) {
+            AstNode root = this;
+
+            while (root._parent != null) {
+                root = root._parent;
+            }
+
+            //
+            // Stop counting this node unless it ended up back in the indexed tree, or is still part
+            // of a subtree detached by an enclosing replaceWith() call.
+            //
+            if (root == this || root._owningIndex != index) {
+                index.remove(this);
+            }
         }
 
         return replacement;
@@ -744,6 +822,7 @@ public abstract class AstNode extends Freezable implements INode, UserDataStore,
 
         verifyNotFrozen();
         setRoleUnsafe(role);
+        invalidateCaches();
     }
 
     @Override
@@ -898,6 +977,60 @@ public abstract class AstNode extends Freezable implements INode, UserDataStore,
 
     // </editor-fold>
 
+    // <editor-fold defaultstate="collapsed" desc="Caches">
+
+    //
+    // The last result computed for this node by a JavaResolver, and the context it was computed in.  A
+    // result depends only on the node, its user data, and its descendants, so any change to those clears
+    // the cached results of the node and all of its ancestors.
+    //
+
+    private Object _resolveCacheOwner;
+    private ResolveResult _resolveCacheResult;
+
+    //
+    // The name index of a scope node, if one has been built.  It reads only the scope's nearest
+    // descendants, so only changes within SymbolTable.DEPTH levels of the scope discard it.
+    //
+
+    private SymbolTable _symbolTable;
+
+    final boolean hasCachedResolveResult(final Object owner) {
+        return owner != null && _resolveCacheOwner == owner;
+    }
+
+    final ResolveResult getCachedResolveResult() {
+        return _resolveCacheResult;
+    }
+
+    final void setCachedResolveResult(final Object owner, final ResolveResult result) {
+        _resolveCacheOwner = owner;
+        _resolveCacheResult = result;
+    }
+
+    final SymbolTable getSymbolTable() {
+        return _symbolTable;
+    }
+
+    final void setSymbolTable(final SymbolTable symbolTable) {
+        _symbolTable = symbolTable;
+    }
+
+    final void invalidateCaches() {
+        int depth = 0;
+
+        for (AstNode node = this; node != null; node = node._parent, depth++) {
+            node._resolveCacheOwner = null;
+            node._resolveCacheResult = null;
+
+            if (depth <= SymbolTable.DEPTH) {
+                node._symbolTable = null;
+            }
+        }
+    }
+
+    // </editor-fold>
+
     // <editor-fold defaultstate="collapsed" desc="UserDataStore Implementation">
 
     private final UserDataStore _dataStore = new UserDataStoreBase();
@@ -910,16 +1043,28 @@ public abstract class AstNode extends Freezable implements INode, UserDataStore,
     @Override
     public final <T> void putUserData(final Key<T> key, final T value) {
         _dataStore.putUserData(key, value);
+        invalidateCaches();
     }
 
     @Override
     public final <T> T putUserDataIfAbsent(final Key<T> key, final T value) {
-        return _dataStore.putUserDataIfAbsent(key, value);
+        final T currentValue = _dataStore.putUserDataIfAbsent(key, value);
+
+        if (currentValue == value) {
+            invalidateCaches();
+        }
+
+        return currentValue;
     }
 
     @Override
     public final <T> boolean replace(final Key<T> key, final T oldValue, final T newValue) {
-        return _dataStore.replace(key, oldValue, newValue);
+        if (_dataStore.replace(key, oldValue, newValue)) {
+            invalidateCaches();
+            return true;
+        }
+
+        return false;
     }
 
     // </editor-fold>
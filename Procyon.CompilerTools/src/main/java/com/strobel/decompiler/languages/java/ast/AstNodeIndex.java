@@ -0,0 +1,111 @@
+/*
+ * AstNodeIndex.java
+ *
+ * This source code is subject to terms and conditions of the Apache License, Version 2.0.
+ * A copy of the license can be found in the License.html file at the root of this distribution.
+ * By using this source code in any fashion, you are agreeing to be bound by the terms of the
+ * Apache License, Version 2.0.
+ *
+ * You must not remove this notice, or any other, from this software.
+ */
+
+package com.strobel.decompiler.languages.java.ast;
+
+import com.strobel.core.VerifyArgument;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Counts the nodes attached to a {@link CompilationUnit}, by node class.  While an index is enabled
+ * on a compilation unit, {@link AstNode} keeps it current as nodes are added, inserted, replaced,
+ * and removed.  Nodes in detached subtrees are not counted until they are attached.
+ * <p>
+ * Each counted node refers back to the index, so a node being attached can find the index of its
+ * new parent's tree directly, and subtrees which are already counted (e.g., a node wrapped by its
+ * own replacement) are not counted again.
+ *
+ * @see CompilationUnit#enableNodeIndex()
+ */
+public final class AstNodeIndex {
+    private final Map<Class<?>, int[]> _counts = new IdentityHashMap<>();
+
+    AstNodeIndex() {
+    }
+
+    /**
+     * Returns the number of attached nodes which are instances of {@code nodeType}.
+     */
+    public int count(final Class<? extends AstNode> nodeType) {
+        VerifyArgument.notNull(nodeType, "nodeType");
+
+        int count = 0;
+
+        for (final Map.Entry<Class<?>, int[]> entry : _counts.entrySet()) {
+            if (nodeType.isAssignableFrom(entry.getKey())) {
+                count += entry.getValue()[0];
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Returns whether any attached node is an instance of any of {@code nodeTypes}.
+     */
+    public boolean containsAny(final Iterable<Class<? extends AstNode>> nodeTypes) {
+        VerifyArgument.notNull(nodeTypes, "nodeTypes");
+
+        for (final Class<? extends AstNode> nodeType : nodeTypes) {
+            if (count(nodeType) > 0) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Counts the nodes of {@code subtree} which aren't counted yet.
+     */
+    final void add(final AstNode subtree) {
+        if (subtree.getOwningIndex() == this) {
+            return;
+        }
+
+        subtree.setOwningIndex(this);
+        update(subtree, 1);
+
+        for (AstNode child = subtree.getFirstChild(); child != null; child = child.getNextSibling()) {
+            add(child);
+        }
+    }
+
+    /**
+     * Stops counting the nodes of {@code subtree}.
+     */
+    final void remove(final AstNode subtree) {
+        if (subtree.getOwningIndex() != this) {
+            return;
+        }
+
+        subtree.setOwningIndex(null);
+        update(subtree, -1);
+
+        for (AstNode child = subtree.getFirstChild(); child != null; child = child.getNextSibling()) {
+            remove(child);
+        }
+    }
+
+    private void update(final AstNode node, final int delta) {
+        final Class<?> nodeClass = node.getClass();
+
+        int[] count = _counts.get(nodeClass);
+
+        if (count == null) {
+            _counts.put(nodeClass, count = new int[1]);
+        }
+
+        count[0] += delta;
+    }
+}
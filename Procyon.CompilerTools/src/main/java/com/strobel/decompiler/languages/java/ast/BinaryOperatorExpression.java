@@ -61,6 +61,7 @@ public class BinaryOperatorExpression extends Expression {
     public final void setOperator(final BinaryOperatorType operator) {
         verifyNotFrozen();
         _operator = operator;
+        invalidateCaches();
     }
 
     public final JavaTokenNode getOperatorToken() {
@@ -65,6 +65,36 @@ public class CompilationUnit extends AstNode {
         return getChildrenByRole(TYPE_ROLE);
     }
 
+    /**
+     * Returns the node index for this compilation unit, or {@code null} if none is enabled.
+     */
+    public final AstNodeIndex getNodeIndex() {
+        return getOwningIndex();
+    }
+
+    /**
+     * Builds an index of the nodes in this compilation unit, which is kept up to date until
+     * {@link #disableNodeIndex()} is called.
+     */
+    public final AstNodeIndex enableNodeIndex() {
+        AstNodeIndex index = getOwningIndex();
+
+        if (index == null) {
+            index = new AstNodeIndex();
+            index.add(this);
+        }
+
+        return index;
+    }
+
+    public final void disableNodeIndex() {
+        final AstNodeIndex index = getOwningIndex();
+
+        if (index != null) {
+            index.remove(this);
+        }
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     public Role<? extends CompilationUnit> getRole() {
@@ -31,24 +31,25 @@ import com.strobel.util.ContractUtils;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
-import static com.strobel.core.CollectionUtilities.contains;
-
 public class DefiniteAssignmentAnalysis {
     private final DefiniteAssignmentVisitor visitor = new DefiniteAssignmentVisitor();
     private final ArrayList<DefiniteAssignmentNode> allNodes = new ArrayList<>();
     private final LinkedHashMap<Statement, DefiniteAssignmentNode> beginNodeMap = new LinkedHashMap<>();
     private final LinkedHashMap<Statement, DefiniteAssignmentNode> endNodeMap = new LinkedHashMap<>();
     private final LinkedHashMap<Statement, DefiniteAssignmentNode> conditionNodeMap = new LinkedHashMap<>();
-    private final LinkedHashMap<ControlFlowEdge, DefiniteAssignmentStatus> edgeStatus = new LinkedHashMap<>();
+    private final IdentityHashMap<TryCatchStatement, List<DefiniteAssignmentEdge>> tryFinallyExits = new IdentityHashMap<>();
+    private final ArrayList<DefiniteAssignmentNode> reachedNodes = new ArrayList<>();
 
     private final ArrayList<IdentifierExpression> unassignedVariableUses = new ArrayList<>();
     private final List<IdentifierExpression> unassignedVariableUsesView = Collections.unmodifiableList(unassignedVariableUses);
     private final ArrayDeque<DefiniteAssignmentNode> nodesWithModifiedInput = new ArrayDeque<>();
 
+    private final Statement rootStatement;
     private final Function<AstNode, ResolveResult> resolver;
 
     private String variableName;
@@ -64,7 +65,26 @@ public class DefiniteAssignmentAnalysis {
         VerifyArgument.notNull(rootStatement, "rootStatement");
         VerifyArgument.notNull(resolver, "resolver");
 
+        this.rootStatement = rootStatement;
         this.resolver = resolver;
+    }
+
+    private void ensureControlFlowGraph() {
+        //
+        // The graph is built on first use; some callers create an analysis up front and never query it.
+        //
+        if (allNodes.isEmpty()) {
+            buildControlFlowGraph();
+        }
+    }
+
+    private void buildControlFlowGraph() {
+        allNodes.clear();
+        beginNodeMap.clear();
+        endNodeMap.clear();
+        conditionNodeMap.clear();
+        tryFinallyExits.clear();
+        reachedNodes.clear();
 
         final DerivedControlFlowGraphBuilder builder = new DerivedControlFlowGraphBuilder();
 
@@ -108,6 +128,30 @@ public class DefiniteAssignmentAnalysis {
             }
         }
 
+        //
+        // Index the edges leaving each try/finally block so the finally rule in changeNodeStatus()
+        // doesn't have to scan the whole graph.  Edges are kept in graph order.
+        //
+        for (final DefiniteAssignmentNode node : allNodes) {
+            for (final ControlFlowEdge edge : node.getOutgoing()) {
+                if (!edge.isLeavingTryFinally()) {
+                    continue;
+                }
+
+                for (final TryCatchStatement tryFinally : edge.getTryFinallyStatements()) {
+                    List<DefiniteAssignmentEdge> exits = tryFinallyExits.get(tryFinally);
+
+                    if (exits == null) {
+                        tryFinallyExits.put(tryFinally, exits = new ArrayList<>());
+                    }
+
+                    if (exits.isEmpty() || exits.get(exits.size() - 1) != edge) {
+                        exits.add((DefiniteAssignmentEdge) edge);
+                    }
+                }
+            }
+        }
+
         this.analyzedRangeStart = 0;
         this.analyzedRangeEnd = allNodes.size() - 1;
     }
@@ -148,6 +192,21 @@ public class DefiniteAssignmentAnalysis {
             insertAnonymousMethods(insertPosition, child, builder);
         }
     }
+
+    private boolean isRangeCurrent(final DefiniteAssignmentNode startNode, final DefiniteAssignmentNode endNode) {
+        if (startNode == null || endNode == null || !startNode.isCurrent() || !endNode.isCurrent()) {
+            return false;
+        }
+
+        for (int i = startNode.getIndex() + 1; i < endNode.getIndex(); i++) {
+            if (!allNodes.get(i).isCurrent()) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
     public List<IdentifierExpression> getUnassignedVariableUses() {
         return unassignedVariableUsesView;
     }
@@ -157,9 +216,19 @@ public class DefiniteAssignmentAnalysis {
     }
 
     public void setAnalyzedRange(final Statement start, final Statement end, final boolean startInclusive, final boolean endInclusive) {
+        ensureControlFlowGraph();
+
         final Map<Statement, DefiniteAssignmentNode> startMap = startInclusive ? beginNodeMap : endNodeMap;
         final Map<Statement, DefiniteAssignmentNode> endMap = endInclusive ? endNodeMap : beginNodeMap;
 
+        if (!isRangeCurrent(startMap.get(start), endMap.get(end))) {
+            //
+            // The tree has been rewritten since the graph was built, at least within the requested
+            // range.  Rebuild the graph so the analysis reflects the current statements.
+            //
+            buildControlFlowGraph();
+        }
+
         assert startMap.containsKey(start) && endMap.containsKey(end);
 
         final int startIndex = startMap.get(start).getIndex();
@@ -178,19 +247,27 @@ public class DefiniteAssignmentAnalysis {
     }
 
     public void analyze(final String variable, final DefiniteAssignmentStatus initialStatus) {
+        ensureControlFlowGraph();
+
         this.variableName = variable;
 
         try {
             unassignedVariableUses.clear();
 
-            for (final DefiniteAssignmentNode node : allNodes) {
+            //
+            // Only nodes reached by the previous run (and their outgoing edges) can hold a status
+            // other than CODE_UNREACHABLE, so those are the only ones that need resetting.
+            //
+            for (final DefiniteAssignmentNode node : reachedNodes) {
                 node.setNodeStatus(DefiniteAssignmentStatus.CODE_UNREACHABLE);
 
                 for (final ControlFlowEdge edge : node.getOutgoing()) {
-                    edgeStatus.put(edge, DefiniteAssignmentStatus.CODE_UNREACHABLE);
+                    ((DefiniteAssignmentEdge) edge).setStatus(DefiniteAssignmentStatus.CODE_UNREACHABLE);
                 }
             }
 
+            reachedNodes.clear();
+
             changeNodeStatus(allNodes.get(analyzedRangeStart), initialStatus);
 
             while (!nodesWithModifiedInput.isEmpty()) {
@@ -199,7 +276,7 @@ public class DefiniteAssignmentAnalysis {
                 DefiniteAssignmentStatus inputStatus = DefiniteAssignmentStatus.CODE_UNREACHABLE;
 
                 for (final ControlFlowEdge edge : node.getIncoming()) {
-                    inputStatus = mergeStatus(inputStatus, edgeStatus.get(edge));
+                    inputStatus = mergeStatus(inputStatus, ((DefiniteAssignmentEdge) edge).getStatus());
                 }
 
                 changeNodeStatus(node, inputStatus);
@@ -211,13 +288,8 @@ public class DefiniteAssignmentAnalysis {
     }
 
     public boolean isPotentiallyAssigned() {
-        for (final DefiniteAssignmentNode node : allNodes) {
-            final DefiniteAssignmentStatus status = node.getNodeStatus();
-
-            if (status == null)
-                return true;
-
-            switch (status) {
+        for (final DefiniteAssignmentNode node : reachedNodes) {
+            switch (node.getNodeStatus()) {
                 case POTENTIALLY_ASSIGNED:
                 case DEFINITELY_ASSIGNED:
                 case ASSIGNED_AFTER_TRUE_EXPRESSION:
@@ -277,6 +349,10 @@ public class DefiniteAssignmentAnalysis {
             return;
         }
 
+        if (node.getNodeStatus() == DefiniteAssignmentStatus.CODE_UNREACHABLE) {
+            reachedNodes.add(node);
+        }
+
         node.setNodeStatus(inputStatus);
 
         DefiniteAssignmentStatus outputStatus;
@@ -354,14 +430,12 @@ public class DefiniteAssignmentAnalysis {
 
                     final TryCatchStatement tryFinally = (TryCatchStatement) node.getPreviousStatement().getParent();
 
-                    for (final DefiniteAssignmentNode n : allNodes) {
-                        for (final ControlFlowEdge edge : n.getOutgoing()) {
-                            if (edge.isLeavingTryFinally() && contains(edge.getTryFinallyStatements(), tryFinally)) {
-                                final DefiniteAssignmentStatus s = edgeStatus.get(edge);
+                    final List<DefiniteAssignmentEdge> exits = tryFinallyExits.get(tryFinally);
 
-                                if (s == DefiniteAssignmentStatus.POTENTIALLY_ASSIGNED) {
-                                    changeEdgeStatus(edge, outputStatus);
-                                }
+                    if (exits != null) {
+                        for (final DefiniteAssignmentEdge edge : exits) {
+                            if (edge.getStatus() == DefiniteAssignmentStatus.POTENTIALLY_ASSIGNED) {
+                                changeEdgeStatus(edge, outputStatus);
                             }
                         }
                     }
@@ -380,8 +454,9 @@ public class DefiniteAssignmentAnalysis {
         }
     }
 
-    private void changeEdgeStatus(final ControlFlowEdge edge, final DefiniteAssignmentStatus newStatus) {
-        final DefiniteAssignmentStatus oldStatus = edgeStatus.get(edge);
+    private void changeEdgeStatus(final ControlFlowEdge e, final DefiniteAssignmentStatus newStatus) {
+        final DefiniteAssignmentEdge edge = (DefiniteAssignmentEdge) e;
+        final DefiniteAssignmentStatus oldStatus = edge.getStatus();
 
         if (oldStatus == newStatus) {
             return;
@@ -406,7 +481,7 @@ public class DefiniteAssignmentAnalysis {
             throw new IllegalStateException("Illegal edge output status:" + newStatus);
         }
 
-        edgeStatus.put(edge, newStatus);
+        edge.setStatus(newStatus);
 
         final DefiniteAssignmentNode targetNode = (DefiniteAssignmentNode) edge.getTo();
 
@@ -785,8 +860,9 @@ public class DefiniteAssignmentAnalysis {
     // <editor-fold defaultstate="collapsed" desc="DefiniteAssignmentNode Class">
 
     final class DefiniteAssignmentNode extends ControlFlowNode {
+        private final AstNode _parent;
         private int _index;
-        private DefiniteAssignmentStatus _nodeStatus;
+        private DefiniteAssignmentStatus _nodeStatus = DefiniteAssignmentStatus.CODE_UNREACHABLE;
 
         public DefiniteAssignmentNode(
             final Statement previousStatement,
@@ -794,6 +870,8 @@ public class DefiniteAssignmentAnalysis {
             final ControlFlowNodeType type) {
 
             super(previousStatement, nextStatement, type);
+
+            _parent = (nextStatement != null ? nextStatement : previousStatement).getParent();
         }
 
         public int getIndex() {
@@ -812,6 +890,32 @@ public class DefiniteAssignmentAnalysis {
             this._nodeStatus = nodeStatus;
         }
 
+        final boolean isCurrent() {
+            //
+            // Check that the graph builder would still produce this node for the current tree.
+            //
+            final Statement previous = getPreviousStatement();
+            final Statement next = getNextStatement();
+
+            switch (getType()) {
+                case StartNode:
+                    return next.getParent() == _parent &&
+                           (next == rootStatement || next.getPreviousSibling(next.getRole()) == null);
+
+                case BetweenStatements:
+                    return next.getParent() == _parent &&
+                           previous.getParent() == _parent &&
+                           previous.getNextSibling(previous.getRole()) == next;
+
+                case EndNode:
+                    return previous.getParent() == _parent &&
+                           (previous == rootStatement || previous.getNextSibling(previous.getRole()) == null);
+
+                default:
+                    return next.getParent() == _parent;
+            }
+        }
+
         @Override
         public String toString() {
             return "[" + _index + "] " + _nodeStatus;
@@ -820,6 +924,26 @@ public class DefiniteAssignmentAnalysis {
 
     // </editor-fold>
 
+    // <editor-fold defaultstate="collapsed" desc="DefiniteAssignmentEdge Class">
+
+    static final class DefiniteAssignmentEdge extends ControlFlowEdge {
+        private DefiniteAssignmentStatus _status = DefiniteAssignmentStatus.CODE_UNREACHABLE;
+
+        public DefiniteAssignmentEdge(final ControlFlowNode from, final ControlFlowNode to, final ControlFlowEdgeType type) {
+            super(from, to, type);
+        }
+
+        public DefiniteAssignmentStatus getStatus() {
+            return _status;
+        }
+
+        public void setStatus(final DefiniteAssignmentStatus status) {
+            _status = status;
+        }
+    }
+
+    // </editor-fold>
+
     // <editor-fold defaultstate="collapsed" desc="DerivedControlFlowGraphBuilder Class">
 
     final class DerivedControlFlowGraphBuilder extends ControlFlowGraphBuilder {
@@ -831,6 +955,15 @@ public class DefiniteAssignmentAnalysis {
 
             return new DefiniteAssignmentNode(previousStatement, nextStatement, type);
         }
+
+        @Override
+        protected ControlFlowEdge createEdge(
+            final ControlFlowNode from,
+            final ControlFlowNode to,
+            final ControlFlowEdgeType type) {
+
+            return new DefiniteAssignmentEdge(from, to, type);
+        }
     }
 
     // </editor-fold>
@@ -43,6 +43,7 @@ public class Identifier extends AstNode {
     public final void setName(final String name) {
         verifyNotFrozen();
         _name = VerifyArgument.notNull(name, "name");
+        invalidateCaches();
     }
 
     @Override
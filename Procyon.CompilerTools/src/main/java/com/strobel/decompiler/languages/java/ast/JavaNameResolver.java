@@ -164,7 +164,7 @@ public final class JavaNameResolver {
                         }
                     }
 
-                    final Statement previousStatement = ((Statement) n).getPreviousStatement();
+                    final Statement previousStatement = getPreviousDeclaration((Statement) n, name);
 
                     if (previousStatement != null) {
                         n = previousStatement;
@@ -191,6 +191,17 @@ public final class JavaNameResolver {
             return Collections.emptySet();
         }
 
+        private static Statement getPreviousDeclaration(final Statement statement, final String name) {
+            final AstNode parent = statement.getParent();
+
+            if (parent instanceof BlockStatement) {
+                final SymbolTable.BlockScope scope = (SymbolTable.BlockScope) SymbolTable.of(parent);
+                return scope.getPreviousDeclaration(statement, name);
+            }
+
+            return statement.getPreviousStatement();
+        }
+
         private Set<Object> searchUpScope(
             final String name,
             final TypeDefinition type,
@@ -635,19 +646,19 @@ public final class JavaNameResolver {
 
         @Override
         public Set<Object> visitTypeDeclaration(final TypeDeclaration node, final String name) {
+            final SymbolTable.TypeScope scope = (SymbolTable.TypeScope) SymbolTable.of(node);
+
             Set<Object> results = null;
 
             if (_mode == NameResolveMode.EXPRESSION) {
-                for (final EntityDeclaration member : node.getMembers()) {
-                    if (member instanceof FieldDeclaration) {
-                        final Set<Object> fieldResults = member.acceptVisitor(this, name);
+                for (final FieldDeclaration field : scope.getFields(name)) {
+                    final Set<Object> fieldResults = field.acceptVisitor(this, name);
 
-                        if (fieldResults.isEmpty()) {
-                            continue;
-                        }
-
-                        return fieldResults;
+                    if (fieldResults.isEmpty()) {
+                        continue;
                     }
+
+                    return fieldResults;
                 }
             }
 
@@ -660,51 +671,57 @@ public final class JavaNameResolver {
                 }
             }
 
-            for (final EntityDeclaration member : node.getMembers()) {
-                if (member instanceof TypeDeclaration) {
-                    final TypeDeclaration td = (TypeDeclaration) member;
+            for (final TypeDeclaration td : scope.getTypes(name)) {
+                final TypeDefinition t = td.getUserData(Keys.TYPE_DEFINITION);
 
-                    if (StringUtilities.equals(td.getName(), name)) {
-                        final TypeDefinition t = td.getUserData(Keys.TYPE_DEFINITION);
-
-                        if (t == null) {
-                            continue;
-                        }
-
-                        if (results == null) {
-                            results = new LinkedHashSet<>();
-                        }
+                if (t == null) {
+                    continue;
+                }
 
-                        results.add(t);
-                    }
+                if (results == null) {
+                    results = new LinkedHashSet<>();
                 }
+
+                results.add(t);
             }
 
             if (_mode == NameResolveMode.TYPE && results != null && !results.isEmpty()) {
                 return results;
             }
 
-            for (final TypeParameterDeclaration tp : node.getTypeParameters()) {
-                final TypeDefinition gp = tp.getUserData(Keys.TYPE_DEFINITION);
-
-                if (gp != null && StringUtilities.equals(gp.getName(), name)) {
-                    if (results == null) {
-                        results = new LinkedHashSet<>();
-                    }
-                    results.add(gp);
+            for (final TypeParameterDeclaration tp : scope.getTypeParameters(name)) {
+                if (results == null) {
+                    results = new LinkedHashSet<>();
                 }
+                results.add(tp.getUserData(Keys.TYPE_DEFINITION));
             }
 
             if (results != null && !results.isEmpty()) {
                 return results;
             }
 
-            return searchUpScope(
+            //
+            // The search through the type's metadata depends only on the type definition and the lookup,
+            // so we remember its results with the rest of the type's symbols.
+            //
+            final String key = _mode.name() + (_isStaticContext ? ":static:" : ":instance:") + name;
+            final Set<Object> inheritedResults = scope.getInheritedLookup(key);
+
+            if (inheritedResults != null) {
+                return inheritedResults.isEmpty() ? Collections.emptySet()
+                                                  : new LinkedHashSet<>(inheritedResults);
+            }
+
+            final Set<Object> newResults = searchUpScope(
                 name,
                 node.getUserData(Keys.TYPE_DEFINITION),
                 new LinkedHashSet<String>(),
                 true
             );
+
+            scope.putInheritedLookup(key, new LinkedHashSet<>(newResults));
+
+            return newResults;
         }
 
         @Override
@@ -749,7 +766,9 @@ public final class JavaNameResolver {
                 results.addAll(typeResults);
             }
 
-            for (final ImportDeclaration typeImport : node.getImports()) {
+            final SymbolTable.UnitScope scope = (SymbolTable.UnitScope) SymbolTable.of(node);
+
+            for (final ImportDeclaration typeImport : scope.getImports(name)) {
                 final Set<Object> importResults = typeImport.acceptVisitor(this, name);
 
                 if (importResults.isEmpty()) {
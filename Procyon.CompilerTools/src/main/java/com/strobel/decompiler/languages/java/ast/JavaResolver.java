@@ -25,21 +25,77 @@ import com.strobel.decompiler.ast.Variable;
 import com.strobel.decompiler.semantics.ResolveResult;
 import com.strobel.functions.Function;
 
+/**
+ * Resolves the type (and, where possible, the constant value) of an AST node.  Results are memoized on
+ * the nodes themselves and shared by all resolvers created with the same context; a node's result is
+ * discarded when the node, its user data, or any of its descendants change.
+ */
 public class JavaResolver implements Function<AstNode, ResolveResult> {
     private final DecompilerContext _context;
 
+    private long _cacheHits;
+    private long _cacheMisses;
+
     public JavaResolver(final DecompilerContext context) {
         _context = VerifyArgument.notNull(context, "context");
     }
 
+    /**
+     * Returns the number of node resolutions this resolver answered from the cache.
+     */
+    public final long getCacheHits() {
+        return _cacheHits;
+    }
+
+    /**
+     * Returns the number of node resolutions this resolver had to compute.
+     */
+    public final long getCacheMisses() {
+        return _cacheMisses;
+    }
+
     @Override
     public ResolveResult apply(final AstNode input) {
-        return input.acceptVisitor(new ResolveVisitor(_context), null);
+        return new ResolveVisitor(this).resolve(input);
+    }
+
+    private static boolean isCacheable(final AstNode node) {
+        //
+        // Frozen nodes (including the null nodes) may be shared between trees, so we never cache on them.
+        // A member reference without a member of its own borrows the one from its parent invocation, and
+        // that dependency is invisible to the child's cache.
+        //
+        return !node.isFrozen() &&
+               !(node instanceof MemberReferenceExpression && node.getUserData(Keys.MEMBER_REFERENCE) == null);
     }
 
     private final static class ResolveVisitor extends ContextTrackingVisitor<ResolveResult> {
-        protected ResolveVisitor(final DecompilerContext context) {
-            super(context);
+        private final JavaResolver _resolver;
+
+        protected ResolveVisitor(final JavaResolver resolver) {
+            super(resolver._context);
+            _resolver = resolver;
+        }
+
+        final ResolveResult resolve(final AstNode node) {
+            if (!isCacheable(node)) {
+                return node.acceptVisitor(this, null);
+            }
+
+            final DecompilerContext owner = _resolver._context;
+
+            if (node.hasCachedResolveResult(owner)) {
+                _resolver._cacheHits++;
+                return node.getCachedResolveResult();
+            }
+
+            _resolver._cacheMisses++;
+
+            final ResolveResult result = node.acceptVisitor(this, null);
+
+            node.setCachedResolveResult(owner, result);
+
+            return result;
         }
 
         @Override
@@ -49,7 +105,7 @@ public class JavaResolver implements Function<AstNode, ResolveResult> {
 
         @Override
         public ResolveResult visitVariableInitializer(final VariableInitializer node, final Void data) {
-            return node.getInitializer().acceptVisitor(this, data);
+            return resolve(node.getInitializer());
         }
 
         @Override
@@ -61,7 +117,7 @@ public class JavaResolver implements Function<AstNode, ResolveResult> {
                 return result;
             }
 */
-            return node.getType().acceptVisitor(this, p);
+            return resolve(node.getType());
         }
 
         @Override
@@ -72,7 +128,7 @@ public class JavaResolver implements Function<AstNode, ResolveResult> {
                 return result;
             }
 
-            return node.getType().acceptVisitor(this, p);
+            return resolve(node.getType());
         }
 
         @Override
@@ -90,7 +146,7 @@ public class JavaResolver implements Function<AstNode, ResolveResult> {
             if (node.getTarget().isNull()) {
                 return resolveType(node.getUserData(Keys.TYPE_REFERENCE));
             }
-            return node.getTarget().acceptVisitor(this, data);
+            return resolve(node.getTarget());
         }
 
         @Override
@@ -98,7 +154,7 @@ public class JavaResolver implements Function<AstNode, ResolveResult> {
             if (node.getTarget().isNull()) {
                 return resolveType(node.getUserData(Keys.TYPE_REFERENCE));
             }
-            return node.getTarget().acceptVisitor(this, data);
+            return resolve(node.getTarget());
         }
 
         @Override
@@ -195,7 +251,7 @@ public class JavaResolver implements Function<AstNode, ResolveResult> {
 
         @Override
         public ResolveResult visitMemberReferenceExpression(final MemberReferenceExpression node, final Void p) {
-            final ResolveResult targetResult = node.getTarget().acceptVisitor(this, p);
+            final ResolveResult targetResult = resolve(node.getTarget());
 
             MemberReference memberReference = node.getUserData(Keys.MEMBER_REFERENCE);
 
@@ -244,7 +300,7 @@ public class JavaResolver implements Function<AstNode, ResolveResult> {
                 return result;
             }
 
-            return node.getTarget().acceptVisitor(this, p);
+            return resolve(node.getTarget());
         }
 
         @Override
@@ -263,7 +319,7 @@ public class JavaResolver implements Function<AstNode, ResolveResult> {
                     continue;
                 }
 
-                final ResolveResult childResult = child.acceptVisitor(this, p);
+                final ResolveResult childResult = resolve(child);
 
                 if (childResult == null) {
                     return null;
@@ -415,7 +471,7 @@ public class JavaResolver implements Function<AstNode, ResolveResult> {
 
         @Override
         public ResolveResult visitCastExpression(final CastExpression node, final Void data) {
-            final ResolveResult childResult = node.getExpression().acceptVisitor(this, data);
+            final ResolveResult childResult = resolve(node.getExpression());
             final ResolveResult typeResult = resolveType(node.getType());
 
             if (typeResult == null) {
@@ -448,8 +504,8 @@ public class JavaResolver implements Function<AstNode, ResolveResult> {
 
         @Override
         public ResolveResult visitBinaryOperatorExpression(final BinaryOperatorExpression node, final Void data) {
-            final ResolveResult leftResult = node.getLeft().acceptVisitor(this, data);
-            final ResolveResult rightResult = node.getRight().acceptVisitor(this, data);
+            final ResolveResult leftResult = resolve(node.getLeft());
+            final ResolveResult rightResult = resolve(node.getRight());
 
             if (leftResult == null || rightResult == null) {
                 return null;
@@ -517,7 +573,7 @@ public class JavaResolver implements Function<AstNode, ResolveResult> {
 
         @Override
         public ResolveResult visitInstanceOfExpression(final InstanceOfExpression node, final Void data) {
-            final ResolveResult childResult = node.getExpression().acceptVisitor(this, data);
+            final ResolveResult childResult = resolve(node.getExpression());
 
             if (childResult == null) {
                 return new ResolveResult(BuiltinTypes.Boolean);
@@ -538,7 +594,7 @@ public class JavaResolver implements Function<AstNode, ResolveResult> {
 
         @Override
         public ResolveResult visitIndexerExpression(final IndexerExpression node, final Void data) {
-            final ResolveResult childResult = node.getTarget().acceptVisitor(this, data);
+            final ResolveResult childResult = resolve(node.getTarget());
 
             if (childResult == null || childResult.getType() == null || !childResult.getType().isArray()) {
                 return null;
@@ -555,7 +611,7 @@ public class JavaResolver implements Function<AstNode, ResolveResult> {
 
         @Override
         public ResolveResult visitUnaryOperatorExpression(final UnaryOperatorExpression node, final Void data) {
-            final ResolveResult childResult = node.getExpression().acceptVisitor(this, data);
+            final ResolveResult childResult = resolve(node.getExpression());
 
             if (childResult == null || childResult.getType() == null) {
                 return null;
@@ -588,27 +644,27 @@ public class JavaResolver implements Function<AstNode, ResolveResult> {
 
         @Override
         public ResolveResult visitConditionalExpression(final ConditionalExpression node, final Void data) {
-            final ResolveResult conditionResult = node.getCondition().acceptVisitor(this, data);
+            final ResolveResult conditionResult = resolve(node.getCondition());
 
             if (conditionResult != null &&
                 conditionResult.isCompileTimeConstant()) {
 
                 if (Boolean.TRUE.equals(conditionResult.getConstantValue())) {
-                    return node.getTrueExpression().acceptVisitor(this, data);
+                    return resolve(node.getTrueExpression());
                 }
 
                 if (Boolean.FALSE.equals(conditionResult.getConstantValue())) {
-                    return node.getFalseExpression().acceptVisitor(this, data);
+                    return resolve(node.getFalseExpression());
                 }
             }
 
-            final ResolveResult leftResult = node.getTrueExpression().acceptVisitor(this, data);
+            final ResolveResult leftResult = resolve(node.getTrueExpression());
 
             if (leftResult == null || leftResult.getType() == null) {
                 return null;
             }
 
-            final ResolveResult rightResult = node.getFalseExpression().acceptVisitor(this, data);
+            final ResolveResult rightResult = resolve(node.getFalseExpression());
 
             if (rightResult == null || rightResult.getType() == null) {
                 return null;
@@ -650,7 +706,7 @@ public class JavaResolver implements Function<AstNode, ResolveResult> {
 
         @Override
         public ResolveResult visitAssignmentExpression(final AssignmentExpression node, final Void data) {
-            final ResolveResult leftResult = node.getLeft().acceptVisitor(this, data);
+            final ResolveResult leftResult = resolve(node.getLeft());
 
             if (leftResult != null && leftResult.getType() != null) {
                 return new ResolveResult(leftResult.getType());
@@ -661,7 +717,7 @@ public class JavaResolver implements Function<AstNode, ResolveResult> {
 
         @Override
         public ResolveResult visitParenthesizedExpression(final ParenthesizedExpression node, final Void data) {
-            return node.getExpression().acceptVisitor(this, data);
+            return resolve(node.getExpression());
         }
     }
 
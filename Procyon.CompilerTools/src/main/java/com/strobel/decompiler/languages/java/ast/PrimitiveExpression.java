@@ -86,6 +86,7 @@ public class PrimitiveExpression extends Expression {
         verifyNotFrozen();
         _literalValue = literalValue;
         _endLocation = null;
+        invalidateCaches();
     }
 
     public final Object getValue() {
@@ -95,6 +96,7 @@ public class PrimitiveExpression extends Expression {
     public final void setValue(final Object value) {
         verifyNotFrozen();
         _value = value;
+        invalidateCaches();
     }
 
     @Override
@@ -0,0 +1,221 @@
+/*
+ * SymbolTable.java
+ *
+ * This source code is subject to terms and conditions of the Apache License, Version 2.0.
+ * A copy of the license can be found in the License.html file at the root of this distribution.
+ * By using this source code in any fashion, you are agreeing to be bound by the terms of the
+ * Apache License, Version 2.0.
+ *
+ * You must not remove this notice, or any other, from this software.
+ */
+
+package com.strobel.decompiler.languages.java.ast;
+
+import com.strobel.assembler.metadata.TypeDefinition;
+import com.strobel.assembler.metadata.TypeReference;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Indexes the declarations made directly within a scope node by name, so {@link JavaNameResolver} need
+ * not walk every member, import, or statement of the scope on each lookup.  A table is built on first
+ * use and reads nothing deeper than {@link #DEPTH} levels below its scope; {@link AstNode} discards it
+ * whenever anything within that range changes.
+ */
+abstract class SymbolTable {
+    final static int DEPTH = 3;
+
+    static SymbolTable of(final AstNode scope) {
+        final SymbolTable existing = scope.getSymbolTable();
+
+        if (existing != null) {
+            return existing;
+        }
+
+        final SymbolTable table;
+
+        if (scope instanceof TypeDeclaration) {
+            table = new TypeScope((TypeDeclaration) scope);
+        }
+        else if (scope instanceof CompilationUnit) {
+            table = new UnitScope((CompilationUnit) scope);
+        }
+        else if (scope instanceof BlockStatement) {
+            table = new BlockScope((BlockStatement) scope);
+        }
+        else {
+            return null;
+        }
+
+        scope.setSymbolTable(table);
+        return table;
+    }
+
+    private static <T> void put(final Map<String, List<T>> map, final String name, final T value) {
+        List<T> values = map.get(name);
+
+        if (values == null) {
+            map.put(name, values = new ArrayList<>(1));
+        }
+
+        values.add(value);
+    }
+
+    private static <T> List<T> get(final Map<String, List<T>> map, final String name) {
+        final List<T> values = map.get(name);
+        return values != null ? values : Collections.<T>emptyList();
+    }
+
+    final static class TypeScope extends SymbolTable {
+        private final Map<String, List<FieldDeclaration>> _fields = new HashMap<>();
+        private final Map<String, List<TypeDeclaration>> _types = new HashMap<>();
+        private final Map<String, List<TypeParameterDeclaration>> _typeParameters = new HashMap<>();
+        private final Map<String, Set<Object>> _inheritedLookups = new HashMap<>();
+
+        private TypeScope(final TypeDeclaration scope) {
+            for (final EntityDeclaration member : scope.getMembers()) {
+                if (member instanceof FieldDeclaration) {
+                    put(_fields, member.getName(), (FieldDeclaration) member);
+                }
+                else if (member instanceof TypeDeclaration) {
+                    put(_types, member.getName(), (TypeDeclaration) member);
+                }
+            }
+
+            for (final TypeParameterDeclaration tp : scope.getTypeParameters()) {
+                final TypeDefinition gp = tp.getUserData(Keys.TYPE_DEFINITION);
+
+                if (gp != null) {
+                    put(_typeParameters, gp.getName(), tp);
+                }
+            }
+        }
+
+        List<FieldDeclaration> getFields(final String name) {
+            return get(_fields, name);
+        }
+
+        List<TypeDeclaration> getTypes(final String name) {
+            return get(_types, name);
+        }
+
+        List<TypeParameterDeclaration> getTypeParameters(final String name) {
+            return get(_typeParameters, name);
+        }
+
+        //
+        // Results of searching the type's metadata (supertypes, declared members, and enclosing types),
+        // which depend only on the type definition and the lookup, are remembered per lookup key.
+        //
+
+        Set<Object> getInheritedLookup(final String key) {
+            return _inheritedLookups.get(key);
+        }
+
+        void putInheritedLookup(final String key, final Set<Object> results) {
+            _inheritedLookups.put(key, results);
+        }
+    }
+
+    final static class UnitScope extends SymbolTable {
+        private final Map<String, List<ImportDeclaration>> _imports = new HashMap<>();
+
+        private UnitScope(final CompilationUnit scope) {
+            for (final ImportDeclaration d : scope.getImports()) {
+                final TypeReference importedType = d.getUserData(Keys.TYPE_REFERENCE);
+
+                if (importedType != null) {
+                    put(_imports, importedType.getSimpleName(), d);
+                }
+            }
+        }
+
+        List<ImportDeclaration> getImports(final String name) {
+            return get(_imports, name);
+        }
+    }
+
+    final static class BlockScope extends SymbolTable {
+        private final List<Statement> _statements = new ArrayList<>();
+        private final Map<Statement, Integer> _positions = new IdentityHashMap<>();
+        private final Map<String, List<Integer>> _declarations = new HashMap<>();
+        private final List<Integer> _otherDeclarations = new ArrayList<>();
+
+        private BlockScope(final BlockStatement scope) {
+            for (final Statement s : scope.getStatements()) {
+                final int position = _statements.size();
+
+                _statements.add(s);
+                _positions.put(s, position);
+
+                if (s instanceof VariableDeclarationStatement) {
+                    for (final VariableInitializer v : ((VariableDeclarationStatement) s).getVariables()) {
+                        put(_declarations, v.getName(), position);
+                    }
+                }
+                else if (s instanceof ForEachStatement) {
+                    put(_declarations, ((ForEachStatement) s).getVariableName(), position);
+                }
+                else if (!declaresNothing(s)) {
+                    //
+                    // Local classes (and anything we know nothing about) may answer for any name.
+                    //
+                    _otherDeclarations.add(position);
+                }
+            }
+        }
+
+        private static boolean declaresNothing(final Statement s) {
+            return s instanceof BlockStatement ||
+                   s instanceof ExpressionStatement ||
+                   s instanceof ReturnStatement ||
+                   s instanceof ThrowStatement ||
+                   s instanceof IfElseStatement ||
+                   s instanceof WhileStatement ||
+                   s instanceof DoWhileStatement ||
+                   s instanceof ForStatement ||
+                   s instanceof SwitchStatement ||
+                   s instanceof TryCatchStatement ||
+                   s instanceof SynchronizedStatement ||
+                   s instanceof LabeledStatement ||
+                   s instanceof LabelStatement ||
+                   s instanceof BreakStatement ||
+                   s instanceof ContinueStatement ||
+                   s instanceof GotoStatement ||
+                   s instanceof EmptyStatement ||
+                   s instanceof AssertStatement;
+        }
+
+        /**
+         * Returns the nearest statement before {@code statement} which might declare {@code name}, or
+         * {@code null} if there is none.
+         */
+        Statement getPreviousDeclaration(final Statement statement, final String name) {
+            final Integer position = _positions.get(statement);
+
+            if (position == null) {
+                return statement.getPreviousStatement();
+            }
+
+            final int previous = Math.max(
+                lastBefore(get(_declarations, name), position),
+                lastBefore(_otherDeclarations, position)
+            );
+
+            return previous >= 0 ? _statements.get(previous) : null;
+        }
+
+        private static int lastBefore(final List<Integer> positions, final int position) {
+            final int index = Collections.binarySearch(positions, position);
+            final int insertionPoint = index >= 0 ? index : ~index;
+
+            return insertionPoint > 0 ? positions.get(insertionPoint - 1) : -1;
+        }
+    }
+}
@@ -44,6 +44,7 @@ public class UnaryOperatorExpression extends Expression {
     public final void setOperator(final UnaryOperatorType operator) {
         verifyNotFrozen();
         _operator = operator;
+        invalidateCaches();
     }
 
     public final JavaTokenNode getOperatorToken() {
@@ -26,11 +26,19 @@ import java.util.*;
 
 import static com.strobel.core.CollectionUtilities.*;
 
-public final class BreakTargetRelocation extends ContextTrackingVisitor<Void> {
+public final class BreakTargetRelocation extends ContextTrackingVisitor<Void> implements ITargetedAstTransform {
+    private final static List<Class<? extends AstNode>> TARGET_NODE_TYPES =
+        Collections.<Class<? extends AstNode>>singletonList(GotoStatement.class);
+
     public BreakTargetRelocation(final DecompilerContext context) {
         super(context);
     }
 
+    @Override
+    public Iterable<Class<? extends AstNode>> getTargetNodeTypes() {
+        return TARGET_NODE_TYPES;
+    }
+
     private final static class LabelInfo {
         final String name;
         final List<GotoStatement> gotoStatements = new ArrayList<>();
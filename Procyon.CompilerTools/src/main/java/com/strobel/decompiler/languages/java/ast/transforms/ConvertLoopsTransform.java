@@ -39,9 +39,31 @@ import java.util.*;
 import static com.strobel.core.CollectionUtilities.*;
 import static com.strobel.decompiler.languages.java.analysis.Correlator.areCorrelated;
 
-public final class ConvertLoopsTransform extends ContextTrackingVisitor<AstNode> {
+public final class ConvertLoopsTransform extends ContextTrackingVisitor<AstNode> implements ITargetedAstTransform {
+    private final static List<Class<? extends AstNode>> TARGET_NODE_TYPES =
+        Collections.<Class<? extends AstNode>>singletonList(WhileStatement.class);
+
+    private final JavaResolver _resolver;
+    private final Map<Statement, DefiniteAssignmentAnalysis> _analyses = new IdentityHashMap<>();
+
     public ConvertLoopsTransform(final DecompilerContext context) {
         super(context);
+        _resolver = new JavaResolver(context);
+    }
+
+    @Override
+    public Iterable<Class<? extends AstNode>> getTargetNodeTypes() {
+        return TARGET_NODE_TYPES;
+    }
+
+    @Override
+    public void run(final AstNode compilationUnit) {
+        try {
+            super.run(compilationUnit);
+        }
+        finally {
+            _analyses.clear();
+        }
     }
 
     // <editor-fold defaultstate="collapsed" desc="Visitor Overrides">
@@ -477,7 +499,7 @@ public final class ConvertLoopsTransform extends ContextTrackingVisitor<AstNode>
                     continue;
                 }
 
-                final Statement declarationPoint = canMoveVariableDeclarationIntoStatement(context, declaration, forLoop);
+                final Statement declarationPoint = canMoveVariableDeclarationIntoStatement(declaration, forLoop);
 
                 if (declarationPoint != tempOuter) {
                     variableType = null;
@@ -746,7 +768,7 @@ public final class ConvertLoopsTransform extends ContextTrackingVisitor<AstNode>
         // Now verify that we can move the variable declaration in front of the loop.
         //
 
-        final Statement declarationPoint = canMoveVariableDeclarationIntoStatement(context, itemDeclaration, loop);
+        final Statement declarationPoint = canMoveVariableDeclarationIntoStatement(itemDeclaration, loop);
 
         //
         // We ignore the return value because we don't care whether we can move the variable into the loop
@@ -875,7 +897,7 @@ public final class ConvertLoopsTransform extends ContextTrackingVisitor<AstNode>
                         final VariableDeclarationStatement arrayDeclaration = findVariableDeclaration(forEach, array.getIdentifier());
 
                         if (arrayDeclaration != null && arrayDeclaration.getParent() instanceof BlockStatement) {
-                            final Statement arrayDeclarationPoint = canMoveVariableDeclarationIntoStatement(context, arrayDeclaration, forEach);
+                            final Statement arrayDeclarationPoint = canMoveVariableDeclarationIntoStatement(arrayDeclaration, forEach);
 
                             if (arrayDeclarationPoint == tempOuter) {
                                 initializer.remove();
@@ -1068,7 +1090,7 @@ public final class ConvertLoopsTransform extends ContextTrackingVisitor<AstNode>
         // Now verify that we can move the variable declaration in front of the loop.
         //
 
-        Statement declarationPoint = canMoveVariableDeclarationIntoStatement(context, itemDeclaration, loop);
+        Statement declarationPoint = canMoveVariableDeclarationIntoStatement(itemDeclaration, loop);
 
         //
         // We ignore the return value because we don't care whether we can move the variable into the loop
@@ -1122,7 +1144,7 @@ public final class ConvertLoopsTransform extends ContextTrackingVisitor<AstNode>
         // move the iterator into the foreach loop.
         //
 
-        declarationPoint = canMoveVariableDeclarationIntoStatement(context, iteratorDeclaration, forEach);
+        declarationPoint = canMoveVariableDeclarationIntoStatement(iteratorDeclaration, forEach);
 
         if (declarationPoint != forEach) {
             //
@@ -1426,6 +1448,30 @@ public final class ConvertLoopsTransform extends ContextTrackingVisitor<AstNode>
         return null;
     }
 
+    private Statement canMoveVariableDeclarationIntoStatement(
+        final VariableDeclarationStatement declaration,
+        final Statement targetStatement) {
+
+        if (declaration == null) {
+            return null;
+        }
+
+        //
+        // Loop conversion asks this question many times about the same enclosing block, so reuse
+        // one analysis per block.  The analysis rebuilds its graph if a queried range has been
+        // rewritten since the graph was built.
+        //
+        final Statement parent = (Statement) declaration.getParent();
+
+        DefiniteAssignmentAnalysis analysis = _analyses.get(parent);
+
+        if (analysis == null) {
+            _analyses.put(parent, analysis = new DefiniteAssignmentAnalysis(parent, _resolver));
+        }
+
+        return canMoveVariableDeclarationIntoStatement(analysis, declaration, targetStatement);
+    }
+
     static Statement canMoveVariableDeclarationIntoStatement(
         final DecompilerContext context,
         final VariableDeclarationStatement declaration,
@@ -1435,6 +1481,18 @@ public final class ConvertLoopsTransform extends ContextTrackingVisitor<AstNode>
             return null;
         }
 
+        return canMoveVariableDeclarationIntoStatement(
+            new DefiniteAssignmentAnalysis(context, (Statement) declaration.getParent()),
+            declaration,
+            targetStatement
+        );
+    }
+
+    private static Statement canMoveVariableDeclarationIntoStatement(
+        final DefiniteAssignmentAnalysis analysis,
+        final VariableDeclarationStatement declaration,
+        final Statement targetStatement) {
+
         final BlockStatement parent = (BlockStatement) declaration.getParent();
 
         //noinspection AssertWithSideEffects
@@ -1466,7 +1524,6 @@ public final class ConvertLoopsTransform extends ContextTrackingVisitor<AstNode>
         Collections.reverse(blocks);
 
         final StrongBox<Statement> declarationPoint = new StrongBox<>();
-        final DefiniteAssignmentAnalysis analysis = new DefiniteAssignmentAnalysis(context, blocks.get(0));
 
         Statement result = null;
 
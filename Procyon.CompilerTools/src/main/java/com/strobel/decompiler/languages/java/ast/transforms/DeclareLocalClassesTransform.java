@@ -51,12 +51,10 @@ public class DeclareLocalClassesTransform implements IAstTransform {
             return;
         }
 
-        run(node, null);
+        runCore(node);
     }
 
-    private void run(final AstNode node, final DefiniteAssignmentAnalysis daa) {
-        DefiniteAssignmentAnalysis analysis = daa;
-
+    private void runCore(final AstNode node) {
         if (node instanceof MethodDeclaration) {
             final MethodDeclaration method = (MethodDeclaration) node;
             final List<TypeDeclaration> localTypes = new ArrayList<>();
@@ -73,10 +71,6 @@ public class DeclareLocalClassesTransform implements IAstTransform {
                     localType.remove();
                 }
 
-                if (analysis == null) {
-                    analysis = new DefiniteAssignmentAnalysis(method.getBody(), new JavaResolver(context));
-                }
-
                 boolean madeProgress;
 
                 final Set<TypeToDeclare> typesToDeclare = new LinkedHashSet<>();
@@ -173,7 +167,7 @@ public class DeclareLocalClassesTransform implements IAstTransform {
                 }
             }
             else {
-                run(child, analysis);
+                runCore(child);
             }
         }
     }
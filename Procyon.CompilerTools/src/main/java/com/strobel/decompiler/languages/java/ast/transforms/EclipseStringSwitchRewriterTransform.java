@@ -29,15 +29,24 @@ import com.strobel.decompiler.patterns.Repeat;
 import com.strobel.decompiler.patterns.SingleOrBinaryAggregateNode;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import static com.strobel.core.CollectionUtilities.*;
 
-public class EclipseStringSwitchRewriterTransform extends ContextTrackingVisitor<Void> {
+public class EclipseStringSwitchRewriterTransform extends ContextTrackingVisitor<Void> implements ITargetedAstTransform {
+    private final static List<Class<? extends AstNode>> TARGET_NODE_TYPES =
+        Collections.<Class<? extends AstNode>>singletonList(SwitchStatement.class);
+
     public EclipseStringSwitchRewriterTransform(final DecompilerContext context) {
         super(context);
     }
 
+    @Override
+    public Iterable<Class<? extends AstNode>> getTargetNodeTypes() {
+        return TARGET_NODE_TYPES;
+    }
+
     // <editor-fold defaultstate="collapsed" desc="Patterns">
 
     private final static Pattern HASH_CODE_PATTERN;
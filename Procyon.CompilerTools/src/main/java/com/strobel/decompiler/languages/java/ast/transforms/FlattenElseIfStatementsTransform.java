@@ -19,11 +19,22 @@ package com.strobel.decompiler.languages.java.ast.transforms;
 import com.strobel.decompiler.DecompilerContext;
 import com.strobel.decompiler.languages.java.ast.*;
 
-public class FlattenElseIfStatementsTransform extends ContextTrackingVisitor<Void> {
+import java.util.Collections;
+import java.util.List;
+
+public class FlattenElseIfStatementsTransform extends ContextTrackingVisitor<Void> implements ITargetedAstTransform {
+    private final static List<Class<? extends AstNode>> TARGET_NODE_TYPES =
+        Collections.<Class<? extends AstNode>>singletonList(IfElseStatement.class);
+
     public FlattenElseIfStatementsTransform(final DecompilerContext context) {
         super(context);
     }
 
+    @Override
+    public Iterable<Class<? extends AstNode>> getTargetNodeTypes() {
+        return TARGET_NODE_TYPES;
+    }
+
     @Override
     public Void visitIfElseStatement(final IfElseStatement node, final Void data) {
         super.visitIfElseStatement(node, data);
@@ -24,14 +24,25 @@ import com.strobel.decompiler.languages.java.ast.Statement;
 import com.strobel.decompiler.languages.java.ast.SwitchSection;
 import com.strobel.decompiler.languages.java.ast.VariableDeclarationStatement;
 
+import java.util.Collections;
+import java.util.List;
+
 import static com.strobel.core.CollectionUtilities.any;
 import static com.strobel.core.CollectionUtilities.ofType;
 
-public class FlattenSwitchBlocksTransform extends ContextTrackingVisitor<AstNode> implements IAstTransform {
+public class FlattenSwitchBlocksTransform extends ContextTrackingVisitor<AstNode> implements ITargetedAstTransform {
+    private final static List<Class<? extends AstNode>> TARGET_NODE_TYPES =
+        Collections.<Class<? extends AstNode>>singletonList(SwitchSection.class);
+
     public FlattenSwitchBlocksTransform(final DecompilerContext context) {
         super(context);
     }
 
+    @Override
+    public Iterable<Class<? extends AstNode>> getTargetNodeTypes() {
+        return TARGET_NODE_TYPES;
+    }
+
     @Override
     public void run(final AstNode compilationUnit) {
         if (context.getSettings().getFlattenSwitchBlocks()) {
@@ -0,0 +1,22 @@
+/*
+ * ITargetedAstTransform.java
+ *
+ * This source code is subject to terms and conditions of the Apache License, Version 2.0.
+ * A copy of the license can be found in the License.html file at the root of this distribution.
+ * By using this source code in any fashion, you are agreeing to be bound by the terms of the
+ * Apache License, Version 2.0.
+ *
+ * You must not remove this notice, or any other, from this software.
+ */
+
+package com.strobel.decompiler.languages.java.ast.transforms;
+
+import com.strobel.decompiler.languages.java.ast.AstNode;
+
+/**
+ * A transform which can only change a compilation unit containing at least one node of one of its
+ * target types.  The {@link TransformationPipeline} skips it when the unit contains no such nodes.
+ */
+public interface ITargetedAstTransform extends IAstTransform {
+    Iterable<Class<? extends AstNode>> getTargetNodeTypes();
+}
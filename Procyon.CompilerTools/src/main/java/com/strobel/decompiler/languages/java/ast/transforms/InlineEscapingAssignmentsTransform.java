@@ -20,13 +20,24 @@ import com.strobel.decompiler.DecompilerContext;
 import com.strobel.decompiler.ast.Variable;
 import com.strobel.decompiler.languages.java.ast.*;
 
+import java.util.Arrays;
+import java.util.List;
+
 import static com.strobel.decompiler.patterns.Pattern.matchString;
 
-public class InlineEscapingAssignmentsTransform extends ContextTrackingVisitor<Void> {
+public class InlineEscapingAssignmentsTransform extends ContextTrackingVisitor<Void> implements ITargetedAstTransform {
+    private final static List<Class<? extends AstNode>> TARGET_NODE_TYPES =
+        Arrays.<Class<? extends AstNode>>asList(ReturnStatement.class, ThrowStatement.class);
+
     public InlineEscapingAssignmentsTransform(final DecompilerContext context) {
         super(context);
     }
 
+    @Override
+    public Iterable<Class<? extends AstNode>> getTargetNodeTypes() {
+        return TARGET_NODE_TYPES;
+    }
+
     @Override
     public Void visitReturnStatement(final ReturnStatement node, final Void data) {
         super.visitReturnStatement(node, data);
@@ -28,11 +28,15 @@ import com.strobel.decompiler.patterns.TypedExpression;
 import com.strobel.decompiler.semantics.ResolveResult;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import static com.strobel.core.CollectionUtilities.firstOrDefault;
 
-public class IntroduceStringConcatenationTransform extends ContextTrackingVisitor<Void> {
+public class IntroduceStringConcatenationTransform extends ContextTrackingVisitor<Void> implements ITargetedAstTransform {
+    private final static List<Class<? extends AstNode>> TARGET_NODE_TYPES =
+        Collections.<Class<? extends AstNode>>singletonList(ObjectCreationExpression.class);
+
     private final INode _stringBuilderArgumentPattern;
 
     public IntroduceStringConcatenationTransform(final DecompilerContext context) {
@@ -47,6 +51,11 @@ public class IntroduceStringConcatenationTransform extends ContextTrackingVisito
         );
     }
 
+    @Override
+    public Iterable<Class<? extends AstNode>> getTargetNodeTypes() {
+        return TARGET_NODE_TYPES;
+    }
+
     @Override
     public Void visitObjectCreationExpression(final ObjectCreationExpression node, final Void data) {
         final AstNodeCollection<Expression> arguments = node.getArguments();
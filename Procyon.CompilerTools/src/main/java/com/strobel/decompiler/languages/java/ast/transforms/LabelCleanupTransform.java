@@ -20,11 +20,22 @@ import com.strobel.core.StringUtilities;
 import com.strobel.decompiler.DecompilerContext;
 import com.strobel.decompiler.languages.java.ast.*;
 
-public class LabelCleanupTransform extends ContextTrackingVisitor<Void> {
+import java.util.Arrays;
+import java.util.List;
+
+public class LabelCleanupTransform extends ContextTrackingVisitor<Void> implements ITargetedAstTransform {
+    private final static List<Class<? extends AstNode>> TARGET_NODE_TYPES =
+        Arrays.<Class<? extends AstNode>>asList(LabelStatement.class, LabeledStatement.class);
+
     public LabelCleanupTransform(final DecompilerContext context) {
         super(context);
     }
 
+    @Override
+    public Iterable<Class<? extends AstNode>> getTargetNodeTypes() {
+        return TARGET_NODE_TYPES;
+    }
+
     @Override
     public Void visitLabeledStatement(final LabeledStatement node, final Void data) {
         super.visitLabeledStatement(node, data);
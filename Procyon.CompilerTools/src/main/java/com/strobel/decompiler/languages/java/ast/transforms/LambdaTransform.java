@@ -21,11 +21,15 @@ import com.strobel.core.Predicates;
 import com.strobel.decompiler.DecompilerContext;
 import com.strobel.decompiler.languages.java.ast.*;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-public class LambdaTransform extends ContextTrackingVisitor<Void> {
+public class LambdaTransform extends ContextTrackingVisitor<Void> implements ITargetedAstTransform {
+    private final static List<Class<? extends AstNode>> TARGET_NODE_TYPES =
+        Collections.<Class<? extends AstNode>>singletonList(MethodGroupExpression.class);
+
     private final Map<String, MethodDeclaration> _methodDeclarations;
 
     public LambdaTransform(final DecompilerContext context) {
@@ -33,6 +37,11 @@ public class LambdaTransform extends ContextTrackingVisitor<Void> {
         _methodDeclarations = new HashMap<>();
     }
 
+    @Override
+    public Iterable<Class<? extends AstNode>> getTargetNodeTypes() {
+        return TARGET_NODE_TYPES;
+    }
+
     @Override
     public void run(final AstNode compilationUnit) {
         compilationUnit.acceptVisitor(
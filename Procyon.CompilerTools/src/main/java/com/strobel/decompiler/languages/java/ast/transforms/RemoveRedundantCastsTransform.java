@@ -25,9 +25,13 @@ import com.strobel.decompiler.languages.java.ast.JavaResolver;
 import com.strobel.decompiler.languages.java.ast.ParenthesizedExpression;
 import com.strobel.decompiler.languages.java.utilities.RedundantCastUtility;
 
+import java.util.Collections;
 import java.util.List;
 
-public class RemoveRedundantCastsTransform extends ContextTrackingVisitor<Void> {
+public class RemoveRedundantCastsTransform extends ContextTrackingVisitor<Void> implements ITargetedAstTransform {
+    private final static List<Class<? extends AstNode>> TARGET_NODE_TYPES =
+        Collections.<Class<? extends AstNode>>singletonList(CastExpression.class);
+
     private final JavaResolver _resolver;
 
     public RemoveRedundantCastsTransform(final DecompilerContext context) {
@@ -35,6 +39,11 @@ public class RemoveRedundantCastsTransform extends ContextTrackingVisitor<Void>
         _resolver = new JavaResolver(context);
     }
 
+    @Override
+    public Iterable<Class<? extends AstNode>> getTargetNodeTypes() {
+        return TARGET_NODE_TYPES;
+    }
+
     @Override
     public void run(final AstNode compilationUnit) {
         if (context.getSettings().getRetainRedundantCasts()) {
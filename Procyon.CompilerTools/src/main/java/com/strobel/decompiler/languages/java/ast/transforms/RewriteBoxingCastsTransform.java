@@ -11,9 +11,13 @@ import com.strobel.decompiler.semantics.ResolveResult;
 
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
-public class RewriteBoxingCastsTransform extends ContextTrackingVisitor<Void> {
+public class RewriteBoxingCastsTransform extends ContextTrackingVisitor<Void> implements ITargetedAstTransform {
+    private final static List<Class<? extends AstNode>> TARGET_NODE_TYPES =
+        Collections.<Class<? extends AstNode>>singletonList(CastExpression.class);
+
     private static final Map<String, MethodReference> BOX_METHODS;
 
     static {
@@ -57,6 +61,11 @@ public class RewriteBoxingCastsTransform extends ContextTrackingVisitor<Void> {
         _resolver = new JavaResolver(context);
     }
 
+    @Override
+    public Iterable<Class<? extends AstNode>> getTargetNodeTypes() {
+        return TARGET_NODE_TYPES;
+    }
+
     @Override
     public void run(final AstNode compilationUnit) {
         if (context.getCurrentType().getCompilerTarget().boxWithConstructors()) {
@@ -29,13 +29,24 @@ import com.strobel.decompiler.patterns.NamedNode;
 import com.strobel.decompiler.patterns.OptionalNode;
 import com.strobel.decompiler.patterns.Pattern;
 
+import java.util.Collections;
+import java.util.List;
+
 import static com.strobel.core.CollectionUtilities.first;
 
-public class RewriteNewArrayLambdas extends ContextTrackingVisitor<Void> {
+public class RewriteNewArrayLambdas extends ContextTrackingVisitor<Void> implements ITargetedAstTransform {
+    private final static List<Class<? extends AstNode>> TARGET_NODE_TYPES =
+        Collections.<Class<? extends AstNode>>singletonList(LambdaExpression.class);
+
     protected RewriteNewArrayLambdas(final DecompilerContext context) {
         super(context);
     }
 
+    @Override
+    public Iterable<Class<? extends AstNode>> getTargetNodeTypes() {
+        return TARGET_NODE_TYPES;
+    }
+
     @Override
     public Void visitLambdaExpression(final LambdaExpression node, final Void data) {
         super.visitLambdaExpression(node, data);
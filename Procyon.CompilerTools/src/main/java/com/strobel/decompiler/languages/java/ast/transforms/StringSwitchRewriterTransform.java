@@ -31,17 +31,26 @@ import com.strobel.decompiler.patterns.Pattern;
 import com.strobel.decompiler.patterns.Repeat;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 import static com.strobel.core.CollectionUtilities.*;
 
-public class StringSwitchRewriterTransform extends ContextTrackingVisitor<Void> {
+public class StringSwitchRewriterTransform extends ContextTrackingVisitor<Void> implements ITargetedAstTransform {
+    private final static List<Class<? extends AstNode>> TARGET_NODE_TYPES =
+        Collections.<Class<? extends AstNode>>singletonList(SwitchStatement.class);
+
     public StringSwitchRewriterTransform(final DecompilerContext context) {
         super(context);
     }
 
+    @Override
+    public Iterable<Class<? extends AstNode>> getTargetNodeTypes() {
+        return TARGET_NODE_TYPES;
+    }
+
     // <editor-fold defaultstate="collapsed" desc="Patterns">
 
     private final static VariableDeclarationStatement TABLE_SWITCH_INPUT;
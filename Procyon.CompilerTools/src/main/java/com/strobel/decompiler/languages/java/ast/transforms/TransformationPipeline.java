@@ -18,7 +18,11 @@ package com.strobel.decompiler.languages.java.ast.transforms;
 
 import com.strobel.core.Predicate;
 import com.strobel.decompiler.DecompilerContext;
+import com.strobel.decompiler.DecompilerPhase;
+import com.strobel.decompiler.PhaseTimer;
 import com.strobel.decompiler.languages.java.ast.AstNode;
+import com.strobel.decompiler.languages.java.ast.AstNodeIndex;
+import com.strobel.decompiler.languages.java.ast.CompilationUnit;
 
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -84,16 +88,53 @@ public final class TransformationPipeline {
             return;
         }
 
-        for (final IAstTransform transform : createPipeline(context)) {
-            if (abortCondition != null && abortCondition.test(transform)) {
-                return;
-            }
+        final PhaseTimer timer = PhaseTimer.start(context);
 
-            if (LOG.isLoggable(Level.FINE)) {
-                LOG.fine("Running Java AST transform: " + transform.getClass().getSimpleName() + "...");
-            }
+        //
+        // Index the compilation unit's nodes by type so transforms with nothing to rewrite can be
+        // skipped without walking the tree.  The index is maintained by AstNode as transforms run.
+        //
+        final CompilationUnit compilationUnit = node instanceof CompilationUnit ? (CompilationUnit) node : null;
+        final AstNodeIndex index = compilationUnit != null && compilationUnit.getNodeIndex() == null
+                                   ? compilationUnit.enableNodeIndex()
+                                   : null;
+
+        try {
+            for (final IAstTransform transform : createPipeline(context)) {
+                if (abortCondition != null && abortCondition.test(transform)) {
+                    return;
+                }
+
+                if (index != null &&
+                    transform instanceof ITargetedAstTransform &&
+                    !index.containsAny(((ITargetedAstTransform) transform).getTargetNodeTypes())) {
+
+                    if (LOG.isLoggable(Level.FINE)) {
+                        LOG.fine("Skipping Java AST transform: " + transform.getClass().getSimpleName() + "...");
+                    }
+
+                    if (timer != null) {
+                        timer.reset();
+                    }
 
-            transform.run(node);
+                    continue;
+                }
+
+                if (LOG.isLoggable(Level.FINE)) {
+                    LOG.fine("Running Java AST transform: " + transform.getClass().getSimpleName() + "...");
+                }
+
+                transform.run(node);
+
+                if (timer != null) {
+                    timer.stop(DecompilerPhase.AstTransform, transform.getClass().getSimpleName(), context);
+                }
+            }
+        }
+        finally {
+            if (index != null) {
+                compilationUnit.disableNodeIndex();
+            }
         }
     }
 }
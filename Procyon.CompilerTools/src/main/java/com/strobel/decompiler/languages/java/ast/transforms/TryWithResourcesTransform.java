@@ -28,12 +28,16 @@ import com.strobel.decompiler.semantics.ResolveResult;
 
 import javax.lang.model.element.Modifier;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import static com.strobel.core.CollectionUtilities.*;
 import static com.strobel.decompiler.languages.java.ast.transforms.ConvertLoopsTransform.*;
 
-public class TryWithResourcesTransform extends ContextTrackingVisitor<Void> {
+public class TryWithResourcesTransform extends ContextTrackingVisitor<Void> implements ITargetedAstTransform {
+    private final static List<Class<? extends AstNode>> TARGET_NODE_TYPES =
+        Collections.<Class<? extends AstNode>>singletonList(TryCatchStatement.class);
+
     private final static INode RESOURCE_INIT_PATTERN;
     private final static INode CLEAR_SAVED_EXCEPTION_PATTERN;
 
@@ -162,6 +166,11 @@ public class TryWithResourcesTransform extends ContextTrackingVisitor<Void> {
         _tryPattern = tryPattern;
     }
 
+    @Override
+    public Iterable<Class<? extends AstNode>> getTargetNodeTypes() {
+        return TARGET_NODE_TYPES;
+    }
+
     @Override
     public void run(final AstNode compilationUnit) {
         if (_tryPattern == null) {
@@ -0,0 +1,126 @@
+package com.strobel.assembler.flowanalysis;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ControlFlowGraphTests {
+    @Test
+    public void testDominanceOfLoopWithDiamond() throws Throwable {
+        //
+        // entry -> 3 -> 4 -> { 5, 6 } -> 7 -> { 4, regular exit }
+        //
+        final List<ControlFlowNode> nodes = createNodes(8);
+
+        edge(nodes, 0, 3);
+        edge(nodes, 3, 4);
+        edge(nodes, 4, 5);
+        edge(nodes, 4, 6);
+        edge(nodes, 5, 7);
+        edge(nodes, 6, 7);
+        edge(nodes, 7, 4);
+        edge(nodes, 7, 1);
+
+        final ControlFlowGraph graph = createGraph(nodes);
+
+        graph.computeDominance();
+        graph.computeDominanceFrontier();
+
+        assertNull(nodes.get(0).getImmediateDominator());
+        assertSame(nodes.get(7), nodes.get(1).getImmediateDominator());
+        assertSame(nodes.get(4), nodes.get(5).getImmediateDominator());
+        assertSame(nodes.get(4), nodes.get(6).getImmediateDominator());
+        assertSame(nodes.get(4), nodes.get(7).getImmediateDominator());
+
+        assertFalse(nodes.get(2).isReachable());
+        assertEquals(Arrays.asList(nodes.get(5), nodes.get(6), nodes.get(7)), nodes.get(4).getDominatorTreeChildren());
+
+        assertEquals(Collections.singleton(nodes.get(7)), nodes.get(5).getDominanceFrontier());
+        assertEquals(Collections.singleton(nodes.get(4)), nodes.get(7).getDominanceFrontier());
+        assertEquals(Collections.singleton(nodes.get(4)), nodes.get(4).getDominanceFrontier());
+        assertTrue(nodes.get(3).getDominanceFrontier().isEmpty());
+
+        assertTrue(nodes.get(4).dominates(nodes.get(1)));
+        assertTrue(nodes.get(4).dominates(nodes.get(4)));
+        assertFalse(nodes.get(5).dominates(nodes.get(7)));
+        assertFalse(nodes.get(7).dominates(nodes.get(4)));
+        assertFalse(nodes.get(0).dominates(nodes.get(2)));
+    }
+
+    @Test
+    public void testDominanceOfVeryLargeGraph() throws Throwable {
+        //
+        // A long chain of if/else diamonds inside one loop; deep enough to overflow the stack of a
+        // recursive traversal.
+        //
+        final int diamonds = 50000;
+        final List<ControlFlowNode> nodes = createNodes(3 + 1 + 3 * diamonds);
+        final int head = 3;
+
+        edge(nodes, 0, head);
+
+        int previous = head;
+
+        for (int i = 0; i < diamonds; i++) {
+            final int left = 4 + 3 * i;
+            final int right = left + 1;
+            final int join = left + 2;
+
+            edge(nodes, previous, left);
+            edge(nodes, previous, right);
+            edge(nodes, left, join);
+            edge(nodes, right, join);
+
+            previous = join;
+        }
+
+        edge(nodes, previous, head);
+        edge(nodes, previous, 1);
+
+        final ControlFlowGraph graph = createGraph(nodes);
+
+        graph.computeDominance();
+        graph.computeDominanceFrontier();
+
+        final ControlFlowNode last = nodes.get(previous);
+
+        assertSame(last, nodes.get(1).getImmediateDominator());
+        assertSame(nodes.get(previous - 3), last.getImmediateDominator());
+        assertTrue(nodes.get(head).dominates(last));
+        assertTrue(nodes.get(4 + 3 * 100 + 2).dominates(last));
+        assertFalse(nodes.get(4 + 3 * 100).dominates(last));
+        assertEquals(new HashSet<>(Collections.singletonList(nodes.get(head))), last.getDominanceFrontier());
+        assertTrue(nodes.get(head + 1).getDominanceFrontier().contains(nodes.get(head + 3)));
+    }
+
+    private static List<ControlFlowNode> createNodes(final int count) {
+        final List<ControlFlowNode> nodes = new ArrayList<>(count);
+
+        nodes.add(new ControlFlowNode(0, 0, ControlFlowNodeType.EntryPoint));
+        nodes.add(new ControlFlowNode(1, -1, ControlFlowNodeType.RegularExit));
+        nodes.add(new ControlFlowNode(2, -1, ControlFlowNodeType.ExceptionalExit));
+
+        for (int i = 3; i < count; i++) {
+            nodes.add(new ControlFlowNode(i, i, ControlFlowNodeType.Normal));
+        }
+
+        return nodes;
+    }
+
+    private static ControlFlowGraph createGraph(final List<ControlFlowNode> nodes) {
+        return new ControlFlowGraph(nodes.toArray(new ControlFlowNode[nodes.size()]));
+    }
+
+    private static void edge(final List<ControlFlowNode> nodes, final int source, final int target) {
+        final ControlFlowEdge edge = new ControlFlowEdge(nodes.get(source), nodes.get(target), JumpType.Normal);
+
+        nodes.get(source).getOutgoing().add(edge);
+        nodes.get(target).getIncoming().add(edge);
+    }
+}
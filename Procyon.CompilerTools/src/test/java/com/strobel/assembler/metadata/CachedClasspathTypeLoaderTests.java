@@ -0,0 +1,152 @@
+package com.strobel.assembler.metadata;
+
+import com.strobel.core.StringUtilities;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+
+import static org.junit.Assert.*;
+
+public class CachedClasspathTypeLoaderTests {
+    private final static String[] TYPE_NAMES = {
+        "java/util/ArrayList",
+        "com/strobel/assembler/metadata/CachedClasspathTypeLoader"
+    };
+
+    @Test
+    public void testArchivesAreCachedAndReused() throws Throwable {
+        final File directory = Files.createTempDirectory("procyon").toFile();
+        final File cacheDirectory = new File(directory, "cache");
+        final File archive = new File(directory, "library.jar");
+
+        try {
+            writeJar(archive, TYPE_NAMES);
+
+            assertLoadsAllTypes(new CachedClasspathTypeLoader(cacheDirectory, archive.getPath()));
+
+            final File[] cachedArchives = cacheDirectory.listFiles();
+
+            assertNotNull(cachedArchives);
+            assertEquals(1, cachedArchives.length);
+
+            final long lastModified = cachedArchives[0].lastModified();
+
+            assertLoadsAllTypes(new CachedClasspathTypeLoader(cacheDirectory, archive.getPath()));
+            assertArrayEquals(cachedArchives, cacheDirectory.listFiles());
+            assertEquals(lastModified, cachedArchives[0].lastModified());
+
+            //
+            // Copies are keyed by content, so touching the archive must not invalidate its copy...
+            //
+
+            assertTrue(archive.setLastModified(archive.lastModified() - 60000L));
+            assertLoadsAllTypes(new CachedClasspathTypeLoader(cacheDirectory, archive.getPath()));
+            assertArrayEquals(cachedArchives, cacheDirectory.listFiles());
+
+            //
+            // ...but changing it must replace the copy, and the stale copy must be deleted.
+            //
+
+            writeJar(archive, TYPE_NAMES[0]);
+
+            final ITypeLoader typeLoader = new CachedClasspathTypeLoader(cacheDirectory, archive.getPath());
+
+            assertTrue(typeLoader.tryLoadType(TYPE_NAMES[0], new Buffer()));
+            assertFalse(typeLoader.tryLoadType(TYPE_NAMES[1], new Buffer()));
+
+            final File[] replacedArchives = cacheDirectory.listFiles();
+
+            assertNotNull(replacedArchives);
+            assertEquals(1, replacedArchives.length);
+            assertFalse(replacedArchives[0].equals(cachedArchives[0]));
+        }
+        finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void testRuntimeImageModulesAreCached() throws Throwable {
+        Assume.assumeTrue(StringUtilities.isNullOrEmpty(System.getProperty("sun.boot.class.path")));
+
+        final File cacheDirectory = Files.createTempDirectory("procyon").toFile();
+
+        try {
+            final ITypeLoader typeLoader = new CachedClasspathTypeLoader(cacheDirectory);
+            final Buffer expected = new Buffer();
+            final Buffer actual = new Buffer();
+
+            assertTrue(new ClasspathTypeLoader().tryLoadType("java/lang/Object", expected));
+            assertTrue(typeLoader.tryLoadType("java/lang/Object", actual));
+
+            assertArrayEquals(
+                Arrays.copyOf(expected.array(), expected.size()),
+                Arrays.copyOf(actual.array(), actual.size())
+            );
+
+            final File[] cachedArchives = cacheDirectory.listFiles();
+
+            assertNotNull(cachedArchives);
+            assertEquals(1, cachedArchives.length);
+            assertTrue(cachedArchives[0].getName().startsWith("jrt-java.base-"));
+        }
+        finally {
+            delete(cacheDirectory);
+        }
+    }
+
+    private static void assertLoadsAllTypes(final ITypeLoader typeLoader) {
+        final ITypeLoader classpathLoader = new ClasspathTypeLoader();
+
+        for (final String typeName : TYPE_NAMES) {
+            final Buffer expected = new Buffer();
+            final Buffer actual = new Buffer();
+
+            assertTrue(classpathLoader.tryLoadType(typeName, expected));
+            assertTrue(typeLoader.tryLoadType(typeName, actual));
+
+            assertArrayEquals(
+                Arrays.copyOf(expected.array(), expected.size()),
+                Arrays.copyOf(actual.array(), actual.size())
+            );
+        }
+
+        assertFalse(typeLoader.tryLoadType("java/lang/Object", new Buffer()));
+    }
+
+    private static void writeJar(final File file, final String... typeNames) throws Throwable {
+        final ITypeLoader classpathLoader = new ClasspathTypeLoader();
+
+        try (final JarOutputStream out = new JarOutputStream(new FileOutputStream(file))) {
+            for (final String typeName : typeNames) {
+                final Buffer buffer = new Buffer();
+
+                assertTrue(classpathLoader.tryLoadType(typeName, buffer));
+
+                out.putNextEntry(new ZipEntry(typeName + ".class"));
+                out.write(buffer.array(), 0, buffer.size());
+                out.closeEntry();
+            }
+        }
+    }
+
+    private static void delete(final File file) {
+        final File[] children = file.listFiles();
+
+        if (children != null) {
+            for (final File child : children) {
+                delete(child);
+            }
+        }
+
+        if (!file.delete()) {
+            file.deleteOnExit();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.strobel.assembler.metadata;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ClassFileReaderTests {
+    @Test
+    public void testReadInternalNameMatchesFullRead() throws Throwable {
+        final ITypeLoader typeLoader = new ClasspathTypeLoader();
+
+        final String[] typeNames = {
+            "java/lang/Object",
+            "java/lang/Math",
+            "java/lang/Double",
+            "java/util/HashMap$Node",
+            "java/util/concurrent/ConcurrentHashMap",
+            "com/strobel/assembler/metadata/ClassFileReaderTests$Constants"
+        };
+
+        for (final String typeName : typeNames) {
+            final Buffer buffer = new Buffer();
+
+            assertTrue(typeLoader.tryLoadType(typeName, buffer));
+            assertEquals(typeName, ClassFileReader.readInternalName(buffer));
+            assertEquals(0, buffer.position());
+
+            final TypeDefinition type = ClassFileReader.readClass(MetadataSystem.instance(), buffer);
+
+            assertEquals(typeName, type.getInternalName());
+        }
+    }
+
+    @Test
+    public void testReadInternalNameRejectsNonClassFiles() throws Throwable {
+        final Buffer buffer = new Buffer(new byte[] { 'P', 'K', 3, 4, 0, 0, 0, 0 });
+
+        assertNull(ClassFileReader.readInternalName(buffer));
+        assertEquals(0, buffer.position());
+    }
+
+    @Test
+    public void testLazyMembersMatchEagerRead() throws Throwable {
+        final ITypeLoader typeLoader = new ClasspathTypeLoader();
+
+        final String[] typeNames = {
+            "java/util/HashMap",
+            "java/util/concurrent/ConcurrentHashMap",
+            "java/util/HashMap$Node",
+            "com/strobel/assembler/metadata/ClassFileReaderTests$Constants"
+        };
+
+        for (final String typeName : typeNames) {
+            final Buffer eagerBuffer = new Buffer();
+            final Buffer lazyBuffer = new Buffer();
+
+            assertTrue(typeLoader.tryLoadType(typeName, eagerBuffer));
+            assertTrue(typeLoader.tryLoadType(typeName, lazyBuffer));
+
+            final TypeDefinition eagerType = ClassFileReader.readClass(MetadataSystem.instance(), eagerBuffer);
+
+            final TypeDefinition lazyType = ClassFileReader.readClass(
+                ClassFileReader.OPTIONS_DEFAULT | ClassFileReader.OPTION_LAZY_MEMBERS,
+                MetadataSystem.instance(),
+                lazyBuffer
+            );
+
+            assertEquals(eagerType.getFlags(), lazyType.getFlags());
+            assertEquals(describeMembers(eagerType), describeMembers(lazyType));
+        }
+    }
+
+    private static List<String> describeMembers(final TypeDefinition type) {
+        final List<String> members = new ArrayList<>();
+
+        for (final FieldDefinition field : type.getDeclaredFields()) {
+            members.add(field.getFlags() + " " + field.getName() + " " + field.getSignature() + " " + field.getConstantValue());
+        }
+
+        for (final MethodDefinition method : type.getDeclaredMethods()) {
+            members.add(method.getFlags() + " " + method.getName() + " " + method.getSignature());
+        }
+
+        for (final TypeDefinition nestedType : type.getDeclaredTypes()) {
+            members.add(nestedType.getInternalName());
+        }
+
+        return members;
+    }
+
+    @SuppressWarnings("unused")
+    private static final class Constants {
+        static long LONG_VALUE = 0x123456789ABCDEFL;
+        static double DOUBLE_VALUE = Math.PI * 1e10;
+        static String STRING_VALUE = "été";
+    }
+}
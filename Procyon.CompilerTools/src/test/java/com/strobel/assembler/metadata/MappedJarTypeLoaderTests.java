@@ -0,0 +1,92 @@
+package com.strobel.assembler.metadata;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.Arrays;
+import java.util.jar.JarOutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+
+import static org.junit.Assert.*;
+
+public class MappedJarTypeLoaderTests {
+    private final static String[] TYPE_NAMES = {
+        "java/lang/Object",
+        "java/util/HashMap",
+        "com/strobel/assembler/metadata/MappedJarTypeLoader",
+        "com/strobel/assembler/metadata/MappedJarTypeLoaderTests"
+    };
+
+    @Test
+    public void testLoadsStoredAndDeflatedEntries() throws Throwable {
+        final File file = File.createTempFile("procyon", ".jar");
+
+        try {
+            writeJar(file);
+
+            final ITypeLoader classpathLoader = new ClasspathTypeLoader();
+            final MappedJarTypeLoader jarLoader = new MappedJarTypeLoader(file);
+
+            for (final String typeName : TYPE_NAMES) {
+                final Buffer expected = new Buffer();
+                final Buffer actual = new Buffer();
+
+                assertTrue(classpathLoader.tryLoadType(typeName, expected));
+                assertTrue(jarLoader.tryLoadType(typeName, actual));
+
+                assertEquals(expected.size(), actual.size());
+                assertEquals(0, actual.position());
+                assertArrayEquals(
+                    Arrays.copyOf(expected.array(), expected.size()),
+                    Arrays.copyOf(actual.array(), actual.size())
+                );
+
+                final TypeDefinition type = ClassFileReader.readClass(MetadataSystem.instance(), actual);
+
+                assertEquals(typeName, type.getInternalName());
+            }
+
+            assertFalse(jarLoader.tryLoadType("java/lang/String", new Buffer()));
+
+            jarLoader.close();
+
+            assertFalse(jarLoader.tryLoadType(TYPE_NAMES[0], new Buffer()));
+        }
+        finally {
+            if (!file.delete()) {
+                file.deleteOnExit();
+            }
+        }
+    }
+
+    private static void writeJar(final File file) throws Throwable {
+        final ITypeLoader classpathLoader = new ClasspathTypeLoader();
+
+        try (final JarOutputStream out = new JarOutputStream(new FileOutputStream(file))) {
+            for (int i = 0; i < TYPE_NAMES.length; i++) {
+                final Buffer buffer = new Buffer();
+
+                assertTrue(classpathLoader.tryLoadType(TYPE_NAMES[i], buffer));
+
+                final ZipEntry entry = new ZipEntry(TYPE_NAMES[i] + ".class");
+
+                if (i % 2 == 0) {
+                    final CRC32 crc = new CRC32();
+
+                    crc.update(buffer.array(), 0, buffer.size());
+
+                    entry.setMethod(ZipEntry.STORED);
+                    entry.setSize(buffer.size());
+                    entry.setCompressedSize(buffer.size());
+                    entry.setCrc(crc.getValue());
+                }
+
+                out.putNextEntry(entry);
+                out.write(buffer.array(), 0, buffer.size());
+                out.closeEntry();
+            }
+        }
+    }
+}
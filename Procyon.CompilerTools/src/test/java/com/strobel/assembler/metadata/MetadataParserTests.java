@@ -41,4 +41,26 @@ public class MetadataParserTests {
 
         assertNotNull(method2);
     }
+
+    @Test
+    public void testSharedSignatureReifiedPerGenericContext() throws Throwable {
+        final MetadataSystem metadataSystem = MetadataSystem.instance();
+        final TypeDefinition listType = metadataSystem.lookupType("java/util/List").resolve();
+        final TypeDefinition setType = metadataSystem.lookupType("java/util/Set").resolve();
+        final String signature = "(TE;)TE;";
+
+        final MetadataParser listParser = new MetadataParser(metadataSystem);
+        final MetadataParser setParser = new MetadataParser(metadataSystem);
+
+        listParser.pushGenericContext(listType);
+        setParser.pushGenericContext(setType);
+
+        final TypeReference listReturnType = listParser.parseMethodSignature(signature).getReturnType();
+        final TypeReference setReturnType = setParser.parseMethodSignature(signature).getReturnType();
+
+        assertSame(listType.getGenericParameters().get(0), listReturnType);
+        assertSame(setType.getGenericParameters().get(0), setReturnType);
+        assertSame(setType.getGenericParameters().get(0), setParser.parseTypeSignature("TE;"));
+        assertSame(listType.getGenericParameters().get(0), listParser.parseTypeSignature("TE;"));
+    }
 }
@@ -0,0 +1,342 @@
+package com.strobel.assembler.metadata;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class MetadataSystemTests {
+    private final static int THREAD_COUNT = 16;
+
+    private final static List<String> TYPE_NAMES = Arrays.asList(
+        "java/lang/String",
+        "java/lang/Thread",
+        "java/util/ArrayList",
+        "java/util/HashMap",
+        "java/util/LinkedHashMap",
+        "java/util/TreeMap",
+        "java/util/concurrent/ConcurrentHashMap",
+        "java/util/concurrent/ThreadPoolExecutor",
+        "java/io/ObjectInputStream",
+        "java/io/ObjectOutputStream",
+        "com/strobel/assembler/metadata/MetadataSystem",
+        "com/strobel/assembler/metadata/ClassFileReader",
+        "com/strobel/assembler/metadata/MetadataHelper"
+    );
+
+    @Test
+    public void testConcurrentLookupsLoadTypeOnce() throws Throwable {
+        final CountingTypeLoader typeLoader = new CountingTypeLoader(new ClasspathTypeLoader());
+        final MetadataSystem metadataSystem = new MetadataSystem(typeLoader);
+        final CountDownLatch start = new CountDownLatch(1);
+
+        final List<TypeDefinition> results = runConcurrently(
+            new Callable<TypeDefinition>() {
+                @Override
+                public TypeDefinition call() throws Exception {
+                    start.await();
+                    return metadataSystem.lookupType("java/util/ArrayList").resolve();
+                }
+            },
+            start
+        );
+
+        for (final TypeDefinition result : results) {
+            assertNotNull(result);
+            assertSame(results.get(0), result);
+        }
+
+        assertEquals(1, typeLoader.getLoadCount("java/util/ArrayList"));
+    }
+
+    @Test
+    public void testConcurrentResolutionIsConsistent() throws Throwable {
+        final MetadataSystem metadataSystem = new MetadataSystem(new ClasspathTypeLoader());
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicInteger seed = new AtomicInteger();
+
+        final List<Map<String, TypeDefinition>> results = runConcurrently(
+            new Callable<Map<String, TypeDefinition>>() {
+                @Override
+                public Map<String, TypeDefinition> call() throws Exception {
+                    final List<String> typeNames = new ArrayList<>(TYPE_NAMES);
+                    final Map<String, TypeDefinition> types = new HashMap<>();
+
+                    Collections.rotate(typeNames, seed.getAndIncrement());
+                    start.await();
+
+                    for (final String typeName : typeNames) {
+                        final TypeDefinition type = metadataSystem.lookupType(typeName).resolve();
+
+                        assertNotNull(type);
+
+                        for (final TypeDefinition nestedType : type.getDeclaredTypes()) {
+                            assertSame(nestedType, metadataSystem.resolve(nestedType));
+                        }
+
+                        for (final MethodDefinition method : type.getDeclaredMethods()) {
+                            assertNotNull(method.getReturnType());
+                        }
+
+                        types.put(typeName, type);
+                    }
+
+                    return types;
+                }
+            },
+            start
+        );
+
+        for (final Map<String, TypeDefinition> types : results) {
+            for (final String typeName : TYPE_NAMES) {
+                assertSame(results.get(0).get(typeName), types.get(typeName));
+                assertEquals(typeName, types.get(typeName).getInternalName());
+            }
+        }
+    }
+
+    @Test
+    public void testConcurrentMemberLoadingWithNestedTypes() throws Throwable {
+        final String hostName = "com/strobel/assembler/metadata/MetadataSystemTests$Host";
+
+        final List<String> nestedNames = Arrays.asList(
+            hostName + "$1",
+            hostName + "$1Local",
+            hostName + "$Inner"
+        );
+
+        for (int round = 0; round < 10; round++) {
+            final MetadataSystem metadataSystem = new MetadataSystem(new CountingTypeLoader(new ClasspathTypeLoader()));
+            final CountDownLatch start = new CountDownLatch(1);
+            final AtomicInteger seed = new AtomicInteger();
+            final List<Integer> methodCounts = Collections.synchronizedList(new ArrayList<Integer>());
+            final List<Integer> typeCounts = Collections.synchronizedList(new ArrayList<Integer>());
+
+            final List<TypeDefinition> results = runConcurrently(
+                new Callable<TypeDefinition>() {
+                    @Override
+                    public TypeDefinition call() throws Exception {
+                        //
+                        // Half the threads start from the host's members, which resolve its nested
+                        // and anonymous types; the rest start from one of those types, which look
+                        // back at the host's members to find their declaring method.
+                        //
+                        final int index = seed.getAndIncrement();
+
+                        start.await();
+
+                        if (index % 2 == 1) {
+                            final String nestedName = nestedNames.get((index / 2) % nestedNames.size());
+                            final TypeDefinition nestedType = metadataSystem.lookupType(nestedName).resolve();
+
+                            assertNotNull(nestedType);
+                            nestedType.getDeclaredMethods();
+                        }
+
+                        final TypeDefinition host = metadataSystem.lookupType(hostName).resolve();
+
+                        assertNotNull(host);
+
+                        //
+                        // No thread may see the host's members before they have all been read.
+                        //
+                        methodCounts.add(host.getDeclaredMethods().size());
+                        typeCounts.add(host.getDeclaredTypes().size());
+
+                        return host;
+                    }
+                },
+                start
+            );
+
+            final TypeDefinition host = results.get(0);
+            final Set<String> declaredNames = new HashSet<>();
+
+            for (final TypeDefinition result : results) {
+                assertSame(host, result);
+            }
+
+            for (final TypeDefinition nestedType : host.getDeclaredTypes()) {
+                assertTrue(declaredNames.add(nestedType.getInternalName()));
+            }
+
+            assertEquals(new HashSet<>(nestedNames), declaredNames);
+
+            for (final int methodCount : methodCounts) {
+                assertEquals(host.getDeclaredMethods().size(), methodCount);
+            }
+
+            for (final int typeCount : typeCounts) {
+                assertEquals(nestedNames.size(), typeCount);
+            }
+        }
+    }
+
+    @Test
+    public void testFailedMemberReadIsNotCached() throws Throwable {
+        final String typeName = "com/strobel/assembler/metadata/MetadataSystemTests$BrokenMembers";
+
+        final MetadataSystem metadataSystem = new MetadataSystem(
+            new CorruptingTypeLoader(new ClasspathTypeLoader(), typeName, "Ljava/util/concurrent/atomic/AtomicLong;")
+        );
+
+        final TypeDefinition type = metadataSystem.lookupType(typeName).resolve();
+
+        assertNotNull(type);
+
+        //
+        // The failure must be reported every time, not just to the first caller, and nobody may
+        // be left with whatever members were read before it.
+        //
+        for (int i = 0; i < 2; i++) {
+            try {
+                type.getDeclaredFields();
+                fail("Expected reading the corrupted field to fail.");
+            }
+            catch (final RuntimeException ignored) {
+            }
+        }
+    }
+
+    private static <T> List<T> runConcurrently(final Callable<T> task, final CountDownLatch start) throws Throwable {
+        final ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+
+        try {
+            final List<Future<T>> futures = new ArrayList<>();
+
+            for (int i = 0; i < THREAD_COUNT; i++) {
+                futures.add(executor.submit(task));
+            }
+
+            start.countDown();
+
+            final List<T> results = new ArrayList<>();
+
+            for (final Future<T> future : futures) {
+                results.add(future.get(1, TimeUnit.MINUTES));
+            }
+
+            return results;
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @SuppressWarnings("unused")
+    private final static class Host {
+        Runnable anonymous() {
+            return new Runnable() {
+                @Override
+                public void run() {
+                    new Inner().run();
+                }
+            };
+        }
+
+        Object local() {
+            class Local {
+            }
+            return new Local();
+        }
+
+        private final static class Inner {
+            void run() {
+            }
+        }
+    }
+
+    @SuppressWarnings("unused")
+    private final static class BrokenMembers {
+        int first;
+        java.util.concurrent.atomic.AtomicLong broken;
+    }
+
+    private final static class CorruptingTypeLoader implements ITypeLoader {
+        private final ITypeLoader _typeLoader;
+        private final String _internalName;
+        private final byte[] _target;
+
+        CorruptingTypeLoader(final ITypeLoader typeLoader, final String internalName, final String target) {
+            _typeLoader = typeLoader;
+            _internalName = internalName;
+            _target = target.getBytes(java.nio.charset.StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public boolean tryLoadType(final String internalName, final Buffer buffer) {
+            if (!_typeLoader.tryLoadType(internalName, buffer)) {
+                return false;
+            }
+
+            if (internalName.equals(_internalName)) {
+                final byte[] data = buffer.array();
+
+                for (int i = 0, n = buffer.size() - _target.length; i <= n; i++) {
+                    if (Arrays.equals(_target, Arrays.copyOfRange(data, i, i + _target.length))) {
+                        data[i] = '!';
+                    }
+                }
+            }
+
+            return true;
+        }
+    }
+
+    private final static class CountingTypeLoader implements ITypeLoader {
+        private final ITypeLoader _typeLoader;
+        private final ConcurrentHashMap<String, AtomicInteger> _loadCounts = new ConcurrentHashMap<>();
+
+        CountingTypeLoader(final ITypeLoader typeLoader) {
+            _typeLoader = typeLoader;
+        }
+
+        int getLoadCount(final String internalName) {
+            final AtomicInteger count = _loadCounts.get(internalName);
+            return count != null ? count.get() : 0;
+        }
+
+        @Override
+        public boolean tryLoadType(final String internalName, final Buffer buffer) {
+            AtomicInteger count = _loadCounts.get(internalName);
+
+            if (count == null) {
+                final AtomicInteger existing = _loadCounts.putIfAbsent(internalName, count = new AtomicInteger());
+
+                if (existing != null) {
+                    count = existing;
+                }
+            }
+
+            if (count.incrementAndGet() == 1) {
+                //
+                // Give the other threads a chance to pile up behind the first load.
+                //
+                try {
+                    Thread.sleep(50);
+                }
+                catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            return _typeLoader.tryLoadType(internalName, buffer);
+        }
+    }
+}
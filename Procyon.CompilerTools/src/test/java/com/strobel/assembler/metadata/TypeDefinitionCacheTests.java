@@ -0,0 +1,95 @@
+package com.strobel.assembler.metadata;
+
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+
+import static org.junit.Assert.*;
+
+public class TypeDefinitionCacheTests {
+    @Test
+    public void testLeastRecentlyUsedCacheEvictsUnpinnedTypes() throws Throwable {
+        final TypeDefinitionCache cache = TypeDefinitionCache.createLeastRecentlyUsedCache(2).pin("java/lang/Object");
+
+        final TypeDefinition object = new TypeDefinition();
+        final TypeDefinition a = new TypeDefinition();
+        final TypeDefinition c = new TypeDefinition();
+
+        assertSame(object, cache.cache("java/lang/Object", object));
+        assertSame(a, cache.cache("a", a));
+        final WeakReference<TypeDefinition> b = new WeakReference<>(cache.cache("b", new TypeDefinition()));
+
+        assertSame(a, cache.cache("a", new TypeDefinition()));
+        assertSame(c, cache.cache("c", c));
+
+        //
+        // Nothing refers to the evicted type, so it is eventually dropped.
+        //
+        for (int i = 0; i < 10 && b.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10L);
+        }
+
+        assertSame(object, cache.get("java/lang/Object"));
+        assertSame(a, cache.get("a"));
+        assertNull(cache.get("b"));
+        assertSame(c, cache.get("c"));
+    }
+
+    @Test
+    public void testEvictedTypesKeepTheirIdentityWhileReferenced() throws Throwable {
+        final TypeDefinitionCache cache = TypeDefinitionCache.createLeastRecentlyUsedCache(1);
+
+        final TypeDefinition a = new TypeDefinition();
+        final TypeDefinition b = new TypeDefinition();
+
+        assertSame(a, cache.cache("a", a));
+        assertSame(b, cache.cache("b", b));
+
+        System.gc();
+
+        assertSame(a, cache.cache("a", new TypeDefinition()));
+        assertSame(b, cache.get("b"));
+        assertSame(a, cache.get("a"));
+    }
+
+    @Test
+    public void testEvictedTypesAreFoundWhileReferenced() throws Throwable {
+        final TypeDefinitionCache cache = TypeDefinitionCache.createLeastRecentlyUsedCache(2).pin("java/lang/Object");
+        final MetadataSystem metadataSystem = new MetadataSystem(new ClasspathTypeLoader(), cache);
+
+        final TypeDefinition object = metadataSystem.lookupType("java/lang/Object").resolve();
+        final TypeDefinition arrayList = metadataSystem.lookupType("java/util/ArrayList").resolve();
+
+        assertNotNull(object);
+        assertNotNull(arrayList);
+
+        for (final String typeName : new String[] { "java/util/HashMap", "java/util/TreeMap", "java/util/LinkedList" }) {
+            final TypeDefinition type = metadataSystem.lookupType(typeName).resolve();
+
+            assertNotNull(type);
+            assertEquals(typeName, type.getInternalName());
+        }
+
+        //
+        // ArrayList was evicted, but it is still referenced here, so it is found again rather than
+        // reloaded as a second instance.
+        //
+        assertSame(arrayList, metadataSystem.lookupType("java/util/ArrayList").resolve());
+        assertSame(arrayList, cache.get("java/util/ArrayList"));
+
+        assertSame(object, metadataSystem.lookupType("java/lang/Object").resolve());
+    }
+
+    @Test
+    public void testSoftReferenceCacheRetainsReachableTypes() throws Throwable {
+        final TypeDefinitionCache cache = TypeDefinitionCache.createSoftReferenceCache();
+        final MetadataSystem metadataSystem = new MetadataSystem(new ClasspathTypeLoader(), cache);
+
+        final TypeDefinition arrayList = metadataSystem.lookupType("java/util/ArrayList").resolve();
+
+        assertNotNull(arrayList);
+        assertSame(arrayList, cache.get("java/util/ArrayList"));
+        assertSame(arrayList, metadataSystem.lookupType("java/util/ArrayList").resolve());
+    }
+}
@@ -90,7 +90,7 @@ public abstract class DecompilerTest {
         return settings;
     }
 
-    protected void verifyOutput(final Class<?> type, final DecompilerSettings settings, final String expectedOutput) {
+    protected static String getClassFilePath(final Class<?> type) {
         VerifyArgument.notNull(type, "type");
 
         try {
@@ -98,16 +98,16 @@ public abstract class DecompilerTest {
             final String decodedRoot = URLDecoder.decode(packageRoot, Charset.defaultCharset().displayName());
             final String path = PathHelper.combine(decodedRoot, type.getName().replace('.', '/') + ".class");
 
-            verifyOutput(
-                new File(path).getCanonicalPath(),
-                settings,
-                expectedOutput
-            );
+            return new File(path).getCanonicalPath();
         }
         catch (final Exception e) {
             throw ExceptionUtilities.asRuntimeException(e);
         }
     }
+
+    protected void verifyOutput(final Class<?> type, final DecompilerSettings settings, final String expectedOutput) {
+        verifyOutput(getClassFilePath(type), settings, expectedOutput);
+    }
     protected void verifyOutput(final String internalName, final DecompilerSettings settings, final String expectedOutput) {
         final PlainTextOutput writer = new PlainTextOutput();
 
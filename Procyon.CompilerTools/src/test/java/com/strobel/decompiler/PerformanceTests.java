@@ -13,9 +13,19 @@
 
 package com.strobel.decompiler;
 
+import com.strobel.assembler.metadata.MethodReference;
+import com.strobel.assembler.metadata.TypeReference;
+import com.strobel.decompiler.ast.AstOptimizationStep;
+import com.strobel.decompiler.ast.MethodBudget;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 public class PerformanceTests extends DecompilerTest {
@@ -66,6 +76,63 @@ public class PerformanceTests extends DecompilerTest {
         }
     }
 
+    @SuppressWarnings("unused")
+    private static class B {
+        private final static List<String> NAMES = new ArrayList<>();
+
+        static {
+            for (int i = 0; i < 3; i++) {
+                NAMES.add("name" + i);
+            }
+        }
+
+        private final int _count;
+
+        B(final int count) {
+            _count = count;
+        }
+
+        int sum(final int[] values) {
+            int sum = 0;
+            for (final int value : values) {
+                sum += value * _count;
+            }
+            return sum;
+        }
+
+        Runnable runnable(final String s) {
+            return new Runnable() {
+                @Override
+                public void run() {
+                    System.out.println(s + _count);
+                }
+            };
+        }
+
+        String join() {
+            final StringBuilder sb = new StringBuilder();
+            try {
+                for (final String name : NAMES) {
+                    sb.append(name);
+                }
+            }
+            finally {
+                sb.append(_count);
+            }
+            return sb.toString();
+        }
+
+        static String describe(final Object o) {
+            if (o instanceof String) {
+                return "string:" + o;
+            }
+            if (o instanceof Integer) {
+                return "int:" + ((Integer) o + 1);
+            }
+            return String.valueOf(o);
+        }
+    }
+
     @Test
     public void testComplexBinaryExpressionTypeInferencePerformance() {
         //
@@ -136,4 +203,145 @@ public class PerformanceTests extends DecompilerTest {
             totalSeconds < 5L
         );
     }
+
+    @Test
+    public void testMethodNodeLimitFallsBackToBytecode() {
+        final DecompilerSettings settings = defaultSettings();
+        final PlainTextOutput output = new PlainTextOutput();
+
+        settings.setMethodNodeLimit(50);
+
+        Decompiler.decompile(getClassFilePath(A.class), output, settings);
+
+        final String text = output.toString();
+
+        Assert.assertTrue(text, text.contains("return 1000L;"));
+        Assert.assertTrue(text, text.contains("Method exceeded its size budget of 50 nodes"));
+        Assert.assertTrue(text, text.contains("Original Bytecode:"));
+        Assert.assertFalse(text, text.contains("The error that occurred was:"));
+    }
+
+    @Test
+    public void testMethodTimeoutIsCheckedWithinSteps() throws InterruptedException {
+        final DecompilerSettings settings = defaultSettings();
+        final DecompilerContext context = new DecompilerContext(settings);
+
+        settings.setMethodTimeout(50L);
+
+        final MethodBudget budget = MethodBudget.start(settings);
+
+        context.setCurrentMethodBudget(budget);
+        budget.checkTime(AstOptimizationStep.TypeInference);
+
+        Thread.sleep(100L);
+
+        try {
+            MethodBudget.checkTime(context);
+            Assert.fail("Expected the time budget to be exceeded.");
+        }
+        catch (final MethodBudgetExceededException e) {
+            Assert.assertEquals(
+                "Method exceeded its time budget of 50 ms during optimization step TypeInference.",
+                e.getMessage()
+            );
+        }
+    }
+
+    @Test
+    public void testMetricsListenerReportsEveryPhase() {
+        final DecompilerSettings settings = defaultSettings();
+        final DecompilerStatistics statistics = new DecompilerStatistics();
+        final Set<DecompilerPhase> phases = EnumSet.noneOf(DecompilerPhase.class);
+
+        settings.setMetricsListener(
+            new IDecompilerMetricsListener() {
+                @Override
+                public void phaseCompleted(
+                    final DecompilerPhase phase,
+                    final String step,
+                    final TypeReference type,
+                    final MethodReference method,
+                    final long elapsedNanos,
+                    final long allocatedBytes) {
+
+                    Assert.assertTrue(elapsedNanos >= 0);
+                    phases.add(phase);
+                    statistics.phaseCompleted(phase, step, type, method, elapsedNanos, allocatedBytes);
+                }
+            }
+        );
+
+        Decompiler.decompile(getClassFilePath(A.class), new PlainTextOutput(), settings);
+
+        Assert.assertEquals(EnumSet.allOf(DecompilerPhase.class), phases);
+        Assert.assertFalse(statistics.getSlowestMethods().isEmpty());
+        Assert.assertTrue(statistics.getSlowestTypes().containsKey("com/strobel/decompiler/PerformanceTests$A"));
+
+        boolean foundTypeInference = false;
+
+        for (final DecompilerStatistics.PhaseStatistics phase : statistics.getPhaseStatistics()) {
+            if (phase.getPhase() == DecompilerPhase.TypeAnalysis && "TypeInference".equals(phase.getStep())) {
+                foundTypeInference = true;
+                Assert.assertTrue(phase.getCount() > 0);
+            }
+        }
+
+        Assert.assertTrue(foundTypeInference);
+    }
+
+    @Test
+    public void testResetTimerDoesNotReportSkippedTime() throws InterruptedException {
+        final DecompilerSettings settings = defaultSettings();
+        final List<Long> elapsed = new ArrayList<>();
+
+        settings.setMetricsListener(
+            new IDecompilerMetricsListener() {
+                @Override
+                public void phaseCompleted(
+                    final DecompilerPhase phase,
+                    final String step,
+                    final TypeReference type,
+                    final MethodReference method,
+                    final long elapsedNanos,
+                    final long allocatedBytes) {
+
+                    elapsed.add(elapsedNanos);
+                }
+            }
+        );
+
+        final PhaseTimer timer = PhaseTimer.start(settings);
+
+        Thread.sleep(100L);
+        timer.reset();
+        timer.stop(DecompilerPhase.AstTransform, "Skipped", null, null);
+
+        Assert.assertEquals(1, elapsed.size());
+        Assert.assertTrue(elapsed.get(0) < TimeUnit.MILLISECONDS.toNanos(100L));
+    }
+
+    @Test
+    public void testMethodBodyExecutorMatchesSequentialOutput() {
+        final PlainTextOutput expected = new PlainTextOutput();
+
+        Decompiler.decompile(getClassFilePath(B.class), expected, defaultSettings());
+
+        for (final int threadCount : new int[] { 1, 4 }) {
+            final ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+
+            try {
+                final DecompilerSettings settings = defaultSettings();
+                final PlainTextOutput output = new PlainTextOutput();
+
+                settings.setMethodBodyExecutor(executor);
+
+                Decompiler.decompile(getClassFilePath(B.class), output, settings);
+
+                Assert.assertEquals(expected.toString(), output.toString());
+            }
+            finally {
+                executor.shutdownNow();
+            }
+        }
+    }
 }
@@ -0,0 +1,253 @@
+package com.strobel.decompiler.languages.java.ast;
+
+import com.strobel.functions.Function;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class AstNodeIndexTests {
+    @Test
+    public void testIndexTracksInsertedNodes() {
+        final CompilationUnit unit = new CompilationUnit();
+        final BlockStatement body = createMethodBody(unit);
+        final AstNodeIndex index = unit.enableNodeIndex();
+
+        final ExpressionStatement first = statement(add(identifier("a"), constant(1)));
+        final ExpressionStatement last = statement(identifier("b"));
+
+        body.getStatements().add(last);
+        body.insertChildBefore(last, first, BlockStatement.STATEMENT_ROLE);
+
+        assertIndexMatchesTree(unit);
+        assertEquals(2, index.count(ExpressionStatement.class));
+        assertEquals(1, index.count(BinaryOperatorExpression.class));
+
+        //
+        // Nodes added to a subtree before it is attached are counted once it is.
+        //
+        final BlockStatement block = new BlockStatement();
+
+        body.getStatements().add(block);
+        block.getStatements().add(statement(identifier("c")));
+
+        assertIndexMatchesTree(unit);
+        assertEquals(3, index.count(IdentifierExpression.class));
+    }
+
+    @Test
+    public void testIndexTracksRemovedNodes() {
+        final CompilationUnit unit = new CompilationUnit();
+        final BlockStatement body = createMethodBody(unit);
+        final ExpressionStatement statement = statement(add(identifier("a"), constant(1)));
+
+        body.getStatements().add(statement);
+        body.getStatements().add(statement(identifier("b")));
+
+        final AstNodeIndex index = unit.enableNodeIndex();
+
+        statement.remove();
+
+        assertIndexMatchesTree(unit);
+        assertEquals(0, index.count(BinaryOperatorExpression.class));
+        assertEquals(0, index.count(PrimitiveExpression.class));
+        assertEquals(1, index.count(IdentifierExpression.class));
+
+        //
+        // Changes to a detached subtree don't affect the index.
+        //
+        ((BinaryOperatorExpression) statement.getExpression()).getLeft().remove();
+
+        assertIndexMatchesTree(unit);
+        assertEquals(1, index.count(IdentifierExpression.class));
+    }
+
+    @Test
+    public void testIndexTracksReplacedNodes() {
+        final CompilationUnit unit = new CompilationUnit();
+        final BlockStatement body = createMethodBody(unit);
+        final ExpressionStatement first = statement(add(identifier("a"), constant(1)));
+        final ExpressionStatement second = statement(identifier("b"));
+        final ExpressionStatement third = statement(identifier("c"));
+
+        body.getStatements().add(first);
+        body.getStatements().add(second);
+        body.getStatements().add(third);
+
+        final AstNodeIndex index = unit.enableNodeIndex();
+
+        //
+        // Replace a node with one of its own descendants.
+        //
+        final Expression sum = first.getExpression();
+        final Expression left = ((BinaryOperatorExpression) sum).getLeft();
+
+        sum.replaceWith(left);
+
+        assertIndexMatchesTree(unit);
+        assertEquals(0, index.count(BinaryOperatorExpression.class));
+
+        //
+        // Wrap a node in its replacement, replacing one of its children along the way.
+        //
+        second.getExpression().replaceWith(
+            new Function<AstNode, AstNode>() {
+                @Override
+                public AstNode apply(final AstNode input) {
+                    final BinaryOperatorExpression product = multiply((Expression) input, constant(2));
+                    product.getRight().replaceWith(constant(3));
+                    return new ParenthesizedExpression(product);
+                }
+            }
+        );
+
+        assertIndexMatchesTree(unit);
+        assertEquals(1, index.count(ParenthesizedExpression.class));
+        assertEquals(1, index.count(PrimitiveExpression.class));
+
+        //
+        // Replace a node with an unrelated one, wrapping one of its children in a nested replacement.
+        //
+        third.replaceWith(
+            new Function<AstNode, AstNode>() {
+                @Override
+                public AstNode apply(final AstNode input) {
+                    ((ExpressionStatement) input).getExpression().replaceWith(
+                        new Function<AstNode, AstNode>() {
+                            @Override
+                            public AstNode apply(final AstNode input) {
+                                return new ParenthesizedExpression((Expression) input);
+                            }
+                        }
+                    );
+                    return new ReturnStatement(identifier("d"));
+                }
+            }
+        );
+
+        assertIndexMatchesTree(unit);
+        assertEquals(2, index.count(ExpressionStatement.class));
+        assertEquals(1, index.count(ParenthesizedExpression.class));
+        assertEquals(1, index.count(ReturnStatement.class));
+
+        //
+        // Replace a node with nothing.
+        //
+        second.replaceWith(
+            new Function<AstNode, AstNode>() {
+                @Override
+                public AstNode apply(final AstNode input) {
+                    return null;
+                }
+            }
+        );
+
+        assertIndexMatchesTree(unit);
+        assertEquals(0, index.count(ParenthesizedExpression.class));
+    }
+
+    @Test
+    public void testIndexIsOnlyKeptWhileEnabled() {
+        final CompilationUnit unit = new CompilationUnit();
+        final BlockStatement body = createMethodBody(unit);
+
+        body.getStatements().add(statement(identifier("a")));
+
+        final AstNodeIndex index = unit.enableNodeIndex();
+
+        assertSame(index, unit.enableNodeIndex());
+        assertSame(index, unit.getNodeIndex());
+
+        unit.disableNodeIndex();
+
+        assertNull(unit.getNodeIndex());
+        assertEquals(0, index.count(AstNode.class));
+
+        body.getStatements().add(statement(identifier("b")));
+
+        assertEquals(0, index.count(AstNode.class));
+
+        unit.enableNodeIndex();
+
+        assertIndexMatchesTree(unit);
+        assertNotSame(index, unit.getNodeIndex());
+
+        //
+        // Clones are never indexed.
+        //
+        final AstNode clone = unit.clone();
+
+        assertNull(((CompilationUnit) clone).getNodeIndex());
+
+        for (final AstNode node : clone.getDescendants()) {
+            if (node instanceof BlockStatement) {
+                ((BlockStatement) node).getStatements().add(statement(identifier("c")));
+            }
+        }
+
+        assertIndexMatchesTree(unit);
+    }
+
+    private static void assertIndexMatchesTree(final CompilationUnit unit) {
+        final AstNodeIndex index = unit.getNodeIndex();
+        final Map<Class<?>, Integer> expected = new HashMap<>();
+
+        assertNotNull(index);
+
+        int total = 0;
+
+        //
+        // A node counts towards each of the classes it's an instance of.
+        //
+        for (final AstNode node : unit.getDescendantsAndSelf()) {
+            for (Class<?> nodeType = node.getClass(); nodeType != AstNode.class; nodeType = nodeType.getSuperclass()) {
+                final Integer count = expected.get(nodeType);
+                expected.put(nodeType, count == null ? 1 : count + 1);
+            }
+            total++;
+        }
+
+        for (final Map.Entry<Class<?>, Integer> entry : expected.entrySet()) {
+            @SuppressWarnings("unchecked")
+            final Class<? extends AstNode> nodeType = (Class<? extends AstNode>) entry.getKey();
+
+            assertEquals(nodeType.getSimpleName(), (int) entry.getValue(), index.count(nodeType));
+        }
+
+        assertEquals(total, index.count(AstNode.class));
+    }
+
+    private static BlockStatement createMethodBody(final CompilationUnit unit) {
+        final TypeDeclaration type = new TypeDeclaration();
+        final MethodDeclaration method = new MethodDeclaration();
+        final BlockStatement body = new BlockStatement();
+
+        method.setBody(body);
+        type.getMembers().add(method);
+        unit.getTypes().add(type);
+
+        return body;
+    }
+
+    private static ExpressionStatement statement(final Expression expression) {
+        return new ExpressionStatement(expression);
+    }
+
+    private static IdentifierExpression identifier(final String name) {
+        return new IdentifierExpression(Expression.MYSTERY_OFFSET, name);
+    }
+
+    private static PrimitiveExpression constant(final int value) {
+        return new PrimitiveExpression(Expression.MYSTERY_OFFSET, value);
+    }
+
+    private static BinaryOperatorExpression add(final Expression left, final Expression right) {
+        return new BinaryOperatorExpression(left, BinaryOperatorType.ADD, right);
+    }
+
+    private static BinaryOperatorExpression multiply(final Expression left, final Expression right) {
+        return new BinaryOperatorExpression(left, BinaryOperatorType.MULTIPLY, right);
+    }
+}
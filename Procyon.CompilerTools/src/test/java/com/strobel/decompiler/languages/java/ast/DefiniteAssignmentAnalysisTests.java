@@ -0,0 +1,106 @@
+package com.strobel.decompiler.languages.java.ast;
+
+import com.strobel.assembler.metadata.MetadataSystem;
+import com.strobel.decompiler.DecompilerContext;
+import com.strobel.functions.Function;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class DefiniteAssignmentAnalysisTests {
+    @BeforeClass
+    public static void initializeMetadataSystem() {
+        //
+        // BuiltinTypes can only be initialized through the MetadataSystem.
+        //
+        MetadataSystem.instance();
+    }
+
+    @Test
+    public void testReusedAnalysisMatchesFreshAnalysisAfterRewrites() {
+        final JavaResolver resolver = new JavaResolver(new DecompilerContext());
+        final VariableDeclarationStatement declaration = new VariableDeclarationStatement(new SimpleType("int"), "x");
+        final ExpressionStatement assignment = assign("x", constant(1));
+        final ExpressionStatement use = assign("y", identifier("x"));
+        final BlockStatement body = new BlockStatement(declaration, assignment, use);
+        final DefiniteAssignmentAnalysis analysis = new DefiniteAssignmentAnalysis(body, resolver);
+
+        assertMatchesFreshAnalysis(analysis, body, resolver, declaration, use, assignment);
+        assertEquals(DefiniteAssignmentStatus.DEFINITELY_ASSIGNED, analysis.getStatusBefore(use));
+
+        //
+        // Wrap the assignment in a conditional, as a transform would; the analysis was built before the
+        // conditional existed.
+        //
+        assignment.replaceWith(
+            new Function<AstNode, AstNode>() {
+                @Override
+                public AstNode apply(final AstNode input) {
+                    return new IfElseStatement(Expression.MYSTERY_OFFSET, identifier("c"), new BlockStatement((Statement) input));
+                }
+            }
+        );
+
+        final Statement conditional = (Statement) assignment.getParent().getParent();
+
+        assertMatchesFreshAnalysis(analysis, body, resolver, declaration, use, conditional, assignment);
+        assertEquals(DefiniteAssignmentStatus.POTENTIALLY_ASSIGNED, analysis.getStatusBefore(use));
+        assertTrue(analysis.getUnassignedVariableUses().contains(((AssignmentExpression) use.getExpression()).getRight()));
+
+        //
+        // Remove the conditional, then put a new assignment where it was.
+        //
+        conditional.remove();
+
+        assertMatchesFreshAnalysis(analysis, body, resolver, declaration, use);
+        assertEquals(DefiniteAssignmentStatus.DEFINITELY_NOT_ASSIGNED, analysis.getStatusBefore(use));
+
+        final ExpressionStatement reassignment = assign("x", constant(2));
+
+        body.insertChildBefore(use, reassignment, BlockStatement.STATEMENT_ROLE);
+
+        assertMatchesFreshAnalysis(analysis, body, resolver, declaration, use, reassignment);
+        assertEquals(DefiniteAssignmentStatus.DEFINITELY_ASSIGNED, analysis.getStatusBefore(use));
+        assertTrue(analysis.getUnassignedVariableUses().isEmpty());
+    }
+
+    private static void assertMatchesFreshAnalysis(
+        final DefiniteAssignmentAnalysis analysis,
+        final BlockStatement body,
+        final JavaResolver resolver,
+        final Statement start,
+        final Statement end,
+        final Statement... statements) {
+
+        final DefiniteAssignmentAnalysis expected = new DefiniteAssignmentAnalysis(body, resolver);
+
+        for (final DefiniteAssignmentAnalysis a : new DefiniteAssignmentAnalysis[] { expected, analysis }) {
+            a.setAnalyzedRange(start, end);
+            a.analyze("x", DefiniteAssignmentStatus.DEFINITELY_NOT_ASSIGNED);
+        }
+
+        assertEquals(expected.getStatusBefore(start), analysis.getStatusBefore(start));
+        assertEquals(expected.getStatusBefore(end), analysis.getStatusBefore(end));
+
+        for (final Statement statement : statements) {
+            assertEquals(expected.getStatusBefore(statement), analysis.getStatusBefore(statement));
+            assertEquals(expected.getStatusAfter(statement), analysis.getStatusAfter(statement));
+        }
+
+        assertEquals(expected.getUnassignedVariableUses(), analysis.getUnassignedVariableUses());
+        assertEquals(expected.isPotentiallyAssigned(), analysis.isPotentiallyAssigned());
+    }
+
+    private static ExpressionStatement assign(final String name, final Expression value) {
+        return new ExpressionStatement(new AssignmentExpression(identifier(name), value));
+    }
+
+    private static IdentifierExpression identifier(final String name) {
+        return new IdentifierExpression(Expression.MYSTERY_OFFSET, name);
+    }
+
+    private static PrimitiveExpression constant(final int value) {
+        return new PrimitiveExpression(Expression.MYSTERY_OFFSET, value);
+    }
+}
@@ -0,0 +1,184 @@
+package com.strobel.decompiler.languages.java.ast;
+
+import com.strobel.assembler.metadata.BuiltinTypes;
+import com.strobel.assembler.metadata.MetadataSystem;
+import com.strobel.decompiler.DecompilerContext;
+import com.strobel.decompiler.ast.Variable;
+import com.strobel.decompiler.semantics.ResolveResult;
+import com.strobel.functions.Function;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class JavaResolverTests {
+    @BeforeClass
+    public static void initializeMetadataSystem() {
+        //
+        // BuiltinTypes can only be initialized through the MetadataSystem.
+        //
+        MetadataSystem.instance();
+    }
+
+    @Test
+    public void testRepeatedResolutionsAreAnsweredFromCache() {
+        final DecompilerContext context = new DecompilerContext();
+        final JavaResolver resolver = new JavaResolver(context);
+        final BinaryOperatorExpression sum = add(constant(1), constant(2L));
+
+        assertSame(BuiltinTypes.Long, resolver.apply(sum).getType());
+        assertEquals(0, resolver.getCacheHits());
+        assertEquals(3, resolver.getCacheMisses());
+
+        //
+        // The whole expression is cached, so its operands aren't visited again.
+        //
+        assertSame(BuiltinTypes.Long, resolver.apply(sum).getType());
+        assertEquals(1, resolver.getCacheHits());
+        assertEquals(3, resolver.getCacheMisses());
+
+        assertSame(BuiltinTypes.Integer, resolver.apply(sum.getLeft()).getType());
+        assertEquals(2, resolver.getCacheHits());
+        assertEquals(3, resolver.getCacheMisses());
+
+        //
+        // Resolvers created with the same context share the cache; those with another context don't.
+        //
+        final JavaResolver sameContextResolver = new JavaResolver(context);
+
+        sameContextResolver.apply(sum);
+
+        assertEquals(1, sameContextResolver.getCacheHits());
+        assertEquals(0, sameContextResolver.getCacheMisses());
+
+        final JavaResolver otherContextResolver = new JavaResolver(new DecompilerContext());
+
+        otherContextResolver.apply(sum);
+
+        assertEquals(0, otherContextResolver.getCacheHits());
+        assertEquals(3, otherContextResolver.getCacheMisses());
+    }
+
+    @Test
+    public void testClonesAndFrozenNodesAreNotAnsweredFromCache() {
+        final JavaResolver resolver = new JavaResolver(new DecompilerContext());
+        final BinaryOperatorExpression sum = add(constant(1), constant(2));
+
+        resolver.apply(sum);
+
+        final long misses = resolver.getCacheMisses();
+
+        resolver.apply(sum.clone());
+
+        assertEquals(0, resolver.getCacheHits());
+        assertEquals(2 * misses, resolver.getCacheMisses());
+
+        sum.freeze();
+        resolver.apply(sum);
+        resolver.apply(sum);
+
+        assertEquals(0, resolver.getCacheHits());
+        assertEquals(2 * misses, resolver.getCacheMisses());
+    }
+
+    @Test
+    public void testChangesInvalidateCachedResults() {
+        final JavaResolver resolver = new JavaResolver(new DecompilerContext());
+        final PrimitiveExpression left = constant(1);
+        final IdentifierExpression right = identifier("x");
+        final BinaryOperatorExpression sum = add(left, right);
+        final ParenthesizedExpression root = new ParenthesizedExpression(sum);
+
+        assertNull(resolver.apply(root));
+
+        //
+        // User data.
+        //
+        final Variable variable = new Variable();
+
+        variable.setName("x");
+        variable.setType(BuiltinTypes.Long);
+        right.putUserData(Keys.VARIABLE, variable);
+
+        assertResolvesLikeFreshResolver(resolver, root, BuiltinTypes.Long);
+
+        //
+        // Scalar properties.
+        //
+        left.setValue(1.0d);
+
+        assertResolvesLikeFreshResolver(resolver, root, BuiltinTypes.Double);
+
+        sum.setOperator(BinaryOperatorType.LESS_THAN);
+
+        assertResolvesLikeFreshResolver(resolver, root, BuiltinTypes.Boolean);
+
+        sum.setOperator(BinaryOperatorType.ADD);
+
+        //
+        // Replaced, removed, and added children.
+        //
+        right.replaceWith(constant(2));
+
+        assertResolvesLikeFreshResolver(resolver, root, BuiltinTypes.Double);
+        assertEquals(3.0d, resolver.apply(root).getConstantValue());
+
+        left.replaceWith(
+            new Function<AstNode, AstNode>() {
+                @Override
+                public AstNode apply(final AstNode input) {
+                    return new CastExpression(floatType(), (Expression) input);
+                }
+            }
+        );
+
+        assertResolvesLikeFreshResolver(resolver, root, BuiltinTypes.Float);
+        assertEquals(3.0f, resolver.apply(root).getConstantValue());
+
+        sum.remove();
+
+        assertNull(resolver.apply(root));
+
+        root.setExpression(sum);
+
+        assertResolvesLikeFreshResolver(resolver, root, BuiltinTypes.Float);
+    }
+
+    private static void assertResolvesLikeFreshResolver(
+        final JavaResolver resolver,
+        final AstNode node,
+        final Object expectedType) {
+
+        final ResolveResult result = resolver.apply(node);
+
+        assertNotNull(result);
+        assertSame(expectedType, result.getType());
+
+        //
+        // A resolver with its own context never sees the first resolver's cached results.
+        //
+        final ResolveResult expected = new JavaResolver(new DecompilerContext()).apply(node);
+
+        assertSame(expected.getType(), result.getType());
+        assertEquals(expected.isCompileTimeConstant(), result.isCompileTimeConstant());
+        assertEquals(expected.getConstantValue(), result.getConstantValue());
+    }
+
+    private static SimpleType floatType() {
+        final SimpleType type = new SimpleType("float");
+        type.putUserData(Keys.TYPE_REFERENCE, BuiltinTypes.Float);
+        return type;
+    }
+
+    private static IdentifierExpression identifier(final String name) {
+        return new IdentifierExpression(Expression.MYSTERY_OFFSET, name);
+    }
+
+    private static PrimitiveExpression constant(final Object value) {
+        return new PrimitiveExpression(Expression.MYSTERY_OFFSET, value);
+    }
+
+    private static BinaryOperatorExpression add(final Expression left, final Expression right) {
+        return new BinaryOperatorExpression(left, BinaryOperatorType.ADD, right);
+    }
+}
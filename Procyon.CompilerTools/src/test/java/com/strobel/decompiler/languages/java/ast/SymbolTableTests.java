@@ -0,0 +1,164 @@
+package com.strobel.decompiler.languages.java.ast;
+
+import com.strobel.assembler.metadata.MetadataSystem;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SymbolTableTests {
+    @Test
+    public void testBlockScopeSeesChangesWithinDepth() {
+        final VariableDeclarationStatement declaration = declare("a", add(constant(1), constant(2)));
+        final ExpressionStatement use = statement(identifier("a"));
+        final BlockStatement block = block(declaration, use);
+
+        SymbolTable.BlockScope table = blockScope(block);
+
+        assertSame(declaration, table.getPreviousDeclaration(use, "a"));
+        assertNull(table.getPreviousDeclaration(use, "b"));
+
+        //
+        // The deepest node a block's table reads is a declared variable's name.
+        //
+        final Identifier name = declaration.getVariables().firstOrNullObject().getNameToken();
+
+        assertEquals(SymbolTable.DEPTH, depth(block, name));
+
+        name.setName("b");
+
+        assertNotSame(table, table = blockScope(block));
+        assertNull(table.getPreviousDeclaration(use, "a"));
+        assertSame(declaration, table.getPreviousDeclaration(use, "b"));
+
+        final VariableDeclarationStatement other = declare("a", constant(3));
+
+        block.insertChildBefore(use, other, BlockStatement.STATEMENT_ROLE);
+
+        assertNotSame(table, table = blockScope(block));
+        assertSame(other, table.getPreviousDeclaration(use, "a"));
+        assertSame(declaration, table.getPreviousDeclaration(use, "b"));
+
+        other.remove();
+
+        assertNotSame(table, table = blockScope(block));
+        assertNull(table.getPreviousDeclaration(use, "a"));
+    }
+
+    @Test
+    public void testBlockScopeIsKeptForChangesBelowDepth() {
+        final PrimitiveExpression value = constant(1);
+        final VariableDeclarationStatement declaration = declare("a", add(value, constant(2)));
+        final ExpressionStatement use = statement(identifier("a"));
+        final BlockStatement block = block(declaration, use);
+        final SymbolTable.BlockScope table = blockScope(block);
+
+        assertTrue(depth(block, value) > SymbolTable.DEPTH);
+
+        value.setValue(3);
+        value.putUserData(Keys.CONSTANT_VALUE, 3);
+
+        assertSame(table, blockScope(block));
+        assertSame(declaration, table.getPreviousDeclaration(use, "a"));
+    }
+
+    @Test
+    public void testTypeScopeSeesChangesWithinDepth() {
+        final TypeDeclaration type = new TypeDeclaration();
+        final FieldDeclaration field = new FieldDeclaration();
+        final TypeDeclaration nestedType = new TypeDeclaration();
+
+        field.setName("f");
+        nestedType.setName("N");
+        type.getMembers().add(field);
+        type.getMembers().add(nestedType);
+
+        SymbolTable.TypeScope table = typeScope(type);
+
+        assertSame(field, table.getFields("f").get(0));
+        assertSame(nestedType, table.getTypes("N").get(0));
+
+        field.getNameToken().setName("g");
+
+        assertNotSame(table, table = typeScope(type));
+        assertTrue(table.getFields("f").isEmpty());
+        assertSame(field, table.getFields("g").get(0));
+
+        nestedType.setName("M");
+
+        assertNotSame(table, table = typeScope(type));
+        assertTrue(table.getTypes("N").isEmpty());
+        assertSame(nestedType, table.getTypes("M").get(0));
+
+        field.remove();
+
+        assertNotSame(table, table = typeScope(type));
+        assertTrue(table.getFields("g").isEmpty());
+    }
+
+    @Test
+    public void testUnitScopeSeesNewImports() {
+        final CompilationUnit unit = new CompilationUnit();
+        SymbolTable.UnitScope table = unitScope(unit);
+
+        assertTrue(table.getImports("List").isEmpty());
+
+        final ImportDeclaration declaration = new ImportDeclaration(MetadataSystem.instance().lookupType("java/util/List"));
+
+        unit.getImports().add(declaration);
+
+        assertNotSame(table, table = unitScope(unit));
+        assertSame(declaration, table.getImports("List").get(0));
+    }
+
+    private static SymbolTable.BlockScope blockScope(final BlockStatement block) {
+        return (SymbolTable.BlockScope) SymbolTable.of(block);
+    }
+
+    private static SymbolTable.TypeScope typeScope(final TypeDeclaration type) {
+        return (SymbolTable.TypeScope) SymbolTable.of(type);
+    }
+
+    private static SymbolTable.UnitScope unitScope(final CompilationUnit unit) {
+        return (SymbolTable.UnitScope) SymbolTable.of(unit);
+    }
+
+    private static int depth(final AstNode scope, final AstNode node) {
+        int depth = 0;
+
+        for (AstNode n = node; n != scope; n = n.getParent()) {
+            depth++;
+        }
+
+        return depth;
+    }
+
+    private static BlockStatement block(final Statement... statements) {
+        final BlockStatement block = new BlockStatement();
+
+        for (final Statement statement : statements) {
+            block.getStatements().add(statement);
+        }
+
+        return block;
+    }
+
+    private static VariableDeclarationStatement declare(final String name, final Expression initializer) {
+        return new VariableDeclarationStatement(new SimpleType("int"), name, initializer);
+    }
+
+    private static ExpressionStatement statement(final Expression expression) {
+        return new ExpressionStatement(expression);
+    }
+
+    private static IdentifierExpression identifier(final String name) {
+        return new IdentifierExpression(Expression.MYSTERY_OFFSET, name);
+    }
+
+    private static PrimitiveExpression constant(final int value) {
+        return new PrimitiveExpression(Expression.MYSTERY_OFFSET, value);
+    }
+
+    private static BinaryOperatorExpression add(final Expression left, final Expression right) {
+        return new BinaryOperatorExpression(left, BinaryOperatorType.ADD, right);
+    }
+}
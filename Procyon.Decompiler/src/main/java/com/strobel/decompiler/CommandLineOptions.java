@@ -114,6 +114,11 @@ public class CommandLineOptions {
         description = "Write decompiled results to specified directory instead of the console.")
     private String _outputDirectory;
 
+    @Parameter(
+        names = { "-oa", "--output-archive" },
+        description = "Write decompiled results into the specified ZIP/JAR archive instead of the console.")
+    private String _outputArchive;
+
     @Parameter(
         names = { "-jar", "--jar-file" },
         description = "[DEPRECATED] Decompile all classes in the specified jar file (disables -ent and -s).")
@@ -121,17 +126,17 @@ public class CommandLineOptions {
 
     @Parameter(
 	names = { "-ln", "--with-line-numbers" },
-        description = "Include line numbers in raw bytecode mode; supports Java mode with -o only.")
+        description = "Include line numbers in raw bytecode mode; supports Java mode with -o or -oa only.")
     private boolean _includeLineNumbers;
 
     @Parameter(
         names = { "-sl", "--stretch-lines" },
-        description = "Stretch Java lines to match original line numbers (only in combination with -o) [EXPERIMENTAL].")
+        description = "Stretch Java lines to match original line numbers (only in combination with -o or -oa) [EXPERIMENTAL].")
     private boolean _stretchLines;
     
     @Parameter(
         names = { "-dl", "--debug-line-numbers" },
-        description = "For debugging, show Java line numbers as inline comments (implies -ln; requires -o).")
+        description = "For debugging, show Java line numbers as inline comments (implies -ln; requires -o or -oa).")
     private boolean _showDebugLineNumbers;
 
     @Parameter(
@@ -192,6 +197,49 @@ public class CommandLineOptions {
         description = "Remove AspectJ artefacts that were weaved into the bytecode.")
     private boolean _removeAspectj;
 
+    @Parameter(
+        names = { "-th", "--threads" },
+        description = "Number of worker threads to use when decompiling jar files (requires -o or -oa).",
+        arity = 1)
+    private int _threadCount = 1;
+
+    @Parameter(
+        names = { "-mth", "--method-threads" },
+        description = "Number of worker threads to use when decompiling the method bodies of each type.",
+        arity = 1)
+    private int _methodThreadCount = 1;
+
+    @Parameter(
+        names = { "-mc", "--metadata-cache" },
+        description = "Directory in which to keep uncompressed copies of the JDK's and class path's class files, so later runs skip fetching and inflating them.  Library types are still parsed on every run.",
+        arity = 1)
+    private String _metadataCacheDirectory;
+
+    @Parameter(
+        names = { "-inc", "--incremental" },
+        description = "Only decompile types in the jar file whose class files (or those of the types they depend on) " +
+                      "changed since the last incremental run into the same output directory (requires -o).")
+    private boolean _incremental;
+
+    @Parameter(
+        names = { "-mt", "--method-timeout" },
+        description = "Maximum time, in milliseconds, to spend decompiling a single method; methods which take " +
+                      "longer are emitted as bytecode in a comment.  Zero means no limit.",
+        arity = 1)
+    private long _methodTimeout;
+
+    @Parameter(
+        names = { "-mnl", "--method-node-limit" },
+        description = "Maximum size, in bytecode AST nodes, a single method may grow to while it is being optimized; " +
+                      "larger methods are emitted as bytecode in a comment.  Zero means no limit.",
+        arity = 1)
+    private int _methodNodeLimit;
+
+    @Parameter(
+        names = { "--stats" },
+        description = "Print the time spent in each decompiler phase, and the slowest methods and types, when finished.")
+    private boolean _printStatistics;
+
     public final List<String> getInputs() {
         return _inputs;
     }
@@ -300,6 +348,14 @@ public class CommandLineOptions {
         _outputDirectory = outputDirectory;
     }
 
+    public final String getOutputArchive() {
+        return _outputArchive;
+    }
+
+    public final void setOutputArchive(final String outputArchive) {
+        _outputArchive = outputArchive;
+    }
+
     public final String getJarFile() {
         return _jarFile;
     }
@@ -428,5 +484,98 @@ public class CommandLineOptions {
         _removeAspectj = removeAspectj;
     }
 
+    public final int getThreadCount() {
+        return _threadCount;
+    }
+
+    public final void setThreadCount(final int threadCount) {
+        _threadCount = threadCount;
+    }
+
+    public final int getMethodThreadCount() {
+        return _methodThreadCount;
+    }
+
+    public final void setMethodThreadCount(final int methodThreadCount) {
+        _methodThreadCount = methodThreadCount;
+    }
+
+    public final String getMetadataCacheDirectory() {
+        return _metadataCacheDirectory;
+    }
+
+    public final void setMetadataCacheDirectory(final String metadataCacheDirectory) {
+        _metadataCacheDirectory = metadataCacheDirectory;
+    }
+
+    public final long getMethodTimeout() {
+        return _methodTimeout;
+    }
+
+    public final void setMethodTimeout(final long methodTimeout) {
+        _methodTimeout = methodTimeout;
+    }
+
+    public final int getMethodNodeLimit() {
+        return _methodNodeLimit;
+    }
+
+    public final void setMethodNodeLimit(final int methodNodeLimit) {
+        _methodNodeLimit = methodNodeLimit;
+    }
+
+    public final boolean getPrintStatistics() {
+        return _printStatistics;
+    }
+
+    public final void setPrintStatistics(final boolean printStatistics) {
+        _printStatistics = printStatistics;
+    }
+
+    public final boolean isIncremental() {
+        return _incremental;
+    }
+
+    public final void setIncremental(final boolean incremental) {
+        _incremental = incremental;
+    }
+
+    /**
+     * Describes the values of every option which can affect the decompiled output.  Inputs, output
+     * locations, and options which only affect performance or logging are left out.  An option which
+     * changes the output must be listed here, or incremental runs will reuse output produced without it.
+     */
+    public final String getOutputOptionsFingerprint() {
+        return new StringBuilder()
+            .append("mv=").append(_mergeVariables)
+            .append(" ei=").append(_forceExplicitImports)
+            .append(" ci=").append(_collapseImports)
+            .append(" eta=").append(_forceExplicitTypeArguments)
+            .append(" ec=").append(_retainRedundantCasts)
+            .append(" fsb=").append(_flattenSwitchBlocks)
+            .append(" ss=").append(_showSyntheticMembers)
+            .append(" b=").append(_bytecodeAst)
+            .append(" r=").append(_rawBytecode)
+            .append(" cp=").append(_showConstantPool)
+            .append(" lv=").append(_showLocalVariableDetails)
+            .append(" ta=").append(_showTypeAttributes)
+            .append(" v=").append(_verbose)
+            .append(" u=").append(_unoptimized)
+            .append(" ent=").append(_excludeNestedTypes)
+            .append(" ln=").append(_includeLineNumbers)
+            .append(" sl=").append(_stretchLines)
+            .append(" dl=").append(_showDebugLineNumbers)
+            .append(" ps=").append(_retainPointlessSwitches)
+            .append(" unicode=").append(_isUnicodeOutputEnabled)
+            .append(" sm=").append(_simplifyMemberReferences)
+            .append(" fq=").append(_forceFullyQualifiedReferences)
+            .append(" disable-foreach=").append(_disableForEachTransforms)
+            .append(" suppress-banner=").append(_suppressBanner)
+            .append(" ra=").append(_removeAspectj)
+            .append(" mt=").append(_methodTimeout)
+            .append(" mnl=").append(_methodNodeLimit)
+            .toString();
+    }
+
     
 }
@@ -14,24 +14,34 @@ import com.strobel.decompiler.languages.Languages;
 import com.strobel.decompiler.languages.LineNumberPosition;
 import com.strobel.decompiler.languages.TypeDecompilationResults;
 import com.strobel.decompiler.languages.java.JavaFormattingOptions;
-import com.strobel.io.PathHelper;
 import com.strobel.assembler.metadata.AspectJUnweaveUtilities;
 
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
 import java.io.Writer;
 import java.nio.charset.Charset;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.EnumSet;
 import java.util.Enumeration;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.logging.ConsoleHandler;
@@ -42,6 +52,32 @@ import java.util.logging.LogRecord;
 import java.util.logging.Logger;
 
 public class DecompilerDriver {
+    private final static String[] PINNED_TYPES = {
+        "java/lang/Object",
+        "java/lang/String",
+        "java/lang/Class",
+        "java/lang/Enum",
+        "java/lang/Throwable",
+        "java/lang/Exception",
+        "java/lang/RuntimeException",
+        "java/lang/Error",
+        "java/lang/Iterable",
+        "java/lang/AutoCloseable",
+        "java/lang/Comparable",
+        "java/lang/CharSequence",
+        "java/lang/StringBuilder",
+        "java/lang/Number",
+        "java/lang/Boolean",
+        "java/lang/Character",
+        "java/lang/Byte",
+        "java/lang/Short",
+        "java/lang/Integer",
+        "java/lang/Long",
+        "java/lang/Float",
+        "java/lang/Double",
+        "java/io/Serializable"
+    };
+
     public static void main(final String[] args) {
         final CommandLineOptions options = new CommandLineOptions();
         final JCommander jCommander;
@@ -79,6 +115,14 @@ public class DecompilerDriver {
             return;
         }
 
+        if (!StringUtilities.isNullOrWhitespace(options.getOutputDirectory()) &&
+            !StringUtilities.isNullOrWhitespace(options.getOutputArchive())) {
+
+            System.err.println("Options -o and -oa cannot be used together.");
+            System.exit(-1);
+            return;
+        }
+
         final DecompilerSettings settings = new DecompilerSettings();
 
         settings.setFlattenSwitchBlocks(options.getFlattenSwitchBlocks());
@@ -97,7 +141,17 @@ public class DecompilerDriver {
         settings.setForceFullyQualifiedReferences(options.getForceFullyQualifiedReferences());
         settings.setDisableForEachTransforms(options.getDisableForEachTransforms());
         settings.setRemoveAspectJ(options.getRemoveAspectj());
-        settings.setTypeLoader(new InputTypeLoader());
+        settings.setMethodTimeout(options.getMethodTimeout());
+        settings.setMethodNodeLimit(options.getMethodNodeLimit());
+        settings.setTypeLoader(new InputTypeLoader(createLibraryTypeLoader(options)));
+
+        final DecompilerStatistics statistics = options.getPrintStatistics() ? new DecompilerStatistics() : null;
+
+        settings.setMetricsListener(statistics);
+
+        final ExecutorService methodBodyExecutor = createMethodBodyExecutor(options);
+
+        settings.setMethodBodyExecutor(methodBodyExecutor);
 
         if (!options.getSuppressBanner()) {
             settings.setOutputFileHeaderText("\nDecompiled by Procyon v" + Procyon.version() + "\n");
@@ -123,34 +177,111 @@ public class DecompilerDriver {
             settings.setJavaFormattingOptions(JavaFormattingOptions.createDefault());
         }
 
-        if (decompileJar) {
-            try {
-                decompileJar(jarFile, options, decompilationOptions);
-            }
-            catch (final Throwable t) {
-                System.err.println(ExceptionUtilities.getMessage(t));
-                System.exit(-1);
-            }
-        }
-        else {
-            final MetadataSystem metadataSystem = new NoRetryMetadataSystem(settings.getTypeLoader());
+        final SourceOutputWriter sourceOutput;
 
-            metadataSystem.setEagerMethodLoadingEnabled(options.isEagerMethodLoadingEnabled());
+        try {
+            sourceOutput = createSourceOutput(options, settings);
+        }
+        catch (final Throwable t) {
+            System.err.println(ExceptionUtilities.getMessage(t));
+            System.exit(-1);
+            return;
+        }
 
-            for (final String typeName : typeNames) {
+        try {
+            if (decompileJar) {
                 try {
-                    if (typeName.endsWith(".jar")) {
-                        decompileJar(typeName, options, decompilationOptions);
+                    decompileJar(jarFile, sourceOutput, options, decompilationOptions);
+                }
+                catch (final Throwable t) {
+                    System.err.println(ExceptionUtilities.getMessage(t));
+                    System.exit(-1);
+                }
+            }
+            else {
+                final MetadataSystem metadataSystem = new NoRetryMetadataSystem(settings.getTypeLoader());
+
+                metadataSystem.setEagerMethodLoadingEnabled(options.isEagerMethodLoadingEnabled());
+
+                for (final String typeName : typeNames) {
+                    try {
+                        if (typeName.endsWith(".jar")) {
+                            decompileJar(typeName, sourceOutput, options, decompilationOptions);
+                        }
+                        else {
+                            decompileType(metadataSystem, typeName, sourceOutput, null, options, decompilationOptions, true);
+                        }
                     }
-                    else {
-                        decompileType(metadataSystem, typeName, options, decompilationOptions, true);
+                    catch (final Throwable t) {
+                        t.printStackTrace();
                     }
                 }
+            }
+        }
+        finally {
+            if (sourceOutput != null) {
+                try {
+                    sourceOutput.close();
+                }
                 catch (final Throwable t) {
-                    t.printStackTrace();
+                    System.err.println(ExceptionUtilities.getMessage(t));
+                }
+            }
+        }
+
+        if (methodBodyExecutor != null) {
+            methodBodyExecutor.shutdownNow();
+        }
+
+        if (statistics != null) {
+            statistics.printReport(System.err);
+        }
+    }
+
+    private static ExecutorService createMethodBodyExecutor(final CommandLineOptions options) {
+        if (options.getMethodThreadCount() <= 1) {
+            return null;
+        }
+
+        //
+        // Daemon threads, so an early exit never waits on method bodies nobody will ask for.
+        //
+        return Executors.newFixedThreadPool(
+            options.getMethodThreadCount(),
+            new ThreadFactory() {
+                private final AtomicInteger _nextId = new AtomicInteger();
+
+                @Override
+                public Thread newThread(final Runnable r) {
+                    final Thread thread = new Thread(r, "procyon-method-body-" + _nextId.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
                 }
             }
+        );
+    }
+
+    private static SourceOutputWriter createSourceOutput(
+        final CommandLineOptions options,
+        final DecompilerSettings settings) throws IOException {
+
+        //
+        // Decompiled sources are handed off to a single writer thread, so file (or archive) I/O
+        // overlaps with decompiling the types that follow.
+        //
+
+        final Charset charset = settings.isUnicodeOutputEnabled() ? Charset.forName("UTF-8")
+                                                                  : Charset.defaultCharset();
+
+        if (!StringUtilities.isNullOrWhitespace(options.getOutputArchive())) {
+            return SourceOutputWriter.toArchive(new File(options.getOutputArchive()), charset);
+        }
+
+        if (!StringUtilities.isNullOrWhitespace(settings.getOutputDirectory())) {
+            return SourceOutputWriter.toDirectory(new File(settings.getOutputDirectory()), charset);
         }
+
+        return null;
     }
 
     private static BytecodeOutputOptions createBytecodeFormattingOptions(final CommandLineOptions options) {
@@ -213,6 +344,7 @@ public class DecompilerDriver {
 
     private static void decompileJar(
         final String jarFilePath,
+        final SourceOutputWriter sourceOutput,
         final CommandLineOptions options,
         final DecompilationOptions decompilationOptions) throws IOException {
 
@@ -222,42 +354,96 @@ public class DecompilerDriver {
             throw new FileNotFoundException("File not found: " + jarFilePath);
         }
 
-        final DecompilerSettings settings = decompilationOptions.getSettings();
-        final JarFile jar = new JarFile(jarFile);
-        final Enumeration<JarEntry> entries = jar.entries();
+        final List<String> internalNames = new ArrayList<>();
+
+        try (final JarFile jar = new JarFile(jarFile)) {
+            final Enumeration<JarEntry> entries = jar.entries();
+
+            while (entries.hasMoreElements()) {
+                final JarEntry entry = entries.nextElement();
+                final String name = entry.getName();
+
+                if (name.endsWith(".class")) {
+                    internalNames.add(StringUtilities.removeRight(name, ".class"));
+                }
+            }
+        }
 
+        //
+        // The mapped loader is safe to share, so the parallel workers all read from one mapping.
+        //
+
+        try (final MappedJarTypeLoader jarTypeLoader = new MappedJarTypeLoader(jarFile)) {
+            decompileJarTypes(jarTypeLoader, internalNames, sourceOutput, options, decompilationOptions);
+        }
+    }
+
+    private static void decompileJarTypes(
+        final MappedJarTypeLoader jarTypeLoader,
+        final List<String> internalNames,
+        final SourceOutputWriter sourceOutput,
+        final CommandLineOptions options,
+        final DecompilationOptions decompilationOptions) throws IOException {
+
+        final DecompilerSettings settings = decompilationOptions.getSettings();
         final boolean oldShowSyntheticMembers = settings.getShowSyntheticMembers();
         final ITypeLoader oldTypeLoader = settings.getTypeLoader();
 
         settings.setShowSyntheticMembers(false);
-        settings.setTypeLoader(new CompositeTypeLoader(new JarTypeLoader(jar), oldTypeLoader));
-
-        try {
-            MetadataSystem metadataSystem = new NoRetryMetadataSystem(settings.getTypeLoader());
+        settings.setTypeLoader(new CompositeTypeLoader(jarTypeLoader, oldTypeLoader));
+
+        final boolean writeToFiles = sourceOutput != null;
+        final IncrementalManifest manifest;
+        final List<String> changedNames;
+
+        if (options.isIncremental() && writeToFiles && sourceOutput.getOutputDirectory() != null) {
+            manifest = IncrementalManifest.create(
+                new File(settings.getOutputDirectory()),
+                Procyon.version() + " " + options.getOutputOptionsFingerprint(),
+                jarTypeLoader,
+                internalNames
+            );
 
-            metadataSystem.setEagerMethodLoadingEnabled(options.isEagerMethodLoadingEnabled());
+            changedNames = new ArrayList<>();
 
-            int classesDecompiled = 0;
+            for (final String internalName : internalNames) {
+                if (!manifest.tryReuse(internalName)) {
+                    changedNames.add(internalName);
+                }
+            }
 
-            while (entries.hasMoreElements()) {
-                final JarEntry entry = entries.nextElement();
-                final String name = entry.getName();
+            System.out.printf(
+                "Skipping %d of %d types whose inputs are unchanged.\n",
+                internalNames.size() - changedNames.size(),
+                internalNames.size()
+            );
+        }
+        else {
+            manifest = null;
+            changedNames = internalNames;
+        }
 
-                if (!name.endsWith(".class")) {
-                    continue;
-                }
+        try {
+            final int threadCount = Math.min(options.getThreadCount(), changedNames.size());
 
-                final String internalName = StringUtilities.removeRight(name, ".class");
+            if (threadCount > 1 && writeToFiles) {
+                decompileTypesInParallel(jarTypeLoader, changedNames, threadCount, sourceOutput, manifest, options, decompilationOptions);
+            }
+            else {
+                decompileTypes(settings.getTypeLoader(), changedNames, new AtomicInteger(), sourceOutput, manifest, options, decompilationOptions);
+            }
 
+            if (manifest != null) {
+                //
+                // Types are only recorded once their output has been written, so save whatever
+                // made it even if some writes failed; the rest are tried again next time.
+                //
                 try {
-                    decompileType(metadataSystem, internalName, options, decompilationOptions, false);
-
-                    if (++classesDecompiled % 100 == 0) {
-                        metadataSystem = new NoRetryMetadataSystem(settings.getTypeLoader());
-                    }
+                    sourceOutput.flush();
                 }
-                catch (final Throwable t) {
-                    t.printStackTrace();
+                finally {
+                    manifest.deleteRemovedOutputs();
+                    manifest.save();
                 }
             }
         }
@@ -267,15 +453,135 @@ public class DecompilerDriver {
         }
     }
 
+    private static ITypeLoader createLibraryTypeLoader(final CommandLineOptions options) {
+        final String cacheDirectory = options.getMetadataCacheDirectory();
+
+        if (StringUtilities.isNullOrWhitespace(cacheDirectory)) {
+            return new ClasspathTypeLoader();
+        }
+
+        //
+        // The cached loader covers the runtime image and the archives and directories on the class
+        // path; fall back to the class loader for anything else.
+        //
+
+        return new CompositeTypeLoader(
+            new CachedClasspathTypeLoader(new File(cacheDirectory)),
+            new ClasspathTypeLoader()
+        );
+    }
+
+    private static void decompileTypesInParallel(
+        final MappedJarTypeLoader jarTypeLoader,
+        final List<String> internalNames,
+        final int threadCount,
+        final SourceOutputWriter sourceOutput,
+        final IncrementalManifest manifest,
+        final CommandLineOptions options,
+        final DecompilationOptions decompilationOptions) throws IOException {
+
+        //
+        // Each worker pulls the next type off a shared index and decompiles it through its own
+        // metadata system, so no resolution state is shared between threads; only the read-only
+        // jar and library type loaders are shared.  Every type is written to its own file, so the
+        // output matches a serial run.
+        //
+
+        final ITypeLoader libraryTypeLoader = createLibraryTypeLoader(options);
+        final AtomicInteger nextIndex = new AtomicInteger();
+        final ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        final List<Future<?>> workers = new ArrayList<>(threadCount);
+
+        try {
+            for (int i = 0; i < threadCount; i++) {
+                workers.add(
+                    executor.submit(
+                        new Callable<Void>() {
+                            @Override
+                            public Void call() throws Exception {
+                                final ITypeLoader typeLoader = new CompositeTypeLoader(
+                                    jarTypeLoader,
+                                    new InputTypeLoader(libraryTypeLoader)
+                                );
+
+                                decompileTypes(typeLoader, internalNames, nextIndex, sourceOutput, manifest, options, decompilationOptions);
+                                return null;
+                            }
+                        }
+                    )
+                );
+            }
+
+            for (final Future<?> worker : workers) {
+                worker.get();
+            }
+        }
+        catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while decompiling " + jarTypeLoader.getFile().getPath() + ".");
+        }
+        catch (final ExecutionException e) {
+            throw ExceptionUtilities.asRuntimeException(e.getCause());
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void decompileTypes(
+        final ITypeLoader typeLoader,
+        final List<String> internalNames,
+        final AtomicInteger nextIndex,
+        final SourceOutputWriter sourceOutput,
+        final IncrementalManifest manifest,
+        final CommandLineOptions options,
+        final DecompilationOptions decompilationOptions) {
+
+        //
+        // Loaded types are only held softly, so memory stays bounded without having to throw the
+        // whole metadata system away periodically; the core types nearly every class refers to are
+        // pinned so they are never reloaded.
+        //
+
+        final MetadataSystem metadataSystem = new NoRetryMetadataSystem(
+            typeLoader,
+            TypeDefinitionCache.createSoftReferenceCache().pin(PINNED_TYPES)
+        );
+
+        metadataSystem.setEagerMethodLoadingEnabled(options.isEagerMethodLoadingEnabled());
+
+        for (int index = nextIndex.getAndIncrement();
+             index < internalNames.size();
+             index = nextIndex.getAndIncrement()) {
+
+            final String internalName = internalNames.get(index);
+
+            try {
+                decompileType(metadataSystem, internalName, sourceOutput, manifest, options, decompilationOptions, false);
+            }
+            catch (final Throwable t) {
+                t.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Decompiles a type.  If a manifest is given, the type is recorded in it only once its output
+     * has been written (or it has been skipped as a nested type); a type which fails to load,
+     * decompile, or be written is left out, so the next incremental run tries it again.
+     */
     private static void decompileType(
         final MetadataSystem metadataSystem,
         final String typeName,
+        final SourceOutputWriter sourceOutput,
+        final IncrementalManifest manifest,
         final CommandLineOptions commandLineOptions,
         final DecompilationOptions options,
         final boolean includeNested) throws IOException {
 
         final TypeReference type;
         final DecompilerSettings settings = options.getSettings();
+        final PhaseTimer timer = PhaseTimer.start(settings);
 
         if (typeName.length() == 1) {
             //
@@ -298,6 +604,10 @@ public class DecompilerDriver {
             return;
         }
 
+        if (timer != null) {
+            timer.stop(DecompilerPhase.ClassLoading, null, resolvedType, null);
+        }
+
         DeobfuscationUtilities.processType(resolvedType);
         
         if (commandLineOptions.getRemoveAspectj()) {
@@ -305,11 +615,18 @@ public class DecompilerDriver {
         }
         
         if (!includeNested && (resolvedType.isNested() || resolvedType.isAnonymous() || resolvedType.isSynthetic())) {
+            //
+            // Nested types are written along with their outermost type, so there is nothing to record
+            // beyond the fact that this one was handled.
+            //
+            if (manifest != null) {
+                manifest.markCompleted(typeName, null);
+            }
             return;
         }
 
-        final Writer writer = createWriter(resolvedType, settings);
-        final boolean writeToFile = writer instanceof FileOutputWriter;
+        final boolean writeToFile = sourceOutput != null;
+        final Writer writer = writeToFile ? new StringWriter() : createConsoleWriter(settings);
         final PlainTextOutput output;
 
         if (writeToFile) {
@@ -337,15 +654,18 @@ public class DecompilerDriver {
 
         writer.flush();
 
-        if (writeToFile) {
-            writer.close();
+        if (!writeToFile) {
+            return;
         }
 
-        // If we're writing to a file and we were asked to include line numbers in any way,
-        // then reformat the file to include that line number information.
+        String source = writer.toString();
+
+        // If we were asked to include line numbers in any way, then reformat the source to include
+        // that line number information before it gets written out.  The positions are only known
+        // once the whole type has been generated, so this has to happen after the fact.
         final List<LineNumberPosition> lineNumberPositions = results.getLineNumberPositions();
 
-        if ((commandLineOptions.getIncludeLineNumbers() || commandLineOptions.getStretchLines()) && (writer instanceof FileOutputWriter)) {
+        if (commandLineOptions.getIncludeLineNumbers() || commandLineOptions.getStretchLines()) {
             final EnumSet<LineNumberOption> lineNumberOptions = EnumSet.noneOf(LineNumberOption.class);
 
             if (commandLineOptions.getIncludeLineNumbers()) {
@@ -356,86 +676,49 @@ public class DecompilerDriver {
                 lineNumberOptions.add(LineNumberOption.STRETCHED);
             }
 
-            final LineNumberFormatter lineFormatter = new LineNumberFormatter(
-                ((FileOutputWriter) writer).getFile(),
-                lineNumberPositions,
-                lineNumberOptions
-            );
-
-            lineFormatter.reformatFile();
-        }
-    }
-
-    private static Writer createWriter(final TypeDefinition type, final DecompilerSettings settings) throws IOException {
-        final String outputDirectory = settings.getOutputDirectory();
-
-        if (StringUtilities.isNullOrWhitespace(outputDirectory)) {
-            return new OutputStreamWriter(
-                System.out,
-                settings.isUnicodeOutputEnabled() ? Charset.forName("UTF-8")
-                                                  : Charset.defaultCharset()
-            );
-        }
+            final LineNumberFormatter lineFormatter = new LineNumberFormatter(lineNumberPositions, lineNumberOptions);
+            final StringWriter formatted = new StringWriter(source.length());
 
-        final String outputPath;
-        final String fileName = type.getName() + settings.getLanguage().getFileExtension();
-        final String packageName = type.getPackageName();
-
-        if (StringUtilities.isNullOrWhitespace(packageName)) {
-            outputPath = PathHelper.combine(outputDirectory, fileName);
-        }
-        else {
-            outputPath = PathHelper.combine(
-                outputDirectory,
-                packageName.replace('.', PathHelper.DirectorySeparator),
-                fileName
-            );
+            lineFormatter.reformat(new StringReader(source), formatted);
+            source = formatted.toString();
         }
 
-        final File outputFile = new File(outputPath);
-        final File parentFile = outputFile.getParentFile();
-
-        if (parentFile != null && !parentFile.exists() && !parentFile.mkdirs()) {
-            throw new IllegalStateException(
-                String.format(
-                    "Could not create output directory for file \"%s\".",
-                    outputPath
-                )
-            );
-        }
+        final String outputPath = getOutputPath(resolvedType, settings);
 
-        if (!outputFile.exists() && !outputFile.createNewFile()) {
-            throw new IllegalStateException(
-                String.format(
-                    "Could not create output file \"%s\".",
-                    outputPath
-                )
-            );
+        if (manifest == null) {
+            sourceOutput.write(outputPath, source);
+            return;
         }
 
-        return new FileOutputWriter(outputFile, settings);
+        sourceOutput.write(
+            outputPath,
+            source,
+            new Runnable() {
+                @Override
+                public void run() {
+                    manifest.markCompleted(typeName, sourceOutput.getOutputFile(outputPath));
+                }
+            }
+        );
     }
-}
 
-final class FileOutputWriter extends OutputStreamWriter {
-    private final File file;
-
-    FileOutputWriter(final File file, final DecompilerSettings settings) throws IOException {
-        super(
-            new FileOutputStream(file),
+    private static Writer createConsoleWriter(final DecompilerSettings settings) {
+        return new OutputStreamWriter(
+            System.out,
             settings.isUnicodeOutputEnabled() ? Charset.forName("UTF-8")
                                               : Charset.defaultCharset()
         );
-        this.file = file;
     }
 
-    /**
-     * Returns the file to which 'this' is writing.
-     *
-     * @return the file to which 'this' is writing
-     */
-    public File getFile() {
-        return this.file;
+    private static String getOutputPath(final TypeDefinition type, final DecompilerSettings settings) {
+        final String fileName = type.getName() + settings.getLanguage().getFileExtension();
+        final String packageName = type.getPackageName();
+
+        if (StringUtilities.isNullOrWhitespace(packageName)) {
+            return fileName;
+        }
+
+        return packageName.replace('.', '/') + '/' + fileName;
     }
 }
 
@@ -460,7 +743,7 @@ final class BriefLogFormatter extends Formatter {
 }
 
 final class NoRetryMetadataSystem extends MetadataSystem {
-    private final Set<String> _failedTypes = new HashSet<>();
+    private final Set<String> _failedTypes = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
 
     NoRetryMetadataSystem() {
     }
@@ -473,6 +756,10 @@ final class NoRetryMetadataSystem extends MetadataSystem {
         super(typeLoader);
     }
 
+    NoRetryMetadataSystem(final ITypeLoader typeLoader, final TypeDefinitionCache typeCache) {
+        super(typeLoader, typeCache);
+    }
+
     @Override
     protected TypeDefinition resolveType(final String descriptor, final boolean mightBePrimitive) {
         if (_failedTypes.contains(descriptor)) {
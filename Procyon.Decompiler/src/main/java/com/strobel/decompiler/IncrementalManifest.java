@@ -0,0 +1,430 @@
+/*
+ * IncrementalManifest.java
+ *
+ * This source code is subject to terms and conditions of the Apache License, Version 2.0.
+ * A copy of the license can be found in the License.html file at the root of this distribution.
+ * By using this source code in any fashion, you are agreeing to be bound by the terms of the
+ * Apache License, Version 2.0.
+ *
+ * You must not remove this notice, or any other, from this software.
+ */
+
+package com.strobel.decompiler;
+
+import com.strobel.assembler.ir.ConstantPool;
+import com.strobel.assembler.metadata.Buffer;
+import com.strobel.assembler.metadata.ClassFileReader;
+import com.strobel.assembler.metadata.ITypeLoader;
+import com.strobel.core.StringUtilities;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records what was produced by an incremental jar decompilation, so the next run over the same
+ * output directory can skip types whose inputs have not changed.
+ * <p>
+ * The key for a type covers its own class file, the class files of its nested types (which are
+ * written to the same output file), and the class files of every type in the jar they refer to,
+ * along with those types' supertypes.  Types outside the jar are assumed not to change between
+ * runs.  The manifest also records the options the output was produced with; if those change, or
+ * the manifest cannot be read, everything is decompiled again.
+ */
+final class IncrementalManifest {
+    final static String FILE_NAME = ".procyon-incremental";
+
+    private final static String HEADER = "# Procyon incremental manifest v1";
+    private final static Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final File _outputDirectory;
+    private final String _fingerprint;
+    private final Map<String, Record> _previousRecords;
+    private final Map<String, String> _currentKeys;
+    private final Map<String, Record> _completedRecords;
+
+    private IncrementalManifest(
+        final File outputDirectory,
+        final String fingerprint,
+        final Map<String, Record> previousRecords,
+        final Map<String, String> currentKeys) {
+
+        _outputDirectory = outputDirectory;
+        _fingerprint = fingerprint;
+        _previousRecords = previousRecords;
+        _currentKeys = currentKeys;
+        _completedRecords = new ConcurrentHashMap<>();
+    }
+
+    static IncrementalManifest create(
+        final File outputDirectory,
+        final String fingerprint,
+        final ITypeLoader typeLoader,
+        final List<String> internalNames) throws IOException {
+
+        return new IncrementalManifest(
+            outputDirectory,
+            fingerprint,
+            readRecords(new File(outputDirectory, FILE_NAME), fingerprint),
+            computeKeys(typeLoader, internalNames)
+        );
+    }
+
+    /**
+     * Returns whether a type's inputs are unchanged since the last run and its output (if any) is
+     * still present.  If so, the type is carried over into the new manifest as-is.
+     */
+    boolean tryReuse(final String internalName) {
+        final Record previous = _previousRecords.get(internalName);
+        final String key = _currentKeys.get(internalName);
+
+        if (previous == null || key == null || !key.equals(previous.key)) {
+            return false;
+        }
+
+        if (previous.outputPath != null && !new File(_outputDirectory, previous.outputPath).isFile()) {
+            return false;
+        }
+
+        _completedRecords.put(internalName, previous);
+        return true;
+    }
+
+    /**
+     * Records a type which was decompiled successfully.  Types which fail are never recorded, so
+     * they are not reused by the next run.
+     *
+     * @param outputFile
+     *     The file the type was written to, or {@code null} if it has no output of its own (e.g., a
+     *     nested type, which is written along with its outermost type).
+     */
+    void markCompleted(final String internalName, final File outputFile) {
+        final String key = _currentKeys.get(internalName);
+
+        if (key == null) {
+            return;
+        }
+
+        final String outputPath = outputFile != null
+                                  ? _outputDirectory.toURI().relativize(outputFile.toURI()).getPath()
+                                  : null;
+
+        _completedRecords.put(internalName, new Record(key, outputPath));
+    }
+
+    /**
+     * Deletes output written for types which no longer exist in the jar.
+     */
+    void deleteRemovedOutputs() {
+        for (final Map.Entry<String, Record> entry : _previousRecords.entrySet()) {
+            final Record record = entry.getValue();
+
+            if (record.outputPath == null || _currentKeys.containsKey(entry.getKey())) {
+                continue;
+            }
+
+            final File outputFile = new File(_outputDirectory, record.outputPath);
+
+            if (outputFile.isFile() && !outputFile.delete()) {
+                System.err.printf("!!! ERROR: Could not delete stale output file %s.\n", outputFile.getPath());
+            }
+        }
+    }
+
+    void save() throws IOException {
+        final File file = new File(_outputDirectory, FILE_NAME);
+        final File temporaryFile = new File(_outputDirectory, FILE_NAME + ".tmp");
+
+        try (final Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(temporaryFile), UTF_8))) {
+            writer.write(HEADER);
+            writer.write('\n');
+            writer.write(_fingerprint);
+            writer.write('\n');
+
+            for (final Map.Entry<String, Record> entry : new TreeMap<>(_completedRecords).entrySet()) {
+                final Record record = entry.getValue();
+
+                writer.write(entry.getKey());
+                writer.write('\t');
+                writer.write(record.key);
+
+                if (record.outputPath != null) {
+                    writer.write('\t');
+                    writer.write(record.outputPath);
+                }
+
+                writer.write('\n');
+            }
+        }
+
+        Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    // <editor-fold defaultstate="collapsed" desc="Manifest File">
+
+    private static Map<String, Record> readRecords(final File file, final String fingerprint) throws IOException {
+        final Map<String, Record> records = new HashMap<>();
+
+        if (!file.isFile()) {
+            return records;
+        }
+
+        try (final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), UTF_8))) {
+            if (!HEADER.equals(reader.readLine()) || !fingerprint.equals(reader.readLine())) {
+                return records;
+            }
+
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+                final String[] parts = line.split("\t");
+
+                if (parts.length < 2) {
+                    return Collections.emptyMap();
+                }
+
+                records.put(parts[0], new Record(parts[1], parts.length > 2 ? parts[2] : null));
+            }
+        }
+
+        return records;
+    }
+
+    private final static class Record {
+        final String key;
+        final String outputPath;
+
+        Record(final String key, final String outputPath) {
+            this.key = key;
+            this.outputPath = outputPath;
+        }
+    }
+
+    // </editor-fold>
+
+    // <editor-fold defaultstate="collapsed" desc="Dependency Keys">
+
+    private static Map<String, String> computeKeys(final ITypeLoader typeLoader, final List<String> internalNames) {
+        final NavigableMap<String, ClassInfo> classes = new TreeMap<>();
+        final Buffer buffer = new Buffer();
+
+        for (final String internalName : internalNames) {
+            if (typeLoader.tryLoadType(internalName, buffer)) {
+                classes.put(internalName, ClassInfo.read(buffer));
+            }
+        }
+
+        final Map<String, String> keys = new HashMap<>();
+
+        for (final Map.Entry<String, ClassInfo> entry : classes.entrySet()) {
+            final String internalName = entry.getKey();
+
+            //
+            // Nested types are written into their outer type's file, so they are part of its key.
+            // Everything with a '$name' suffix is included; the '$' sorts just before '%'.
+            //
+
+            final NavigableMap<String, ClassInfo> group = new TreeMap<>();
+
+            group.put(internalName, entry.getValue());
+            group.putAll(classes.subMap(internalName + "$", true, internalName + "%", false));
+
+            final Set<String> dependencies = new TreeSet<>();
+            final Deque<String> pending = new ArrayDeque<>();
+
+            for (final ClassInfo member : group.values()) {
+                if (member == null) {
+                    continue;
+                }
+
+                for (final String reference : member.references) {
+                    if (classes.containsKey(reference) && !group.containsKey(reference)) {
+                        pending.add(reference);
+                    }
+                }
+
+                pending.addAll(member.supertypes);
+            }
+
+            while (!pending.isEmpty()) {
+                final String dependency = pending.removeFirst();
+
+                if (group.containsKey(dependency) || !classes.containsKey(dependency) || !dependencies.add(dependency)) {
+                    continue;
+                }
+
+                final ClassInfo dependencyInfo = classes.get(dependency);
+
+                if (dependencyInfo != null) {
+                    pending.addAll(dependencyInfo.supertypes);
+                }
+            }
+
+            final StringBuilder key = new StringBuilder();
+
+            for (final Map.Entry<String, ClassInfo> member : group.entrySet()) {
+                if (member.getValue() == null) {
+                    key.setLength(0);
+                    break;
+                }
+                key.append(member.getKey()).append('=').append(member.getValue().hash).append('\n');
+            }
+
+            if (key.length() == 0) {
+                continue;
+            }
+
+            for (final String dependency : dependencies) {
+                final ClassInfo dependencyInfo = classes.get(dependency);
+
+                if (dependencyInfo == null) {
+                    key.setLength(0);
+                    break;
+                }
+
+                key.append(dependency).append('=').append(dependencyInfo.hash).append('\n');
+            }
+
+            if (key.length() != 0) {
+                final byte[] keyBytes = key.toString().getBytes(UTF_8);
+                keys.put(internalName, sha1(keyBytes, 0, keyBytes.length));
+            }
+        }
+
+        return keys;
+    }
+
+    private static String sha1(final byte[] data, final int offset, final int length) {
+        final byte[] hash;
+
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            digest.update(data, offset, length);
+            hash = digest.digest();
+        }
+        catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        final StringBuilder sb = new StringBuilder(hash.length * 2);
+
+        for (final byte b : hash) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16))
+              .append(Character.forDigit(b & 0xF, 16));
+        }
+
+        return sb.toString();
+    }
+
+    private final static class ClassInfo {
+        final String hash;
+        final List<String> supertypes;
+        final Set<String> references;
+
+        private ClassInfo(final String hash, final List<String> supertypes, final Set<String> references) {
+            this.hash = hash;
+            this.supertypes = supertypes;
+            this.references = references;
+        }
+
+        /**
+         * Hashes a class file and collects the names of the types it refers to.  References are
+         * gathered from every UTF-8 constant, both as plain internal names and as 'L...;' types in
+         * descriptors and signatures, so they may over-approximate; callers filter them against
+         * the types they actually know about.  Returns {@code null} if the class cannot be read.
+         */
+        static ClassInfo read(final Buffer buffer) {
+            final String hash = sha1(buffer.array(), 0, buffer.size());
+
+            try {
+                if ((buffer.readInt() & 0xFFFFFFFFL) != ClassFileReader.MAGIC) {
+                    return null;
+                }
+
+                buffer.readUnsignedShort();
+                buffer.readUnsignedShort();
+
+                final ConstantPool constantPool = ConstantPool.read(buffer);
+
+                buffer.readUnsignedShort();
+                buffer.readUnsignedShort();
+
+                final List<String> supertypes = new ArrayList<>();
+                final int superIndex = buffer.readUnsignedShort();
+
+                if (superIndex != 0) {
+                    supertypes.add(constantPool.<ConstantPool.TypeInfoEntry>getEntry(superIndex).getName());
+                }
+
+                for (int i = 0, n = buffer.readUnsignedShort(); i < n; i++) {
+                    supertypes.add(constantPool.<ConstantPool.TypeInfoEntry>getEntry(buffer.readUnsignedShort()).getName());
+                }
+
+                final Set<String> references = new TreeSet<>();
+
+                for (final ConstantPool.Entry entry : constantPool) {
+                    if (entry instanceof ConstantPool.Utf8StringConstantEntry) {
+                        collectReferences(((ConstantPool.Utf8StringConstantEntry) entry).value, references);
+                    }
+                }
+
+                return new ClassInfo(hash, supertypes, references);
+            }
+            catch (final RuntimeException e) {
+                return null;
+            }
+        }
+
+        private static void collectReferences(final String value, final Set<String> references) {
+            if (StringUtilities.isNullOrEmpty(value)) {
+                return;
+            }
+
+            references.add(value);
+
+            for (int start = value.indexOf('L'); start >= 0; start = value.indexOf('L', start + 1)) {
+                int end = start + 1;
+
+                while (end < value.length()) {
+                    final char c = value.charAt(end);
+
+                    if (c == ';' || c == '<') {
+                        references.add(value.substring(start + 1, end));
+                        break;
+                    }
+
+                    if (c == '(' || c == ')' || c == '[' || c == '>' || c == ':' || Character.isWhitespace(c)) {
+                        break;
+                    }
+
+                    end++;
+                }
+            }
+        }
+    }
+
+    // </editor-fold>
+}
@@ -6,6 +6,8 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.EnumSet;
@@ -15,8 +17,9 @@ import java.util.List;
 import com.strobel.decompiler.languages.LineNumberPosition;
 
 /**
- * A <code>LineNumberFormatter</code> is used to rewrite an existing .java file, introducing
- * line number information.  It can handle either, or both, of the following jobs:
+ * A <code>LineNumberFormatter</code> is used to rewrite an existing .java file (or decompiled
+ * source which has not been written out yet), introducing line number information.  It can
+ * handle either, or both, of the following jobs:
  * 
  * <ul>
  *   <li>Introduce line numbers as leading comments.
@@ -49,28 +52,57 @@ public class LineNumberFormatter {
         _options = (options == null ? EnumSet.noneOf( LineNumberOption.class) : options);
     }
 
+    /**
+     * Constructs an instance for use with {@link #reformat(Reader, Writer)}.
+     * 
+     * @param lineNumberPositions a recipe for how to fix the line numbers in the source.
+     * @param options controls how 'this' represents line numbers in the resulting source
+     */
+    public LineNumberFormatter(List<LineNumberPosition> lineNumberPositions,
+            EnumSet<LineNumberOption> options) {
+        this( null, lineNumberPositions, options);
+    }
+
     /**
      * Rewrites the file passed to 'this' constructor so that the actual line numbers match
      * the recipe passed to 'this' constructor.
      */
     public void reformatFile() throws IOException {
+        File tempFile = new File( _file.getAbsolutePath() + ".fixed");
+
+        try( Reader r = new FileReader( _file);
+             Writer w = new BufferedWriter( new FileWriter( tempFile))) {
+            reformat( r, w);
+        }
+
+        // Delete the original file and rename the formatted temp file over the original.
+        _file.delete();
+        tempFile.renameTo( _file);
+    }
+
+    /**
+     * Copies 'source' to 'target' so that the actual line numbers match the recipe passed to
+     * 'this' constructor.  Neither is closed.
+     */
+    public void reformat( Reader source, Writer target) throws IOException {
         List<LineNumberPosition> lineBrokenPositions = new ArrayList<LineNumberPosition>();
-        List<String> brokenLines = breakLines( lineBrokenPositions);
-        emitFormatted( brokenLines, lineBrokenPositions);
+        List<String> brokenLines = breakLines( source, lineBrokenPositions);
+        emitFormatted( brokenLines, lineBrokenPositions, target);
     }
     
     /**
-     * Processes {@link #_file}, breaking apart any lines on which multiple line-number markers
+     * Processes 'source', breaking apart any lines on which multiple line-number markers
      * appear in different columns.
      * 
      * @return the list of broken lines
      */
-    private List<String> breakLines( List<LineNumberPosition> o_LineBrokenPositions) throws IOException {
+    private List<String> breakLines( Reader source, List<LineNumberPosition> o_LineBrokenPositions) throws IOException {
         int numLinesRead = 0;
         int lineOffset = 0;
         List<String> brokenLines = new ArrayList<>();
 
-        try( BufferedReader r = new BufferedReader( new FileReader( _file))) {
+        {
+            BufferedReader r = new BufferedReader( source);
             for ( int posIndex=0; posIndex<_positions.size(); posIndex++) {
                 LineNumberPosition pos = _positions.get( posIndex);
                 o_LineBrokenPositions.add( new LineNumberPosition(
@@ -126,15 +158,14 @@ public class LineNumberFormatter {
         return brokenLines;
     }
     
-    private void emitFormatted( List<String> brokenLines, List<LineNumberPosition> lineBrokenPositions) throws IOException {
-        File tempFile = new File( _file.getAbsolutePath() + ".fixed");
+    private void emitFormatted( List<String> brokenLines, List<LineNumberPosition> lineBrokenPositions, Writer target) throws IOException {
         int globalOffset = 0;
         int numLinesRead = 0;
         Iterator<String> lines = brokenLines.iterator();
         
         int maxLineNo = LineNumberPosition.computeMaxLineNumber( lineBrokenPositions);
-        try( LineNumberPrintWriter w = new LineNumberPrintWriter( 
-                maxLineNo, new BufferedWriter( new FileWriter( tempFile)))) {
+        {
+            LineNumberPrintWriter w = new LineNumberPrintWriter( maxLineNo, target);
             
             // Suppress all line numbers if we weren't asked to show them.
             if ( ! _options.contains( LineNumberOption.LEADING_COMMENTS)) {
@@ -217,11 +248,13 @@ public class LineNumberFormatter {
                 line = lines.next();
                 w.println( line);
             }
+
+            w.flush();
+
+            if ( w.checkError()) {
+                throw new IOException( "Could not write reformatted source.");
+            }
         }
-        
-        // Delete the original file and rename the formatted temp file over the original.
-        _file.delete();
-        tempFile.renameTo( _file);
     }
 
 }
@@ -0,0 +1,361 @@
+/*
+ * SourceOutputWriter.java
+ *
+ * This source code is subject to terms and conditions of the Apache License, Version 2.0.
+ * A copy of the license can be found in the License.html file at the root of this distribution.
+ * By using this source code in any fashion, you are agreeing to be bound by the terms of the
+ * Apache License, Version 2.0.
+ *
+ * You must not remove this notice, or any other, from this software.
+ */
+
+package com.strobel.decompiler;
+
+import com.strobel.core.ExceptionUtilities;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes decompiled sources out on a background thread, either as files under an output directory
+ * or as entries of a single ZIP/JAR archive.  At most {@link #QUEUE_CAPACITY} sources are held in
+ * memory at once; beyond that, {@link #write(String, String)} blocks until the writer catches up.
+ * <p>
+ * Failing to write one source does not stop the others from being written.  The errors are
+ * collected and thrown from the next call to {@link #flush()} or {@link #close()}.
+ */
+final class SourceOutputWriter implements Flushable, Closeable {
+    private final static int QUEUE_CAPACITY = 64;
+    private final static Entry END = new Entry(null, null, null);
+
+    private final File _outputDirectory;
+    private final File _archiveFile;
+    private final ZipOutputStream _archive;
+    private final Charset _charset;
+    private final BlockingQueue<Entry> _queue;
+    private final Thread _thread;
+
+    private int _pendingCount;
+    private boolean _isClosed;
+    private IOException _archiveError;
+    private final List<IOException> _errors = new ArrayList<>();
+
+    private SourceOutputWriter(
+        final File outputDirectory,
+        final File archiveFile,
+        final ZipOutputStream archive,
+        final Charset charset) {
+
+        _outputDirectory = outputDirectory;
+        _archiveFile = archiveFile;
+        _archive = archive;
+        _charset = charset;
+        _queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+
+        _thread = new Thread(
+            new Runnable() {
+                @Override
+                public void run() {
+                    writeEntries();
+                }
+            },
+            "procyon-output-writer"
+        );
+
+        _thread.setDaemon(true);
+        _thread.start();
+    }
+
+    static SourceOutputWriter toDirectory(final File outputDirectory, final Charset charset) {
+        return new SourceOutputWriter(outputDirectory, null, null, charset);
+    }
+
+    static SourceOutputWriter toArchive(final File archiveFile, final Charset charset) throws IOException {
+        final File parentFile = archiveFile.getAbsoluteFile().getParentFile();
+
+        if (parentFile != null && !parentFile.isDirectory() && !parentFile.mkdirs() && !parentFile.isDirectory()) {
+            throw new IOException(
+                String.format(
+                    "Could not create output directory for archive \"%s\".",
+                    archiveFile.getPath()
+                )
+            );
+        }
+
+        final ZipOutputStream archive = new ZipOutputStream(
+            new BufferedOutputStream(new FileOutputStream(archiveFile))
+        );
+
+        return new SourceOutputWriter(null, archiveFile, archive, charset);
+    }
+
+    /**
+     * Returns the directory sources are being written to, or {@code null} if they are being
+     * written to an archive.
+     */
+    File getOutputDirectory() {
+        return _outputDirectory;
+    }
+
+    /**
+     * Returns the file a source written at {@code path} ends up in, or {@code null} if sources are
+     * being written to an archive.
+     */
+    File getOutputFile(final String path) {
+        return _outputDirectory != null ? new File(_outputDirectory, path) : null;
+    }
+
+    /**
+     * Queues {@code source} to be written at {@code path}, a '/'-separated path relative to the
+     * output directory or archive root.
+     */
+    void write(final String path, final String source) throws IOException {
+        write(path, source, null);
+    }
+
+    /**
+     * Queues {@code source} to be written at {@code path}, a '/'-separated path relative to the
+     * output directory or archive root.  If the source is written successfully, {@code onWritten}
+     * (if given) is run on the writer thread afterward; if not, the error is thrown from the next
+     * call to {@link #flush()} or {@link #close()}.
+     */
+    void write(final String path, final String source, final Runnable onWritten) throws IOException {
+        synchronized (this) {
+            if (_isClosed) {
+                throw new IOException("Output writer has already been closed.");
+            }
+            ++_pendingCount;
+        }
+
+        try {
+            _queue.put(new Entry(path, source, onWritten));
+        }
+        catch (final InterruptedException e) {
+            completeEntry();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while queueing output for " + path + ".");
+        }
+    }
+
+    /**
+     * Blocks until every source queued so far has been written, then throws the errors raised
+     * while writing any of them since the last flush, if there were any.
+     */
+    @Override
+    public synchronized void flush() throws IOException {
+        try {
+            while (_pendingCount > 0) {
+                wait();
+            }
+        }
+        catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for output to be written.");
+        }
+
+        throwErrors();
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (_isClosed) {
+                return;
+            }
+            _isClosed = true;
+        }
+
+        try {
+            _queue.put(END);
+            _thread.join();
+        }
+        catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for output to be written.");
+        }
+
+        if (_archive == null) {
+            synchronized (this) {
+                throwErrors();
+            }
+            return;
+        }
+
+        try {
+            _archive.close();
+        }
+        catch (final IOException e) {
+            if (_archiveError == null) {
+                _archiveError = e;
+            }
+        }
+
+        synchronized (this) {
+            if (_archiveError != null) {
+                _errors.add(
+                    0,
+                    new IOException(
+                        String.format("Could not write archive \"%s\".", _archiveFile.getPath()),
+                        _archiveError
+                    )
+                );
+            }
+
+            throwErrors();
+        }
+    }
+
+    private void throwErrors() throws IOException {
+        assert Thread.holdsLock(this);
+
+        if (_errors.isEmpty()) {
+            return;
+        }
+
+        final IOException error;
+
+        if (_errors.size() == 1) {
+            error = _errors.get(0);
+        }
+        else {
+            final StringBuilder message = new StringBuilder();
+
+            message.append("Could not write ").append(_errors.size()).append(" outputs:");
+
+            for (final IOException e : _errors) {
+                message.append("\n  ").append(e.getMessage());
+            }
+
+            error = new IOException(message.toString());
+
+            for (final IOException e : _errors) {
+                error.addSuppressed(e);
+            }
+        }
+
+        _errors.clear();
+        throw error;
+    }
+
+    private void writeEntries() {
+        while (true) {
+            final Entry entry;
+
+            try {
+                entry = _queue.take();
+            }
+            catch (final InterruptedException e) {
+                return;
+            }
+
+            if (entry == END) {
+                return;
+            }
+
+            try {
+                final byte[] data = entry.source.getBytes(_charset);
+
+                if (_archive != null) {
+                    writeArchiveEntry(entry.path, data);
+                }
+                else {
+                    writeFile(entry.path, data);
+                }
+
+                if (entry.onWritten != null && _archiveError == null) {
+                    entry.onWritten.run();
+                }
+            }
+            catch (final Throwable t) {
+                synchronized (this) {
+                    _errors.add(
+                        new IOException(
+                            String.format(
+                                "Could not write output for \"%s\": %s",
+                                entry.path,
+                                ExceptionUtilities.getMessage(t)
+                            ),
+                            t
+                        )
+                    );
+                }
+            }
+            finally {
+                completeEntry();
+            }
+        }
+    }
+
+    private void writeFile(final String path, final byte[] data) throws IOException {
+        final File outputFile = new File(_outputDirectory, path);
+        final File parentFile = outputFile.getParentFile();
+
+        if (parentFile != null && !parentFile.isDirectory() && !parentFile.mkdirs() && !parentFile.isDirectory()) {
+            throw new IOException(
+                String.format(
+                    "Could not create output directory for file \"%s\".",
+                    outputFile.getPath()
+                )
+            );
+        }
+
+        try (final OutputStream stream = new FileOutputStream(outputFile)) {
+            stream.write(data);
+        }
+    }
+
+    private void writeArchiveEntry(final String path, final byte[] data) throws IOException {
+        if (_archiveError != null) {
+            return;
+        }
+
+        //
+        // If this fails, it is most likely a duplicate entry; the archive itself is still intact.
+        //
+        _archive.putNextEntry(new ZipEntry(path));
+
+        try {
+            _archive.write(data);
+            _archive.closeEntry();
+        }
+        catch (final IOException e) {
+            //
+            // The archive is probably unusable after a failed write, so stop adding to it and
+            // report the failure when the archive is closed.
+            //
+            _archiveError = e;
+            throw e;
+        }
+    }
+
+    private synchronized void completeEntry() {
+        if (--_pendingCount == 0) {
+            notifyAll();
+        }
+    }
+
+    private final static class Entry {
+        final String path;
+        final String source;
+        final Runnable onWritten;
+
+        Entry(final String path, final String source, final Runnable onWritten) {
+            this.path = path;
+            this.source = source;
+            this.onWritten = onWritten;
+        }
+    }
+}
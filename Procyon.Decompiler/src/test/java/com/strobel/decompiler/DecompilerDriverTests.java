@@ -0,0 +1,123 @@
+package com.strobel.decompiler;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+
+import static org.junit.Assert.*;
+
+public class DecompilerDriverTests {
+    private final static Charset UTF_8 = Charset.forName("UTF-8");
+
+    @Test
+    public void testParallelJarDecompilationMatchesSerialOutput() throws Throwable {
+        final File directory = Files.createTempDirectory("procyon").toFile();
+        final File jar = new File(directory, "input.jar");
+        final File serialOutput = new File(directory, "serial");
+        final File parallelOutput = new File(directory, "parallel");
+
+        try {
+            //
+            // The driver's own classes and this test's make a small jar with nested, anonymous,
+            // and local types spread over a few packages' worth of output files.
+            //
+            writeJar(jar, getClassDirectory(DecompilerDriver.class), getClassDirectory(DecompilerDriverTests.class));
+
+            DecompilerDriver.main(new String[] { "-jar", jar.getPath(), "-o", serialOutput.getPath() });
+            DecompilerDriver.main(new String[] { "-jar", jar.getPath(), "-o", parallelOutput.getPath(), "--threads", "4" });
+
+            final Map<String, String> expected = readFiles(serialOutput, serialOutput);
+            final Map<String, String> actual = readFiles(parallelOutput, parallelOutput);
+
+            assertTrue(expected.containsKey("com/strobel/decompiler/DecompilerDriver.java"));
+            assertTrue(expected.containsKey("com/strobel/decompiler/DecompilerDriverTests.java"));
+            assertEquals(expected, actual);
+        }
+        finally {
+            delete(directory);
+        }
+    }
+
+    private static File getClassDirectory(final Class<?> type) throws Throwable {
+        final File directory = new File(type.getProtectionDomain().getCodeSource().getLocation().toURI());
+
+        assertTrue(directory.isDirectory());
+        return directory;
+    }
+
+    private static void writeJar(final File file, final File... classDirectories) throws Throwable {
+        try (final JarOutputStream out = new JarOutputStream(new FileOutputStream(file))) {
+            for (final File classDirectory : classDirectories) {
+                for (final Map.Entry<String, byte[]> entry : readClassFiles(classDirectory, classDirectory).entrySet()) {
+                    out.putNextEntry(new ZipEntry(entry.getKey()));
+                    out.write(entry.getValue());
+                    out.closeEntry();
+                }
+            }
+        }
+    }
+
+    private static Map<String, byte[]> readClassFiles(final File root, final File directory) throws Throwable {
+        final Map<String, byte[]> classFiles = new TreeMap<>();
+        final File[] files = directory.listFiles();
+
+        if (files == null) {
+            return classFiles;
+        }
+
+        for (final File file : files) {
+            if (file.isDirectory()) {
+                classFiles.putAll(readClassFiles(root, file));
+            }
+            else if (file.getName().endsWith(".class")) {
+                classFiles.put(root.toURI().relativize(file.toURI()).getPath(), Files.readAllBytes(file.toPath()));
+            }
+        }
+
+        return classFiles;
+    }
+
+    private static Map<String, String> readFiles(final File root, final File directory) throws Throwable {
+        final Map<String, String> contents = new TreeMap<>();
+        final File[] files = directory.listFiles();
+
+        if (files == null) {
+            return contents;
+        }
+
+        for (final File file : files) {
+            if (file.isDirectory()) {
+                contents.putAll(readFiles(root, file));
+            }
+            else {
+                contents.put(
+                    root.toURI().relativize(file.toURI()).getPath(),
+                    new String(Files.readAllBytes(file.toPath()), UTF_8)
+                );
+            }
+        }
+
+        return contents;
+    }
+
+    private static void delete(final File file) {
+        final File[] children = file.listFiles();
+
+        if (children != null) {
+            for (final File child : children) {
+                delete(child);
+            }
+        }
+
+        if (!file.delete()) {
+            file.deleteOnExit();
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package com.strobel.decompiler;
+
+import com.strobel.assembler.metadata.Buffer;
+import com.strobel.assembler.metadata.ITypeLoader;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class IncrementalManifestTests {
+    private final static String FINGERPRINT = "test";
+
+    private final static String BASE = internalName(Base.class);
+    private final static String DERIVED = internalName(Derived.class);
+    private final static String USER = internalName(User.class);
+    private final static String UNRELATED = internalName(Unrelated.class);
+    private final static String OUTER = internalName(Outer.class);
+    private final static String INNER = internalName(Outer.Inner.class);
+
+    private File _outputDirectory;
+    private MapTypeLoader _typeLoader;
+
+    @Before
+    public void setUp() throws Throwable {
+        _outputDirectory = Files.createTempDirectory("procyon").toFile();
+        _typeLoader = new MapTypeLoader();
+
+        for (final Class<?> type : Arrays.asList(Base.class, Derived.class, User.class, Unrelated.class, Outer.class, Outer.Inner.class)) {
+            _typeLoader.put(internalName(type), readClassFile(type));
+        }
+    }
+
+    @After
+    public void tearDown() {
+        delete(_outputDirectory);
+    }
+
+    @Test
+    public void testUnchangedTypesAreReused() throws Throwable {
+        runAndCompleteAll(FINGERPRINT);
+
+        final IncrementalManifest manifest = create(FINGERPRINT);
+
+        for (final String internalName : _typeLoader.names()) {
+            assertTrue(internalName, manifest.tryReuse(internalName));
+        }
+    }
+
+    @Test
+    public void testChangedDependenciesAreNotReused() throws Throwable {
+        runAndCompleteAll(FINGERPRINT);
+
+        //
+        // User refers to Derived, whose supertype is Base, so a change to Base reaches User as well.
+        //
+        _typeLoader.change(BASE);
+
+        final IncrementalManifest manifest = create(FINGERPRINT);
+
+        assertFalse(manifest.tryReuse(BASE));
+        assertFalse(manifest.tryReuse(DERIVED));
+        assertFalse(manifest.tryReuse(USER));
+        assertTrue(manifest.tryReuse(UNRELATED));
+        assertTrue(manifest.tryReuse(OUTER));
+    }
+
+    @Test
+    public void testChangedNestedTypesAreNotReused() throws Throwable {
+        runAndCompleteAll(FINGERPRINT);
+
+        _typeLoader.change(INNER);
+
+        final IncrementalManifest manifest = create(FINGERPRINT);
+
+        assertFalse(manifest.tryReuse(OUTER));
+        assertFalse(manifest.tryReuse(INNER));
+        assertTrue(manifest.tryReuse(USER));
+    }
+
+    @Test
+    public void testChangedFingerprintReusesNothing() throws Throwable {
+        runAndCompleteAll(FINGERPRINT);
+
+        final IncrementalManifest manifest = create(FINGERPRINT + "-changed");
+
+        for (final String internalName : _typeLoader.names()) {
+            assertFalse(internalName, manifest.tryReuse(internalName));
+        }
+    }
+
+    @Test
+    public void testIncompleteTypesAndMissingOutputsAreNotReused() throws Throwable {
+        final IncrementalManifest first = create(FINGERPRINT);
+
+        first.markCompleted(USER, writeOutput(USER));
+        first.markCompleted(UNRELATED, writeOutput(UNRELATED));
+        first.save();
+
+        assertTrue(outputFile(UNRELATED).delete());
+
+        final IncrementalManifest second = create(FINGERPRINT);
+
+        assertTrue(second.tryReuse(USER));
+        assertFalse(second.tryReuse(UNRELATED));
+        assertFalse(second.tryReuse(DERIVED));
+    }
+
+    @Test
+    public void testOutputsOfRemovedTypesAreDeleted() throws Throwable {
+        runAndCompleteAll(FINGERPRINT);
+
+        _typeLoader.remove(UNRELATED);
+
+        final IncrementalManifest manifest = create(FINGERPRINT);
+
+        manifest.deleteRemovedOutputs();
+
+        assertFalse(outputFile(UNRELATED).exists());
+        assertTrue(outputFile(USER).isFile());
+    }
+
+    @Test
+    public void testFingerprintCoversOnlyOutputOptions() {
+        final CommandLineOptions options = new CommandLineOptions();
+        final String fingerprint = options.getOutputOptionsFingerprint();
+
+        options.setOutputDirectory("out");
+        options.setThreadCount(4);
+        options.setMethodThreadCount(4);
+        options.setIncremental(true);
+        options.setPrintStatistics(true);
+        options.setLogLevel(3);
+
+        assertEquals(fingerprint, options.getOutputOptionsFingerprint());
+
+        options.setFlattenSwitchBlocks(true);
+
+        assertNotEquals(fingerprint, options.getOutputOptionsFingerprint());
+
+        options.setFlattenSwitchBlocks(false);
+        options.setMethodTimeout(1000L);
+
+        assertNotEquals(fingerprint, options.getOutputOptionsFingerprint());
+    }
+
+    private void runAndCompleteAll(final String fingerprint) throws Throwable {
+        final IncrementalManifest manifest = create(fingerprint);
+
+        for (final String internalName : _typeLoader.names()) {
+            manifest.markCompleted(internalName, internalName.equals(INNER) ? null : writeOutput(internalName));
+        }
+
+        manifest.save();
+    }
+
+    private IncrementalManifest create(final String fingerprint) throws Throwable {
+        return IncrementalManifest.create(_outputDirectory, fingerprint, _typeLoader, _typeLoader.names());
+    }
+
+    private File outputFile(final String internalName) {
+        return new File(_outputDirectory, internalName + ".java");
+    }
+
+    private File writeOutput(final String internalName) throws Throwable {
+        final File file = outputFile(internalName);
+
+        assertTrue(file.getParentFile().isDirectory() || file.getParentFile().mkdirs());
+        Files.write(file.toPath(), internalName.getBytes("UTF-8"));
+
+        return file;
+    }
+
+    private static String internalName(final Class<?> type) {
+        return type.getName().replace('.', '/');
+    }
+
+    private static byte[] readClassFile(final Class<?> type) throws Throwable {
+        try (final InputStream in = type.getResourceAsStream("/" + internalName(type) + ".class")) {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[4096];
+
+            for (int n = in.read(buffer); n >= 0; n = in.read(buffer)) {
+                out.write(buffer, 0, n);
+            }
+
+            return out.toByteArray();
+        }
+    }
+
+    private static void delete(final File file) {
+        final File[] children = file.listFiles();
+
+        if (children != null) {
+            for (final File child : children) {
+                delete(child);
+            }
+        }
+
+        if (!file.delete()) {
+            file.deleteOnExit();
+        }
+    }
+
+    private final static class MapTypeLoader implements ITypeLoader {
+        private final Map<String, byte[]> _classFiles = new LinkedHashMap<>();
+
+        void put(final String internalName, final byte[] classFile) {
+            _classFiles.put(internalName, classFile);
+        }
+
+        void remove(final String internalName) {
+            _classFiles.remove(internalName);
+        }
+
+        /**
+         * Changes a class file's bytes without changing what it declares or refers to.
+         */
+        void change(final String internalName) {
+            final byte[] classFile = _classFiles.get(internalName);
+            _classFiles.put(internalName, Arrays.copyOf(classFile, classFile.length + 1));
+        }
+
+        List<String> names() {
+            return new ArrayList<>(_classFiles.keySet());
+        }
+
+        @Override
+        public boolean tryLoadType(final String internalName, final Buffer buffer) {
+            final byte[] classFile = _classFiles.get(internalName);
+
+            if (classFile == null) {
+                return false;
+            }
+
+            buffer.reset(classFile.length);
+            buffer.putByteArray(classFile, 0, classFile.length);
+            buffer.position(0);
+
+            return true;
+        }
+    }
+
+    static class Base {}
+
+    static class Derived extends Base {}
+
+    static class User {
+        Derived derived;
+    }
+
+    static class Unrelated {}
+
+    static class Outer {
+        static class Inner {}
+    }
+}
@@ -0,0 +1,456 @@
+/*
+ * CompiledLambdaCache.java
+ *
+ * This source code is subject to terms and conditions of the Apache License, Version 2.0.
+ * A copy of the license can be found in the License.html file at the root of this distribution.
+ * By using this source code in any fashion, you are agreeing to be bound by the terms of the
+ * Apache License, Version 2.0.
+ *
+ * You must not remove this notice, or any other, from this software.
+ */
+
+package com.strobel.expressions;
+
+import com.strobel.compilerservices.Closure;
+import com.strobel.reflection.MethodInfo;
+import com.strobel.reflection.PrimitiveTypes;
+import com.strobel.reflection.Type;
+import com.strobel.util.TypeUtils;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Caches the classes generated by {@link LambdaExpression#compileSharedDelegate()}, keyed by the
+ * structure of a lambda rather than its identity.  Constants are read from the closure instead of
+ * being embedded in the generated code, so lambdas which differ only in their constant values share
+ * a class.  The exceptions are {@code null} and boolean constants and switch case values, which the
+ * compiler generates different code for, and so are part of the key.
+ * <p>
+ * Keys never hold on to constants which aren't already held by the generated class: strings and
+ * boxed primitives are kept as-is, since they end up in its constant pool, and an enum constant is
+ * reduced to its ordinal, which is all a switch on it depends on.  Lambdas with any other literal
+ * constant are compiled as usual, without caching, as are lambdas containing nested lambdas.
+ * <p>
+ * At most {@link #MAX_ENTRIES} classes are retained, evicting the least recently used, so that
+ * generated classes (and the class loaders defining them) can eventually be collected.
+ */
+final class CompiledLambdaCache {
+    final static int MAX_ENTRIES = 1024;
+
+    private final static Map<Key, Entry> ENTRIES = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+        private static final long serialVersionUID = -6017343852193651277L;
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<Key, Entry> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    @SuppressWarnings("unchecked")
+    static <T> Delegate<T> compile(final LambdaExpression<T> lambda) {
+        final ShapeVisitor shape = new ShapeVisitor();
+
+        shape.visit(lambda);
+
+        if (!shape.isCacheable) {
+            return lambda.compileDelegate();
+        }
+
+        final Key key = new Key(shape.tokens);
+        final Object[] values = shape.values.toArray();
+
+        Entry entry;
+
+        synchronized (ENTRIES) {
+            entry = ENTRIES.get(key);
+        }
+
+        if (entry == null) {
+            final LambdaExpression<T> parameterizedLambda = (LambdaExpression<T>) new ConstantRewriter(values).visit(lambda);
+
+            entry = LambdaCompiler.compileForReuse(parameterizedLambda, values);
+
+            synchronized (ENTRIES) {
+                ENTRIES.put(key, entry);
+            }
+        }
+
+        return entry.createDelegate(values);
+    }
+
+    private static boolean isParameterized(final ConstantExpression node) {
+        final Object value = node.getValue();
+        final Type<?> type = node.getType();
+
+        return value != null &&
+               TypeUtils.getUnderlyingPrimitiveOrSelf(type) != PrimitiveTypes.Boolean &&
+               TypeUtils.getBoxedTypeOrSelf(type).getErasedClass().isInstance(value);
+    }
+
+    // <editor-fold defaultstate="collapsed" desc="Entry Class">
+
+    final static class Entry {
+        private final Constructor<?> _constructor;
+        private final Object[] _constants;
+        private final int _valuesIndex;
+        private final MethodInfo _invokeMethod;
+
+        Entry(
+            final Constructor<?> constructor,
+            final Object[] constants,
+            final Object[] values,
+            final MethodInfo invokeMethod) {
+
+            _constructor = constructor;
+            _invokeMethod = invokeMethod;
+
+            int valuesIndex = -1;
+
+            if (constants != null) {
+                for (int i = 0; i < constants.length; i++) {
+                    if (constants[i] == values) {
+                        //
+                        // Don't hold on to the values of the lambda which happened to be compiled first.
+                        //
+                        constants[i] = null;
+                        valuesIndex = i;
+                        break;
+                    }
+                }
+            }
+
+            _constants = constants;
+            _valuesIndex = valuesIndex;
+        }
+
+        @SuppressWarnings("unchecked")
+        <T> Delegate<T> createDelegate(final Object[] values) {
+            try {
+                final Object instance;
+
+                if (_constants != null) {
+                    final Object[] constants = _constants.clone();
+
+                    if (_valuesIndex >= 0) {
+                        constants[_valuesIndex] = values;
+                    }
+
+                    instance = _constructor.newInstance(new Closure(constants, null));
+                }
+                else {
+                    instance = _constructor.newInstance();
+                }
+
+                return new Delegate<>((T) instance, _invokeMethod);
+            }
+            catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
+                throw Error.couldNotCreateDelegate(e);
+            }
+        }
+    }
+
+    // </editor-fold>
+
+    // <editor-fold defaultstate="collapsed" desc="Key Class">
+
+    private final static class Key {
+        private final List<Object> _tokens;
+        private final int _hashCode;
+
+        Key(final List<Object> tokens) {
+            _tokens = tokens;
+            _hashCode = tokens.hashCode();
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            return this == o ||
+                   o instanceof Key && _hashCode == ((Key) o)._hashCode && _tokens.equals(((Key) o)._tokens);
+        }
+
+        @Override
+        public int hashCode() {
+            return _hashCode;
+        }
+    }
+
+    // </editor-fold>
+
+    // <editor-fold defaultstate="collapsed" desc="ShapeVisitor Class">
+
+    /**
+     * Flattens a lambda into a list of tokens which is equal for any two lambdas the compiler would
+     * generate the same code for once their parameterized constants are read from the closure, and
+     * collects the values of those constants.  Parameters and labels are numbered in the order they
+     * are first encountered, and every node's tokens are bracketed, so the shape of the tree is
+     * unambiguous.
+     */
+    private final static class ShapeVisitor extends ExpressionVisitor {
+        private final static Object NULL = new Object();
+        private final static Object END = new Object();
+        private final static Object LITERAL = new Object();
+        private final static Object PARAMETERIZED = new Object();
+        private final static Object LABEL = new Object();
+        private final static Object CASE = new Object();
+        private final static Object CATCH = new Object();
+
+        final List<Object> tokens = new ArrayList<>();
+        final List<Object> values = new ArrayList<>();
+
+        boolean isCacheable = true;
+
+        private final Map<ParameterExpression, Integer> _parameters = new IdentityHashMap<>();
+        private final Map<LabelTarget, Integer> _labels = new IdentityHashMap<>();
+        private int _lambdaDepth;
+        private boolean _isInSwitchTest;
+
+        @Override
+        public Expression visit(final Expression node) {
+            if (node == null) {
+                tokens.add(NULL);
+                return null;
+            }
+
+            tokens.add(node.getClass());
+            tokens.add(node.getNodeType());
+            tokens.add(node.getType());
+
+            final Expression result = super.visit(node);
+
+            tokens.add(END);
+
+            return result;
+        }
+
+        @Override
+        protected <T> LambdaExpression<T> visitLambda(final LambdaExpression<T> node) {
+            if (_lambdaDepth > 0) {
+                isCacheable = false;
+                return node;
+            }
+
+            tokens.add(node.isTailCall());
+            tokens.add(node.getReturnType());
+
+            ++_lambdaDepth;
+
+            try {
+                return super.visitLambda(node);
+            }
+            finally {
+                --_lambdaDepth;
+            }
+        }
+
+        @Override
+        protected Expression visitExtension(final Expression node) {
+            isCacheable = false;
+            return node;
+        }
+
+        @Override
+        protected Expression visitConstant(final ConstantExpression node) {
+            if (!_isInSwitchTest && isParameterized(node)) {
+                tokens.add(PARAMETERIZED);
+                values.add(node.getValue());
+            }
+            else {
+                tokens.add(LITERAL);
+                tokens.add(literalToken(node.getValue()));
+            }
+            return node;
+        }
+
+        private Object literalToken(final Object value) {
+            if (value == null) {
+                return NULL;
+            }
+
+            if (value instanceof Enum<?>) {
+                return ((Enum<?>) value).ordinal();
+            }
+
+            if (value instanceof String ||
+                value instanceof Boolean ||
+                value instanceof Character ||
+                value instanceof Byte ||
+                value instanceof Short ||
+                value instanceof Integer ||
+                value instanceof Long ||
+                value instanceof Float ||
+                value instanceof Double) {
+
+                return value;
+            }
+
+            isCacheable = false;
+            return NULL;
+        }
+
+        @Override
+        protected Expression visitParameter(final ParameterExpression node) {
+            Integer index = _parameters.get(node);
+
+            if (index == null) {
+                _parameters.put(node, index = _parameters.size());
+            }
+
+            tokens.add(index);
+            return node;
+        }
+
+        @Override
+        protected LabelTarget visitLabelTarget(final LabelTarget node) {
+            if (node == null) {
+                tokens.add(NULL);
+                return null;
+            }
+
+            Integer index = _labels.get(node);
+
+            if (index == null) {
+                _labels.put(node, index = _labels.size());
+            }
+
+            tokens.add(LABEL);
+            tokens.add(index);
+            tokens.add(node.getType());
+
+            return node;
+        }
+
+        @Override
+        protected Expression visitUnary(final UnaryExpression node) {
+            tokens.add(node.getMethod());
+            return super.visitUnary(node);
+        }
+
+        @Override
+        protected Expression visitBinary(final BinaryExpression node) {
+            tokens.add(node.getMethod());
+            return super.visitBinary(node);
+        }
+
+        @Override
+        protected Expression visitMember(final MemberExpression node) {
+            tokens.add(node.getMember());
+            return super.visitMember(node);
+        }
+
+        @Override
+        protected Expression visitMethodCall(final MethodCallExpression node) {
+            tokens.add(node.getMethod());
+            return super.visitMethodCall(node);
+        }
+
+        @Override
+        protected Expression visitNew(final NewExpression node) {
+            tokens.add(node.getConstructor());
+            return super.visitNew(node);
+        }
+
+        @Override
+        protected Expression visitTypeBinary(final TypeBinaryExpression node) {
+            tokens.add(node.getTypeOperand());
+            return super.visitTypeBinary(node);
+        }
+
+        @Override
+        protected Expression visitGoto(final GotoExpression node) {
+            tokens.add(node.getKind());
+            return super.visitGoto(node);
+        }
+
+        @Override
+        protected Expression visitSwitch(final SwitchExpression node) {
+            tokens.add(node.getComparison());
+            tokens.add(node.getOptions());
+            return super.visitSwitch(node);
+        }
+
+        @Override
+        protected SwitchCase visitSwitchCase(final SwitchCase node) {
+            final ExpressionList<? extends Expression> testValues = node.getTestValues();
+
+            tokens.add(CASE);
+            tokens.add(testValues.size());
+
+            _isInSwitchTest = true;
+
+            try {
+                for (int i = 0, n = testValues.size(); i < n; i++) {
+                    visit(testValues.get(i));
+                }
+            }
+            finally {
+                _isInSwitchTest = false;
+            }
+
+            visit(node.getBody());
+            tokens.add(END);
+
+            return node;
+        }
+
+        @Override
+        protected CatchBlock visitCatchBlock(final CatchBlock node) {
+            tokens.add(CATCH);
+            tokens.add(node.getTest());
+
+            final CatchBlock result = super.visitCatchBlock(node);
+
+            tokens.add(END);
+            return result;
+        }
+    }
+
+    // </editor-fold>
+
+    // <editor-fold defaultstate="collapsed" desc="ConstantRewriter Class">
+
+    /**
+     * Replaces each parameterized constant with a load from the values array, visiting constants in
+     * the same order as {@link ShapeVisitor} so the indexes line up.
+     */
+    private final static class ConstantRewriter extends ExpressionVisitor {
+        private final ConstantExpression _values;
+        private int _nextIndex;
+
+        ConstantRewriter(final Object[] values) {
+            _values = Expression.constant(values, Type.of(Object[].class));
+        }
+
+        @Override
+        protected Expression visitConstant(final ConstantExpression node) {
+            if (!isParameterized(node)) {
+                return node;
+            }
+
+            final Type<?> type = node.getType();
+            final Type<?> boxedType = TypeUtils.getBoxedTypeOrSelf(type);
+
+            //
+            // Unbox in two steps, as the compiler won't convert directly from Object to a primitive.
+            //
+            final Expression value = Expression.convert(
+                Expression.arrayIndex(_values, Expression.constant(_nextIndex++)),
+                boxedType
+            );
+
+            return boxedType == type ? value : Expression.convert(value, type);
+        }
+
+        @Override
+        protected SwitchCase visitSwitchCase(final SwitchCase node) {
+            return node.update(node.getTestValues(), visit(node.getBody()));
+        }
+    }
+
+    // </editor-fold>
+}
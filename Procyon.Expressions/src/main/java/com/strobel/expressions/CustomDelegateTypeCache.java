@@ -110,6 +110,11 @@ final class CustomDelegateTypeCache {
             TypeList.empty()
         );
 
+        //
+        // Delegate types are cached for good, and lambdas defined in any loader must be able to see them.
+        //
+        typeBuilder.setCollectible(false);
+
         String[] genericParameterNames;
 
         int t = 0;
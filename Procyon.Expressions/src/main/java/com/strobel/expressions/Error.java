@@ -657,6 +657,13 @@ final class Error {
         );
     }
 
+    public static IllegalStateException couldNotInvokeDefaultMethod(final String methodName, final Class<?> interfaceClass, final Throwable t) {
+        return new IllegalStateException(
+            format("Could not invoke default method '%s' of interface %s.", methodName, interfaceClass.getName()),
+            t
+        );
+    }
+
     public static IllegalStateException labelTargetAlreadyDefined(final String name) {
         return new IllegalStateException(
             format("Target already defined for label '%s'.", name)
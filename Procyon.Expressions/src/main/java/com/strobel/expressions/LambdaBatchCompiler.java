@@ -0,0 +1,423 @@
+/*
+ * LambdaBatchCompiler.java
+ *
+ * This source code is subject to terms and conditions of the Apache License, Version 2.0.
+ * A copy of the license can be found in the License.html file at the root of this distribution.
+ * By using this source code in any fashion, you are agreeing to be bound by the terms of the
+ * Apache License, Version 2.0.
+ *
+ * You must not remove this notice, or any other, from this software.
+ */
+
+package com.strobel.expressions;
+
+import com.strobel.core.StringUtilities;
+import com.strobel.core.VerifyArgument;
+import com.strobel.reflection.MethodInfo;
+import com.strobel.reflection.ParameterList;
+import com.strobel.reflection.PrimitiveTypes;
+import com.strobel.reflection.Type;
+import com.strobel.reflection.TypeList;
+import com.strobel.reflection.Types;
+import com.strobel.reflection.emit.CodeGenerator;
+import com.strobel.reflection.emit.FieldBuilder;
+import com.strobel.reflection.emit.GeneratedClassLoader;
+import com.strobel.reflection.emit.Label;
+import com.strobel.reflection.emit.MethodBuilder;
+import com.strobel.reflection.emit.OpCode;
+import com.strobel.reflection.emit.SwitchCallback;
+import com.strobel.reflection.emit.TypeBuilder;
+import com.strobel.util.TypeUtils;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compiles many lambdas at once, generating a single class for all of them rather than one class
+ * per lambda.  Each lambda becomes a static method of the generated class.  Each delegate is an
+ * instance of a small class generated for its interface, which implements only that interface and
+ * dispatches to its lambda's method.  Compiling hundreds of lambdas this way defines one class,
+ * plus one per distinct interface, instead of hundreds, so they load much faster.
+ * <p>
+ * Lambdas created in different packages are compiled into one class per package, as generated code
+ * may only access package-private members of its own package.  A lambda whose interface method
+ * would clash with that of another interface in the same class (e.g., {@code Predicate<String>} and
+ * {@code Predicate<Integer>}) is compiled on its own.  Nested lambdas are still compiled into
+ * classes of their own.
+ * <p>
+ * This class is not thread-safe.
+ */
+public final class LambdaBatchCompiler {
+    private final List<LambdaExpression<?>> _lambdas = new ArrayList<>();
+
+    public LambdaBatchCompiler() {
+    }
+
+    /**
+     * Adds a lambda to the batch, returning the index of its delegate in the list returned by
+     * {@link #compile()}.
+     */
+    public int add(final LambdaExpression<?> lambda) {
+        _lambdas.add(VerifyArgument.notNull(lambda, "lambda"));
+        return _lambdas.size() - 1;
+    }
+
+    public int size() {
+        return _lambdas.size();
+    }
+
+    /**
+     * Compiles every lambda added so far, returning their delegates in the order the lambdas were
+     * added.
+     */
+    public List<Delegate<?>> compile() {
+        final Delegate<?>[] delegates = new Delegate<?>[_lambdas.size()];
+        final Map<String, List<Integer>> packages = new LinkedHashMap<>();
+
+        for (int i = 0; i < delegates.length; i++) {
+            final String packageName = getPackageName(_lambdas.get(i).getCreationContext());
+
+            List<Integer> indexes = packages.get(packageName);
+
+            if (indexes == null) {
+                packages.put(packageName, indexes = new ArrayList<>());
+            }
+
+            indexes.add(i);
+        }
+
+        for (final List<Integer> indexes : packages.values()) {
+            compileBatch(indexes, delegates);
+        }
+
+        return Collections.unmodifiableList(Arrays.asList(delegates));
+    }
+
+    public static List<Delegate<?>> compile(final List<? extends LambdaExpression<?>> lambdas) {
+        VerifyArgument.notNull(lambdas, "lambdas");
+
+        final LambdaBatchCompiler compiler = new LambdaBatchCompiler();
+
+        for (final LambdaExpression<?> lambda : lambdas) {
+            compiler.add(lambda);
+        }
+
+        return compiler.compile();
+    }
+
+    private static String getPackageName(final Class<?> creationContext) {
+        final Package p = creationContext != null ? creationContext.getPackage() : null;
+        return p != null ? p.getName() : LambdaCompiler.class.getPackage().getName();
+    }
+
+    private void compileBatch(final List<Integer> indexes, final Delegate<?>[] delegates) {
+        //
+        // Each interface gets one dispatch method.  Interfaces whose methods would share a name and
+        // erased signature can't both be implemented, so the second one's lambdas are compiled
+        // individually, as are lambdas whose parameter types don't match their interface method's.
+        //
+        final Map<Type<?>, List<Integer>> interfaces = new LinkedHashMap<>();
+        final Set<Class<?>> erasedInterfaces = new HashSet<>();
+        final Set<String> signatures = new HashSet<>();
+        final List<Integer> batched = new ArrayList<>();
+
+        for (final int index : indexes) {
+            final LambdaExpression<?> lambda = _lambdas.get(index);
+            final Type<?> interfaceType = lambda.getType();
+            final List<Integer> existing = interfaces.get(interfaceType);
+
+            if (existing != null) {
+                existing.add(index);
+                batched.add(index);
+                continue;
+            }
+
+            final MethodInfo invokeMethod = Expression.getInvokeMethod(interfaceType, true);
+            final List<String> interfaceSignatures = getSignatures(invokeMethod);
+
+            if (erasedInterfaces.contains(interfaceType.getErasedClass()) ||
+                !hasExactParameterTypes(lambda, invokeMethod) ||
+                !Collections.disjoint(signatures, interfaceSignatures)) {
+
+                delegates[index] = lambda.compileDelegate();
+                continue;
+            }
+
+            signatures.addAll(interfaceSignatures);
+
+            final List<Integer> lambdas = new ArrayList<>();
+
+            lambdas.add(index);
+            interfaces.put(interfaceType, lambdas);
+            erasedInterfaces.add(interfaceType.getErasedClass());
+            batched.add(index);
+        }
+
+        if (batched.isEmpty()) {
+            return;
+        }
+
+        final LambdaExpression<?> firstLambda = _lambdas.get(batched.get(0));
+
+        //
+        // A delegate class must be defined alongside its interface to implement it if the interface
+        // isn't public, and the batch class must in turn be defined alongside its delegate classes
+        // for them to call its methods.
+        //
+        boolean isCollectible = true;
+
+        for (final Type<?> interfaceType : interfaces.keySet()) {
+            if (!interfaceType.isPublic()) {
+                isCollectible = false;
+                break;
+            }
+        }
+
+        final TypeBuilder<?> typeBuilder = new TypeBuilder<>(
+            LambdaCompiler.getUniqueLambdaName("f__LambdaBatch", firstLambda.getCreationContext()),
+            Modifier.PUBLIC | Modifier.FINAL,
+            Type.of(Object.class),
+            TypeList.empty()
+        );
+
+        typeBuilder.setCollectible(isCollectible);
+
+        //
+        // Compile each lambda into a static method; its delegate's index is its position in the batch.
+        //
+        final Map<Integer, MethodBuilder> methods = new HashMap<>();
+        final List<LambdaCompiler> compilers = new ArrayList<>();
+
+        for (int i = 0, n = batched.size(); i < n; i++) {
+            final LambdaExpression<?> lambda = _lambdas.get(batched.get(i));
+            final String name = lambda.getName();
+
+            final MethodBuilder method = typeBuilder.defineMethod(
+                StringUtilities.isNullOrWhitespace(name) ? LambdaCompiler.getUniqueMethodName() : name + "$" + i,
+                Modifier.STATIC
+            );
+
+            compilers.add(LambdaCompiler.compileToStaticMethod(lambda, method));
+            methods.put(batched.get(i), method);
+        }
+
+        //
+        // Give each interface its own delegate class, so a delegate can't be cast to (and invoked
+        // through) the interface of another lambda in the batch.
+        //
+        final Map<Type<?>, TypeBuilder<?>> delegateTypes = new LinkedHashMap<>();
+
+        for (final Map.Entry<Type<?>, List<Integer>> entry : interfaces.entrySet()) {
+            final List<Integer> lambdas = entry.getValue();
+            final int[] keys = new int[lambdas.size()];
+            final MethodBuilder[] targets = new MethodBuilder[keys.length];
+
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = batched.indexOf(lambdas.get(i));
+                targets[i] = methods.get(lambdas.get(i));
+            }
+
+            final TypeBuilder<?> delegateType = new TypeBuilder<>(
+                typeBuilder.getFullName() + "$" + delegateTypes.size(),
+                Modifier.PUBLIC | Modifier.FINAL,
+                Type.of(Object.class),
+                Type.list(entry.getKey())
+            );
+
+            final FieldBuilder indexField = delegateType.defineField(
+                "$__index",
+                PrimitiveTypes.Integer,
+                Modifier.PRIVATE | Modifier.FINAL
+            );
+
+            defineConstructor(delegateType, indexField);
+            defineDispatchMethod(delegateType, entry.getKey(), indexField, keys, targets);
+
+            delegateTypes.put(entry.getKey(), delegateType);
+        }
+
+        //
+        // The batch type may still end up in the system class loader if its lambdas access non-public
+        // members.  Wherever it is defined, its delegate classes follow it into the same loader and
+        // package, so they can call its package-private methods.
+        //
+        final Class<?> generatedClass = typeBuilder.createType().getErasedClass();
+        final GeneratedClassLoader classLoader = typeBuilder.getGeneratedClassLoader();
+        final Map<Type<?>, Class<?>> delegateClasses = new HashMap<>();
+
+        for (final Map.Entry<Type<?>, TypeBuilder<?>> entry : delegateTypes.entrySet()) {
+            final TypeBuilder<?> delegateType = entry.getValue();
+
+            if (classLoader != null) {
+                delegateType.setGeneratedClassLoader(classLoader);
+            }
+            else {
+                delegateType.setCollectible(false);
+            }
+
+            delegateClasses.put(entry.getKey(), delegateType.createType().getErasedClass());
+        }
+
+        for (final LambdaCompiler compiler : compilers) {
+            compiler.createNestedTypes();
+            compiler.initializeStaticClosure(generatedClass);
+        }
+
+        createDelegates(delegateClasses, batched, delegates);
+    }
+
+    private static boolean hasExactParameterTypes(final LambdaExpression<?> lambda, final MethodInfo invokeMethod) {
+        final ParameterExpressionList parameters = lambda.getParameters();
+        final ParameterList methodParameters = invokeMethod.getParameters();
+
+        for (int i = 0, n = parameters.size(); i < n; i++) {
+            if (!TypeUtils.areEquivalent(parameters.get(i).getType(), methodParameters.get(i).getParameterType())) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static List<String> getSignatures(final MethodInfo invokeMethod) {
+        //
+        // Include the erasure of the interface's own declaration, which a bridge method will implement
+        // if the interface is generic.
+        //
+        final TypeList parameterTypes = invokeMethod.getParameters().getParameterTypes();
+        final Class<?>[] erasedParameterTypes = new Class<?>[parameterTypes.size()];
+
+        for (int i = 0; i < erasedParameterTypes.length; i++) {
+            erasedParameterTypes[i] = parameterTypes.get(i).getErasedClass();
+        }
+
+        return Arrays.asList(
+            getSignature(invokeMethod.getName(), erasedParameterTypes),
+            getSignature(invokeMethod.getName(), invokeMethod.getRawMethod().getParameterTypes())
+        );
+    }
+
+    private static String getSignature(final String name, final Class<?>[] parameterTypes) {
+        final StringBuilder sb = new StringBuilder(name).append('(');
+
+        for (final Class<?> parameterType : parameterTypes) {
+            sb.append(parameterType.getName()).append(';');
+        }
+
+        return sb.append(')').toString();
+    }
+
+    private static void defineConstructor(final TypeBuilder<?> typeBuilder, final FieldBuilder indexField) {
+        final CodeGenerator ctor = typeBuilder.defineConstructor(
+            Modifier.PUBLIC,
+            Type.list(PrimitiveTypes.Integer)
+        ).getCodeGenerator();
+
+        ctor.emitThis();
+        ctor.call(Type.of(Object.class).getConstructors().get(0));
+        ctor.emitThis();
+        ctor.emitLoadArgument(0);
+        ctor.putField(indexField);
+        ctor.emitReturn();
+    }
+
+    private static void defineDispatchMethod(
+        final TypeBuilder<?> typeBuilder,
+        final Type<?> interfaceType,
+        final FieldBuilder indexField,
+        final int[] keys,
+        final MethodBuilder[] targets) {
+
+        final MethodInfo interfaceMethod = Expression.getInvokeMethod(interfaceType, true);
+        final TypeList parameterTypes = interfaceMethod.getParameters().getParameterTypes();
+
+        final MethodBuilder method = typeBuilder.defineMethod(
+            interfaceMethod.getName(),
+            Modifier.PUBLIC | Modifier.FINAL,
+            interfaceMethod.getReturnType(),
+            parameterTypes,
+            interfaceMethod.getThrownTypes()
+        );
+
+        typeBuilder.defineMethodOverride(method, interfaceMethod);
+
+        final CodeGenerator generator = method.getCodeGenerator();
+
+        generator.emitThis();
+        generator.getField(indexField);
+
+        generator.emitSwitch(
+            keys,
+            new SwitchCallback() {
+                @Override
+                public void emitCase(final int key, final Label breakTarget) {
+                    for (int i = 0, n = parameterTypes.size(); i < n; i++) {
+                        generator.emitLoadArgument(i);
+                    }
+
+                    generator.call(targets[Arrays.binarySearch(keys, key)]);
+                    generator.emitReturn(interfaceMethod.getReturnType());
+                }
+
+                @Override
+                public void emitDefault(final Label breakTarget) {
+                    //
+                    // Only reachable if a delegate is constructed with an index we never handed out.
+                    //
+                    final Type<IllegalStateException> exceptionType = Type.of(IllegalStateException.class);
+
+                    generator.emitNew(exceptionType);
+                    generator.dup();
+                    generator.emitString("Invalid lambda index for " + interfaceType.getFullName() + ".");
+                    generator.call(exceptionType.getConstructor(Types.String));
+                    generator.emit(OpCode.ATHROW);
+                }
+            }
+        );
+    }
+
+    @SuppressWarnings("unchecked")
+    private void createDelegates(
+        final Map<Type<?>, Class<?>> delegateClasses,
+        final List<Integer> batched,
+        final Delegate<?>[] delegates) {
+
+        final Map<Type<?>, Constructor<?>> constructors = new HashMap<>();
+        final Map<Type<?>, MethodInfo> invokeMethods = new HashMap<>();
+
+        try {
+            for (int i = 0, n = batched.size(); i < n; i++) {
+                final int index = batched.get(i);
+                final Type<?> interfaceType = _lambdas.get(index).getType();
+
+                Constructor<?> constructor = constructors.get(interfaceType);
+                MethodInfo invokeMethod = invokeMethods.get(interfaceType);
+
+                if (constructor == null) {
+                    final Class<?> delegateClass = delegateClasses.get(interfaceType);
+
+                    constructor = delegateClass.getConstructor(int.class);
+                    invokeMethod = LambdaCompiler.getInvokeMethod(delegateClass, interfaceType);
+
+                    constructors.put(interfaceType, constructor);
+                    invokeMethods.put(interfaceType, invokeMethod);
+                }
+
+                delegates[index] = new Delegate<>(constructor.newInstance(i), invokeMethod);
+            }
+        }
+        catch (NoSuchMethodException | InstantiationException | IllegalAccessException | InvocationTargetException e) {
+            throw Error.couldNotCreateDelegate(e);
+        }
+    }
+}
@@ -28,10 +28,13 @@ import com.strobel.util.ContractUtils;
 import com.strobel.util.TypeUtils;
 
 import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Modifier;
 import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -52,8 +55,10 @@ final class LambdaCompiler {
     private final KeyedQueue<Type<?>, LocalBuilder> _freeLocals;
     private final BoundConstants                    _boundConstants;
     private final Map<LabelTarget, LabelInfo>       _labelInfo = new HashMap<>();
+    private final List<LambdaCompiler>              _nestedLambdas;
 
     private ConstructorBuilder _constructorBuilder;
+    private boolean            _useStaticClosure;
     private boolean            _hasClosureArgument;
     private FieldBuilder       _closureField;
     private CompilerScope      _scope;
@@ -70,6 +75,12 @@ final class LambdaCompiler {
             Type.list(lambda.getType())
         );
 
+        //
+        // Lambda classes are only reachable through their delegates, so let them be unloaded along
+        // with those.
+        //
+        typeBuilder.setCollectible(true);
+
         final MethodInfo interfaceMethod = Expression.getInvokeMethod(lambda.getType(), true);
 
         methodBuilder = typeBuilder.defineMethod(
@@ -94,6 +105,7 @@ final class LambdaCompiler {
         _scope = tree.scopes.get(lambda);
         _boundConstants = tree.constants.get(lambda);
         _freeLocals = new KeyedQueue<>();
+        _nestedLambdas = new ArrayList<>();
 
         if (_scope.needsClosure || _boundConstants.count() > 0) {
             ensureClosure();
@@ -106,7 +118,8 @@ final class LambdaCompiler {
         final AnalyzedTree tree,
         final LambdaExpression<?> lambda,
         final MethodBuilder method,
-        final ConstructorBuilder constructor) {
+        final ConstructorBuilder constructor,
+        final boolean useStaticClosure) {
 
         this.lambda = lambda;
 
@@ -130,9 +143,15 @@ final class LambdaCompiler {
         this.generator = methodBuilder.getCodeGenerator();
 
         _freeLocals = new KeyedQueue<>();
+        _nestedLambdas = new ArrayList<>();
         _tree = tree;
         _scope = tree.scopes.get(lambda);
         _boundConstants = tree.constants.get(lambda);
+        _useStaticClosure = useStaticClosure;
+
+        if (useStaticClosure && _boundConstants.count() > 0) {
+            ensureClosure();
+        }
 
         initializeMethod();
     }
@@ -140,6 +159,7 @@ final class LambdaCompiler {
     private LambdaCompiler(final LambdaCompiler parent, final LambdaExpression lambda) {
         _tree = parent._tree;
         _freeLocals = parent._freeLocals;
+        _nestedLambdas = parent._nestedLambdas;
         this.lambda = lambda;
         this.methodBuilder = parent.methodBuilder;
         this.generator = parent.generator;
@@ -184,7 +204,10 @@ final class LambdaCompiler {
         assert _hasClosureArgument
             : "must have a Closure argument";
 
-        generator.emitThis();
+        if (!_closureField.isStatic()) {
+            generator.emitThis();
+        }
+
         generator.getField(_closureField);
     }
 
@@ -281,6 +304,36 @@ final class LambdaCompiler {
         final LambdaExpression<T> lambda,
         final DebugInfoGenerator debugInfoGenerator) {
 
+        final LambdaCompiler c = compileType(lambda, debugInfoGenerator);
+
+        final Type<T> generatedType = (Type<T>) c.createType();
+        final Class<T> generatedClass = generatedType.getErasedClass();
+
+        return c.createDelegate(generatedClass);
+    }
+
+    static CompiledLambdaCache.Entry compileForReuse(final LambdaExpression<?> lambda, final Object[] values) {
+        final LambdaCompiler c = compileType(lambda, DebugInfoGenerator.empty());
+        final Class<?> generatedClass = c.createType().getErasedClass();
+
+        try {
+            return new CompiledLambdaCache.Entry(
+                c._hasClosureArgument ? generatedClass.getConstructor(Closure.class)
+                                      : generatedClass.getConstructor(),
+                c._hasClosureArgument ? c._boundConstants.toArray() : null,
+                values,
+                c.getInvokeMethod(generatedClass)
+            );
+        }
+        catch (final NoSuchMethodException e) {
+            throw Error.couldNotCreateDelegate(e);
+        }
+    }
+
+    private static <T> LambdaCompiler compileType(
+        final LambdaExpression<T> lambda,
+        final DebugInfoGenerator debugInfoGenerator) {
+
         // 1. Bind lambda
         final Pair<AnalyzedTree, LambdaExpression<T>> result = analyzeLambda(lambda);
         final AnalyzedTree tree = result.getFirst();
@@ -294,10 +347,7 @@ final class LambdaCompiler {
         // 3. emit
         c.emitLambdaBody();
 
-        final Type<T> generatedType = (Type<T>) c.typeBuilder.createType();
-        final Class<T> generatedClass = generatedType.getErasedClass();
-
-        return c.createDelegate(generatedClass);
+        return c;
     }
 
     @SuppressWarnings("unchecked")
@@ -314,16 +364,9 @@ final class LambdaCompiler {
                 instance = generatedClass.newInstance();
             }
 
-            final MemberList<? extends MemberInfo> method = Type.of(generatedClass).findMembers(
-                MemberType.methodsOnly(),
-                BindingFlags.PublicInstanceDeclared,
-                Type.FilterMethodOverride,
-                Expression.getInvokeMethod(lambda.getType(), true)
-            );
-
             return new Delegate<>(
                 instance,
-                (MethodInfo) method.get(0)
+                getInvokeMethod(generatedClass)
             );
         }
         catch (NoSuchMethodException | InstantiationException | IllegalAccessException | InvocationTargetException e) {
@@ -331,11 +374,70 @@ final class LambdaCompiler {
         }
     }
 
+    private Type<?> createType() {
+        final Type<?> generatedType = typeBuilder.createType();
+
+        //
+        // Nested lambdas are created after the lambda which instantiates them, so that they get
+        // defined in a class loader it can see (see TypeBuilder.setCollectible()).
+        //
+        for (final LambdaCompiler nested : _nestedLambdas) {
+            nested.createType();
+        }
+
+        return generatedType;
+    }
+
+    private MethodInfo getInvokeMethod(final Class<?> generatedClass) {
+        return getInvokeMethod(generatedClass, lambda.getType());
+    }
+
+    static MethodInfo getInvokeMethod(final Class<?> generatedClass, final Type<?> interfaceType) {
+        final MemberList<? extends MemberInfo> method = Type.of(generatedClass).findMembers(
+            MemberType.methodsOnly(),
+            BindingFlags.PublicInstanceDeclared,
+            Type.FilterMethodOverride,
+            Expression.getInvokeMethod(interfaceType, true)
+        );
+
+        return (MethodInfo) method.get(0);
+    }
+
     static <T> void compile(
         final LambdaExpression<T> lambda,
         final MethodBuilder methodBuilder,
         final DebugInfoGenerator debugInfoGenerator) {
 
+        final LambdaCompiler c = compileToMethod(lambda, methodBuilder, debugInfoGenerator, false);
+
+        //
+        // 4. Create nested lambdas.  The caller creates the declaring type, so we can't know which class
+        //    loader it will be defined in; define them where any type can see them.
+        //
+        for (final LambdaCompiler nested : c._nestedLambdas) {
+            nested.typeBuilder.setCollectible(false);
+            nested.createType();
+        }
+    }
+
+    /**
+     * Compiles a lambda into a static method.  Any constants which cannot be embedded in the code are
+     * read from a static closure field, which {@link #initializeStaticClosure(Class)} must set once
+     * the declaring type has been created.  Nested lambdas are left for {@link #createNestedTypes()}.
+     */
+    static LambdaCompiler compileToStaticMethod(final LambdaExpression<?> lambda, final MethodBuilder methodBuilder) {
+        assert methodBuilder.isStatic()
+            : "methodBuilder.isStatic()";
+
+        return compileToMethod(lambda, methodBuilder, DebugInfoGenerator.empty(), true);
+    }
+
+    private static <T> LambdaCompiler compileToMethod(
+        final LambdaExpression<T> lambda,
+        final MethodBuilder methodBuilder,
+        final DebugInfoGenerator debugInfoGenerator,
+        final boolean useStaticClosure) {
+
         // 1. Bind lambda
         final Pair<AnalyzedTree, LambdaExpression<T>> result = analyzeLambda(lambda);
         final AnalyzedTree tree = result.getFirst();
@@ -344,10 +446,34 @@ final class LambdaCompiler {
         tree.setDebugInfoGenerator(debugInfoGenerator);
 
         // 2. Create lambda compiler
-        final LambdaCompiler c = new LambdaCompiler(tree, analyzedLambda, methodBuilder, null);
+        final LambdaCompiler c = new LambdaCompiler(tree, analyzedLambda, methodBuilder, null, useStaticClosure);
 
         // 3. emit
         c.emitLambdaBody();
+
+        return c;
+    }
+
+    void createNestedTypes() {
+        for (final LambdaCompiler nested : _nestedLambdas) {
+            nested.createType();
+        }
+    }
+
+    void initializeStaticClosure(final Class<?> generatedClass) {
+        if (!_hasClosureArgument) {
+            return;
+        }
+
+        try {
+            final Field closureField = generatedClass.getDeclaredField(_closureField.getName());
+
+            closureField.setAccessible(true);
+            closureField.set(null, new Closure(_boundConstants.toArray(), null));
+        }
+        catch (final NoSuchFieldException | IllegalAccessException e) {
+            throw Error.couldNotCreateDelegate(e);
+        }
     }
 
     private static <T> Pair<AnalyzedTree, LambdaExpression<T>> analyzeLambda(final LambdaExpression<T> lambda) {
@@ -1371,7 +1497,11 @@ final class LambdaCompiler {
     private Expression getEqualityOperand(final Expression expression) {
         if (expression.getNodeType() == ExpressionType.Convert) {
             final UnaryExpression convert = (UnaryExpression) expression;
-            if (TypeUtils.areReferenceAssignable(convert.getType(), convert.getOperand().getType())) {
+            //
+            // Unboxing conversions must still be emitted, or we'd leave a reference on the stack.
+            //
+            if (TypeUtils.areReferenceAssignable(convert.getType(), convert.getOperand().getType()) &&
+                !(convert.getType().isPrimitive() && !convert.getOperand().getType().isPrimitive())) {
                 return convert.getOperand();
             }
         }
@@ -2770,7 +2900,8 @@ final class LambdaCompiler {
         // 3. emit the delegate creation in the outer lambda
         emitDelegateConstruction(compiler);
 
-        compiler.typeBuilder.createType();
+        // 4. create the lambda's type once ours has been created
+        _nestedLambdas.add(compiler);
     }
 
     static String getUniqueMethodName() {
@@ -2915,6 +3046,15 @@ final class LambdaCompiler {
 
         _hasClosureArgument = true;
 
+        if (_useStaticClosure) {
+            _closureField = typeBuilder.defineField(
+                methodBuilder.getName() + "$__closure",
+                Type.of(Closure.class),
+                Modifier.PRIVATE | Modifier.STATIC
+            );
+            return;
+        }
+
         _closureField = typeBuilder.defineField(
             "$__closure",
             Type.of(Closure.class),
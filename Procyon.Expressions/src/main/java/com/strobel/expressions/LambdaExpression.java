@@ -141,6 +141,52 @@ public final class LambdaExpression<T> extends Expression {
         return LambdaCompiler.compile(this, DebugInfoGenerator.empty());
     }
 
+    /**
+     * Like {@link #compile()}, but shares generated code between lambdas of the same shape.
+     *
+     * @see #compileSharedDelegate()
+     */
+    public final T compileShared() {
+        return compileSharedDelegate().getInstance();
+    }
+
+    /**
+     * Like {@link #compileDelegate()}, but reuses the class generated for any structurally identical
+     * lambda compiled this way before, even if its constants had different values.  Such constants are
+     * read from the delegate's closure rather than embedded in the generated code.
+     */
+    public final Delegate<T> compileSharedDelegate() {
+        return CompiledLambdaCache.compile(this);
+    }
+
+    /**
+     * Like {@link #compile()}, but interprets the lambda until it has been invoked often enough to be
+     * worth compiling.
+     *
+     * @see #interpretDelegate(int)
+     */
+    public final T interpret() {
+        return interpretDelegate().getInstance();
+    }
+
+    /**
+     * Returns {@link #interpretDelegate(int)} with the default compilation threshold, which may be set
+     * with the {@code com.strobel.expressions.LambdaInterpreter.CompilationThreshold} system property.
+     */
+    public final Delegate<T> interpretDelegate() {
+        return interpretDelegate(LambdaInterpreter.DEFAULT_COMPILATION_THRESHOLD);
+    }
+
+    /**
+     * Creates a delegate which runs this lambda by interpreting its expression tree.  Once it has been
+     * interpreted {@code compilationThreshold} times, the lambda is compiled, and all later calls go to
+     * the compiled code.  A negative threshold means the lambda is never compiled.  If the tree uses
+     * features the interpreter does not support, the lambda is compiled immediately.
+     */
+    public final Delegate<T> interpretDelegate(final int compilationThreshold) {
+        return LambdaInterpreter.interpret(this, compilationThreshold);
+    }
+
     public final MethodHandle compileHandle() {
         return LambdaCompiler.compile(this, DebugInfoGenerator.empty()).getMethodHandle();
     }
@@ -0,0 +1,1535 @@
+/*
+ * LambdaInterpreter.java
+ *
+ * This source code is subject to terms and conditions of the Apache License, Version 2.0.
+ * A copy of the license can be found in the License.html file at the root of this distribution.
+ * By using this source code in any fashion, you are agreeing to be bound by the terms of the
+ * Apache License, Version 2.0.
+ *
+ * You must not remove this notice, or any other, from this software.
+ */
+
+package com.strobel.expressions;
+
+import com.strobel.core.StringUtilities;
+import com.strobel.reflection.FieldInfo;
+import com.strobel.reflection.MethodInfo;
+import com.strobel.reflection.PrimitiveTypes;
+import com.strobel.reflection.Type;
+import com.strobel.util.ContractUtils;
+import com.strobel.util.TypeUtils;
+
+import javax.lang.model.type.TypeKind;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs lambdas by walking their expression trees, so that code which is only executed a few times
+ * does not pay for generating, verifying, and loading a class.  An interpreted lambda counts its
+ * invocations and compiles itself once it has been interpreted {@code compilationThreshold} times;
+ * from then on, every call goes to the compiled code.
+ * <p>
+ * Values are kept boxed, with primitives represented by their exact wrapper types.  Trees containing
+ * nodes the interpreter does not support (runtime variables, quotes, checked conversions, rethrows,
+ * irreducible extensions, or jumps into nested constructs) are compiled up front.
+ */
+final class LambdaInterpreter {
+    private final static Logger LOG = Logger.getLogger(LambdaInterpreter.class.getName());
+    private final static String CompilationThresholdProperty = "com.strobel.expressions.LambdaInterpreter.CompilationThreshold";
+
+    final static int DEFAULT_COMPILATION_THRESHOLD = getDefaultCompilationThreshold();
+
+    private final Map<Object, Object> _resolved;
+    private final Map<Method, MethodHandle> _defaultMethods;
+
+    private LambdaInterpreter(final Map<Object, Object> resolved) {
+        _resolved = resolved;
+        _defaultMethods = new ConcurrentHashMap<>();
+    }
+
+    static <T> Delegate<T> interpret(final LambdaExpression<T> lambda, final int compilationThreshold) {
+        final LambdaExpression<?> reducedLambda = (LambdaExpression<?>) new Reducer().visit(lambda);
+        final Analyzer analyzer = new Analyzer();
+
+        analyzer.visit(reducedLambda);
+
+        if (!analyzer.isSupported) {
+            return lambda.compileDelegate();
+        }
+
+        final LambdaInterpreter interpreter = new LambdaInterpreter(analyzer.resolved);
+        final Invoker invoker = new Invoker(interpreter, reducedLambda, null, lambda, compilationThreshold);
+
+        @SuppressWarnings("unchecked")
+        final T instance = (T) invoker.createInstance();
+
+        return new Delegate<>(instance, Expression.getInvokeMethod(lambda));
+    }
+
+    private static int getDefaultCompilationThreshold() {
+        final String value = System.getProperty(CompilationThresholdProperty);
+
+        if (!StringUtilities.isNullOrWhitespace(value)) {
+            try {
+                return Integer.parseInt(value.trim());
+            }
+            catch (final NumberFormatException ignored) {
+            }
+        }
+
+        return 32;
+    }
+
+    // <editor-fold defaultstate="collapsed" desc="Evaluation">
+
+    private Object evaluate(final Expression node, final Scope scope) throws Throwable {
+        switch (node.getNodeType()) {
+            case Constant:
+                return ((ConstantExpression) node).getValue();
+
+            case Parameter:
+                return scope.get((ParameterExpression) node);
+
+            case DefaultValue:
+                return getDefaultValue(node.getType());
+
+            case Lambda:
+                return new Invoker(this, (LambdaExpression<?>) node, scope, null, -1).createInstance();
+
+            case Block:
+                return evaluateBlock((BlockExpression) node, scope);
+
+            case Conditional: {
+                final ConditionalExpression conditional = (ConditionalExpression) node;
+
+                return (Boolean) evaluate(conditional.getTest(), scope)
+                       ? evaluate(conditional.getIfTrue(), scope)
+                       : evaluate(conditional.getIfFalse(), scope);
+            }
+
+            case Label:
+                return evaluateLabel((LabelExpression) node, scope);
+
+            case Goto: {
+                final GotoExpression gotoExpression = (GotoExpression) node;
+                final Expression value = gotoExpression.getValue();
+
+                throw new Jump(gotoExpression.getTarget(), value != null ? evaluate(value, scope) : null);
+            }
+
+            case Loop:
+                return evaluateLoop((LoopExpression) node, scope);
+
+            case Switch:
+                return evaluateSwitch((SwitchExpression) node, scope);
+
+            case Try:
+                return evaluateTry((TryExpression) node, scope);
+
+            case MemberAccess: {
+                final MemberExpression member = (MemberExpression) node;
+                final Field field = (Field) _resolved.get(node);
+                final Expression target = member.getTarget();
+
+                return field.get(target != null ? evaluate(target, scope) : null);
+            }
+
+            case Call: {
+                final MethodCallExpression call = (MethodCallExpression) node;
+                final Expression target = call.getTarget();
+
+                return invoke(
+                    (Method) _resolved.get(node),
+                    target != null ? evaluate(target, scope) : null,
+                    evaluateAll(call.getArguments(), scope)
+                );
+            }
+
+            case Invoke: {
+                final InvocationExpression invocation = (InvocationExpression) node;
+
+                return invoke(
+                    (Method) _resolved.get(node),
+                    evaluate(invocation.getExpression(), scope),
+                    evaluateAll(invocation.getArguments(), scope)
+                );
+            }
+
+            case New: {
+                final Constructor<?> constructor = (Constructor<?>) _resolved.get(node);
+                final Object[] arguments = evaluateAll(((NewExpression) node).getArguments(), scope);
+
+                try {
+                    return constructor.newInstance(arguments);
+                }
+                catch (final InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+
+            case NewArrayInit: {
+                final ExpressionList<? extends Expression> expressions = ((NewArrayExpression) node).getExpressions();
+                final Object array = Array.newInstance(node.getType().getElementType().getErasedClass(), expressions.size());
+
+                for (int i = 0, n = expressions.size(); i < n; i++) {
+                    Array.set(array, i, evaluate(expressions.get(i), scope));
+                }
+
+                return array;
+            }
+
+            case NewArrayBounds: {
+                final ExpressionList<? extends Expression> bounds = ((NewArrayExpression) node).getExpressions();
+                final int[] dimensions = new int[bounds.size()];
+
+                Class<?> elementClass = node.getType().getErasedClass();
+
+                for (int i = 0; i < dimensions.length; i++) {
+                    dimensions[i] = asNumber(evaluate(bounds.get(i), scope)).intValue();
+                    elementClass = elementClass.getComponentType();
+                }
+
+                return Array.newInstance(elementClass, dimensions);
+            }
+
+            case InstanceOf: {
+                final TypeBinaryExpression typeBinary = (TypeBinaryExpression) node;
+                final Object value = evaluate(typeBinary.getOperand(), scope);
+
+                return typeBinary.getTypeOperand().getErasedClass().isInstance(value);
+            }
+
+            case Assign:
+                return evaluateAssign((BinaryExpression) node, scope);
+
+            case AndAlso: {
+                final BinaryExpression binary = (BinaryExpression) node;
+
+                return (Boolean) evaluate(binary.getLeft(), scope) &&
+                       (Boolean) evaluate(binary.getRight(), scope);
+            }
+
+            case OrElse: {
+                final BinaryExpression binary = (BinaryExpression) node;
+
+                return (Boolean) evaluate(binary.getLeft(), scope) ||
+                       (Boolean) evaluate(binary.getRight(), scope);
+            }
+
+            case Coalesce: {
+                final BinaryExpression binary = (BinaryExpression) node;
+                final Object left = evaluate(binary.getLeft(), scope);
+
+                return left != null ? left : evaluate(binary.getRight(), scope);
+            }
+
+            case ArrayIndex: {
+                final BinaryExpression binary = (BinaryExpression) node;
+                final Object array = evaluate(binary.getLeft(), scope);
+                final Object index = evaluate(binary.getRight(), scope);
+
+                return Array.get(array, asNumber(index).intValue());
+            }
+
+            case Add:
+            case Subtract:
+            case Multiply:
+            case Divide:
+            case Modulo:
+            case And:
+            case Or:
+            case ExclusiveOr:
+            case LeftShift:
+            case RightShift:
+            case UnsignedRightShift:
+            case Equal:
+            case NotEqual:
+            case LessThan:
+            case LessThanOrEqual:
+            case GreaterThan:
+            case GreaterThanOrEqual:
+            case ReferenceEqual:
+            case ReferenceNotEqual:
+                return evaluateBinary((BinaryExpression) node, scope);
+
+            default:
+                return evaluateUnary((UnaryExpression) node, scope);
+        }
+    }
+
+    private Object[] evaluateAll(final ExpressionList<? extends Expression> expressions, final Scope scope) throws Throwable {
+        final Object[] values = new Object[expressions.size()];
+
+        for (int i = 0; i < values.length; i++) {
+            values[i] = evaluate(expressions.get(i), scope);
+        }
+
+        return values;
+    }
+
+    private Object evaluateBlock(final BlockExpression node, final Scope scope) throws Throwable {
+        final ParameterExpressionList variables = node.getVariables();
+        final Scope blockScope = variables.isEmpty() ? scope : new Scope(scope, variables, null);
+        final ExpressionList<? extends Expression> expressions = node.getExpressions();
+        final int count = expressions.size();
+
+        Object result = null;
+        int i = 0;
+
+        while (true) {
+            try {
+                for (; i < count; i++) {
+                    result = evaluate(expressions.get(i), blockScope);
+                }
+                return result;
+            }
+            catch (final Jump jump) {
+                //
+                // Resume after the label if it belongs to this block; the label's value is the
+                // value carried by the jump.
+                //
+                final int labelIndex = indexOfLabel(expressions, jump.target);
+
+                if (labelIndex < 0) {
+                    throw jump;
+                }
+
+                result = jump.value;
+                i = labelIndex + 1;
+            }
+        }
+    }
+
+    private static int indexOfLabel(final ExpressionList<? extends Expression> expressions, final LabelTarget target) {
+        for (int i = 0, n = expressions.size(); i < n; i++) {
+            final Expression expression = expressions.get(i);
+
+            if (expression instanceof LabelExpression && ((LabelExpression) expression).getTarget() == target) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private Object evaluateLabel(final LabelExpression node, final Scope scope) throws Throwable {
+        final Expression defaultValue = node.getDefaultValue();
+
+        if (defaultValue == null) {
+            return null;
+        }
+
+        try {
+            return evaluate(defaultValue, scope);
+        }
+        catch (final Jump jump) {
+            if (jump.target != node.getTarget()) {
+                throw jump;
+            }
+            return jump.value;
+        }
+    }
+
+    private Object evaluateLoop(final LoopExpression node, final Scope scope) throws Throwable {
+        final LabelTarget breakTarget = node.getBreakTarget();
+        final LabelTarget continueTarget = node.getContinueTarget();
+        final Expression body = node.getBody();
+
+        while (true) {
+            try {
+                evaluate(body, scope);
+            }
+            catch (final Jump jump) {
+                if (jump.target == breakTarget) {
+                    return jump.value;
+                }
+                if (jump.target != continueTarget) {
+                    throw jump;
+                }
+            }
+        }
+    }
+
+    private Object evaluateSwitch(final SwitchExpression node, final Scope scope) throws Throwable {
+        final Object switchValue = evaluate(node.getSwitchValue(), scope);
+        final MethodInfo comparison = node.getComparison();
+        final Method comparisonMethod = (Method) _resolved.get(node);
+
+        for (final SwitchCase switchCase : node.getCases()) {
+            for (final Expression test : switchCase.getTestValues()) {
+                final Object testValue = evaluate(test, scope);
+                final boolean matches;
+
+                if (comparisonMethod == null) {
+                    matches = switchValue != null ? switchValue.equals(testValue) : testValue == null;
+                }
+                else if (comparison.isStatic()) {
+                    matches = (Boolean) invoke(comparisonMethod, null, switchValue, testValue);
+                }
+                else {
+                    matches = (Boolean) invoke(comparisonMethod, switchValue, testValue);
+                }
+
+                if (matches) {
+                    return evaluate(switchCase.getBody(), scope);
+                }
+            }
+        }
+
+        final Expression defaultBody = node.getDefaultBody();
+
+        return defaultBody != null ? evaluate(defaultBody, scope) : null;
+    }
+
+    private Object evaluateTry(final TryExpression node, final Scope scope) throws Throwable {
+        final Expression finallyBlock = node.getFinallyBlock();
+
+        try {
+            return evaluate(node.getBody(), scope);
+        }
+        catch (final Jump jump) {
+            throw jump;
+        }
+        catch (final Throwable t) {
+            for (final CatchBlock handler : node.getHandlers()) {
+                if (!handler.getTest().getErasedClass().isInstance(t)) {
+                    continue;
+                }
+
+                final ParameterExpression variable = handler.getVariable();
+
+                final Scope handlerScope = variable != null
+                                           ? new Scope(scope, new ParameterExpressionList(variable), new Object[] { t })
+                                           : scope;
+
+                final Expression filter = handler.getFilter();
+
+                if (filter != null && !(Boolean) evaluate(filter, handlerScope)) {
+                    continue;
+                }
+
+                return evaluate(handler.getBody(), handlerScope);
+            }
+
+            throw t;
+        }
+        finally {
+            if (finallyBlock != null) {
+                evaluate(finallyBlock, scope);
+            }
+        }
+    }
+
+    private Object evaluateAssign(final BinaryExpression node, final Scope scope) throws Throwable {
+        final Expression left = node.getLeft();
+
+        switch (left.getNodeType()) {
+            case Parameter: {
+                final Object value = evaluate(node.getRight(), scope);
+                scope.set((ParameterExpression) left, value);
+                return value;
+            }
+
+            case MemberAccess: {
+                final Field field = (Field) _resolved.get(left);
+                final Expression target = ((MemberExpression) left).getTarget();
+                final Object targetValue = target != null ? evaluate(target, scope) : null;
+                final Object value = evaluate(node.getRight(), scope);
+
+                field.set(targetValue, value);
+                return value;
+            }
+
+            case ArrayIndex: {
+                final BinaryExpression arrayIndex = (BinaryExpression) left;
+                final Object array = evaluate(arrayIndex.getLeft(), scope);
+                final Object index = evaluate(arrayIndex.getRight(), scope);
+                final Object value = evaluate(node.getRight(), scope);
+
+                Array.set(array, asNumber(index).intValue(), value);
+                return value;
+            }
+
+            default:
+                throw ContractUtils.unreachable();
+        }
+    }
+
+    private Object evaluateBinary(final BinaryExpression node, final Scope scope) throws Throwable {
+        final Expression leftNode = node.getLeft();
+        final Expression rightNode = node.getRight();
+        final Object left = evaluate(leftNode, scope);
+        final Object right = evaluate(rightNode, scope);
+        final Method method = (Method) _resolved.get(node);
+
+        if (method != null) {
+            if (Modifier.isStatic(method.getModifiers())) {
+                return invoke(method, null, left, right);
+            }
+
+            if (TypeUtils.isSameOrSubType(node.getMethod().getDeclaringType(), leftNode.getType())) {
+                return invoke(method, left, right);
+            }
+
+            return invoke(method, right, left);
+        }
+
+        final ExpressionType nodeType = node.getNodeType();
+
+        switch (nodeType) {
+            case ReferenceEqual:
+                return left == right;
+
+            case ReferenceNotEqual:
+                return left != right;
+
+            case Equal:
+            case NotEqual:
+            case LessThan:
+            case LessThanOrEqual:
+            case GreaterThan:
+            case GreaterThanOrEqual:
+                return compare(nodeType, leftNode.getType(), rightNode.getType(), left, right);
+
+            default:
+                return arithmetic(nodeType, getPrimitiveKind(node.getType()), left, right);
+        }
+    }
+
+    private Object evaluateUnary(final UnaryExpression node, final Scope scope) throws Throwable {
+        final Expression operand = node.getOperand();
+        final Object value = evaluate(operand, scope);
+        final Method method = (Method) _resolved.get(node);
+
+        if (method != null) {
+            return Modifier.isStatic(method.getModifiers())
+                   ? invoke(method, null, value)
+                   : invoke(method, value);
+        }
+
+        switch (node.getNodeType()) {
+            case Convert:
+                return convert(value, operand.getType(), node.getType());
+
+            case Unbox:
+                if (value == null) {
+                    throw new NullPointerException();
+                }
+                return value;
+
+            case ArrayLength:
+                return Array.getLength(value);
+
+            case Throw:
+                throw (Throwable) value;
+
+            case IsNull:
+                return value == null;
+
+            case IsNotNull:
+                return value != null;
+
+            case IsTrue:
+                return (Boolean) value;
+
+            case IsFalse:
+                return !(Boolean) value;
+
+            case Not:
+            case OnesComplement: {
+                final TypeKind kind = getPrimitiveKind(node.getType());
+
+                if (kind == TypeKind.BOOLEAN) {
+                    return !(Boolean) value;
+                }
+
+                return arithmetic(ExpressionType.ExclusiveOr, kind, value, -1);
+            }
+
+            case Negate: {
+                final TypeKind kind = getPrimitiveKind(node.getType());
+
+                switch (kind) {
+                    case FLOAT:
+                        return -asNumber(value).floatValue();
+                    case DOUBLE:
+                        return -asNumber(value).doubleValue();
+                    default:
+                        return arithmetic(ExpressionType.Subtract, kind, 0, value);
+                }
+            }
+
+            case Increment:
+                return arithmetic(ExpressionType.Add, getPrimitiveKind(node.getType()), value, 1);
+
+            case Decrement:
+                return arithmetic(ExpressionType.Subtract, getPrimitiveKind(node.getType()), value, 1);
+
+            default:
+                throw ContractUtils.unreachable();
+        }
+    }
+
+    private static Object invoke(final Method method, final Object target, final Object... arguments) throws Throwable {
+        try {
+            return method.invoke(target, arguments);
+        }
+        catch (final InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    // </editor-fold>
+
+    // <editor-fold defaultstate="collapsed" desc="Primitive Operations">
+
+    private static TypeKind getPrimitiveKind(final Type<?> type) {
+        return TypeUtils.getUnderlyingPrimitiveOrSelf(type).getKind();
+    }
+
+    private static Number asNumber(final Object value) {
+        if (value instanceof Character) {
+            return (int) (Character) value;
+        }
+        return (Number) value;
+    }
+
+    private static Object getDefaultValue(final Type<?> type) {
+        switch (type.getKind()) {
+            case BOOLEAN:
+                return false;
+            case BYTE:
+                return (byte) 0;
+            case SHORT:
+                return (short) 0;
+            case CHAR:
+                return (char) 0;
+            case INT:
+                return 0;
+            case LONG:
+                return 0L;
+            case FLOAT:
+                return 0f;
+            case DOUBLE:
+                return 0d;
+            default:
+                return null;
+        }
+    }
+
+    private static Object convertPrimitive(final Object value, final TypeKind kind) {
+        switch (kind) {
+            case BOOLEAN:
+                return (Boolean) value;
+            case BYTE:
+                return asNumber(value).byteValue();
+            case SHORT:
+                return asNumber(value).shortValue();
+            case CHAR:
+                return value instanceof Character ? value : (char) asNumber(value).intValue();
+            case INT:
+                return asNumber(value).intValue();
+            case LONG:
+                return asNumber(value).longValue();
+            case FLOAT:
+                return asNumber(value).floatValue();
+            case DOUBLE:
+                return asNumber(value).doubleValue();
+            default:
+                throw ContractUtils.unreachable();
+        }
+    }
+
+    private static Object convert(final Object value, final Type<?> sourceType, final Type<?> targetType) {
+        if (targetType == PrimitiveTypes.Void) {
+            return null;
+        }
+
+        if (targetType.isPrimitive()) {
+            if (value == null) {
+                throw new NullPointerException();
+            }
+
+            if (sourceType.isPrimitive() || TypeUtils.isAutoUnboxed(sourceType)) {
+                return convertPrimitive(value, targetType.getKind());
+            }
+
+            //
+            // Unboxing from a supertype of the wrapper class (e.g., Object or Number).
+            //
+            return TypeUtils.getBoxedType(targetType).getErasedClass().cast(value);
+        }
+
+        if (sourceType.isPrimitive()) {
+            //
+            // Boxing; the value is already boxed, but it may need widening or narrowing first.
+            //
+            return TypeUtils.isAutoUnboxed(targetType)
+                   ? convertPrimitive(value, TypeUtils.getUnderlyingPrimitive(targetType).getKind())
+                   : value;
+        }
+
+        return targetType.getErasedClass().cast(value);
+    }
+
+    private static boolean compare(
+        final ExpressionType nodeType,
+        final Type<?> leftType,
+        final Type<?> rightType,
+        final Object left,
+        final Object right) {
+
+        if (nodeType == ExpressionType.Equal || nodeType == ExpressionType.NotEqual) {
+            final boolean equal;
+
+            if (!leftType.isPrimitive() || !rightType.isPrimitive()) {
+                equal = left == right;
+            }
+            else if (leftType == PrimitiveTypes.Boolean) {
+                equal = left.equals(right);
+            }
+            else {
+                equal = compareNumbers(leftType, rightType, left, right) == 0;
+            }
+
+            return nodeType == ExpressionType.Equal ? equal : !equal;
+        }
+
+        final Type<?> leftPrimitive = TypeUtils.getUnderlyingPrimitiveOrSelf(leftType);
+        final Type<?> rightPrimitive = TypeUtils.getUnderlyingPrimitiveOrSelf(rightType);
+        final int result = compareNumbers(leftPrimitive, rightPrimitive, left, right);
+
+        switch (nodeType) {
+            case LessThan:
+                return result < 0;
+            case LessThanOrEqual:
+                return result <= 0 && result != UNORDERED;
+            case GreaterThan:
+                return result > 0 && result != UNORDERED;
+            case GreaterThanOrEqual:
+                return result >= 0 && result != UNORDERED;
+            default:
+                throw ContractUtils.unreachable();
+        }
+    }
+
+    //
+    // Comparisons involving NaN are always false, so NaN must compare as neither less than, equal to,
+    // nor greater than anything.  UNORDERED is positive, so only '<' needs no special handling.
+    //
+    private final static int UNORDERED = 2;
+
+    private static int compareNumbers(final Type<?> leftType, final Type<?> rightType, final Object left, final Object right) {
+        switch (Expression.performBinaryNumericPromotion(leftType, rightType).getKind()) {
+            case DOUBLE: {
+                final double l = asNumber(left).doubleValue();
+                final double r = asNumber(right).doubleValue();
+                return l < r ? -1 : l > r ? 1 : l == r ? 0 : UNORDERED;
+            }
+
+            case FLOAT: {
+                final float l = asNumber(left).floatValue();
+                final float r = asNumber(right).floatValue();
+                return l < r ? -1 : l > r ? 1 : l == r ? 0 : UNORDERED;
+            }
+
+            case LONG: {
+                final long l = asNumber(left).longValue();
+                final long r = asNumber(right).longValue();
+                return l < r ? -1 : l > r ? 1 : 0;
+            }
+
+            default: {
+                final int l = asNumber(left).intValue();
+                final int r = asNumber(right).intValue();
+                return l < r ? -1 : l > r ? 1 : 0;
+            }
+        }
+    }
+
+    private static Object arithmetic(final ExpressionType nodeType, final TypeKind kind, final Object left, final Object right) {
+        switch (kind) {
+            case BOOLEAN: {
+                final boolean l = (Boolean) left;
+                final boolean r = (Boolean) right;
+
+                switch (nodeType) {
+                    case And:
+                        return l & r;
+                    case Or:
+                        return l | r;
+                    case ExclusiveOr:
+                        return l ^ r;
+                }
+                break;
+            }
+
+            case BYTE:
+            case SHORT:
+            case CHAR:
+            case INT: {
+                final int l = asNumber(left).intValue();
+                final int r = asNumber(right).intValue();
+                final int result;
+
+                switch (nodeType) {
+                    case Add:
+                        result = l + r;
+                        break;
+                    case Subtract:
+                        result = l - r;
+                        break;
+                    case Multiply:
+                        result = l * r;
+                        break;
+                    case Divide:
+                        result = l / r;
+                        break;
+                    case Modulo:
+                        result = l % r;
+                        break;
+                    case And:
+                        result = l & r;
+                        break;
+                    case Or:
+                        result = l | r;
+                        break;
+                    case ExclusiveOr:
+                        result = l ^ r;
+                        break;
+                    case LeftShift:
+                        result = l << r;
+                        break;
+                    case RightShift:
+                        result = l >> r;
+                        break;
+                    case UnsignedRightShift:
+                        result = l >>> r;
+                        break;
+                    default:
+                        throw ContractUtils.unreachable();
+                }
+
+                return kind == TypeKind.INT ? result : convertPrimitive(result, kind);
+            }
+
+            case LONG: {
+                final long l = asNumber(left).longValue();
+                final long r = asNumber(right).longValue();
+
+                switch (nodeType) {
+                    case Add:
+                        return l + r;
+                    case Subtract:
+                        return l - r;
+                    case Multiply:
+                        return l * r;
+                    case Divide:
+                        return l / r;
+                    case Modulo:
+                        return l % r;
+                    case And:
+                        return l & r;
+                    case Or:
+                        return l | r;
+                    case ExclusiveOr:
+                        return l ^ r;
+                    case LeftShift:
+                        return l << r;
+                    case RightShift:
+                        return l >> r;
+                    case UnsignedRightShift:
+                        return l >>> r;
+                }
+                break;
+            }
+
+            case FLOAT: {
+                final float l = asNumber(left).floatValue();
+                final float r = asNumber(right).floatValue();
+
+                switch (nodeType) {
+                    case Add:
+                        return l + r;
+                    case Subtract:
+                        return l - r;
+                    case Multiply:
+                        return l * r;
+                    case Divide:
+                        return l / r;
+                    case Modulo:
+                        return l % r;
+                }
+                break;
+            }
+
+            case DOUBLE: {
+                final double l = asNumber(left).doubleValue();
+                final double r = asNumber(right).doubleValue();
+
+                switch (nodeType) {
+                    case Add:
+                        return l + r;
+                    case Subtract:
+                        return l - r;
+                    case Multiply:
+                        return l * r;
+                    case Divide:
+                        return l / r;
+                    case Modulo:
+                        return l % r;
+                }
+                break;
+            }
+        }
+
+        throw ContractUtils.unreachable();
+    }
+
+    // </editor-fold>
+
+    // <editor-fold defaultstate="collapsed" desc="Scope Class">
+
+    private final static class Scope {
+        private final Scope _parent;
+        private final ParameterExpressionList _variables;
+        private final Object[] _values;
+
+        Scope(final Scope parent, final ParameterExpressionList variables, final Object[] values) {
+            _parent = parent;
+            _variables = variables;
+
+            if (values != null) {
+                _values = values;
+            }
+            else {
+                _values = new Object[variables.size()];
+
+                for (int i = 0; i < _values.length; i++) {
+                    _values[i] = getDefaultValue(variables.get(i).getType());
+                }
+            }
+        }
+
+        Object get(final ParameterExpression variable) {
+            for (Scope scope = this; scope != null; scope = scope._parent) {
+                final int index = scope.indexOf(variable);
+
+                if (index >= 0) {
+                    return scope._values[index];
+                }
+            }
+            throw ContractUtils.unreachable();
+        }
+
+        void set(final ParameterExpression variable, final Object value) {
+            for (Scope scope = this; scope != null; scope = scope._parent) {
+                final int index = scope.indexOf(variable);
+
+                if (index >= 0) {
+                    scope._values[index] = value;
+                    return;
+                }
+            }
+            throw ContractUtils.unreachable();
+        }
+
+        private int indexOf(final ParameterExpression variable) {
+            final ParameterExpressionList variables = _variables;
+
+            for (int i = 0, n = variables.size(); i < n; i++) {
+                if (variables.get(i) == variable) {
+                    return i;
+                }
+            }
+
+            return -1;
+        }
+    }
+
+    // </editor-fold>
+
+    // <editor-fold defaultstate="collapsed" desc="Jump Class">
+
+    /**
+     * Carries control from a {@link GotoExpression} to the construct which owns its target.  Jumps
+     * are control flow, not errors, so they never capture a stack trace.
+     */
+    private final static class Jump extends RuntimeException {
+        private static final long serialVersionUID = 3520944285271043586L;
+
+        final LabelTarget target;
+        final Object value;
+
+        Jump(final LabelTarget target, final Object value) {
+            super(null, null, false, false);
+            this.target = target;
+            this.value = value;
+        }
+    }
+
+    // </editor-fold>
+
+    // <editor-fold defaultstate="collapsed" desc="Invoker Class">
+
+    /**
+     * Backs the proxy instance of an interpreted lambda.  Nested lambdas close over the scope they
+     * were created in, so only top-level lambdas are ever promoted to compiled code.  Once promoted,
+     * the proxy forwards calls to the compiled delegate through a handle adapted up front to take
+     * the proxy's argument array as is.
+     */
+    private final static class Invoker implements InvocationHandler {
+        private final LambdaInterpreter _interpreter;
+        private final LambdaExpression<?> _lambda;
+        private final Scope _closure;
+        private final LambdaExpression<?> _sourceLambda;
+        private final int _compilationThreshold;
+
+        private final AtomicInteger _invocationCount = new AtomicInteger();
+        private volatile boolean _isCompilationDisabled;
+        private volatile MethodHandle _compiledHandle;
+
+        Invoker(
+            final LambdaInterpreter interpreter,
+            final LambdaExpression<?> lambda,
+            final Scope closure,
+            final LambdaExpression<?> sourceLambda,
+            final int compilationThreshold) {
+
+            _interpreter = interpreter;
+            _lambda = lambda;
+            _closure = closure;
+            _sourceLambda = sourceLambda;
+            _compilationThreshold = sourceLambda != null ? compilationThreshold : -1;
+        }
+
+        Object createInstance() {
+            try {
+                return ((Constructor<?>) _interpreter._resolved.get(_lambda)).newInstance(this);
+            }
+            catch (final InstantiationException | IllegalAccessException | InvocationTargetException e) {
+                throw Error.couldNotCreateDelegate(e);
+            }
+        }
+
+        @Override
+        public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+            MethodHandle compiledHandle = _compiledHandle;
+
+            if (compiledHandle != null && !method.isDefault() && method.getDeclaringClass() != Object.class) {
+                return (Object) compiledHandle.invokeExact(args != null ? args : EMPTY_ARGUMENTS);
+            }
+
+            if (method.getDeclaringClass() == Object.class) {
+                return invokeObjectMethod(proxy, method, args);
+            }
+
+            if (method.isDefault()) {
+                return _interpreter.getDefaultMethod(method)
+                                   .bindTo(proxy)
+                                   .invokeWithArguments(args != null ? args : EMPTY_ARGUMENTS);
+            }
+
+            if (_compilationThreshold >= 0 &&
+                !_isCompilationDisabled &&
+                _invocationCount.getAndIncrement() >= _compilationThreshold) {
+
+                compiledHandle = compile();
+
+                if (compiledHandle != null) {
+                    return (Object) compiledHandle.invokeExact(args != null ? args : EMPTY_ARGUMENTS);
+                }
+            }
+
+            final ParameterExpressionList parameters = _lambda.getParameters();
+            final Object[] values = new Object[parameters.size()];
+
+            if (args != null) {
+                System.arraycopy(args, 0, values, 0, values.length);
+            }
+
+            return _interpreter.evaluate(_lambda.getBody(), new Scope(_closure, parameters, values));
+        }
+
+        private synchronized MethodHandle compile() {
+            if (_compiledHandle != null) {
+                return _compiledHandle;
+            }
+
+            if (_sourceLambda == null || _isCompilationDisabled) {
+                return null;
+            }
+
+            try {
+                final Delegate<?> delegate = _sourceLambda.compileDelegate();
+                final Method invokeMethod = accessible(delegate.getMethod().getRawMethod());
+
+                final MethodHandle handle = MethodHandles.lookup()
+                                                         .unreflect(invokeMethod)
+                                                         .bindTo(delegate.getInstance())
+                                                         .asSpreader(Object[].class, invokeMethod.getParameterTypes().length)
+                                                         .asType(MethodType.methodType(Object.class, Object[].class));
+
+                _compiledHandle = handle;
+
+                return handle;
+            }
+            catch (final IllegalAccessException | RuntimeException e) {
+                //
+                // The interpreter is still correct, just slower; keep using it rather than failing
+                // a call which would otherwise succeed.  A lambda which can be interpreted should
+                // always compile, though, so make the failure visible.
+                //
+                LOG.log(Level.WARNING, "Could not compile interpreted lambda; it will remain interpreted.", e);
+                _isCompilationDisabled = true;
+                return null;
+            }
+        }
+
+        private Object invokeObjectMethod(final Object proxy, final Method method, final Object[] args) {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+
+                case "toString":
+                    return _lambda.getType().getErasedClass().getName() + "@" +
+                           Integer.toHexString(System.identityHashCode(proxy));
+
+                default:
+                    throw ContractUtils.unreachable();
+            }
+        }
+    }
+
+    private final static Object[] EMPTY_ARGUMENTS = new Object[0];
+
+    private static <T extends AccessibleObject> T accessible(final T member) {
+        if (!member.isAccessible()) {
+            member.setAccessible(true);
+        }
+        return member;
+    }
+
+    // </editor-fold>
+
+    // <editor-fold defaultstate="collapsed" desc="Default Methods">
+
+    //
+    // A default method is called on the proxy through a method handle which invokes the interface's
+    // implementation directly (as 'invokespecial' would), since a virtual call would come straight
+    // back to the invocation handler.  Creating such a handle needs a lookup with private access to
+    // the interface: on Java 9+ that is what 'MethodHandles.privateLookupIn()' is for, while Java 8
+    // only offers it through the private 'Lookup' constructor.
+    //
+
+    private final static Method PRIVATE_LOOKUP_IN;
+    private final static Constructor<MethodHandles.Lookup> LOOKUP_CONSTRUCTOR;
+
+    static {
+        Method privateLookupIn = null;
+        Constructor<MethodHandles.Lookup> lookupConstructor = null;
+
+        try {
+            privateLookupIn = MethodHandles.class.getMethod("privateLookupIn", Class.class, MethodHandles.Lookup.class);
+        }
+        catch (final NoSuchMethodException e) {
+            try {
+                lookupConstructor = accessible(MethodHandles.Lookup.class.getDeclaredConstructor(Class.class, int.class));
+            }
+            catch (final NoSuchMethodException | RuntimeException ignored) {
+            }
+        }
+
+        PRIVATE_LOOKUP_IN = privateLookupIn;
+        LOOKUP_CONSTRUCTOR = lookupConstructor;
+    }
+
+    private MethodHandle getDefaultMethod(final Method method) {
+        MethodHandle handle = _defaultMethods.get(method);
+
+        if (handle == null) {
+            final Class<?> interfaceClass = method.getDeclaringClass();
+
+            try {
+                handle = findDefaultMethod(method, interfaceClass);
+            }
+            catch (final ReflectiveOperationException | RuntimeException e) {
+                throw Error.couldNotInvokeDefaultMethod(method.getName(), interfaceClass, e);
+            }
+
+            _defaultMethods.put(method, handle);
+        }
+
+        return handle;
+    }
+
+    private static MethodHandle findDefaultMethod(final Method method, final Class<?> interfaceClass)
+        throws ReflectiveOperationException {
+
+        if (PRIVATE_LOOKUP_IN != null) {
+            MethodHandles.Lookup lookup;
+
+            try {
+                lookup = (MethodHandles.Lookup) PRIVATE_LOOKUP_IN.invoke(null, interfaceClass, MethodHandles.lookup());
+            }
+            catch (final InvocationTargetException e) {
+                //
+                // The interface's package is not open to us (e.g., it lives in 'java.base').  Our own
+                // lookup may still make a special call to an interface which the receiver implements.
+                //
+                lookup = MethodHandles.lookup();
+            }
+
+            return lookup.findSpecial(
+                interfaceClass,
+                method.getName(),
+                MethodType.methodType(method.getReturnType(), method.getParameterTypes()),
+                interfaceClass
+            );
+        }
+
+        if (LOOKUP_CONSTRUCTOR == null) {
+            throw new NoSuchMethodException("MethodHandles.Lookup(Class, int)");
+        }
+
+        final int allModes = MethodHandles.Lookup.PUBLIC |
+                             MethodHandles.Lookup.PRIVATE |
+                             MethodHandles.Lookup.PROTECTED |
+                             MethodHandles.Lookup.PACKAGE;
+
+        return LOOKUP_CONSTRUCTOR.newInstance(interfaceClass, allModes)
+                                 .unreflectSpecial(method, interfaceClass);
+    }
+
+    // </editor-fold>
+
+    // <editor-fold defaultstate="collapsed" desc="Reducer Class">
+
+    /**
+     * Reduces every reducible node up front, so the interpreter only needs to understand the core
+     * node types.
+     */
+    private final static class Reducer extends ExpressionVisitor {
+        @Override
+        public Expression visit(final Expression node) {
+            Expression current = node;
+
+            while (current != null && !(current instanceof LambdaExpression<?>) && current.canReduce()) {
+                current = current.reduceAndCheck();
+            }
+
+            return super.visit(current);
+        }
+
+        @Override
+        protected Expression visitExtension(final Expression node) {
+            return node;
+        }
+    }
+
+    // </editor-fold>
+
+    // <editor-fold defaultstate="collapsed" desc="Analyzer Class">
+
+    /**
+     * Decides whether the interpreter can run a (reduced) lambda, and resolves the reflected members
+     * it will need along the way.  Besides rejecting unsupported node types, it ensures every jump
+     * targets a label which is in scope: one owned by an enclosing block, label, or loop.
+     */
+    private final static class Analyzer extends ExpressionVisitor {
+        final Map<Object, Object> resolved = new IdentityHashMap<>();
+
+        boolean isSupported = true;
+
+        private final List<ParameterExpression> _variables = new ArrayList<>();
+        private List<LabelTarget> _labels = new ArrayList<>();
+
+        @Override
+        public Expression visit(final Expression node) {
+            if (!isSupported || node == null) {
+                return node;
+            }
+
+            switch (node.getNodeType()) {
+                case ConvertChecked:
+                case Quote:
+                case RuntimeVariables:
+                case Extension:
+                case LineInfo:
+                    isSupported = false;
+                    return node;
+            }
+
+            return super.visit(node);
+        }
+
+        @Override
+        protected <T> LambdaExpression<T> visitLambda(final LambdaExpression<T> node) {
+            final Class<?> interfaceClass = node.getType().getErasedClass();
+
+            try {
+                resolved.put(
+                    node,
+                    Proxy.getProxyClass(interfaceClass.getClassLoader(), interfaceClass)
+                         .getConstructor(InvocationHandler.class)
+                );
+            }
+            catch (final NoSuchMethodException | RuntimeException e) {
+                isSupported = false;
+                return node;
+            }
+
+            final List<LabelTarget> outerLabels = _labels;
+            final int variableCount = _variables.size();
+
+            _labels = new ArrayList<>();
+            addVariables(node.getParameters());
+
+            try {
+                visit(node.getBody());
+                return node;
+            }
+            finally {
+                _labels = outerLabels;
+                popVariables(variableCount);
+            }
+        }
+
+        @Override
+        protected Expression visitBlock(final BlockExpression node) {
+            final int variableCount = _variables.size();
+            final int labelCount = _labels.size();
+
+            addVariables(node.getVariables());
+
+            for (final Expression expression : node.getExpressions()) {
+                if (expression instanceof LabelExpression) {
+                    _labels.add(((LabelExpression) expression).getTarget());
+                }
+            }
+
+            try {
+                return super.visitBlock(node);
+            }
+            finally {
+                popVariables(variableCount);
+                popLabels(labelCount);
+            }
+        }
+
+        @Override
+        protected Expression visitLabel(final LabelExpression node) {
+            final int labelCount = _labels.size();
+
+            _labels.add(node.getTarget());
+
+            try {
+                return super.visitLabel(node);
+            }
+            finally {
+                popLabels(labelCount);
+            }
+        }
+
+        @Override
+        protected Expression visitLoop(final LoopExpression node) {
+            final int labelCount = _labels.size();
+
+            if (node.getBreakTarget() != null) {
+                _labels.add(node.getBreakTarget());
+            }
+
+            if (node.getContinueTarget() != null) {
+                _labels.add(node.getContinueTarget());
+            }
+
+            try {
+                return super.visitLoop(node);
+            }
+            finally {
+                popLabels(labelCount);
+            }
+        }
+
+        @Override
+        protected Expression visitGoto(final GotoExpression node) {
+            if (!containsIdentical(_labels, node.getTarget())) {
+                isSupported = false;
+                return node;
+            }
+            return super.visitGoto(node);
+        }
+
+        @Override
+        protected CatchBlock visitCatchBlock(final CatchBlock node) {
+            final int variableCount = _variables.size();
+
+            if (node.getVariable() != null) {
+                _variables.add(node.getVariable());
+            }
+
+            try {
+                return super.visitCatchBlock(node);
+            }
+            finally {
+                popVariables(variableCount);
+            }
+        }
+
+        @Override
+        protected Expression visitParameter(final ParameterExpression node) {
+            if (!containsIdentical(_variables, node)) {
+                isSupported = false;
+            }
+            return node;
+        }
+
+        @Override
+        protected Expression visitUnary(final UnaryExpression node) {
+            if (node.getNodeType() == ExpressionType.Throw && node.getOperand() == null) {
+                isSupported = false;
+                return node;
+            }
+
+            if (node.getMethod() != null) {
+                resolveMethod(node, node.getMethod());
+            }
+
+            return super.visitUnary(node);
+        }
+
+        @Override
+        protected Expression visitBinary(final BinaryExpression node) {
+            switch (node.getNodeType()) {
+                case Assign:
+                    switch (node.getLeft().getNodeType()) {
+                        case Parameter:
+                        case MemberAccess:
+                        case ArrayIndex:
+                            break;
+                        default:
+                            isSupported = false;
+                            return node;
+                    }
+                    break;
+
+                case AndAlso:
+                case OrElse:
+                case Coalesce:
+                case ArrayIndex:
+                    if (node.getMethod() != null || node.getConversion() != null) {
+                        isSupported = false;
+                        return node;
+                    }
+                    break;
+
+                default:
+                    if (node.getMethod() != null) {
+                        resolveMethod(node, node.getMethod());
+                    }
+                    break;
+            }
+
+            return super.visitBinary(node);
+        }
+
+        @Override
+        protected Expression visitMember(final MemberExpression node) {
+            try {
+                final FieldInfo field = (FieldInfo) node.getMember();
+                resolved.put(node, accessible(field.getRawField()));
+            }
+            catch (final RuntimeException e) {
+                isSupported = false;
+                return node;
+            }
+            return super.visitMember(node);
+        }
+
+        @Override
+        protected Expression visitMethodCall(final MethodCallExpression node) {
+            resolveMethod(node, node.getMethod());
+            return super.visitMethodCall(node);
+        }
+
+        @Override
+        protected Expression visitInvocation(final InvocationExpression node) {
+            resolveMethod(node, Expression.getInvokeMethod(node.getExpression()));
+            return super.visitInvocation(node);
+        }
+
+        @Override
+        protected Expression visitNew(final NewExpression node) {
+            try {
+                resolved.put(node, accessible(node.getConstructor().getRawConstructor()));
+            }
+            catch (final RuntimeException e) {
+                isSupported = false;
+                return node;
+            }
+            return super.visitNew(node);
+        }
+
+        @Override
+        protected Expression visitSwitch(final SwitchExpression node) {
+            if (node.getComparison() != null) {
+                resolveMethod(node, node.getComparison());
+            }
+            return super.visitSwitch(node);
+        }
+
+        private void resolveMethod(final Expression node, final MethodInfo method) {
+            try {
+                resolved.put(node, accessible(method.getRawMethod()));
+            }
+            catch (final RuntimeException e) {
+                isSupported = false;
+            }
+        }
+
+        private void addVariables(final ParameterExpressionList variables) {
+            for (int i = 0, n = variables.size(); i < n; i++) {
+                _variables.add(variables.get(i));
+            }
+        }
+
+        private void popVariables(final int count) {
+            _variables.subList(count, _variables.size()).clear();
+        }
+
+        private void popLabels(final int count) {
+            _labels.subList(count, _labels.size()).clear();
+        }
+
+        private static boolean containsIdentical(final List<?> list, final Object item) {
+            for (int i = list.size() - 1; i >= 0; i--) {
+                if (list.get(i) == item) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    // </editor-fold>
+}
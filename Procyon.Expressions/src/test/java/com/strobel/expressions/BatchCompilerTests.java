@@ -0,0 +1,222 @@
+/*
+ * BatchCompilerTests.java
+ *
+ * This source code is subject to terms and conditions of the Apache License, Version 2.0.
+ * A copy of the license can be found in the License.html file at the root of this distribution.
+ * By using this source code in any fashion, you are agreeing to be bound by the terms of the
+ * Apache License, Version 2.0.
+ *
+ * You must not remove this notice, or any other, from this software.
+ */
+
+package com.strobel.expressions;
+
+import com.strobel.core.MutableInteger;
+import com.strobel.reflection.PrimitiveTypes;
+import com.strobel.reflection.Type;
+import com.strobel.reflection.Types;
+import com.strobel.reflection.emit.GeneratedClassLoader;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntSupplier;
+import java.util.function.IntUnaryOperator;
+import java.util.function.Predicate;
+
+import static com.strobel.expressions.Expression.*;
+import static org.junit.Assert.*;
+
+public final class BatchCompilerTests extends AbstractExpressionTest {
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testBatchIsCompiledIntoOneClassPerInterface() throws Throwable {
+        final ParameterExpression x = parameter(PrimitiveTypes.Integer, "x");
+        final ParameterExpression y = parameter(PrimitiveTypes.Integer, "y");
+        final ParameterExpression s = parameter(Types.String, "s");
+        final MutableInteger counter = new MutableInteger(0);
+
+        final LambdaBatchCompiler compiler = new LambdaBatchCompiler();
+
+        final int addIndex = compiler.add(lambda(Type.of(IntBinaryOperator.class), add(x, y), x, y));
+        final int multiplyIndex = compiler.add(lambda(Type.of(IntBinaryOperator.class), multiply(x, y), x, y));
+
+        final int isEmptyIndex = compiler.add(
+            lambda(
+                Type.of(Predicate.class).makeGenericType(Types.String),
+                call(s, "isEmpty"),
+                s
+            )
+        );
+
+        final int counterIndex = compiler.add(
+            lambda(
+                Type.of(IntSupplier.class),
+                call(call(constant(counter), "increment"), "getValue")
+            )
+        );
+
+        final long generatedClassCount = getGeneratedClassCount();
+        final List<Delegate<?>> delegates = compiler.compile();
+
+        //
+        // One class for the lambdas' bodies, plus a delegate class for each of the three interfaces.
+        //
+        assertEquals(generatedClassCount + 4, getGeneratedClassCount());
+        assertEquals(4, delegates.size());
+
+        final IntBinaryOperator add = (IntBinaryOperator) delegates.get(addIndex).getInstance();
+        final IntBinaryOperator multiply = (IntBinaryOperator) delegates.get(multiplyIndex).getInstance();
+        final Predicate<String> isEmpty = (Predicate<String>) delegates.get(isEmptyIndex).getInstance();
+        final IntSupplier increment = (IntSupplier) delegates.get(counterIndex).getInstance();
+
+        assertSame(add.getClass(), multiply.getClass());
+        assertNotSame(add.getClass(), isEmpty.getClass());
+        assertNotSame(add.getClass(), increment.getClass());
+
+        assertFalse((Object) add instanceof Predicate);
+        assertFalse((Object) add instanceof IntSupplier);
+        assertFalse((Object) isEmpty instanceof IntBinaryOperator);
+        assertFalse((Object) increment instanceof IntBinaryOperator);
+
+        //
+        // The delegate classes share the batch class's loader, so they can call its methods.
+        //
+        assertTrue(add.getClass().getClassLoader() instanceof GeneratedClassLoader);
+        assertSame(add.getClass().getClassLoader(), isEmpty.getClass().getClassLoader());
+        assertSame(add.getClass().getClassLoader(), increment.getClass().getClassLoader());
+
+        assertEquals(7, add.applyAsInt(3, 4));
+        assertEquals(12, multiply.applyAsInt(3, 4));
+        assertTrue(isEmpty.test(""));
+        assertFalse(isEmpty.test("zomg"));
+        assertEquals(1, increment.getAsInt());
+        assertEquals(2, increment.getAsInt());
+        assertEquals(2, counter.getValue());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testConflictingInterfacesAreCompiledSeparately() throws Throwable {
+        final ParameterExpression s = parameter(Types.String, "s");
+        final ParameterExpression i = parameter(Types.Integer, "i");
+
+        final long generatedClassCount = getGeneratedClassCount();
+
+        final List<Delegate<?>> delegates = LambdaBatchCompiler.compile(
+            Arrays.asList(
+                lambda(Type.of(Predicate.class).makeGenericType(Types.String), call(s, "isEmpty"), s),
+                lambda(Type.of(Predicate.class).makeGenericType(Types.Integer), greaterThan(i, constant(0)), i)
+            )
+        );
+
+        final Predicate<String> isEmpty = (Predicate<String>) delegates.get(0).getInstance();
+        final Predicate<Integer> isPositive = (Predicate<Integer>) delegates.get(1).getInstance();
+
+        //
+        // The batch class and its one delegate class, plus a class of its own for the second lambda.
+        //
+        assertEquals(generatedClassCount + 3, getGeneratedClassCount());
+        assertTrue(isBatched(isEmpty));
+        assertFalse(isBatched(isPositive));
+
+        assertNotSame(isEmpty.getClass(), isPositive.getClass());
+        assertTrue(isEmpty.test(""));
+        assertTrue(isPositive.test(5));
+        assertFalse(isPositive.test(-5));
+    }
+
+    @Test
+    public void testInterfacesWithClashingMethodsAreCompiledSeparately() throws Throwable {
+        final ParameterExpression x = parameter(PrimitiveTypes.Integer, "x");
+
+        final List<Delegate<?>> delegates = LambdaBatchCompiler.compile(
+            Arrays.asList(
+                lambda(Type.of(IntUnaryOperator.class), negate(x), x),
+                lambda(Type.of(IWidenNumber.class), convert(multiply(x, x), PrimitiveTypes.Long), x),
+                lambda(Type.of(IntUnaryOperator.class), add(x, constant(1)), x)
+            )
+        );
+
+        final IntUnaryOperator negate = (IntUnaryOperator) delegates.get(0).getInstance();
+        final IWidenNumber square = (IWidenNumber) delegates.get(1).getInstance();
+        final IntUnaryOperator increment = (IntUnaryOperator) delegates.get(2).getInstance();
+
+        //
+        // Both interfaces declare applyAsInt(int), so one class can't implement them both.
+        //
+        assertTrue(isBatched(negate));
+        assertFalse(isBatched(square));
+        assertSame(negate.getClass(), increment.getClass());
+
+        assertEquals(-3, negate.applyAsInt(3));
+        assertEquals(9L, square.applyAsInt(3));
+        assertEquals(4, increment.applyAsInt(3));
+        assertFalse((Object) square instanceof IntUnaryOperator);
+    }
+
+    @Test
+    public void testBatchedLambdaWithNestedLambda() throws Throwable {
+        final ParameterExpression x = parameter(PrimitiveTypes.Integer, "x");
+        final ParameterExpression y = parameter(PrimitiveTypes.Integer, "y");
+        final ParameterExpression z = parameter(PrimitiveTypes.Integer, "z");
+
+        final LambdaExpression<IntUnaryOperator> scale = lambda(
+            Type.of(IntUnaryOperator.class),
+            multiply(z, x),
+            z
+        );
+
+        final List<Delegate<?>> delegates = LambdaBatchCompiler.compile(
+            Arrays.asList(
+                lambda(Type.of(IntBinaryOperator.class), add(invoke(scale, y), constant(1)), x, y),
+                lambda(Type.of(IntUnaryOperator.class), negate(x), x)
+            )
+        );
+
+        final IntBinaryOperator scaleAndIncrement = (IntBinaryOperator) delegates.get(0).getInstance();
+        final IntUnaryOperator negate = (IntUnaryOperator) delegates.get(1).getInstance();
+
+        assertEquals(13, scaleAndIncrement.applyAsInt(3, 4));
+        assertEquals(-3, negate.applyAsInt(3));
+    }
+
+    @Test
+    public void testBatchMixingPublicAndPackagePrivateInterfaces() throws Throwable {
+        final ParameterExpression x = parameter(PrimitiveTypes.Integer, "x");
+
+        final List<Delegate<?>> delegates = LambdaBatchCompiler.compile(
+            Arrays.asList(
+                lambda(Type.of(IntUnaryOperator.class), negate(x), x),
+                lambda(Type.of(IDescribeNumber.class), call(Types.Integer, "toString", x), x),
+                lambda(Type.of(IntUnaryOperator.class), multiply(x, x), x)
+            )
+        );
+
+        final IntUnaryOperator negate = (IntUnaryOperator) delegates.get(0).getInstance();
+        final IDescribeNumber describe = (IDescribeNumber) delegates.get(1).getInstance();
+        final IntUnaryOperator square = (IntUnaryOperator) delegates.get(2).getInstance();
+
+        assertEquals(-3, negate.applyAsInt(3));
+        assertEquals("42", describe.describe(42));
+        assertEquals(9, square.applyAsInt(3));
+        assertFalse((Object) describe instanceof IntUnaryOperator);
+    }
+
+    private static boolean isBatched(final Object delegate) {
+        return delegate.getClass().getName().contains("f__LambdaBatch");
+    }
+
+    private static long getGeneratedClassCount() {
+        return GeneratedClassLoader.getDefinedClassCount() + GeneratedClassLoader.getPermanentClassCount();
+    }
+
+    interface IDescribeNumber {
+        String describe(final int number);
+    }
+
+    public interface IWidenNumber {
+        long applyAsInt(final int number);
+    }
+}
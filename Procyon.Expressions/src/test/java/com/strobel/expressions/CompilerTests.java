@@ -1392,6 +1392,120 @@ public final class CompilerTests extends AbstractExpressionTest {
         assertEquals("i=5", dequeue());
     }
 
+    @Test
+    public void testSharedCompilationReusesClassForDifferentConstants() throws Throwable {
+        final ITest first = makeThresholdLambda(10, "small", "large").compileShared();
+        final ITest second = makeThresholdLambda(100, "tiny", "huge").compileShared();
+
+        assertSame(first.getClass(), second.getClass());
+
+        assertEquals("small", first.testNumber(5));
+        assertEquals("large", first.testNumber(50));
+        assertEquals("tiny", second.testNumber(50));
+        assertEquals("huge", second.testNumber(500));
+    }
+
+    @Test
+    public void testSharedCompilationDistinguishesBooleanAndNullConstants() throws Throwable {
+        final LambdaExpression<ISimpleTest> trueLambda = lambda(Type.of(ISimpleTest.class), constant(true));
+        final LambdaExpression<ISimpleTest> falseLambda = lambda(Type.of(ISimpleTest.class), constant(false));
+
+        final ISimpleTest alwaysTrue = trueLambda.compileShared();
+        final ISimpleTest alwaysFalse = falseLambda.compileShared();
+
+        assertNotSame(alwaysTrue.getClass(), alwaysFalse.getClass());
+        assertTrue(alwaysTrue.test());
+        assertFalse(alwaysFalse.test());
+
+        final ITest nullResult = makeThresholdLambda(10, null, "large").compileShared();
+        final ITest stringResult = makeThresholdLambda(10, "small", "large").compileShared();
+
+        assertNotSame(nullResult.getClass(), stringResult.getClass());
+        assertNull(nullResult.testNumber(5));
+        assertEquals("small", stringResult.testNumber(5));
+    }
+
+    @Test
+    public void testSharedCompilationEvictsLeastRecentlyUsedClasses() throws Throwable {
+        //
+        // Switch case values are part of the cache key, so each of these lambdas gets its own class.
+        //
+        final int first = 0x5EED0000;
+        final int last = first + CompiledLambdaCache.MAX_ENTRIES;
+
+        final ITest evicted = makeCaseLambda(first).compileShared();
+        final ITest retained = makeCaseLambda(first + 1).compileShared();
+
+        for (int i = first + 2; i <= last; i++) {
+            if (i == first + CompiledLambdaCache.MAX_ENTRIES / 2) {
+                assertSame(retained.getClass(), makeCaseLambda(first + 1).compileShared().getClass());
+            }
+            makeCaseLambda(i).compileShared();
+        }
+
+        assertSame(retained.getClass(), makeCaseLambda(first + 1).compileShared().getClass());
+        assertNotSame(evicted.getClass(), makeCaseLambda(first).compileShared().getClass());
+        assertEquals("hit", makeCaseLambda(last).compileShared().testNumber(last));
+    }
+
+    @Test
+    public void testSharedCompilationKeysEnumCasesByOrdinal() throws Throwable {
+        final Func1<TestEnum, String> one = makeEnumCaseLambda(TestEnum.ONE).compileShared();
+        final Func1<TestEnum, String> sameOne = makeEnumCaseLambda(TestEnum.ONE).compileShared();
+        final Func1<TestEnum, String> two = makeEnumCaseLambda(TestEnum.TWO).compileShared();
+
+        assertSame(one.getClass(), sameOne.getClass());
+        assertNotSame(one.getClass(), two.getClass());
+
+        assertEquals("hit", one.apply(TestEnum.ONE));
+        assertEquals("miss", one.apply(TestEnum.TWO));
+        assertEquals("hit", two.apply(TestEnum.TWO));
+        assertEquals("miss", two.apply(TestEnum.ONE));
+    }
+
+    private static LambdaExpression<Func1<TestEnum, String>> makeEnumCaseLambda(final TestEnum value) {
+        final Type<TestEnum> enumType = Type.of(TestEnum.class);
+        final ParameterExpression enumValue = parameter(enumType, "e");
+
+        return lambda(
+            Type.of(Func1.class).makeGenericType(enumType, Types.String),
+            makeSwitch(
+                enumValue,
+                constant("miss", Types.String),
+                switchCase(constant("hit", Types.String), constant(value))
+            ),
+            enumValue
+        );
+    }
+
+    private static LambdaExpression<ITest> makeCaseLambda(final int value) {
+        final ParameterExpression number = parameter(PrimitiveTypes.Integer, "number");
+
+        return lambda(
+            Type.of(ITest.class),
+            makeSwitch(
+                number,
+                constant("miss", Types.String),
+                switchCase(constant("hit", Types.String), constant(value))
+            ),
+            number
+        );
+    }
+
+    private static LambdaExpression<ITest> makeThresholdLambda(final int threshold, final String below, final String above) {
+        final ParameterExpression number = parameter(PrimitiveTypes.Integer, "number");
+
+        return lambda(
+            Type.of(ITest.class),
+            condition(
+                lessThan(number, constant(threshold)),
+                constant(below, Types.String),
+                constant(above, Types.String)
+            ),
+            number
+        );
+    }
+
     static <T> T invoke(final Callable<T> callback) {
         try {
             return callback.call();
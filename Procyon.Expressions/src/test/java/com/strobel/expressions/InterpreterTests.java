@@ -0,0 +1,284 @@
+/*
+ * InterpreterTests.java
+ *
+ * This source code is subject to terms and conditions of the Apache License, Version 2.0.
+ * A copy of the license can be found in the License.html file at the root of this distribution.
+ * By using this source code in any fashion, you are agreeing to be bound by the terms of the
+ * Apache License, Version 2.0.
+ *
+ * You must not remove this notice, or any other, from this software.
+ */
+
+package com.strobel.expressions;
+
+import com.strobel.reflection.PrimitiveTypes;
+import com.strobel.reflection.Type;
+import com.strobel.reflection.Types;
+import com.strobel.reflection.emit.GeneratedClassLoader;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
+
+import static com.strobel.expressions.Expression.*;
+import static org.junit.Assert.*;
+
+public final class InterpreterTests extends AbstractExpressionTest {
+    @Test
+    public void testInterpretedLoopMatchesCompiledLoop() throws Throwable {
+        final LambdaExpression<IntegerPowerDelegate> lambda = makePowerLambda();
+
+        final long generatedClassCount = getGeneratedClassCount();
+        final IntegerPowerDelegate interpreted = lambda.interpretDelegate(-1).getInstance();
+
+        for (int base = -3; base <= 3; base++) {
+            for (int power = 0; power <= 5; power++) {
+                assertEquals((int) Math.pow(base, power), interpreted.transform(base, power));
+            }
+        }
+
+        assertEquals(generatedClassCount, getGeneratedClassCount());
+
+        final IntegerPowerDelegate compiled = lambda.compile();
+
+        assertEquals(compiled.transform(7, 3), interpreted.transform(7, 3));
+    }
+
+    @Test
+    public void testInterpretedTryCatch() throws Throwable {
+        final ParameterExpression number = parameter(PrimitiveTypes.Integer, "number");
+        final ParameterExpression exception = variable(Type.of(IllegalArgumentException.class), "e");
+
+        final LambdaExpression<IDescribeNumber> lambda = lambda(
+            Type.of(IDescribeNumber.class),
+            tryCatch(
+                block(
+                    ifThen(
+                        lessThan(number, constant(0)),
+                        makeThrow(
+                            makeNew(
+                                Type.of(IllegalArgumentException.class).getConstructor(Types.String),
+                                constant("negative")
+                            )
+                        )
+                    ),
+                    call(Types.Integer, "toString", number)
+                ),
+                makeCatch(exception, call(exception, "getMessage"))
+            ),
+            number
+        );
+
+        final IDescribeNumber interpreted = lambda.interpretDelegate(-1).getInstance();
+
+        assertEquals("42", interpreted.describe(42));
+        assertEquals("negative", interpreted.describe(-1));
+    }
+
+    @Test
+    public void testInterpretedNestedLambdaCapturesParameters() throws Throwable {
+        final ParameterExpression base = parameter(PrimitiveTypes.Integer, "base");
+        final ParameterExpression power = parameter(PrimitiveTypes.Integer, "power");
+        final ParameterExpression x = parameter(PrimitiveTypes.Integer, "x");
+
+        final LambdaExpression<IntUnaryOperator> scale = lambda(
+            Type.of(IntUnaryOperator.class),
+            multiply(x, base),
+            x
+        );
+
+        final LambdaExpression<IntegerPowerDelegate> lambda = lambda(
+            Type.of(IntegerPowerDelegate.class),
+            add(invoke(scale, power), constant(1)),
+            base,
+            power
+        );
+
+        final long generatedClassCount = getGeneratedClassCount();
+        final IntegerPowerDelegate interpreted = lambda.interpretDelegate(-1).getInstance();
+
+        assertEquals(13, interpreted.transform(3, 4));
+        assertEquals(-9, interpreted.transform(-2, 5));
+        assertEquals(generatedClassCount, getGeneratedClassCount());
+    }
+
+    @Test
+    public void testInterpretedLambdaIsCompiledAfterThreshold() throws Throwable {
+        final IntegerPowerDelegate delegate = makePowerLambda().interpretDelegate(3).getInstance();
+        final long generatedClassCount = getGeneratedClassCount();
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(8, delegate.transform(2, 3));
+        }
+
+        assertEquals(generatedClassCount, getGeneratedClassCount());
+
+        assertEquals(81, delegate.transform(3, 4));
+        assertTrue(getGeneratedClassCount() > generatedClassCount);
+
+        final long compiledClassCount = getGeneratedClassCount();
+
+        assertEquals(32, delegate.transform(2, 5));
+        assertEquals(compiledClassCount, getGeneratedClassCount());
+    }
+
+    @Test
+    public void testConcurrentlyPromotedLambdaIsCompiledOnce() throws Throwable {
+        final LambdaExpression<IntegerPowerDelegate> lambda = makePowerLambda();
+
+        long generatedClassCount = getGeneratedClassCount();
+        lambda.compileDelegate();
+
+        final long classesPerCompilation = getGeneratedClassCount() - generatedClassCount;
+        final IntegerPowerDelegate delegate = lambda.interpretDelegate(10).getInstance();
+        final int threadCount = 8;
+        final CountDownLatch start = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        final List<Future<?>> futures = new ArrayList<>();
+
+        generatedClassCount = getGeneratedClassCount();
+
+        try {
+            for (int i = 0; i < threadCount; i++) {
+                futures.add(
+                    executor.submit(
+                        new Callable<Void>() {
+                            @Override
+                            public Void call() throws Exception {
+                                start.await();
+
+                                for (int j = 0; j < 100; j++) {
+                                    assertEquals(1 << (j % 10), delegate.transform(2, j % 10));
+                                }
+
+                                return null;
+                            }
+                        }
+                    )
+                );
+            }
+
+            start.countDown();
+
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+        }
+        finally {
+            executor.shutdown();
+        }
+
+        assertEquals(generatedClassCount + classesPerCompilation, getGeneratedClassCount());
+    }
+
+    @Test
+    public void testUnsupportedLambdaIsCompiledImmediately() throws Throwable {
+        final ParameterExpression variable = variable(PrimitiveTypes.Integer, "value");
+
+        final LambdaExpression<IRuntimeVariablesFactory> lambda = lambda(
+            Type.of(IRuntimeVariablesFactory.class),
+            block(
+                new ParameterExpressionList(variable),
+                assign(variable, constant(5)),
+                runtimeVariables(variable)
+            )
+        );
+
+        final long generatedClassCount = getGeneratedClassCount();
+        final IRuntimeVariablesFactory delegate = lambda.interpretDelegate().getInstance();
+
+        assertTrue(getGeneratedClassCount() > generatedClassCount);
+        assertEquals(5, delegate.create().get(0));
+    }
+
+    @Test
+    public void testInterpretedLambdasSupportDefaultMethods() throws Throwable {
+        final ParameterExpression limit = parameter(PrimitiveTypes.Integer, "limit");
+        final ParameterExpression value = parameter(PrimitiveTypes.Integer, "value");
+        final ParameterExpression number = parameter(PrimitiveTypes.Integer, "number");
+
+        final LambdaExpression<IPredicateFactory> factoryLambda = lambda(
+            Type.of(IPredicateFactory.class),
+            lambda(Type.of(IntPredicate.class), lessThan(value, limit), value),
+            limit
+        );
+
+        final LambdaExpression<IDescribeNumber> describeLambda = lambda(
+            Type.of(IDescribeNumber.class),
+            call(Types.Integer, "toString", number),
+            number
+        );
+
+        final long generatedClassCount = getGeneratedClassCount();
+        final IntPredicate lessThanTen = factoryLambda.interpretDelegate(-1).getInstance().create(10);
+        final IDescribeNumber describer = describeLambda.interpretDelegate(-1).getInstance();
+
+        assertTrue(lessThanTen.test(7));
+        assertFalse(lessThanTen.negate().test(7));
+        assertTrue(lessThanTen.negate().test(12));
+        assertTrue(lessThanTen.or(lessThanTen.negate()).test(12));
+
+        assertEquals("42, 42", describer.describeTwice(42));
+
+        assertEquals(generatedClassCount, getGeneratedClassCount());
+    }
+
+    private static long getGeneratedClassCount() {
+        return GeneratedClassLoader.getDefinedClassCount() + GeneratedClassLoader.getPermanentClassCount();
+    }
+
+    private static LambdaExpression<IntegerPowerDelegate> makePowerLambda() {
+        final ParameterExpression base = parameter(PrimitiveTypes.Integer, "base");
+        final ParameterExpression power = parameter(PrimitiveTypes.Integer, "power");
+        final ParameterExpression result = variable(PrimitiveTypes.Integer, "result");
+        final LabelTarget breakLabel = label(PrimitiveTypes.Integer);
+
+        return lambda(
+            Type.of(IntegerPowerDelegate.class),
+            block(
+                new ParameterExpressionList(result),
+                assign(result, constant(1)),
+                loop(
+                    ifThenElse(
+                        greaterThan(power, constant(0)),
+                        block(
+                            multiplyAssign(result, base),
+                            postDecrementAssign(power)
+                        ),
+                        makeBreak(breakLabel, result)
+                    ),
+                    breakLabel
+                )
+            ),
+            base,
+            power
+        );
+    }
+
+    interface IntegerPowerDelegate {
+        int transform(final int base, final int power);
+    }
+
+    interface IDescribeNumber {
+        String describe(final int number);
+
+        default String describeTwice(final int number) {
+            return describe(number) + ", " + describe(number);
+        }
+    }
+
+    interface IPredicateFactory {
+        IntPredicate create(final int limit);
+    }
+
+    interface IRuntimeVariablesFactory {
+        IRuntimeVariables create();
+    }
+}
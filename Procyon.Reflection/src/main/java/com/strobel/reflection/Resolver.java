@@ -43,10 +43,34 @@ final class Resolver {
     final static byte FLAG_RESOLVE_CONSTRUCTORS = 0x04;
     final static byte FLAG_RESOLVE_NESTED_TYPES = 0x08;
 
+    private int _depth;
+
+    /**
+     * Returns whether a resolution is in progress, in which case the cache may hold types which
+     * are not finished yet.  Must be called while holding {@link Type#CACHE_LOCK}.
+     */
+    boolean isResolving() {
+        return _depth > 0;
+    }
+
+    /**
+     * Returns whether {@code type} was resolved from a runtime class by a {@link Resolver}.
+     */
+    static boolean isReflectedType(final Type<?> type) {
+        return type instanceof ReflectedType;
+    }
+
     void resolveMembers(final ReflectedType<?> type, final int flags) {
         final Frame frame = new Frame(type, null);
 
-        this.visit(type, frame, flags);
+        ++_depth;
+
+        try {
+            this.visit(type, frame, flags);
+        }
+        finally {
+            --_depth;
+        }
     }
 
     public final class Frame {
@@ -402,7 +426,14 @@ final class Resolver {
     }
 
     public Type<?> resolve(final java.lang.reflect.Type type) {
-        return resolveExisting(null, type, true);
+        ++_depth;
+
+        try {
+            return resolveExisting(null, type, true);
+        }
+        finally {
+            --_depth;
+        }
     }
 
     private Type<?> visit(final java.lang.reflect.Type type, final Frame frame) {
@@ -1274,8 +1305,20 @@ class ReflectedType<T> extends Type<T> {
 
     @Override
     protected Type makeGenericTypeCore(final TypeList typeArguments) {
+        final Type publishedType = CACHE.findPublishedGenericType(getGenericTypeDefinition(), typeArguments);
+
+        if (publishedType != null) {
+            return publishedType;
+        }
+
         synchronized (CACHE_LOCK) {
-            return CACHE.getGenericType(getGenericTypeDefinition(), typeArguments);
+            final Type genericType = CACHE.getGenericType(getGenericTypeDefinition(), typeArguments);
+
+            if (!RESOLVER.isResolving()) {
+                CACHE.publishGenericType(getGenericTypeDefinition(), typeArguments, genericType);
+            }
+
+            return genericType;
         }
     }
 
@@ -1122,8 +1122,20 @@ public abstract class Type<T> extends MemberInfo implements java.lang.reflect.Ty
     ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
 
     public final Type<T[]> makeArrayType() {
+        final Type<T[]> publishedType = CACHE.findPublishedArrayType(this);
+
+        if (publishedType != null) {
+            return publishedType;
+        }
+
         synchronized (CACHE_LOCK) {
-            return CACHE.getArrayType(this);
+            final Type<T[]> arrayType = CACHE.getArrayType(this);
+
+            if (!RESOLVER.isResolving()) {
+                CACHE.publishArrayType(this, arrayType);
+            }
+
+            return arrayType;
         }
     }
 
@@ -1558,34 +1570,55 @@ public abstract class Type<T> extends MemberInfo implements java.lang.reflect.Ty
     }
 
     public static <T> Type<T> of(final Class<T> clazz) {
+        //
+        // Only a miss needs to take the lock; types are published for lock-free lookup once no
+        // resolution is in progress, so a type is never seen before it has been fully built.
+        //
+
+        final Type<T> publishedType = CACHE.findPublished(clazz);
+
+        if (publishedType != null) {
+            return publishedType;
+        }
+
         synchronized (CACHE_LOCK) {
-            final Type<T> reflectedType = CACHE.find(clazz);
+            final Type<T> resolvedType = findOrResolveType(clazz);
 
-            if (reflectedType != null) {
-                return reflectedType;
+            if (!RESOLVER.isResolving()) {
+                CACHE.publish(clazz, resolvedType);
             }
 
-            int arrayDepth = 0;
-            Class<?> actualClass = clazz;
+            return resolvedType;
+        }
+    }
 
-            while (actualClass.isArray()) {
-                actualClass = actualClass.getComponentType();
-                ++arrayDepth;
-            }
+    private static <T> Type<T> findOrResolveType(final Class<T> clazz) {
+        final Type<T> reflectedType = CACHE.find(clazz);
 
-            Type<?> resolvedType = resolveClassType(actualClass);
+        if (reflectedType != null) {
+            return reflectedType;
+        }
 
-            if (resolvedType == null) {
-                throw Error.couldNotResolveType(clazz);
-            }
+        int arrayDepth = 0;
+        Class<?> actualClass = clazz;
 
-            while (arrayDepth > 0) {
-                resolvedType = resolvedType.makeArrayType();
-                --arrayDepth;
-            }
+        while (actualClass.isArray()) {
+            actualClass = actualClass.getComponentType();
+            ++arrayDepth;
+        }
+
+        Type<?> resolvedType = resolveClassType(actualClass);
 
-            return (Type<T>) resolvedType;
+        if (resolvedType == null) {
+            throw Error.couldNotResolveType(clazz);
         }
+
+        while (arrayDepth > 0) {
+            resolvedType = resolvedType.makeArrayType();
+            --arrayDepth;
+        }
+
+        return (Type<T>) resolvedType;
     }
 
     public static Type<?> forName(final String name) {
@@ -15,18 +15,45 @@ package com.strobel.reflection;
 
 import com.strobel.core.Comparer;
 import com.strobel.core.HashUtilities;
+import com.strobel.reflection.emit.GeneratedClassLoader;
 import com.strobel.util.TypeUtils;
 
-import java.util.LinkedHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
+ * Updates and the {@code find} methods must be used while holding {@link Type#CACHE_LOCK}.  Only the
+ * {@code findPublished} methods may be called without it, and they only see types which were
+ * published after resolution had finished.
+ *
  * @author strobelm
  */
 @SuppressWarnings("unchecked")
 final class TypeCache {
-    private final LinkedHashMap<Key, Type<?>> _map = new LinkedHashMap<>();
-    private final LinkedHashMap<String, Type<?>> _definitionMap = new LinkedHashMap<>();
-    private final LinkedHashMap<Type<?>, Type<?>> _arrayMap = new LinkedHashMap<>();
+    private final Maps _maps = new Maps();
+
+    //
+    // Types involving classes defined by a GeneratedClassLoader are kept with the class rather than
+    // in the shared maps, so the cache does not keep the class from being unloaded.
+    //
+    private final ClassValue<Maps> _collectibleMaps = new ClassValue<Maps>() {
+        @Override
+        protected Maps computeValue(final Class<?> type) {
+            return new Maps();
+        }
+    };
+
+    //
+    // Types are added to the maps above while they are still being resolved, so lock-free lookups
+    // go through separate slots which are only filled in once resolution has finished: this one for
+    // Type.of(), and the published maps in Maps for array types and generic instantiations.  Other
+    // lookups, e.g. by name, always take the lock.
+    //
+    private final ClassValue<PublishedType> _publishedTypes = new ClassValue<PublishedType>() {
+        @Override
+        protected PublishedType computeValue(final Class<?> type) {
+            return new PublishedType();
+        }
+    };
 
     public Key key(final Type<?> type) {
         return key(type, TypeList.empty());
@@ -37,11 +64,31 @@ final class TypeCache {
     }
 
     public Type find(final Key key) {
-        return _map.get(key);
+        return maps(key.scope).map.get(key);
+    }
+
+    public <T> Type<T> findPublished(final Class<T> clazz) {
+        return (Type<T>) _publishedTypes.get(clazz).type;
+    }
+
+    public void publish(final Class<?> clazz, final Type<?> type) {
+        _publishedTypes.get(clazz).type = type;
+    }
+
+    public <T> Type<T[]> findPublishedArrayType(final Type<T> elementType) {
+        return (Type<T[]>) maps(getCollectibleClass(elementType)).publishedArrayMap.get(elementType);
+    }
+
+    public <T> void publishArrayType(final Type<T> elementType, final Type<T[]> arrayType) {
+        maps(getCollectibleClass(elementType)).publishedArrayMap.putIfAbsent(elementType, arrayType);
+    }
+
+    public <T> Type<T[]> findArrayType(final Type<T> elementType) {
+        return (Type<T[]>) maps(getCollectibleClass(elementType)).arrayMap.get(elementType);
     }
 
     public <T> Type<T[]> getArrayType(final Type<T> elementType) {
-        Type<T[]> arrayType = (Type<T[]>) _arrayMap.get(elementType);
+        Type<T[]> arrayType = findArrayType(elementType);
 
         if (arrayType != null) {
             return arrayType;
@@ -59,7 +106,9 @@ final class TypeCache {
             typeArguments
         );
 
-        Type genericType = _map.get(key);
+        final ConcurrentHashMap<Key, Type<?>> map = maps(key.scope).map;
+
+        Type genericType = map.get(key);
 
         if (genericType == null) {
             genericType = new GenericType(
@@ -67,7 +116,7 @@ final class TypeCache {
                 typeArguments
             );
 
-            final Type existing = _map.put(key, genericType);
+            final Type existing = map.put(key, genericType);
 
             if (existing != null) {
                 return existing;
@@ -77,37 +126,60 @@ final class TypeCache {
         return genericType;
     }
 
+    public <T> Type<T> findPublishedGenericType(final Type<T> type, final TypeList typeArguments) {
+        final Key key = key(
+            type.isGenericType() ? type.getGenericTypeDefinition() : type,
+            typeArguments
+        );
+
+        return (Type<T>) maps(key.scope).publishedMap.get(key);
+    }
+
+    public <T> void publishGenericType(final Type<T> type, final TypeList typeArguments, final Type<T> genericType) {
+        final Key key = key(
+            type.isGenericType() ? type.getGenericTypeDefinition() : type,
+            typeArguments
+        );
+
+        maps(key.scope).publishedMap.putIfAbsent(key, genericType);
+    }
+
     public <T> Type<T> find(final Class<T> clazz) {
-        return (Type<T>) _definitionMap.get(TypeUtils.getInternalName(clazz));
+        Class<?> elementClass = clazz;
+
+        while (elementClass.isArray()) {
+            elementClass = elementClass.getComponentType();
+        }
+
+        final Class<?> scope = elementClass.getClassLoader() instanceof GeneratedClassLoader ? elementClass : null;
+
+        return (Type<T>) maps(scope).definitionMap.get(TypeUtils.getInternalName(clazz));
     }
 
     public int size() {
-        return _map.size();
+        return _maps.map.size();
     }
 
     public void put(final Key key, final Type type) {
         final String descriptor = key.descriptor;
+        final Type<?> definition = type.isGenericType() && !type.isGenericTypeDefinition() ? type.getGenericTypeDefinition()
+                                                                                           : type;
 
-        if (!_definitionMap.containsKey(descriptor)) {
-            if (type.isGenericType() && !type.isGenericTypeDefinition()) {
-                _definitionMap.put(descriptor, type.getGenericTypeDefinition());
-            }
-            else {
-                _definitionMap.put(descriptor, type);
-            }
+        final ConcurrentHashMap<String, Type<?>> definitionMap = maps(getCollectibleClass(definition)).definitionMap;
+
+        if (!definitionMap.containsKey(descriptor)) {
+            definitionMap.putIfAbsent(descriptor, definition);
         }
 
-        if (type.isPrimitive() && !_definitionMap.containsKey(type.getName())) {
-            _definitionMap.put(type.getName(), type);
+        if (type.isPrimitive()) {
+            definitionMap.putIfAbsent(type.getName(), type);
         }
 
-        _map.put(key, type);
+        maps(key.scope).map.put(key, type);
 
         if (type.isArray()) {
-            final Type elementType = type.getElementType();
-            if (!_arrayMap.containsKey(elementType)) {
-                _arrayMap.put(elementType, type);
-            }
+            final Type<?> elementType = type.getElementType();
+            maps(getCollectibleClass(elementType)).arrayMap.putIfAbsent(elementType, type);
         }
     }
 
@@ -124,10 +196,78 @@ final class TypeCache {
         put(key(type, typeArguments), type);
     }
 
+    private Maps maps(final Class<?> scope) {
+        return scope != null ? _collectibleMaps.get(scope) : _maps;
+    }
+
+    /**
+     * Returns a class defined by a {@link GeneratedClassLoader} which {@code type} refers to, or
+     * {@code null} if there is none.
+     */
+    private static Class<?> getCollectibleClass(final Type<?> type) {
+        if (type == null || type.isPrimitive() || type.isGenericParameter()) {
+            return null;
+        }
+
+        if (type.isArray()) {
+            return getCollectibleClass(type.getElementType());
+        }
+
+        if (type instanceof ICapturedType) {
+            return null;
+        }
+
+        if (type.isWildcardType()) {
+            final Class<?> extendsBound = getCollectibleClass(type.getExtendsBound());
+            return extendsBound != null ? extendsBound : getCollectibleClass(type.getSuperBound());
+        }
+
+        if (type.isGenericType() && !type.isGenericTypeDefinition()) {
+            final Class<?> definition = getCollectibleClass(type.getGenericTypeDefinition());
+            return definition != null ? definition : getCollectibleClass(type.getTypeBindings().getBoundTypes());
+        }
+
+        if (Resolver.isReflectedType(type)) {
+            final Class<?> erasedClass = type.getErasedClass();
+            return erasedClass.getClassLoader() instanceof GeneratedClassLoader ? erasedClass : null;
+        }
+
+        return null;
+    }
+
+    private static Class<?> getCollectibleClass(final TypeList types) {
+        if (types == null) {
+            return null;
+        }
+
+        for (int i = 0, n = types.size(); i < n; i++) {
+            final Class<?> collectibleClass = getCollectibleClass(types.get(i));
+
+            if (collectibleClass != null) {
+                return collectibleClass;
+            }
+        }
+
+        return null;
+    }
+
+    private final static class Maps {
+        final ConcurrentHashMap<Key, Type<?>> map = new ConcurrentHashMap<>();
+        final ConcurrentHashMap<String, Type<?>> definitionMap = new ConcurrentHashMap<>();
+        final ConcurrentHashMap<Type<?>, Type<?>> arrayMap = new ConcurrentHashMap<>();
+        final ConcurrentHashMap<Key, Type<?>> publishedMap = new ConcurrentHashMap<>();
+        final ConcurrentHashMap<Type<?>, Type<?>> publishedArrayMap = new ConcurrentHashMap<>();
+    }
+
+    private final static class PublishedType {
+        volatile Type<?> type;
+    }
+
     final static class Key {
         private final String descriptor;
         private final TypeList typeArguments;
         private final int hashCode;
+        private final Class<?> scope;
 
         public Key(final Type<?> simpleType) {
             this(simpleType, null);
@@ -137,6 +277,9 @@ final class TypeCache {
             this.descriptor = type.getInternalName();
             this.typeArguments = typeArguments;
 
+            final Class<?> scope = getCollectibleClass(type);
+            this.scope = scope != null ? scope : getCollectibleClass(typeArguments);
+
             int h = this.descriptor.hashCode();
 
             if (typeArguments != null && !typeArguments.isEmpty()) {
@@ -17,6 +17,7 @@ import com.strobel.core.HashUtilities;
 import com.strobel.core.StringUtilities;
 import com.strobel.core.VerifyArgument;
 import com.strobel.reflection.FieldInfo;
+import com.strobel.reflection.MemberInfo;
 import com.strobel.reflection.MethodBase;
 import com.strobel.reflection.MethodInfo;
 import com.strobel.reflection.Type;
@@ -42,8 +43,19 @@ final class ConstantPool {
     private final Key _newKey = new Key();
 
     private int _size;
+    private boolean _requiresPackageAccess;
 
     final HashSet<Type<?>> referencedInnerTypes = new LinkedHashSet<>();
+    final HashSet<TypeBuilder<?>> referencedTypeBuilders = new LinkedHashSet<>();
+    final HashSet<GeneratedClassLoader> referencedClassLoaders = new LinkedHashSet<>();
+
+    /**
+     * Returns whether any type or member referenced from this pool is not public, in which case the
+     * class must be defined in the same runtime package (and class loader) as that type or member.
+     */
+    boolean requiresPackageAccess() {
+        return _requiresPackageAccess;
+    }
 
     public void write(final CodeStream stream) {
         stream.putShort(_size + 1);
@@ -150,6 +162,23 @@ final class ConstantPool {
     public TypeInfo getTypeInfo(final Type<?> type) {
         final Utf8StringConstant name = getUtf8StringConstant(type.getInternalName());
 
+        final Type<?> referencedClass = getReferencedClass(type);
+
+        if (referencedClass instanceof TypeBuilder) {
+            referencedTypeBuilders.add((TypeBuilder<?>) referencedClass);
+        }
+        else if (!referencedClass.isPrimitive() && !referencedClass.isGenericParameter()) {
+            if (!referencedClass.isPublic()) {
+                _requiresPackageAccess = true;
+            }
+
+            final ClassLoader classLoader = referencedClass.getErasedClass().getClassLoader();
+
+            if (classLoader instanceof GeneratedClassLoader) {
+                referencedClassLoaders.add((GeneratedClassLoader) classLoader);
+            }
+        }
+
         if (type.isNested()) {
             referencedInnerTypes.add(type);
 
@@ -157,6 +186,12 @@ final class ConstantPool {
             final MethodBase declaringMethod = type.getDeclaringMethod();
             final String shortName = type.getShortName();
 
+            //
+            // The enclosing type and method are only named in the InnerClasses attribute, which the
+            // VM does not check access to.
+            //
+            final boolean requiresPackageAccess = _requiresPackageAccess;
+
             if (declaringType != null) {
                 getTypeInfo(declaringType);
             }
@@ -165,6 +200,8 @@ final class ConstantPool {
                 getMethodReference(declaringMethod);
             }
 
+            _requiresPackageAccess = requiresPackageAccess;
+
             if (!StringUtilities.isNullOrWhitespace(shortName)) {
                 getUtf8StringConstant(shortName);
             }
@@ -185,6 +222,11 @@ final class ConstantPool {
 
     public FieldReference getFieldReference(final FieldInfo field) {
         final TypeInfo typeInfo = getTypeInfo(field.getDeclaringType());
+
+        if (!isAccessibleFromAnyPackage(field)) {
+            _requiresPackageAccess = true;
+        }
+
         final NameAndTypeDescriptor nameAndDescriptor = getNameAndTypeDescriptor(
             field.getName(),
             field.getErasedSignature()
@@ -200,6 +242,11 @@ final class ConstantPool {
 
     public MethodReference getMethodReference(final MethodBase method) {
         final TypeInfo typeInfo = getTypeInfo(method.getDeclaringType());
+
+        if (!isAccessibleFromAnyPackage(method)) {
+            _requiresPackageAccess = true;
+        }
+
         final NameAndTypeDescriptor nameAndDescriptor = getNameAndTypeDescriptor(
             method.getName(),
             method.getErasedSignature()
@@ -215,6 +262,11 @@ final class ConstantPool {
 
     public InterfaceMethodReference getInterfaceMethodReference(final MethodInfo method) {
         final TypeInfo typeInfo = getTypeInfo(method.getDeclaringType());
+
+        if (!isAccessibleFromAnyPackage(method)) {
+            _requiresPackageAccess = true;
+        }
+
         final NameAndTypeDescriptor nameAndDescriptor = getNameAndTypeDescriptor(
             method.getName(),
             method.getErasedSignature()
@@ -228,6 +280,32 @@ final class ConstantPool {
         return (InterfaceMethodReference)entry;
     }
 
+    private static Type<?> getReferencedClass(final Type<?> type) {
+        Type<?> t = type;
+
+        while (t.isArray()) {
+            t = t.getElementType();
+        }
+
+        if (t.isGenericType() && !t.isGenericTypeDefinition()) {
+            t = t.getGenericTypeDefinition();
+        }
+
+        //
+        // Erased forms of generated types have no class of their own until the builder is created.
+        //
+        final Type<?> underlyingType = t.getUnderlyingType();
+
+        return underlyingType instanceof TypeBuilder ? underlyingType : t;
+    }
+
+    private static boolean isAccessibleFromAnyPackage(final MemberInfo member) {
+        //
+        // Members of other generated types are accessible as long as their types are; see TypeBuilder.
+        //
+        return member.isPublic() || getReferencedClass(member.getDeclaringType()) instanceof TypeBuilder;
+    }
+
     NameAndTypeDescriptor getNameAndTypeDescriptor(final String name, final String typeDescriptor) {
         final Utf8StringConstant utf8Name = getUtf8StringConstant(name);
         final Utf8StringConstant utf8Descriptor = getUtf8StringConstant(typeDescriptor);
@@ -0,0 +1,133 @@
+/*
+ * GeneratedClassLoader.java
+ *
+ * This source code is subject to terms and conditions of the Apache License, Version 2.0.
+ * A copy of the license can be found in the License.html file at the root of this distribution.
+ * By using this source code in any fashion, you are agreeing to be bound by the terms of the
+ * Apache License, Version 2.0.
+ *
+ * You must not remove this notice, or any other, from this software.
+ */
+
+package com.strobel.reflection.emit;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.security.ProtectionDomain;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A class loader for types created by {@link TypeBuilder}.  Unlike classes defined in the system
+ * class loader, classes defined here are unloaded once they, their instances, and their loader are
+ * no longer reachable.
+ * <p>
+ * By default, every type is defined in a loader of its own.  Types which are generated together
+ * may share one via {@link TypeBuilder#setGeneratedClassLoader(GeneratedClassLoader)}, in which
+ * case they are unloaded together.  A generated class may still refer to generated classes defined
+ * in other loaders: {@link TypeBuilder} records those loaders as dependencies of the referring
+ * type's loader, which then finds their classes by name, and keeps them loaded for as long as it
+ * is itself.
+ */
+public final class GeneratedClassLoader extends ClassLoader {
+    private final static Set<ClassReference> LIVE_CLASSES = Collections.newSetFromMap(new ConcurrentHashMap<ClassReference, Boolean>());
+    private final static ReferenceQueue<Class<?>> UNLOADED_CLASSES = new ReferenceQueue<>();
+    private final static AtomicLong DEFINED_CLASS_COUNT = new AtomicLong();
+    private final static AtomicLong PERMANENT_CLASS_COUNT = new AtomicLong();
+
+    private final Map<String, Class<?>> _classes = new ConcurrentHashMap<>();
+    private final Set<GeneratedClassLoader> _dependencies = Collections.newSetFromMap(new ConcurrentHashMap<GeneratedClassLoader, Boolean>());
+
+    public GeneratedClassLoader() {
+        this(ClassLoader.getSystemClassLoader());
+    }
+
+    public GeneratedClassLoader(final ClassLoader parent) {
+        super(parent);
+    }
+
+    Class<?> defineClass(final String name, final byte[] classBytes, final ProtectionDomain protectionDomain) {
+        final Class<?> generatedClass = defineClass(name, classBytes, 0, classBytes.length, protectionDomain);
+
+        expungeUnloadedClasses();
+
+        _classes.put(name, generatedClass);
+        LIVE_CLASSES.add(new ClassReference(generatedClass));
+        DEFINED_CLASS_COUNT.incrementAndGet();
+
+        return generatedClass;
+    }
+
+    /**
+     * Makes the classes defined in {@code loader} visible to classes defined in this loader.
+     */
+    void addDependency(final GeneratedClassLoader loader) {
+        if (loader != this) {
+            _dependencies.add(loader);
+        }
+    }
+
+    @Override
+    protected Class<?> findClass(final String name) throws ClassNotFoundException {
+        //
+        // Our parent didn't know the class, but it may have been generated into a loader our
+        // classes refer to.
+        //
+        for (final GeneratedClassLoader dependency : _dependencies) {
+            final Class<?> generatedClass = dependency._classes.get(name);
+
+            if (generatedClass != null) {
+                return generatedClass;
+            }
+        }
+
+        throw new ClassNotFoundException(name);
+    }
+
+    static void recordPermanentClass() {
+        PERMANENT_CLASS_COUNT.incrementAndGet();
+    }
+
+    /**
+     * Returns the number of classes defined by generated class loaders which have not yet been
+     * unloaded.  Unloading is only noticed after the garbage collector has run.
+     */
+    public static int getLiveClassCount() {
+        expungeUnloadedClasses();
+        return LIVE_CLASSES.size();
+    }
+
+    /**
+     * Returns the total number of classes ever defined by generated class loaders.
+     */
+    public static long getDefinedClassCount() {
+        return DEFINED_CLASS_COUNT.get();
+    }
+
+    /**
+     * Returns the number of generated classes which were defined in the system class loader, and
+     * so can never be unloaded.
+     *
+     * @see TypeBuilder#setCollectible(boolean)
+     */
+    public static long getPermanentClassCount() {
+        return PERMANENT_CLASS_COUNT.get();
+    }
+
+    private static void expungeUnloadedClasses() {
+        ClassReference reference;
+
+        while ((reference = (ClassReference) UNLOADED_CLASSES.poll()) != null) {
+            LIVE_CLASSES.remove(reference);
+        }
+    }
+
+    private final static class ClassReference extends WeakReference<Class<?>> {
+        ClassReference(final Class<?> referent) {
+            super(referent, UNLOADED_CLASSES);
+        }
+    }
+}
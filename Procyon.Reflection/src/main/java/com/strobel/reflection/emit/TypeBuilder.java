@@ -47,6 +47,7 @@ public final class TypeBuilder<T> extends Type<T> {
     private final static String DumpGeneratedClassesProperty = "com.strobel.reflection.emit.TypeBuilder.DumpGeneratedClasses";
     private final static String GeneratedClassOutputPathProperty = "com.strobel.reflection.emit.TypeBuilder.GeneratedClassOutputPath";
     private final static String VerifyGeneratedClassesProperty = "com.strobel.reflection.emit.TypeBuilder.VerifyGeneratedClasses";
+    private final static String DefineCollectibleClassesProperty = "com.strobel.reflection.emit.TypeBuilder.DefineCollectibleClasses";
 
     final ConstantPool constantPool;
     final ArrayList<ConstructorBuilder> constructorBuilders;
@@ -79,6 +80,8 @@ public final class TypeBuilder<T> extends Type<T> {
     private ReadOnlyList<AnnotationBuilder<? extends Annotation>> _annotations;
     private Map<Class<? extends Annotation>, AnnotationBuilder<? extends Annotation>> _annotationMap;
     private final ProtectionDomain _protectionDomain;
+    private boolean _isCollectible;
+    private GeneratedClassLoader _generatedClassLoader;
 
     // <editor-fold defaultstate="collapsed" desc="Constructors and Initializers">
 
@@ -117,6 +120,7 @@ public final class TypeBuilder<T> extends Type<T> {
         _typeBindings = TypeBindings.empty();
         _annotations = ReadOnlyList.emptyList();
         _protectionDomain = CallerResolver.getCallerClass(1).getProtectionDomain();
+        _isCollectible = StringUtilities.isTrue(System.getProperty(DefineCollectibleClassesProperty, "false"));
     }
 
     TypeBuilder(final String name, final int genericParameterPosition, final TypeBuilder declaringType) {
@@ -710,6 +714,62 @@ public final class TypeBuilder<T> extends Type<T> {
         return _hasBeenCreated;
     }
 
+    /**
+     * Returns whether the generated class may be unloaded once it is no longer reachable.  Types are
+     * only collectible if they opt in, or if the
+     * {@code com.strobel.reflection.emit.TypeBuilder.DefineCollectibleClasses} system property is
+     * {@code true}.
+     */
+    public boolean isCollectible() {
+        return _isCollectible;
+    }
+
+    /**
+     * Sets whether the generated class may be unloaded once it is no longer reachable.  Collectible
+     * types are defined in a {@link GeneratedClassLoader}; others are defined in the system class
+     * loader.  A type which refers to non-public types or members of other classes is never
+     * collectible, as it must be defined alongside them to access them.
+     * <p>
+     * The system class loader cannot see collectible types, so a type which refers to collectible
+     * types created before it is defined alongside them even if it is not collectible itself.
+     * Generated types which refer to one another are best created referring type first; each type
+     * it refers to is then defined in the same loader, or also made not collectible.
+     */
+    public void setCollectible(final boolean collectible) {
+        verifyNotCreated();
+        _isCollectible = collectible;
+    }
+
+    /**
+     * Returns the loader the generated class is (or will be) defined in, or {@code null} if none
+     * has been chosen yet, or if the class was defined in the system class loader.
+     */
+    public GeneratedClassLoader getGeneratedClassLoader() {
+        return _generatedClassLoader;
+    }
+
+    /**
+     * Defines the generated class in {@code classLoader}, so that it is unloaded together with the
+     * other types defined there; this also makes the type collectible.  By default, each type gets
+     * a loader of its own, while nested types share the loader of their declaring type.
+     */
+    public void setGeneratedClassLoader(final GeneratedClassLoader classLoader) {
+        verifyNotCreated();
+        _generatedClassLoader = classLoader;
+
+        if (classLoader != null) {
+            _isCollectible = true;
+        }
+    }
+
+    private GeneratedClassLoader getOrCreateGeneratedClassLoader() {
+        if (_generatedClassLoader == null) {
+            _generatedClassLoader = _declaringType != null ? _declaringType.getOrCreateGeneratedClassLoader()
+                                                           : new GeneratedClassLoader();
+        }
+        return _generatedClassLoader;
+    }
+
     public synchronized Type<T> createType() {
         try {
             return createTypeNoLock(null);
@@ -1231,14 +1291,82 @@ public final class TypeBuilder<T> extends Type<T> {
 
             _hasBeenCreated = true;
 
-            _generatedClass = (Class<T>) getUnsafeInstance().defineClass(
-                fullName,
-                classBytes,
-                0,
-                classBytes.length,
-                ClassLoader.getSystemClassLoader(),
-                _protectionDomain
-            );
+            //
+            // Every collectible class we refer to must be visible from the loader we end up in.
+            //
+            final Set<GeneratedClassLoader> referencedLoaders = new LinkedHashSet<>(constantPool.referencedClassLoaders);
+
+            for (final TypeBuilder<?> referencedType : constantPool.referencedTypeBuilders) {
+                if (referencedType != this && referencedType._generatedClassLoader != null) {
+                    referencedLoaders.add(referencedType._generatedClassLoader);
+                }
+            }
+
+            boolean isCollectible = _isCollectible && !constantPool.requiresPackageAccess();
+
+            if (!isCollectible && !referencedLoaders.isEmpty()) {
+                //
+                // The system class loader can't see collectible classes, so define this one alongside
+                // those it refers to instead.
+                //
+                if (constantPool.requiresPackageAccess()) {
+                    throw new IllegalStateException(
+                        "Type '" + fullName + "' refers to collectible generated types, but must be " +
+                        "defined in the system class loader to access non-public types or members."
+                    );
+                }
+
+                isCollectible = true;
+
+                if (_generatedClassLoader == null) {
+                    _generatedClassLoader = referencedLoaders.iterator().next();
+                }
+            }
+
+            //
+            // Generated types we refer to which haven't been created yet follow us into our loader,
+            // or into the system class loader, so that we can always find them.
+            //
+            for (final TypeBuilder<?> referencedType : constantPool.referencedTypeBuilders) {
+                if (referencedType == this || referencedType.isCreated()) {
+                    continue;
+                }
+
+                if (!isCollectible) {
+                    referencedType._isCollectible = false;
+                }
+                else if (referencedType._generatedClassLoader == null) {
+                    referencedType._generatedClassLoader = getOrCreateGeneratedClassLoader();
+                }
+            }
+
+            if (isCollectible) {
+                final GeneratedClassLoader classLoader = getOrCreateGeneratedClassLoader();
+
+                for (final GeneratedClassLoader referencedLoader : referencedLoaders) {
+                    classLoader.addDependency(referencedLoader);
+                }
+
+                _generatedClass = (Class<T>) classLoader.defineClass(
+                    fullName,
+                    classBytes,
+                    _protectionDomain
+                );
+            }
+            else {
+                _generatedClassLoader = null;
+
+                _generatedClass = (Class<T>) getUnsafeInstance().defineClass(
+                    fullName,
+                    classBytes,
+                    0,
+                    classBytes.length,
+                    ClassLoader.getSystemClassLoader(),
+                    _protectionDomain
+                );
+
+                GeneratedClassLoader.recordPermanentClass();
+            }
 
             RuntimeHelpers.ensureClassInitialized(_generatedClass);
 
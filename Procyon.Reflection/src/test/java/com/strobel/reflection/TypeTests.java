@@ -17,6 +17,11 @@ import org.junit.Test;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static com.strobel.core.CollectionUtilities.first;
 import static java.lang.String.format;
@@ -292,6 +297,59 @@ public final class TypeTests {
     static void testMe(final Class c) {
     }
 
+    @Test
+    public void testConcurrentLookupsAgreeOnTypes() throws Throwable {
+        final int threadCount = 8;
+        final CountDownLatch start = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        final List<Future<Type<?>[]>> results = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < threadCount; i++) {
+                results.add(
+                    executor.submit(
+                        new Callable<Type<?>[]>() {
+                            @Override
+                            public Type<?>[] call() throws Exception {
+                                start.await();
+
+                                final Type<Parallel> parallel = Type.of(Parallel.class);
+
+                                return new Type<?>[] {
+                                    parallel,
+                                    Type.of(Parallel.Node.class),
+                                    Type.of(Parallel.Node[].class),
+                                    parallel.makeArrayType(),
+                                    parallel.makeGenericType(Types.String)
+                                };
+                            }
+                        }
+                    )
+                );
+            }
+
+            start.countDown();
+
+            final Type<?>[] expected = results.get(0).get();
+
+            for (final Future<Type<?>[]> result : results) {
+                final Type<?>[] actual = result.get();
+
+                for (int i = 0; i < expected.length; i++) {
+                    assertSame(expected[i], actual[i]);
+                }
+            }
+
+            assertSame(expected[0], Type.of(Parallel.class));
+            assertSame(expected[2], expected[1].makeArrayType());
+            assertSame(expected[0], expected[4].getGenericTypeDefinition());
+            assertSame(expected[1], first(expected[0].getGenericTypeParameters()).getExtendsBound().getGenericTypeDefinition());
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
     private interface I {}
 
     private static class B {}
@@ -319,4 +377,9 @@ public final class TypeTests {
         static class MyNode extends G.Node<MyNode> {
         }
     }
+
+    private static class Parallel<N extends Parallel.Node<N>> {
+        static class Node<N extends Node<N>> {
+        }
+    }
 }
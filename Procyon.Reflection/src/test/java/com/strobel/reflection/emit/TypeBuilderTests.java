@@ -27,6 +27,7 @@ import java.lang.annotation.RetentionPolicy;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.concurrent.Callable;
 
 import static org.junit.Assert.*;
 
@@ -39,6 +40,10 @@ public final class TypeBuilderTests {
         int value();
     }
 
+    interface PackagePrivateCallable {
+        Object call();
+    }
+
     @Test
     public void testGenericTypeBuilder() throws Throwable {
         final TypeBuilder<?> typeBuilder = new TypeBuilder<>(
@@ -410,4 +415,148 @@ public final class TypeBuilderTests {
         assertTrue(typeVariableArray.isEquivalentTo(createdTypeVariableArray));
         assertTrue(createdTypeVariableArray.isEquivalentTo(typeVariableArray));
     }
+
+    @Test
+    public void testCollectibleTypesAreUnloaded() throws Throwable {
+        final int liveClassCount = GeneratedClassLoader.getLiveClassCount();
+
+        for (int i = 0; i < 10; i++) {
+            createAndCallType("TestCollectibleType" + i, Types.Callable.makeGenericType(Types.Object), "call");
+        }
+
+        assertTrue(GeneratedClassLoader.getLiveClassCount() >= liveClassCount + 10);
+
+        for (int i = 0; i < 50 && GeneratedClassLoader.getLiveClassCount() > liveClassCount; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+
+        assertTrue(GeneratedClassLoader.getLiveClassCount() <= liveClassCount);
+    }
+
+    @Test
+    public void testTypeNeedingPackageAccessIsNotCollectible() throws Throwable {
+        final TypeBuilder<?> typeBuilder = createAndCallType(
+            "TestPackageAccessType",
+            Type.of(PackagePrivateCallable.class),
+            "call"
+        );
+
+        assertNull(typeBuilder.getGeneratedClassLoader());
+        assertSame(ClassLoader.getSystemClassLoader(), typeBuilder.getErasedClass().getClassLoader());
+    }
+
+    @Test
+    public void testTypesAreNotCollectibleByDefault() throws Throwable {
+        final TypeBuilder<?> typeBuilder = defineCallableType("TestDefaultType");
+
+        assertFalse(typeBuilder.isCollectible());
+
+        final CodeGenerator code = defineCallMethod(typeBuilder);
+
+        code.emitString("TestDefaultType");
+        code.emitReturn(Types.Object);
+
+        assertSame(ClassLoader.getSystemClassLoader(), typeBuilder.createType().getErasedClass().getClassLoader());
+        assertNull(typeBuilder.getGeneratedClassLoader());
+    }
+
+    @Test
+    public void testTypeReferringToCollectibleTypeIsDefinedAlongsideIt() throws Throwable {
+        final Class<?> collectibleClass = createAndCallType(
+            "TestReferencedCollectibleType",
+            Types.Callable.makeGenericType(Types.Object),
+            "call"
+        ).getErasedClass();
+
+        final TypeBuilder<?> typeBuilder = defineCallableType("TestReferringPermanentType");
+        final CodeGenerator code = defineCallMethod(typeBuilder);
+
+        code.emitNew(Type.of(collectibleClass));
+        code.dup();
+        code.call(Type.of(collectibleClass).getConstructor());
+        code.emitReturn(Types.Object);
+
+        final Class<?> referringClass = typeBuilder.createType().getErasedClass();
+
+        assertSame(collectibleClass.getClassLoader(), referringClass.getClassLoader());
+        assertSame(collectibleClass, ((Callable<?>) referringClass.newInstance()).call().getClass());
+    }
+
+    @Test
+    public void testSameNamedTypesInDifferentLoadersAreKeptApart() throws Throwable {
+        final Type<?> callableType = Types.Callable.makeGenericType(Types.Object);
+        final Class<?> firstClass = createAndCallType("TestSameNamedType", callableType, "call").getErasedClass();
+        final Class<?> secondClass = createAndCallType("TestSameNamedType", callableType, "call").getErasedClass();
+
+        assertNotSame(firstClass, secondClass);
+
+        final TypeBuilder<?> typeBuilder = defineCallableType("TestSameNamedTypeReferrer");
+        final CodeGenerator code = defineCallMethod(typeBuilder);
+
+        typeBuilder.setGeneratedClassLoader(new GeneratedClassLoader());
+
+        code.emitNew(Type.of(firstClass));
+        code.dup();
+        code.call(Type.of(firstClass).getConstructor());
+        code.emitReturn(Types.Object);
+
+        final Class<?> referringClass = typeBuilder.createType().getErasedClass();
+
+        assertNotSame(firstClass.getClassLoader(), referringClass.getClassLoader());
+        assertSame(firstClass, ((Callable<?>) referringClass.newInstance()).call().getClass());
+    }
+
+    private static TypeBuilder<?> defineCallableType(final String name) {
+        return new TypeBuilder<>(
+            TypeBuilderTests.class.getPackage().getName() + "." + name,
+            Modifier.PUBLIC | Modifier.FINAL,
+            Types.Object,
+            Type.list(Types.Callable.makeGenericType(Types.Object))
+        );
+    }
+
+    private static CodeGenerator defineCallMethod(final TypeBuilder<?> typeBuilder) {
+        return typeBuilder.defineMethod(
+            "call",
+            Modifier.PUBLIC | Modifier.FINAL,
+            Types.Object,
+            TypeList.empty()
+        ).getCodeGenerator();
+    }
+
+    private static TypeBuilder<?> createAndCallType(final String name, final Type<?> interfaceType, final String methodName)
+        throws Throwable {
+
+        final TypeBuilder<?> typeBuilder = new TypeBuilder<>(
+            TypeBuilderTests.class.getPackage().getName() + "." + name,
+            Modifier.PUBLIC | Modifier.FINAL,
+            Types.Object,
+            Type.list(interfaceType)
+        );
+
+        typeBuilder.setCollectible(true);
+
+        final MethodBuilder method = typeBuilder.defineMethod(
+            methodName,
+            Modifier.PUBLIC | Modifier.FINAL,
+            Types.Object,
+            TypeList.empty()
+        );
+
+        final CodeGenerator code = method.getCodeGenerator();
+
+        code.emitString(name);
+        code.emitReturn(Types.Object);
+
+        final Object instance = typeBuilder.createType().newInstance();
+
+        assertEquals(
+            name,
+            instance instanceof Callable<?> ? ((Callable<?>) instance).call()
+                                            : ((PackagePrivateCallable) instance).call()
+        );
+
+        return typeBuilder;
+    }
 }